@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Fork-join processing of the index range [0, n) of a list of inputs in contiguous chunks, which is
+ * shared by the bulk operations of the sketch packages. It is not intended for use outside of
+ * this library.
+ *
+ * <p>The range is split in halves until the pieces are no larger than
+ * {@link #chunkSize(int, int)}. Each chunk is then processed sequentially by one task, so that a
+ * chunk can reuse one set of working buffers or one partial result for all of its inputs.</p>
+ */
+public final class ForkJoinChunks {
+  //Each worker thread gets several chunks so that uneven sketch sizes still balance well.
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private ForkJoinChunks() {}
+
+  /**
+   * Processes the index range [lo, hi) of a chunk.
+   */
+  @FunctionalInterface
+  public interface ChunkAction {
+
+    /**
+     * Processes the given chunk.
+     * @param lo the first index of the chunk, inclusive
+     * @param hi the last index of the chunk, exclusive
+     */
+    void apply(int lo, int hi);
+  }
+
+  /**
+   * Returns the partial result of the index range [lo, hi) of a chunk.
+   * @param <R> the type of the partial results
+   */
+  @FunctionalInterface
+  public interface ChunkFunction<R> {
+
+    /**
+     * Returns the partial result of the given chunk.
+     * @param lo the first index of the chunk, inclusive
+     * @param hi the last index of the chunk, exclusive
+     * @return the partial result of the given chunk
+     */
+    R apply(int lo, int hi);
+  }
+
+  /**
+   * Returns the maximum number of inputs that one task processes sequentially.
+   * @param n the number of inputs
+   * @param parallelism the parallelism of the ForkJoinPool
+   * @return the number of inputs per chunk, which is at least one
+   */
+  public static int chunkSize(final int n, final int parallelism) {
+    final int numChunks = Math.max(1, parallelism) * CHUNKS_PER_THREAD;
+    return Math.max(1, (n + numChunks - 1) / numChunks);
+  }
+
+  /**
+   * Applies the given action to every chunk of the index range [0, n) using the given pool.
+   * The action must only write state that belongs to the indices of its chunk.
+   * @param n the number of inputs
+   * @param action the action that processes a chunk
+   * @param pool the ForkJoinPool that runs the tasks
+   */
+  public static void forEachChunk(final int n, final ChunkAction action, final ForkJoinPool pool) {
+    Objects.requireNonNull(action, "Parameter 'action' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    if (n <= 0) { return; }
+    pool.invoke(new ActionTask(action, 0, n, chunkSize(n, pool.getParallelism())));
+  }
+
+  /**
+   * Returns the combination of the partial results of all chunks of the index range [0, n) using
+   * the given pool. Partial results are combined pairwise up the tree of tasks, always with the
+   * result of the lower indices as the first argument.
+   * @param <R> the type of the results
+   * @param n the number of inputs, which must be at least one
+   * @param chunkFn returns the partial result of a chunk
+   * @param combine combines two partial results. It may return its first argument after merging
+   * the second one into it.
+   * @param pool the ForkJoinPool that runs the tasks
+   * @return the combination of the partial results of all chunks
+   */
+  public static <R> R reduceChunks(final int n, final ChunkFunction<R> chunkFn,
+      final BinaryOperator<R> combine, final ForkJoinPool pool) {
+    Objects.requireNonNull(chunkFn, "Parameter 'chunkFn' must not be null");
+    Objects.requireNonNull(combine, "Parameter 'combine' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    if (n <= 0) {
+      throw new SketchesArgumentException("The number of inputs must be at least one: " + n);
+    }
+    return pool.invoke(new ReduceTask<>(chunkFn, combine, 0, n, chunkSize(n, pool.getParallelism())));
+  }
+
+  private static final class ActionTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient ChunkAction action;
+    private final int lo; //inclusive
+    private final int hi; //exclusive
+    private final int chunkSize;
+
+    ActionTask(final ChunkAction action, final int lo, final int hi, final int chunkSize) {
+      this.action = action;
+      this.lo = lo;
+      this.hi = hi;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected void compute() {
+      if ((hi - lo) <= chunkSize) {
+        action.apply(lo, hi);
+        return;
+      }
+      final int mid = (lo + hi) >>> 1;
+      invokeAll(new ActionTask(action, lo, mid, chunkSize),
+          new ActionTask(action, mid, hi, chunkSize));
+    }
+  }
+
+  private static final class ReduceTask<R> extends RecursiveTask<R> {
+    private static final long serialVersionUID = 1L;
+    private final transient ChunkFunction<R> chunkFn;
+    private final transient BinaryOperator<R> combine;
+    private final int lo; //inclusive
+    private final int hi; //exclusive
+    private final int chunkSize;
+
+    ReduceTask(final ChunkFunction<R> chunkFn, final BinaryOperator<R> combine, final int lo,
+        final int hi, final int chunkSize) {
+      this.chunkFn = chunkFn;
+      this.combine = combine;
+      this.lo = lo;
+      this.hi = hi;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected R compute() {
+      if ((hi - lo) <= chunkSize) {
+        return chunkFn.apply(lo, hi);
+      }
+      final int mid = (lo + hi) >>> 1;
+      final ReduceTask<R> left = new ReduceTask<>(chunkFn, combine, lo, mid, chunkSize);
+      left.fork();
+      final R rightResult = new ReduceTask<>(chunkFn, combine, mid, hi, chunkSize).compute();
+      return combine.apply(left.join(), rightResult);
+    }
+  }
+
+}
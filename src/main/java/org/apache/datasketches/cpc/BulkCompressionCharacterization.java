@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.cpc;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.Util.iGoldenU64;
+import static org.apache.datasketches.cpc.RuntimeAsserts.rtAssert;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * This code is used both by unit tests, for short running tests,
+ * and by the characterization repository for longer running, more exhaustive testing. To be
+ * accessible for both, this code is part of the main hierarchy. It is not used during normal
+ * production runtime.
+ *
+ * <p>This compares the throughput of {@link CpcBulkCompression} against calling
+ * {@link CpcSketch#toByteArray()} and {@link CpcSketch#heapify(Memory)} in a loop.</p>
+ */
+public class BulkCompressionCharacterization {
+  private String hfmt;
+  private String dfmt;
+  private String[] hStrArr;
+  private long vIn = 0;
+
+  //inputs
+  private int lgMinK;
+  private int lgMaxK; //inclusive
+  private int numSketches;
+  private int lgMulK; //multiplier of K to produce n per sketch
+  private int trials;
+  private ForkJoinPool pool;
+  private PrintStream ps;
+  private PrintWriter pw;
+
+  public BulkCompressionCharacterization(
+      final int lgMinK,
+      final int lgMaxK,
+      final int numSketches,
+      final int lgMulK,
+      final int trials,
+      final ForkJoinPool pool,
+      final PrintStream pS,
+      final PrintWriter pW) {
+    this.lgMinK = lgMinK;
+    this.lgMaxK = lgMaxK;
+    this.numSketches = Math.max(numSketches, 1);
+    this.lgMulK = lgMulK;
+    this.trials = Math.max(trials, 1);
+    this.pool = pool;
+    ps = pS;
+    pw = pW;
+    assembleFormats();
+  }
+
+  public void start() {
+    printf(hfmt, (Object[]) hStrArr); //print header
+    for (int lgK = lgMinK; lgK <= lgMaxK; lgK++) {
+      doTrialsAtLgK(lgK);
+    }
+  }
+
+  private void doTrialsAtLgK(final int lgK) {
+    final long n = 1L << (lgK + lgMulK);
+    final List<CpcSketch> sketches = new ArrayList<>(numSketches);
+    for (int i = 0; i < numSketches; i++) {
+      final CpcSketch sketch = new CpcSketch(lgK);
+      for (long j = 0; j < n; j++) { sketch.update(vIn += iGoldenU64); }
+      sketches.add(sketch);
+    }
+
+    long sumLoopCom_nS = 0;
+    long sumBulkCom_nS = 0;
+    long sumLoopUnc_nS = 0;
+    long sumBulkUnc_nS = 0;
+    long nanoStart, nanoEnd;
+    byte[][] loopImages = null;
+    byte[][] bulkImages = null;
+    CpcSketch[] bulkSketches = null;
+
+    for (int t = 0; t < trials; t++) {
+      nanoStart = System.nanoTime();
+      loopImages = new byte[numSketches][];
+      for (int i = 0; i < numSketches; i++) {
+        loopImages[i] = sketches.get(i).toByteArray();
+      }
+      nanoEnd = System.nanoTime();
+      sumLoopCom_nS += nanoEnd - nanoStart;
+      nanoStart = nanoEnd;
+
+      bulkImages = CpcBulkCompression.toByteArrays(sketches, pool);
+      nanoEnd = System.nanoTime();
+      sumBulkCom_nS += nanoEnd - nanoStart;
+
+      final List<Memory> mems = new ArrayList<>(numSketches);
+      for (int i = 0; i < numSketches; i++) { mems.add(Memory.wrap(bulkImages[i])); }
+
+      nanoStart = System.nanoTime();
+      for (int i = 0; i < numSketches; i++) {
+        CpcSketch.heapify(mems.get(i), DEFAULT_UPDATE_SEED);
+      }
+      nanoEnd = System.nanoTime();
+      sumLoopUnc_nS += nanoEnd - nanoStart;
+      nanoStart = nanoEnd;
+
+      bulkSketches = CpcBulkCompression.heapify(mems, DEFAULT_UPDATE_SEED, pool);
+      nanoEnd = System.nanoTime();
+      sumBulkUnc_nS += nanoEnd - nanoStart;
+    }
+
+    //Equals check of the last trial
+    for (int i = 0; i < numSketches; i++) {
+      rtAssert(Arrays.equals(loopImages[i], bulkImages[i]));
+      rtAssert(TestUtil.specialEquals(sketches.get(i), bulkSketches[i], false, false));
+    }
+
+    final double totSk = (double) numSketches * trials;
+    final double loopCom_nS = sumLoopCom_nS / totSk;
+    final double bulkCom_nS = sumBulkCom_nS / totSk;
+    final double loopUnc_nS = sumLoopUnc_nS / totSk;
+    final double bulkUnc_nS = sumBulkUnc_nS / totSk;
+    printf(dfmt,
+        lgK,
+        numSketches,
+        trials,
+        n,
+        sketches.get(numSketches - 1).getFlavor().toString(),
+        loopCom_nS,
+        bulkCom_nS,
+        loopCom_nS / bulkCom_nS,
+        loopUnc_nS,
+        bulkUnc_nS,
+        loopUnc_nS / bulkUnc_nS);
+  }
+
+  private void printf(final String format, final Object ... args) {
+    if (ps != null) { ps.printf(format, args); }
+    if (pw != null) { pw.printf(format, args); }
+  }
+
+  private void assembleFormats() {
+    final String[][] assy = {
+        {"lgK",           "%3s",  "%3d"},
+        {"Sketches",      "%9s",  "%9d"},
+        {"Trials",        "%7s",  "%7d"},
+        {"n",             "%12s", "%12d"},
+        {"Flavor",        "%8s",  "%8s"},
+        {"LoopCom_nS",    "%11s", "%11.0f"},
+        {"BulkCom_nS",    "%11s", "%11.0f"},
+        {"ComSpeedup",    "%11s", "%11.2f"},
+        {"LoopUnc_nS",    "%11s", "%11.0f"},
+        {"BulkUnc_nS",    "%11s", "%11.0f"},
+        {"UncSpeedup",    "%11s", "%11.2f"}
+    };
+    final int cols = assy.length;
+    hStrArr = new String[cols];
+    final StringBuilder headerFmt = new StringBuilder();
+    final StringBuilder dataFmt = new StringBuilder();
+    headerFmt.append("\nBulk Compression Characterization\n");
+    for (int i = 0; i < cols; i++) {
+      hStrArr[i] = assy[i][0];
+      headerFmt.append(assy[i][1]);
+      headerFmt.append((i < (cols - 1)) ? "\t" : "\n");
+      dataFmt.append(assy[i][2]);
+      dataFmt.append((i < (cols - 1)) ? "\t" : "\n");
+    }
+    hfmt = headerFmt.toString();
+    dfmt = dataFmt.toString();
+  }
+}
@@ -82,6 +82,18 @@ final class CompressedState {
   }
 
   static CompressedState compress(final CpcSketch source) {
+    return compress(source, null);
+  }
+
+  /**
+   * Compresses the given sketch using the given scratch buffers.
+   * @param source the sketch to compress
+   * @param scratch reusable working buffers, or null to allocate new streams.
+   * If not null, the returned state refers to the scratch buffers and is only valid until the
+   * scratch is used again.
+   * @return the compressed state
+   */
+  static CompressedState compress(final CpcSketch source, final CompressionScratch scratch) {
     final short seedHash = computeSeedHash(source.seed);
     final CompressedState target = new CompressedState(source.lgK, seedHash);
     target.fiCol = source.fiCol;
@@ -93,7 +105,7 @@ final class CompressedState {
 
     target.csvIsValid = source.pairTable != null;
     target.windowIsValid = (source.slidingWindow != null);
-    CpcCompression.compress(source, target);
+    CpcCompression.compress(source, target, scratch);
     return target;
   }
 
@@ -119,6 +131,19 @@ final class CompressedState {
   }
 
   static CompressedState importFromMemory(final Memory mem) {
+    return importFromMemory(mem, null);
+  }
+
+  /**
+   * Imports the compressed state from the given Memory, reading the streams into the given scratch
+   * buffers.
+   * @param mem the given Memory
+   * @param scratch reusable working buffers, or null to allocate new streams.
+   * If not null, the returned state refers to the scratch buffers and is only valid until the
+   * scratch is used again.
+   * @return the compressed state
+   */
+  static CompressedState importFromMemory(final Memory mem, final CompressionScratch scratch) {
     checkLoPreamble(mem);
     rtAssert(isCompressed(mem));
     final int lgK = getLgK(mem);
@@ -146,7 +171,7 @@ final class CompressedState {
         //state.hipEstAccum = getHipAccum(mem);
         checkCapacity(mem.getCapacity(), state.getRequiredSerializedBytes());
         //state.cwStream = getCwStream(mem);
-        state.csvStream = getSvStream(mem);
+        state.csvStream = readSvStream(mem, scratch);
         break;
       }
       case SPARSE_HYBRID_HIP : {
@@ -159,7 +184,7 @@ final class CompressedState {
         state.hipEstAccum = getHipAccum(mem);
         checkCapacity(mem.getCapacity(), state.getRequiredSerializedBytes());
         //state.cwStream = getCwStream(mem);
-        state.csvStream = getSvStream(mem);
+        state.csvStream = readSvStream(mem, scratch);
         break;
       }
       case PINNED_SLIDING_MERGED_NOSV : {
@@ -171,7 +196,7 @@ final class CompressedState {
         //state.kxp = getKxP(mem);
         //state.hipEstAccum = getHipAccum(mem);
         checkCapacity(mem.getCapacity(), state.getRequiredSerializedBytes());
-        state.cwStream = getWStream(mem);
+        state.cwStream = readWStream(mem, scratch);
         //state.csvStream = getCsvStream(mem);
         break;
       }
@@ -184,7 +209,7 @@ final class CompressedState {
         state.kxp = getKxP(mem);
         state.hipEstAccum = getHipAccum(mem);
         checkCapacity(mem.getCapacity(), state.getRequiredSerializedBytes());
-        state.cwStream = getWStream(mem);
+        state.cwStream = readWStream(mem, scratch);
         //state.csvStream = getCsvStream(mem);
         break;
       }
@@ -197,8 +222,8 @@ final class CompressedState {
         //state.kxp = getKxP(mem);
         //state.hipEstAccum = getHipAccum(mem);
         checkCapacity(mem.getCapacity(), state.getRequiredSerializedBytes());
-        state.cwStream = getWStream(mem);
-        state.csvStream = getSvStream(mem);
+        state.cwStream = readWStream(mem, scratch);
+        state.csvStream = readSvStream(mem, scratch);
         break;
       }
       case PINNED_SLIDING_HIP : {
@@ -210,8 +235,8 @@ final class CompressedState {
         state.kxp = getKxP(mem);
         state.hipEstAccum = getHipAccum(mem);
         checkCapacity(mem.getCapacity(), state.getRequiredSerializedBytes());
-        state.cwStream = getWStream(mem);
-        state.csvStream = getSvStream(mem);
+        state.cwStream = readWStream(mem, scratch);
+        state.csvStream = readSvStream(mem, scratch);
         break;
       }
     }
@@ -220,6 +245,14 @@ final class CompressedState {
     return state;
   }
 
+  private static int[] readSvStream(final Memory mem, final CompressionScratch scratch) {
+    return (scratch == null) ? getSvStream(mem) : getSvStream(mem, scratch);
+  }
+
+  private static int[] readWStream(final Memory mem, final CompressionScratch scratch) {
+    return (scratch == null) ? getWStream(mem) : getWStream(mem, scratch);
+  }
+
   void exportToMemory(final WritableMemory wmem) {
     final Format format = getFormat();
     switch (format) {
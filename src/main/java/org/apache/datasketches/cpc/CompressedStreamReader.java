@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.cpc;
+
+import static org.apache.datasketches.cpc.CompressionData.lengthLimitedUnaryDecodingTable65;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * An incremental decoder of one compressed stream (either the window stream or the surprising
+ * value stream) that reads the 32-bit words directly from a serialized image.
+ *
+ * <p>This decodes exactly the same bitstream as <i>CpcCompression.lowLevelUncompressBytes</i> and
+ * <i>CpcCompression.lowLevelUncompressPairs</i>, but one value at a time, so that a caller can
+ * interleave the window and the pairs and consume them without first copying the streams into
+ * arrays. Instances are reusable via {@link #reset(Memory, long, int)}.</p>
+ */
+final class CompressedStreamReader {
+  private Memory mem = null;
+  private long streamOffsetBytes;
+  private int nextWordIndex;
+  private long bitBuf;
+  private int bufBits;
+
+  //used only for pairs
+  private int numBaseBits;
+  private long golombLoMask;
+  private int predictedRowIndex;
+  private int predictedColIndex;
+
+  /**
+   * Positions this reader at the start of a compressed stream.
+   * @param mem the serialized image
+   * @param streamOffsetBytes the byte offset of the stream within the image
+   * @param numBaseBits the Golomb base bits, only used when decoding pairs.
+   * @return this
+   */
+  CompressedStreamReader reset(final Memory mem, final long streamOffsetBytes, final int numBaseBits) {
+    this.mem = mem;
+    this.streamOffsetBytes = streamOffsetBytes;
+    nextWordIndex = 0;
+    bitBuf = 0;
+    bufBits = 0;
+    this.numBaseBits = numBaseBits;
+    golombLoMask = (1L << numBaseBits) - 1L;
+    predictedRowIndex = 0;
+    predictedColIndex = 0;
+    return this;
+  }
+
+  /**
+   * Drops the reference to the image so that it can be released.
+   */
+  void release() {
+    mem = null;
+  }
+
+  //MAYBE_FILL_BITBUF
+  private void fill(final int minBits) {
+    if (bufBits < minBits) {
+      bitBuf |= ((mem.getInt(streamOffsetBytes + ((long) nextWordIndex++ << 2)) & 0XFFFF_FFFFL)
+          << bufBits);
+      bufBits += 32;
+    }
+  }
+
+  /**
+   * Decodes the next Huffman coded window byte.
+   * @param decodingTable the decoding table for the pseudo phase of the source sketch
+   * @return the next window byte as an unsigned int.
+   */
+  int nextByte(final short[] decodingTable) {
+    fill(12); // ensure 12 bits in bit buffer
+    final int lookup = decodingTable[(int) (bitBuf & 0XFFFL)] & 0XFFFF;
+    final int codeWordLength = lookup >>> 8;
+    bitBuf >>>= codeWordLength;
+    bufBits -= codeWordLength;
+    return lookup & 0XFF;
+  }
+
+  /**
+   * Decodes the next row/column pair. The column is returned as it was encoded, i.e., any
+   * flavor-specific column transformation has not been undone.
+   * @return the next row/column pair.
+   */
+  int nextPair() {
+    // xDelta (12-bit length-limited unary)
+    fill(12);
+    final int lookup = lengthLimitedUnaryDecodingTable65[(int) (bitBuf & 0XFFFL)] & 0XFFFF;
+    final int codeWordLength = lookup >>> 8;
+    final int xDelta = lookup & 0XFF;
+    bitBuf >>>= codeWordLength;
+    bufBits -= codeWordLength;
+
+    // yDeltaHi (unary)
+    long golombHi = 0;
+    int trailingZeros;
+    while (true) {
+      fill(8);
+      trailingZeros = Math.min(8, Integer.numberOfTrailingZeros((int) (bitBuf & 0XFFL)));
+      if (trailingZeros < 8) { break; }
+      golombHi += 8;
+      bufBits -= 8;
+      bitBuf >>>= 8;
+    }
+    bufBits -= (1 + trailingZeros);
+    bitBuf >>>= (1 + trailingZeros);
+    golombHi += trailingZeros;
+
+    // yDeltaLo (basebits)
+    fill(numBaseBits);
+    final long golombLo = bitBuf & golombLoMask;
+    bitBuf >>>= numBaseBits;
+    bufBits -= numBaseBits;
+    final long yDelta = (golombHi << numBaseBits) | golombLo;
+
+    if (yDelta > 0) { predictedColIndex = 0; }
+    final int rowIndex = predictedRowIndex + (int) yDelta;
+    final int colIndex = predictedColIndex + xDelta;
+    predictedRowIndex = rowIndex;
+    predictedColIndex = colIndex + 1;
+    return (rowIndex << 6) | colIndex;
+  }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.cpc;
+
+/**
+ * Reusable working buffers for compression and decompression of CPC sketches.
+ *
+ * <p>A single instance may be passed to any number of sequential compress or uncompress calls.
+ * The buffers only ever grow, so after the first few sketches of a given lgK no further
+ * allocation of working arrays occurs. An instance must not be shared between threads.</p>
+ *
+ * <p>Any <i>CompressedState</i> produced with a scratch object refers to these buffers and
+ * is only valid until the next call that uses the same scratch object.</p>
+ */
+final class CompressionScratch {
+  private int[] windowBuf = new int[0]; //compressed window words
+  private int[] pairBuf = new int[0];   //compressed surprising value words
+  private int[] pairs = new int[0];     //uncompressed row/col pairs
+  private int[] tablePairs = new int[0]; //row/col pairs unwrapped from a PairTable
+
+  int[] windowBuf(final int minLengthInts) {
+    if (windowBuf.length < minLengthInts) { windowBuf = new int[minLengthInts]; }
+    return windowBuf;
+  }
+
+  int[] pairBuf(final int minLengthInts) {
+    if (pairBuf.length < minLengthInts) { pairBuf = new int[minLengthInts]; }
+    return pairBuf;
+  }
+
+  int[] pairs(final int minLengthInts) {
+    if (pairs.length < minLengthInts) { pairs = new int[minLengthInts]; }
+    return pairs;
+  }
+
+  int[] tablePairs(final int minLengthInts) {
+    if (tablePairs.length < minLengthInts) { tablePairs = new int[minLengthInts]; }
+    return tablePairs;
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.cpc;
+
+import static org.apache.datasketches.ForkJoinChunks.forEachChunk;
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Bulk serialization and deserialization of many CPC sketches at once.
+ *
+ * <p>The given list is split into contiguous chunks that are compressed or uncompressed as tasks
+ * of a {@link ForkJoinPool}. Each chunk reuses one set of working buffers for all of its sketches,
+ * so apart from the output byte arrays and sketches, no per-sketch allocation of compression
+ * buffers occurs.</p>
+ *
+ * <p>The results are identical to calling {@link CpcSketch#toByteArray()} or
+ * {@link CpcSketch#heapify(Memory, long)} on each element in turn, and are returned in the same
+ * order as the input list.</p>
+ *
+ * <p>The input sketches must not be modified while a bulk operation is in progress.</p>
+ */
+public final class CpcBulkCompression {
+  private CpcBulkCompression() {}
+
+  /**
+   * Returns the compressed byte array images of the given sketches using the common ForkJoinPool.
+   * @param sketches the given sketches
+   * @return an array of compressed images in the same order as the given sketches.
+   */
+  public static byte[][] toByteArrays(final List<CpcSketch> sketches) {
+    return toByteArrays(sketches, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the compressed byte array images of the given sketches using the given ForkJoinPool.
+   * @param sketches the given sketches
+   * @param pool the ForkJoinPool that performs the compression
+   * @return an array of compressed images in the same order as the given sketches.
+   */
+  public static byte[][] toByteArrays(final List<CpcSketch> sketches, final ForkJoinPool pool) {
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final int n = sketches.size();
+    final byte[][] images = new byte[n][];
+    if (n == 0) { return images; }
+    forEachChunk(n, (lo, hi) -> {
+      final CompressionScratch scratch = new CompressionScratch();
+      for (int i = lo; i < hi; i++) {
+        images[i] = sketches.get(i).toByteArray(scratch);
+      }
+    }, pool);
+    return images;
+  }
+
+  /**
+   * Returns the given compressed images as CpcSketches on the Java heap using the
+   * DEFAULT_UPDATE_SEED and the common ForkJoinPool.
+   * @param images the given compressed images
+   * @return an array of sketches in the same order as the given images.
+   */
+  public static CpcSketch[] heapify(final List<? extends Memory> images) {
+    return heapify(images, DEFAULT_UPDATE_SEED, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the given compressed images as CpcSketches on the Java heap using the
+   * common ForkJoinPool.
+   * @param images the given compressed images
+   * @param seed the seed used to create the original sketches from which the images were derived.
+   * @return an array of sketches in the same order as the given images.
+   */
+  public static CpcSketch[] heapify(final List<? extends Memory> images, final long seed) {
+    return heapify(images, seed, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the given compressed images as CpcSketches on the Java heap using the
+   * given ForkJoinPool.
+   * @param images the given compressed images
+   * @param seed the seed used to create the original sketches from which the images were derived.
+   * @param pool the ForkJoinPool that performs the decompression
+   * @return an array of sketches in the same order as the given images.
+   */
+  public static CpcSketch[] heapify(final List<? extends Memory> images, final long seed,
+      final ForkJoinPool pool) {
+    Objects.requireNonNull(images, "Parameter 'images' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final int n = images.size();
+    final CpcSketch[] sketches = new CpcSketch[n];
+    if (n == 0) { return sketches; }
+    forEachChunk(n, (lo, hi) -> {
+      final CompressionScratch scratch = new CompressionScratch();
+      for (int i = lo; i < hi; i++) {
+        sketches[i] = CpcSketch.heapify(images.get(i), seed, scratch);
+      }
+    }, pool);
+    return sketches;
+  }
+
+}
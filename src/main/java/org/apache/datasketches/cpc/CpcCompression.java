@@ -247,7 +247,6 @@ final class CpcCompression {
 
     int pairIndex = 0;
 
-    final long[] ptrArr = new long[3];
     int nextWordIndex = 0; //must be int
     long bitBuf = 0;       //must be long
     int bufBits = 0;       //could be byte
@@ -288,18 +287,27 @@ final class CpcCompression {
       final long golombLo = yDelta & golombLoMask; //long for bitBuf
       final long golombHi = yDelta >>> numBaseBits; //cannot exceed 2^26
 
-      //TODO Inline WriteUnary
-      ptrArr[NEXT_WORD_IDX] = nextWordIndex;
-      ptrArr[BIT_BUF] = bitBuf;
-      ptrArr[BUF_BITS] = bufBits;
-      assert nextWordIndex == ptrArr[NEXT_WORD_IDX]; //catch sign extension error
-
-      writeUnary(compressedWords, ptrArr, (int) golombHi);
-
-      nextWordIndex = (int) ptrArr[NEXT_WORD_IDX];
-      bitBuf = ptrArr[BIT_BUF];
-      bufBits = (int) ptrArr[BUF_BITS];
-      assert nextWordIndex == ptrArr[NEXT_WORD_IDX]; //catch truncation error
+      //Inline WriteUnary, see writeUnary(...)
+      int remaining = (int) golombHi;
+      while (remaining >= 16) {
+        remaining -= 16;
+        bufBits += 16; // the 16 zeros are already present in bitBuf
+        //MAYBE_FLUSH_BITBUF(compressedWords, nextWordIndex);
+        if (bufBits >= 32) {
+          compressedWords[nextWordIndex++] = (int) bitBuf;
+          bitBuf >>>= 32;
+          bufBits -= 32;
+        }
+      }
+      assert (remaining >= 0) && (remaining <= 15);
+      bitBuf |= (1L << remaining) << bufBits;
+      bufBits += (1 + remaining);
+      //MAYBE_FLUSH_BITBUF(compressedWords, nextWordIndex);
+      if (bufBits >= 32) {
+        compressedWords[nextWordIndex++] = (int) bitBuf;
+        bitBuf >>>= 32;
+        bufBits -= 32;
+      }
       //END Inline WriteUnary
 
       bitBuf |= golombLo << bufBits;
@@ -342,7 +350,6 @@ final class CpcCompression {
 
     int pairIndex = 0;
 
-    final long[] ptrArr = new long[3];
     int nextWordIndex = 0;
     long bitBuf = 0;
     int bufBits = 0;
@@ -372,18 +379,24 @@ final class CpcCompression {
       bitBuf >>>= codeWordLength;
       bufBits -= codeWordLength;
 
-      //TODO Inline ReadUnary
-      ptrArr[NEXT_WORD_IDX] = nextWordIndex;
-      ptrArr[BIT_BUF] = bitBuf;
-      ptrArr[BUF_BITS] = bufBits;
-      assert nextWordIndex == ptrArr[NEXT_WORD_IDX]; //catch sign extension error
-
-      final long golombHi = readUnary(compressedWords, ptrArr);
-
-      nextWordIndex = (int) ptrArr[NEXT_WORD_IDX];
-      bitBuf = ptrArr[BIT_BUF];
-      bufBits = (int) ptrArr[BUF_BITS];
-      assert nextWordIndex == ptrArr[NEXT_WORD_IDX]; //catch truncation error
+      //Inline ReadUnary, see readUnary(...)
+      long golombHi = 0;
+      int trailingZeros;
+      while (true) {
+        //MAYBE_FILL_BITBUF(compressedWords,nextWordIndex,8); // ensure 8 bits in bit buffer
+        if (bufBits < 8) {
+          bitBuf |= ((compressedWords[nextWordIndex++] & 0XFFFF_FFFFL) << bufBits);
+          bufBits += 32;
+        }
+        trailingZeros = Math.min(8, Integer.numberOfTrailingZeros((int) (bitBuf & 0XFFL)));
+        if (trailingZeros < 8) { break; }
+        golombHi += 8; // The codeword was partial, so read some more.
+        bufBits -= 8;
+        bitBuf >>>= 8;
+      }
+      bufBits -= (1 + trailingZeros);
+      bitBuf >>>= (1 + trailingZeros);
+      golombHi += trailingZeros;
       //END Inline ReadUnary
 
       //MAYBE_FILL_BITBUF(compressedWords,wordIndex,numBaseBits); // ensure numBaseBits in bit buffer
@@ -443,7 +456,7 @@ final class CpcCompression {
     return (int) CpcCompression.divideBy32RoundingUp(bits);
   }
 
-  private static int determinePseudoPhase(final int lgK, final long numCoupons) {
+  static int determinePseudoPhase(final int lgK, final long numCoupons) {
     final long k = 1L << lgK;
     final long c = numCoupons;
     // This midrange logic produces pseudo-phases. They are used to select encoding tables.
@@ -468,11 +481,12 @@ final class CpcCompression {
     }
   }
 
-  private static void compressTheWindow(final CompressedState target, final CpcSketch source) {
+  private static void compressTheWindow(final CompressedState target, final CpcSketch source,
+      final CompressionScratch scratch) {
     final int srcLgK = source.lgK;
     final int srcK = 1 << srcLgK;
     final int windowBufLen = safeLengthForCompressedWindowBuf(srcK);
-    final int[] windowBuf = new int[windowBufLen];
+    final int[] windowBuf = (scratch == null) ? new int[windowBufLen] : scratch.windowBuf(windowBufLen);
     final int pseudoPhase = determinePseudoPhase(srcLgK, source.numCoupons);
     target.cwLengthInts = lowLevelCompressBytes(
         source.slidingWindow,
@@ -502,13 +516,13 @@ final class CpcCompression {
   }
 
   private static void compressTheSurprisingValues(final CompressedState target, final CpcSketch source,
-      final int[] pairs, final int numPairs) {
+      final int[] pairs, final int numPairs, final CompressionScratch scratch) {
     assert (numPairs > 0);
     target.numCsv = numPairs;
     final int srcK = 1 << source.lgK;
     final int numBaseBits = CpcCompression.golombChooseNumberOfBaseBits(srcK + numPairs, numPairs);
     final int pairBufLen = safeLengthForCompressedPairBuf(srcK, numPairs, numBaseBits);
-    final int[] pairBuf = new int[pairBufLen];
+    final int[] pairBuf = (scratch == null) ? new int[pairBufLen] : scratch.pairBuf(pairBufLen);
 
     target.csvLengthInts = (int) lowLevelCompressPairs(pairs, numPairs, numBaseBits, pairBuf);
 
@@ -519,42 +533,52 @@ final class CpcCompression {
     target.csvStream = pairBuf; //avoid extra copy
   }
 
-  //allocates and returns an array of uncompressed pairs.
-  //the length of this array is known to the source sketch.
-  private static int[] uncompressTheSurprisingValues(final CompressedState source) {
+  //returns an array of uncompressed pairs, which is allocated if the scratch is null.
+  //the number of valid pairs is known to the source sketch, the array may be longer.
+  private static int[] uncompressTheSurprisingValues(final CompressedState source,
+      final CompressionScratch scratch) {
     final int srcK = 1 << source.lgK;
     final int numPairs = source.numCsv;
     assert numPairs > 0;
-    final int[] pairs = new int[numPairs];
+    final int[] pairs = (scratch == null) ? new int[numPairs] : scratch.pairs(numPairs);
     final int numBaseBits = CpcCompression.golombChooseNumberOfBaseBits(srcK + numPairs, numPairs);
     lowLevelUncompressPairs(pairs, numPairs, numBaseBits, source.csvStream, source.csvLengthInts);
     return pairs;
   }
 
-  private static void compressSparseFlavor(final CompressedState target, final CpcSketch source) {
+  private static void compressSparseFlavor(final CompressedState target, final CpcSketch source,
+      final CompressionScratch scratch) {
     assert (source.slidingWindow == null); //there is no window to compress
     final PairTable srcPairTable = source.pairTable;
     final int srcNumPairs = srcPairTable.getNumPairs();
-    final int[] srcPairArr = PairTable.unwrappingGetItems(srcPairTable, srcNumPairs);
+    final int[] srcPairArr = getTablePairs(srcPairTable, srcNumPairs, scratch);
     introspectiveInsertionSort(srcPairArr, 0, srcNumPairs - 1);
-    compressTheSurprisingValues(target, source, srcPairArr, srcNumPairs);
+    compressTheSurprisingValues(target, source, srcPairArr, srcNumPairs, scratch);
   }
 
-  private static void uncompressSparseFlavor(final CpcSketch target, final CompressedState source) {
+  private static void uncompressSparseFlavor(final CpcSketch target, final CompressedState source,
+      final CompressionScratch scratch) {
     assert (source.cwStream == null);
     assert (source.csvStream != null);
-    final int[] srcPairArr = uncompressTheSurprisingValues(source);
+    final int[] srcPairArr = uncompressTheSurprisingValues(source, scratch);
     final int numPairs = source.numCsv;
     final PairTable table = PairTable.newInstanceFromPairsArray(srcPairArr, numPairs, source.lgK);
     target.pairTable = table;
   }
 
+  //Unwraps the pairs of the given table into the scratch buffer, or a new array if scratch is null.
+  private static int[] getTablePairs(final PairTable table, final int numPairs,
+      final CompressionScratch scratch) {
+    if (scratch == null) { return PairTable.unwrappingGetItems(table, numPairs); }
+    return PairTable.unwrappingGetItems(table, numPairs, scratch.tablePairs(numPairs));
+  }
+
   //The empty space that this leaves at the beginning of the output array
   // will be filled in later by the caller.
   private static int[] trickyGetPairsFromWindow(final byte[] window, final int k, final int numPairsToGet,
-      final int emptySpace) {
+      final int emptySpace, final CompressionScratch scratch) {
     final int outputLength = emptySpace + numPairsToGet;
-    final int[] pairs = new int[outputLength];
+    final int[] pairs = (scratch == null) ? new int[outputLength] : scratch.pairs(outputLength);
     int rowIndex = 0;
     int pairIndex = emptySpace;
     for (rowIndex = 0; rowIndex < k; rowIndex++) {
@@ -572,11 +596,12 @@ final class CpcCompression {
 
   //This is complicated because it effectively builds a Sparse version
   //of a Pinned sketch before compressing it. Hence the name Hybrid.
-  private static void compressHybridFlavor(final CompressedState target, final CpcSketch source) {
+  private static void compressHybridFlavor(final CompressedState target, final CpcSketch source,
+      final CompressionScratch scratch) {
     final int srcK = 1 << source.lgK;
     final PairTable srcPairTable = source.pairTable;
     final int srcNumPairs = srcPairTable.getNumPairs();
-    final int[] srcPairArr = PairTable.unwrappingGetItems(srcPairTable, srcNumPairs);
+    final int[] srcPairArr = getTablePairs(srcPairTable, srcNumPairs, scratch);
     introspectiveInsertionSort(srcPairArr, 0, srcNumPairs - 1);
     final byte[] srcSlidingWindow = source.slidingWindow;
     final int srcWindowOffset = source.windowOffset;
@@ -589,7 +614,7 @@ final class CpcCompression {
 
     assert (numPairsFromArray + srcNumPairs) == srcNumCoupons; //for test
     final int[] allPairs
-      = trickyGetPairsFromWindow(srcSlidingWindow, srcK, numPairsFromArray, srcNumPairs);
+      = trickyGetPairsFromWindow(srcSlidingWindow, srcK, numPairsFromArray, srcNumPairs, scratch);
 
     PairTable.merge(srcPairArr, 0, srcNumPairs,
         allPairs, srcNumPairs, numPairsFromArray,
@@ -599,13 +624,14 @@ final class CpcCompression {
     //        for (int i = 0; i < (source.numCoupons - 1); i++) {
     //          assert (Integer.compareUnsigned(allPairs[i], allPairs[i + 1]) < 0); }
 
-    compressTheSurprisingValues(target, source, allPairs, (int) srcNumCoupons);
+    compressTheSurprisingValues(target, source, allPairs, (int) srcNumCoupons, scratch);
   }
 
-  private static void uncompressHybridFlavor(final CpcSketch target, final CompressedState source) {
+  private static void uncompressHybridFlavor(final CpcSketch target, final CompressedState source,
+      final CompressionScratch scratch) {
     assert (source.cwStream == null);
     assert (source.csvStream != null);
-    final int[] pairs = uncompressTheSurprisingValues(source); //fail path 3
+    final int[] pairs = uncompressTheSurprisingValues(source, scratch); //fail path 3
     final int numPairs = source.numCsv;
     // In the hybrid flavor, some of these pairs actually
     // belong in the window, so we will separate them out,
@@ -638,13 +664,14 @@ final class CpcCompression {
     target.slidingWindow = window;
   }
 
-  private static void compressPinnedFlavor(final CompressedState target, final CpcSketch source) {
-    compressTheWindow(target, source);
+  private static void compressPinnedFlavor(final CompressedState target, final CpcSketch source,
+      final CompressionScratch scratch) {
+    compressTheWindow(target, source, scratch);
     final PairTable srcPairTable = source.pairTable;
     final int numPairs = srcPairTable.getNumPairs();
 
     if (numPairs > 0) {
-      final int[] pairs = PairTable.unwrappingGetItems(srcPairTable, numPairs);
+      final int[] pairs = getTablePairs(srcPairTable, numPairs, scratch);
 
       // Here we subtract 8 from the column indices.  Because they are stored in the low 6 bits
       // of each rowCol pair, and because no column index is less than 8 for a "Pinned" sketch,
@@ -657,11 +684,12 @@ final class CpcCompression {
       }
 
       introspectiveInsertionSort(pairs, 0, numPairs - 1);
-      compressTheSurprisingValues(target, source, pairs, numPairs);
+      compressTheSurprisingValues(target, source, pairs, numPairs, scratch);
     }
   }
 
-  private static void uncompressPinnedFlavor(final CpcSketch target, final CompressedState source) {
+  private static void uncompressPinnedFlavor(final CpcSketch target, final CompressedState source,
+      final CompressionScratch scratch) {
     assert (source.cwStream != null);
     uncompressTheWindow(target, source);
     final int srcLgK = source.lgK;
@@ -672,7 +700,7 @@ final class CpcCompression {
     else {
       assert numPairs > 0;
       assert source.csvStream != null;
-      final int[] pairs = uncompressTheSurprisingValues(source);
+      final int[] pairs = uncompressTheSurprisingValues(source, scratch);
       // undo the compressor's 8-column shift
       for (int i = 0; i < numPairs; i++) {
         assert (pairs[i] & 63) < 56;
@@ -684,15 +712,16 @@ final class CpcCompression {
   }
 
   //Complicated by the existence of both a left fringe and a right fringe.
-  private static void compressSlidingFlavor(final CompressedState target, final CpcSketch source) {
+  private static void compressSlidingFlavor(final CompressedState target, final CpcSketch source,
+      final CompressionScratch scratch) {
 
-    compressTheWindow(target, source);
+    compressTheWindow(target, source, scratch);
     final PairTable srcPairTable = source.pairTable;
 
     final int numPairs = srcPairTable.getNumPairs();
 
     if (numPairs > 0) {
-      final int[] pairs = PairTable.unwrappingGetItems(srcPairTable, numPairs);
+      final int[] pairs = getTablePairs(srcPairTable, numPairs, scratch);
 
       // Here we apply a complicated transformation to the column indices, which
       // changes the implied ordering of the pairs, so we must do it before sorting.
@@ -718,11 +747,12 @@ final class CpcCompression {
       }
 
       introspectiveInsertionSort(pairs, 0, numPairs - 1);
-      compressTheSurprisingValues(target, source, pairs, numPairs);
+      compressTheSurprisingValues(target, source, pairs, numPairs, scratch);
     }
   }
 
-  private static void uncompressSlidingFlavor(final CpcSketch target, final CompressedState source) {
+  private static void uncompressSlidingFlavor(final CpcSketch target, final CompressedState source,
+      final CompressionScratch scratch) {
     assert (source.cwStream != null);
     uncompressTheWindow(target, source);
     final int srcLgK = source.lgK;
@@ -733,7 +763,7 @@ final class CpcCompression {
     else {
       assert (numPairs > 0);
       assert (source.csvStream != null);
-      final int[] pairs = uncompressTheSurprisingValues(source);
+      final int[] pairs = uncompressTheSurprisingValues(source, scratch);
       final int pseudoPhase = determinePseudoPhase(srcLgK, source.numCoupons); // NB
       assert (pseudoPhase < 16);
       final byte[] permutation = columnPermutationsForDecoding[pseudoPhase];
@@ -758,27 +788,40 @@ final class CpcCompression {
   }
 
   static CompressedState compress(final CpcSketch source, final CompressedState target) {
+    return compress(source, target, null);
+  }
+
+  /**
+   * Compresses the source sketch into the target state.
+   * @param source the sketch to compress
+   * @param target the state receiving the compressed streams
+   * @param scratch reusable working buffers, or null to allocate new streams.
+   * If not null, the target streams refer to the scratch buffers.
+   * @return the target state
+   */
+  static CompressedState compress(final CpcSketch source, final CompressedState target,
+      final CompressionScratch scratch) {
 
     final Flavor srcFlavor = source.getFlavor();
 
     switch (srcFlavor) {
       case EMPTY: break;
       case SPARSE:
-        compressSparseFlavor(target, source);
+        compressSparseFlavor(target, source, scratch);
         assert (target.cwStream == null);
         assert (target.csvStream != null);
         break;
       case HYBRID:
-        compressHybridFlavor(target, source);
+        compressHybridFlavor(target, source, scratch);
         assert (target.cwStream == null);
         assert (target.csvStream != null);
         break;
       case PINNED:
-        compressPinnedFlavor(target, source);
+        compressPinnedFlavor(target, source, scratch);
         assert (target.cwStream != null);
         break;
       case SLIDING:
-        compressSlidingFlavor(target, source);
+        compressSlidingFlavor(target, source, scratch);
         assert (target.cwStream != null);
         break;
         //default: not possible
@@ -788,6 +831,18 @@ final class CpcCompression {
    }
 
   static CpcSketch uncompress(final CompressedState source, final CpcSketch target) {
+    return uncompress(source, target, null);
+  }
+
+  /**
+   * Uncompresses the source state into the target sketch.
+   * @param source the compressed state
+   * @param target the sketch receiving the window and pair table
+   * @param scratch reusable working buffers, or null to allocate temporary arrays.
+   * @return the target sketch
+   */
+  static CpcSketch uncompress(final CompressedState source, final CpcSketch target,
+      final CompressionScratch scratch) {
     assert (target != null);
 
     final Flavor srcFlavor = source.getFlavor();
@@ -795,24 +850,24 @@ final class CpcCompression {
       case EMPTY: break;
       case SPARSE:
         assert (source.cwStream == null);
-        uncompressSparseFlavor(target, source);
+        uncompressSparseFlavor(target, source, scratch);
         break;
       case HYBRID:
-        uncompressHybridFlavor(target, source);
+        uncompressHybridFlavor(target, source, scratch);
         break;
       case PINNED:
         assert (source.cwStream != null);
-        uncompressPinnedFlavor(target, source);
+        uncompressPinnedFlavor(target, source, scratch);
         break;
       case SLIDING:
-        uncompressSlidingFlavor(target, source);
+        uncompressSlidingFlavor(target, source, scratch);
         break;
         //default: not possible
     }
     return target;
   }
 
-  private static int golombChooseNumberOfBaseBits(final int k, final long count) {
+  static int golombChooseNumberOfBaseBits(final int k, final long count) {
     assert k >= 1L;
     assert count >= 1L;
     final long quotient = (k - count) / count; // integer division
@@ -257,6 +257,12 @@ public final class CpcSketch {
     return uncompress(state, seed);
   }
 
+  //used by CpcBulkCompression
+  static CpcSketch heapify(final Memory mem, final long seed, final CompressionScratch scratch) {
+    final CompressedState state = CompressedState.importFromMemory(mem, scratch);
+    return uncompress(state, seed, scratch);
+  }
+
   /**
    * Return the given byte array as a CpcSketch on the Java heap.
    * @param byteArray the given byte array
@@ -297,7 +303,12 @@ public final class CpcSketch {
    * @return this sketch as a compressed byte array.
    */
   public byte[] toByteArray() {
-    final CompressedState state = CompressedState.compress(this);
+    return toByteArray(null);
+  }
+
+  //used by CpcBulkCompression. The scratch may be null.
+  byte[] toByteArray(final CompressionScratch scratch) {
+    final CompressedState state = CompressedState.compress(this, scratch);
     final long cap = state.getRequiredSerializedBytes();
     final WritableMemory wmem = WritableMemory.allocate((int) cap);
     state.exportToMemory(wmem);
@@ -651,6 +662,11 @@ public final class CpcSketch {
 
   //also used in test
   static CpcSketch uncompress(final CompressedState source, final long seed) {
+    return uncompress(source, seed, null);
+  }
+
+  static CpcSketch uncompress(final CompressedState source, final long seed,
+      final CompressionScratch scratch) {
     checkSeedHashes(computeSeedHash(seed), source.seedHash);
     final CpcSketch sketch = new CpcSketch(source.lgK, seed);
     sketch.numCoupons = source.numCoupons;
@@ -661,7 +677,7 @@ public final class CpcSketch {
     sketch.hipEstAccum = source.hipEstAccum;
     sketch.slidingWindow = null;
     sketch.pairTable = null;
-    CpcCompression.uncompress(source, sketch);
+    CpcCompression.uncompress(source, sketch, scratch);
     return sketch;
   }
 
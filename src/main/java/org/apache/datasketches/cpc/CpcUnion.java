@@ -20,14 +20,32 @@
 package org.apache.datasketches.cpc;
 
 import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.Util.checkSeedHashes;
+import static org.apache.datasketches.Util.computeSeedHash;
 import static org.apache.datasketches.Util.iGolden;
+import static org.apache.datasketches.cpc.CompressionData.columnPermutationsForDecoding;
+import static org.apache.datasketches.cpc.CompressionData.decodingTablesForHighEntropyByte;
 import static org.apache.datasketches.cpc.CpcUtil.countBitsSetInMatrix;
 import static org.apache.datasketches.cpc.Flavor.EMPTY;
+import static org.apache.datasketches.cpc.Flavor.SLIDING;
 import static org.apache.datasketches.cpc.Flavor.SPARSE;
+import static org.apache.datasketches.cpc.PreambleUtil.checkCapacity;
+import static org.apache.datasketches.cpc.PreambleUtil.checkLoPreamble;
+import static org.apache.datasketches.cpc.PreambleUtil.getFormatOrdinal;
+import static org.apache.datasketches.cpc.PreambleUtil.getNumSv;
+import static org.apache.datasketches.cpc.PreambleUtil.getPreInts;
+import static org.apache.datasketches.cpc.PreambleUtil.getSeedHash;
+import static org.apache.datasketches.cpc.PreambleUtil.getSvLengthInts;
+import static org.apache.datasketches.cpc.PreambleUtil.getSvStreamOffset;
+import static org.apache.datasketches.cpc.PreambleUtil.getWLengthInts;
+import static org.apache.datasketches.cpc.PreambleUtil.getWStreamOffset;
+import static org.apache.datasketches.cpc.PreambleUtil.isCompressed;
+import static org.apache.datasketches.cpc.RuntimeAsserts.rtAssert;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
 
 /*
  * The merging logic is somewhat involved, so it will be summarized here.
@@ -71,6 +89,14 @@ import org.apache.datasketches.SketchesStateException;
  * wouldn't work because of the partially inverted Logic in the Sliding flavor, where the presence of
  * coupons is sometimes indicated by the ABSENCE of rowCol pairs in the surprises table.]
  *
+ * <p>When the source is a compressed image in Memory, the same cases apply, but the compressed
+ * streams are decoded one value at a time straight into the accumulator or the bitmatrix.
+ * Sparse and Hybrid images consist only of a stream of pairs, which are walked as in cases A, B
+ * and C. For Pinned and Sliding images the window stream and the pairs stream are decoded in
+ * lock step, row by row. Each source row is assembled from its default early-zone bits, its
+ * window byte and its (flipping) surprising values, and is then OR'ed into the union's
+ * bitmatrix, which handles case D without converting the source into a full bitmatrix.
+ *
  * <p>How does getResult work?
  *
  * <p>If the union is using its accumulator field, make a copy of that sketch.
@@ -98,6 +124,11 @@ public class CpcUnion {
   private long[] bitMatrix;
   private CpcSketch accumulator; //can only be empty or sparse Flavor
 
+  //used only when merging compressed images
+  private short seedHash = 0; //computed lazily, a valid seed hash is never zero
+  private final CompressedStreamReader windowReader = new CompressedStreamReader();
+  private final CompressedStreamReader pairReader = new CompressedStreamReader();
+
   /**
    * Construct this unioning object with the default LgK and the default update seed.
    */
@@ -135,6 +166,20 @@ public class CpcUnion {
     mergeInto(this, sketch);
   }
 
+  /**
+   * Update this union with a compressed CpcSketch image, as produced by
+   * {@link CpcSketch#toByteArray()}.
+   *
+   * <p>The compressed streams are decoded directly into this union, so no intermediate
+   * CpcSketch is created. The result is the same as
+   * <i>update(CpcSketch.heapify(mem, seed))</i>, where seed is the seed of this union.</p>
+   *
+   * @param mem the given compressed CpcSketch image.
+   */
+  public void update(final Memory mem) {
+    mergeInto(this, mem);
+  }
+
   /**
    * Returns the result of union operations as a CPC sketch.
    * @return the result of union operations as a CPC sketch.
@@ -333,6 +378,130 @@ public class CpcUnion {
     }
   }
 
+  private static void mergeInto(final CpcUnion union, final Memory mem) {
+    if (mem == null) { return; }
+    checkLoPreamble(mem);
+    rtAssert(isCompressed(mem));
+    if (union.seedHash == 0) { union.seedHash = computeSeedHash(union.seed); }
+    checkSeedHashes(union.seedHash, getSeedHash(mem));
+
+    final int fmtOrd = getFormatOrdinal(mem);
+    if (fmtOrd < 2) { //EMPTY_MERGED or EMPTY_HIP
+      checkCapacity(mem.getCapacity(), 8L);
+      return;
+    }
+    final boolean hasSv = (fmtOrd & 2) > 0;
+    final boolean hasWindow = (fmtOrd & 4) > 0;
+    final long svLengthInts = hasSv ? getSvLengthInts(mem) & 0XFFFF_FFFFL : 0;
+    final long wLengthInts = hasWindow ? getWLengthInts(mem) & 0XFFFF_FFFFL : 0;
+    checkCapacity(mem.getCapacity(), 4L * (getPreInts(mem) + svLengthInts + wLengthInts));
+
+    final int srcLgK = PreambleUtil.getLgK(mem);
+    final long numCoupons = PreambleUtil.getNumCoupons(mem) & 0XFFFF_FFFFL;
+    final Flavor srcFlavor = CpcUtil.determineFlavor(srcLgK, numCoupons);
+    final int sourceFlavorOrd = srcFlavor.ordinal();
+    if (sourceFlavorOrd == 0) { return; } //EMPTY
+    rtAssert(hasWindow == (sourceFlavorOrd > 2)); //only Pinned and Sliding have a window
+
+    checkUnionState(union);
+
+    if (srcLgK < union.lgK) { reduceUnionK(union, srcLgK); }
+
+    // if source is past SPARSE mode, make sure that union is a bitMatrix.
+    if ((sourceFlavorOrd > 1) && (union.accumulator != null)) {
+      union.bitMatrix = CpcUtil.bitMatrixOfSketch(union.accumulator);
+      union.accumulator = null;
+    }
+
+    try {
+      if (sourceFlavorOrd <= 2) { //Sparse or Hybrid: all coupons are in the pairs stream
+        final int numPairs = (int) numCoupons;
+        final CompressedStreamReader reader = union.pairReader.reset(mem, getSvStreamOffset(mem),
+            CpcCompression.golombChooseNumberOfBaseBits((1 << srcLgK) + numPairs, numPairs));
+        if (union.accumulator != null) { //A: Sparse, bitMatrix == null, accumulator valid
+          walkPairsUpdatingSketch(union.accumulator, reader, numPairs);
+          // if the accumulator has graduated beyond sparse, switch union to a bitMatrix
+          if (union.accumulator.getFlavor().ordinal() > 1) {
+            union.bitMatrix = CpcUtil.bitMatrixOfSketch(union.accumulator);
+            union.accumulator = null;
+          }
+        } else { //B or C: Sparse or Hybrid, bitMatrix valid, accumulator == null
+          orPairsIntoMatrix(union.bitMatrix, union.lgK, reader, numPairs);
+        }
+      } else { //C or D: Pinned or Sliding, bitMatrix valid, accumulator == null
+        final int numSv = hasSv ? getNumSv(mem) : 0;
+        union.windowReader.reset(mem, getWStreamOffset(mem), 0);
+        if (numSv > 0) {
+          union.pairReader.reset(mem, getSvStreamOffset(mem),
+              CpcCompression.golombChooseNumberOfBaseBits((1 << srcLgK) + numSv, numSv));
+        }
+        orWindowedStreamsIntoMatrix(union.bitMatrix, union.lgK, union.windowReader, union.pairReader,
+            numSv, srcLgK, numCoupons, srcFlavor == SLIDING);
+      }
+    } finally {
+      union.windowReader.release();
+      union.pairReader.release();
+    }
+  }
+
+  private static void walkPairsUpdatingSketch(final CpcSketch dest, final CompressedStreamReader reader,
+      final int numPairs) {
+    assert dest.lgK <= 26;
+    final int destMask = (((1 << dest.lgK) - 1) << 6) | 63; //downsamples when destlgK < srcLgK
+    for (int i = 0; i < numPairs; i++) {
+      dest.rowColUpdate(reader.nextPair() & destMask);
+    }
+  }
+
+  private static void orPairsIntoMatrix(final long[] bitMatrix, final int destLgK,
+      final CompressedStreamReader reader, final int numPairs) {
+    final int destMask = (1 << destLgK) - 1;  // downsamples when destlgK < srcLgK
+    for (int i = 0; i < numPairs; i++) {
+      final int rowCol = reader.nextPair();
+      bitMatrix[(rowCol >>> 6) & destMask] |= (1L << (rowCol & 63)); // Set the bit.
+    }
+  }
+
+  // The pairs are sorted by row, so each source row can be completed before it is OR'ed into the
+  // destination. This is required because a surprising value flips the default bit of its row.
+  private static void orWindowedStreamsIntoMatrix(final long[] destMatrix, final int destLgK,
+      final CompressedStreamReader windowReader, final CompressedStreamReader pairReader,
+      final int numSv, final int srcLgK, final long numCoupons, final boolean sliding) {
+    assert (destLgK <= srcLgK);
+    final int destMask = (1 << destLgK) - 1;  // downsamples when destlgK < srcLgK
+    final int srcK = 1 << srcLgK;
+    final int offset = CpcUtil.determineCorrectOffset(srcLgK, numCoupons);
+    final int pseudoPhase = CpcCompression.determinePseudoPhase(srcLgK, numCoupons);
+    final short[] decodingTable = decodingTablesForHighEntropyByte[pseudoPhase];
+    final byte[] permutation = sliding ? columnPermutationsForDecoding[pseudoPhase] : null;
+    final long defaultRow = (1L << offset) - 1L; //the early zone is filled with ones
+
+    int nextRow = 0;  //the next source row whose window byte has not been decoded
+    long pattern = 0; //the bits of source row (nextRow - 1)
+    for (int i = 0; i < numSv; i++) {
+      final int rowCol = pairReader.nextPair();
+      final int row = rowCol >>> 6;
+      int col = rowCol & 63;
+      if (sliding) {
+        col = permutation[col];          // first undo the permutation
+        col = (col + (offset + 8)) & 63; // then undo the rotation
+      } else {
+        col += 8;                        // undo the Pinned 8-column shift
+      }
+      while (nextRow <= row) {
+        if (nextRow > 0) { destMatrix[(nextRow - 1) & destMask] |= pattern; }
+        pattern = defaultRow | ((long) windowReader.nextByte(decodingTable) << offset);
+        nextRow++;
+      }
+      pattern ^= (1L << col); // Flip the bit from its default value.
+    }
+    for ( ; nextRow < srcK; nextRow++) {
+      if (nextRow > 0) { destMatrix[(nextRow - 1) & destMask] |= pattern; }
+      pattern = defaultRow | ((long) windowReader.nextByte(decodingTable) << offset);
+    }
+    destMatrix[(srcK - 1) & destMask] |= pattern;
+  }
+
   private static CpcSketch getResult(final CpcUnion union) {
     checkUnionState(union);
 
@@ -235,9 +235,22 @@ final class PairTable {
    */
   static int[] unwrappingGetItems(final PairTable table, final int numPairs) {
     if (numPairs < 1) { return null; }
+    return unwrappingGetItems(table, numPairs, new int[numPairs]);
+  }
+
+  /**
+   * Same as {@link #unwrappingGetItems(PairTable, int)} but places the items into the given
+   * result array, which must have a length of at least numPairs.
+   * @param table the given table to unwrap
+   * @param numPairs the number of valid pairs in the table
+   * @param result the destination array
+   * @return the given result array, or null if numPairs &lt; 1.
+   */
+  static int[] unwrappingGetItems(final PairTable table, final int numPairs, final int[] result) {
+    if (numPairs < 1) { return null; }
+    assert result.length >= numPairs;
     final int[] slotsArr = table.slotsArr;
     final int tableSize = 1 << table.lgSizeInts;
-    final int[] result = new int[numPairs];
     int i = 0;
     int l = 0;
     int r = numPairs - 1;
@@ -389,6 +389,24 @@ final class PreambleUtil {
     return wStream;
   }
 
+  //reads into the given scratch buffer, which may be longer than required
+  static int[] getSvStream(final Memory mem, final CompressionScratch scratch) {
+    final long offset = getSvStreamOffset(mem);
+    final int svLengthInts = getSvLengthInts(mem);
+    final int[] svStream = scratch.pairBuf(svLengthInts);
+    mem.getIntArray(offset, svStream, 0, svLengthInts);
+    return svStream;
+  }
+
+  //reads into the given scratch buffer, which may be longer than required
+  static int[] getWStream(final Memory mem, final CompressionScratch scratch) {
+    final long offset = getWStreamOffset(mem);
+    final int wLength = getWLengthInts(mem);
+    final int[] wStream = scratch.windowBuf(wLength);
+    mem.getIntArray(offset, wStream, 0, wLength);
+    return wStream;
+  }
+
   // PUT INTO MEMORY
 
   static void putEmptyMerged(final WritableMemory wmem,
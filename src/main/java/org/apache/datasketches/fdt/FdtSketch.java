@@ -23,9 +23,11 @@ import static org.apache.datasketches.Util.MAX_LG_NOM_LONGS;
 
 import java.util.List;
 
+import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.tuple.strings.ArrayOfStringsSketch;
+import org.apache.datasketches.tuple.strings.StringDictionary;
 
 /**
  * A Frequent Distinct Tuples sketch.
@@ -58,6 +60,18 @@ public class FdtSketch extends ArrayOfStringsSketch {
     super(lgK);
   }
 
+  /**
+   * Create new instance of Frequent Distinct Tuples sketch with the given
+   * Log-base2 of required nominal entries, where the tuples hold the canonical strings of the
+   * given dictionary.
+   * @param lgK Log-base2 of required nominal entries.
+   * @param dict the dictionary of strings, which may be shared with other sketches.
+   * @see org.apache.datasketches.tuple.strings.DictionarySerDe
+   */
+  public FdtSketch(final int lgK, final StringDictionary dict) {
+    super(lgK, ResizeFactor.X8, 1.0F, dict);
+  }
+
   /**
    * Used by deserialization.
    * @param mem the image of a FdtSketch
@@ -144,6 +158,28 @@ public class FdtSketch extends ArrayOfStringsSketch {
     return new PostProcessor(this, group, sep);
   }
 
+  /**
+   * Returns the ParallelPostProcessor that enables multiple queries, or several projections in
+   * one query, against the sketch results using the common ForkJoinPool.
+   * This assumes the default Group.
+   * @param sep the separator character.
+   * @return the ParallelPostProcessor
+   */
+  public ParallelPostProcessor getParallelPostProcessor(final char sep) {
+    return getParallelPostProcessor(new Group(), sep);
+  }
+
+  /**
+   * Returns the ParallelPostProcessor that enables multiple queries, or several projections in
+   * one query, against the sketch results using the common ForkJoinPool.
+   * @param group the Group class to use during post processing.
+   * @param sep the separator character.
+   * @return the ParallelPostProcessor
+   */
+  public ParallelPostProcessor getParallelPostProcessor(final Group group, final char sep) {
+    return new ParallelPostProcessor(this, group, sep);
+  }
+
   // Restricted
 
   /**
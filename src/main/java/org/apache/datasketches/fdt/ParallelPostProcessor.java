@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.fdt;
+
+import static org.apache.datasketches.ForkJoinChunks.reduceChunks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.SketchIterator;
+import org.apache.datasketches.tuple.strings.ArrayOfStringsSummary;
+
+/**
+ * This processes the contents of a FDT sketch to extract the primary keys with the most frequent
+ * unique combinations of the non-primary dimensions, like the {@link PostProcessor}, but using
+ * the threads of a {@link ForkJoinPool}. The source sketch is not modified. It is a FdtSketch, or
+ * any sketch of FDT entries such as one heapified with DictionarySerDe.
+ *
+ * <p>The tuples of the sketch are read once at construction. Entries are grouped on a hash of the
+ * selected dimensions, and the dimensions of colliding entries are compared, so no primary key
+ * strings are built while grouping. The primary key string of each group is built once, from a
+ * representative tuple, when the list of groups is created. The entries are split into contiguous
+ * chunks that are grouped by separate tasks, and the partial groups are merged pairwise.</p>
+ *
+ * <p>Several projections, each given by its own <i>priKeyIndices</i>, can be answered with a
+ * single pass over the entries using {@link #getGroupLists(int[][], int, int)}.</p>
+ */
+public class ParallelPostProcessor {
+  private static final long GOLDEN64 = 0X9E37_79B9_7F4A_7C15L;
+
+  private final Sketch<ArrayOfStringsSummary> sketch; //immutable snapshot
+  private final char sep;
+  private final String[][] tuples;
+  private final ForkJoinPool pool;
+  @SuppressWarnings("unused")
+  private final Group group;
+
+  /**
+   * Construct with a populated sketch of FDT entries using the default Group and the common ForkJoinPool
+   * @param sketch the given sketch to query.
+   * @param sep the separator character
+   */
+  public ParallelPostProcessor(final Sketch<ArrayOfStringsSummary> sketch, final char sep) {
+    this(sketch, new Group(), sep, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Construct with a populated sketch of FDT entries using the default Group and the given ForkJoinPool
+   * @param sketch the given sketch to query.
+   * @param sep the separator character
+   * @param pool the ForkJoinPool that performs the grouping
+   */
+  public ParallelPostProcessor(final Sketch<ArrayOfStringsSummary> sketch, final char sep, final ForkJoinPool pool) {
+    this(sketch, new Group(), sep, pool);
+  }
+
+  /**
+   * Construct with a populated sketch of FDT entries using the common ForkJoinPool
+   * @param sketch the given sketch to query.
+   * @param group the Group
+   * @param sep the separator character
+   */
+  public ParallelPostProcessor(final Sketch<ArrayOfStringsSummary> sketch, final Group group, final char sep) {
+    this(sketch, group, sep, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Construct with a populated sketch of FDT entries using the given ForkJoinPool
+   * @param sketch the given sketch to query.
+   * @param group the Group
+   * @param sep the separator character
+   * @param pool the ForkJoinPool that performs the grouping
+   */
+  public ParallelPostProcessor(final Sketch<ArrayOfStringsSummary> sketch, final Group group, final char sep,
+      final ForkJoinPool pool) {
+    Objects.requireNonNull(sketch, "Parameter 'sketch' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    this.sketch = sketch.compact();
+    this.sep = sep;
+    this.pool = pool;
+    this.group = group;
+    tuples = new String[this.sketch.getRetainedEntries()][];
+    final SketchIterator<ArrayOfStringsSummary> it = this.sketch.iterator();
+    int i = 0;
+    while (it.next()) {
+      tuples[i++] = it.getSummary().getValue();
+    }
+  }
+
+  /**
+   * Return the most frequent Groups associated with Primary Keys based on the size of the groups.
+   * The result is the same as from {@link PostProcessor#getGroupList(int[], int, int)} except for
+   * the order of groups of equal size.
+   * @param priKeyIndices the indices of the primary dimensions
+   * @param numStdDev the number of standard deviations for the error bounds, this value is an
+   * integer and must be one of 1, 2, or 3.
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @param limit the maximum number of rows to return. If &le; 0, all rows will be returned.
+   * @return the most frequent Groups associated with Primary Keys based on the size of the groups.
+   */
+  public List<Group> getGroupList(final int[] priKeyIndices, final int numStdDev,
+      final int limit) {
+    return getGroupLists(new int[][] {priKeyIndices}, numStdDev, limit).get(0);
+  }
+
+  /**
+   * Return the most frequent Groups for each of the given projections with a single pass over
+   * the entries of the sketch.
+   * @param priKeyIndicesArr an array of projections, each of which is an array of the indices of
+   * the primary dimensions.
+   * @param numStdDev the number of standard deviations for the error bounds, this value is an
+   * integer and must be one of 1, 2, or 3.
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @param limit the maximum number of rows to return per projection. If &le; 0, all rows will be
+   * returned.
+   * @return one list of Groups per projection, in the same order as the given projections.
+   */
+  public List<List<Group>> getGroupLists(final int[][] priKeyIndicesArr, final int numStdDev,
+      final int limit) {
+    Objects.requireNonNull(priKeyIndicesArr, "Parameter 'priKeyIndicesArr' must not be null");
+    for (final int[] priKeyIndices : priKeyIndicesArr) {
+      Objects.requireNonNull(priKeyIndices, "Parameter 'priKeyIndices' must not be null");
+      for (final int idx : priKeyIndices) {
+        if (idx < 0) {
+          throw new SketchesArgumentException("Primary key indices must not be negative: " + idx);
+        }
+      }
+    }
+    final int numProj = priKeyIndicesArr.length;
+    final GroupTable[] tables;
+    if (tuples.length == 0) {
+      tables = new GroupTable[numProj];
+      for (int p = 0; p < numProj; p++) { tables[p] = new GroupTable(0); }
+    } else {
+      tables = reduceChunks(tuples.length,
+          (lo, hi) -> groupChunk(tuples, priKeyIndicesArr, lo, hi),
+          (left, right) -> mergeTables(left, right, tuples, priKeyIndicesArr), pool);
+    }
+    final List<List<Group>> lists = new ArrayList<>(numProj);
+    for (int p = 0; p < numProj; p++) {
+      lists.add(populateList(tables[p], priKeyIndicesArr[p], numStdDev, limit));
+    }
+    return lists;
+  }
+
+  private List<Group> populateList(final GroupTable table, final int[] priKeyIndices,
+      final int numStdDev, final int limit) {
+    final List<Group> list = new ArrayList<>(table.numGroups);
+    final int retained = sketch.getRetainedEntries();
+    for (int i = 0; i < table.reps.length; i++) {
+      final int rep = table.reps[i];
+      if (rep < 0) { continue; }
+      final String priKey = getPrimaryKey(tuples[rep], priKeyIndices, sep);
+      final int count = table.counts[i];
+      final double est = sketch.getEstimate(count);
+      final double ub = sketch.getUpperBound(numStdDev, count);
+      final double lb = sketch.getLowerBound(numStdDev, count);
+      final double thresh = (double) count / retained;
+      final double rse = (sketch.getUpperBound(1, count) / est) - 1.0;
+      final Group gp = new Group();
+      gp.init(priKey, count, est, ub, lb, thresh, rse);
+      list.add(gp);
+    }
+    list.sort(null); //Comparable implemented in Group
+    final int totLen = list.size();
+    if ((limit > 0) && (limit < totLen)) {
+      return list.subList(0, limit);
+    }
+    return list;
+  }
+
+  private static GroupTable[] groupChunk(final String[][] tuples, final int[][] priKeyIndicesArr,
+      final int lo, final int hi) {
+    final int numProj = priKeyIndicesArr.length;
+    final GroupTable[] tables = new GroupTable[numProj];
+    for (int p = 0; p < numProj; p++) { tables[p] = new GroupTable(hi - lo); }
+    for (int i = lo; i < hi; i++) {
+      final String[] tuple = tuples[i];
+      for (int p = 0; p < numProj; p++) {
+        final int[] priKeyIndices = priKeyIndicesArr[p];
+        tables[p].add(groupHash(tuple, priKeyIndices), i, 1, tuples, priKeyIndices);
+      }
+    }
+    return tables;
+  }
+
+  //merges the smaller table of each projection into the larger one
+  private static GroupTable[] mergeTables(final GroupTable[] left, final GroupTable[] right,
+      final String[][] tuples, final int[][] priKeyIndicesArr) {
+    for (int p = 0; p < left.length; p++) {
+      final GroupTable big = (left[p].numGroups >= right[p].numGroups) ? left[p] : right[p];
+      final GroupTable small = (big == left[p]) ? right[p] : left[p];
+      big.merge(small, tuples, priKeyIndicesArr[p]);
+      left[p] = big;
+    }
+    return left;
+  }
+
+  /**
+   * Returns a 64-bit hash of the dimensions of the given tuple selected by <i>priKeyIndices</i>.
+   * @param tuple the given tuple
+   * @param priKeyIndices the indices of the primary dimensions
+   * @return a 64-bit hash of the selected dimensions
+   */
+  static long groupHash(final String[] tuple, final int[] priKeyIndices) {
+    long h = priKeyIndices.length;
+    for (int i = 0; i < priKeyIndices.length; i++) {
+      h = (h + Objects.hashCode(tuple[priKeyIndices[i]])) * GOLDEN64;
+      h ^= h >>> 32;
+    }
+    h ^= h >>> 33;
+    h *= 0XFF51_AFD7_ED55_8CCDL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  static boolean sameGroup(final String[] a, final String[] b, final int[] priKeyIndices) {
+    for (int i = 0; i < priKeyIndices.length; i++) {
+      final int idx = priKeyIndices[i];
+      if (!Objects.equals(a[idx], b[idx])) { return false; }
+    }
+    return true;
+  }
+
+  private static String getPrimaryKey(final String[] tuple, final int[] priKeyIndices,
+      final char sep) {
+    final StringBuilder sb = new StringBuilder();
+    final int keys = priKeyIndices.length;
+    for (int i = 0; i < keys; i++) {
+      sb.append(tuple[priKeyIndices[i]]);
+      if ((i + 1) < keys) { sb.append(sep); }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Open addressing hash table of groups. Each group is identified by the index of a
+   * representative tuple and counts the entries of the sketch that belong to it.
+   */
+  static final class GroupTable {
+    long[] hashes;
+    int[] reps; //index of a representative tuple, -1 if the slot is empty
+    int[] counts;
+    int numGroups;
+
+    GroupTable(final int expectedGroups) {
+      init(Math.max(16, Integer.highestOneBit(Math.max(1, (expectedGroups * 4) / 3)) << 1));
+    }
+
+    private void init(final int size) {
+      hashes = new long[size];
+      reps = new int[size];
+      counts = new int[size];
+      Arrays.fill(reps, -1);
+      numGroups = 0;
+    }
+
+    void add(final long hash, final int rep, final int count, final String[][] tuples,
+        final int[] priKeyIndices) {
+      final int mask = reps.length - 1;
+      int i = (int) hash & mask;
+      while (reps[i] >= 0) {
+        if ((hashes[i] == hash) && sameGroup(tuples[reps[i]], tuples[rep], priKeyIndices)) {
+          counts[i] += count;
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      hashes[i] = hash;
+      reps[i] = rep;
+      counts[i] = count;
+      numGroups++;
+      if ((numGroups * 4L) > (reps.length * 3L)) { resize(tuples, priKeyIndices); }
+    }
+
+    void merge(final GroupTable other, final String[][] tuples, final int[] priKeyIndices) {
+      for (int i = 0; i < other.reps.length; i++) {
+        if (other.reps[i] >= 0) {
+          add(other.hashes[i], other.reps[i], other.counts[i], tuples, priKeyIndices);
+        }
+      }
+    }
+
+    private void resize(final String[][] tuples, final int[] priKeyIndices) {
+      final long[] oldHashes = hashes;
+      final int[] oldReps = reps;
+      final int[] oldCounts = counts;
+      init(oldReps.length * 2);
+      for (int i = 0; i < oldReps.length; i++) {
+        if (oldReps[i] >= 0) {
+          add(oldHashes[i], oldReps[i], oldCounts[i], tuples, priKeyIndices);
+        }
+      }
+    }
+  }
+
+}
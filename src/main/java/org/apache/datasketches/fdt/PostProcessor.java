@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.datasketches.tuple.Sketch;
 import org.apache.datasketches.tuple.SketchIterator;
 import org.apache.datasketches.tuple.strings.ArrayOfStringsSummary;
 
@@ -38,7 +39,7 @@ import org.apache.datasketches.tuple.strings.ArrayOfStringsSummary;
  * @author Lee Rhodes
  */
 public class PostProcessor {
-  private final FdtSketch sketch;
+  private final Sketch<ArrayOfStringsSummary> sketch;
   private final char sep;
   private int groupCount;
   @SuppressWarnings("unused")
@@ -58,7 +59,17 @@ public class PostProcessor {
    * @param sep the separator character
    */
   public PostProcessor(final FdtSketch sketch, final Group group, final char sep) {
-    this.sketch = sketch.copy();
+    this((Sketch<ArrayOfStringsSummary>) sketch, group, sep);
+  }
+
+  /**
+   * Construct with a populated sketch of FDT entries, such as one heapified with DictionarySerDe
+   * @param sketch the given sketch to query.
+   * @param group the Group
+   * @param sep the separator character
+   */
+  public PostProcessor(final Sketch<ArrayOfStringsSummary> sketch, final Group group, final char sep) {
+    this.sketch = sketch.compact();
     this.sep = sep;
     final int numEntries = sketch.getRetainedEntries();
     mapArrSize = ceilingPowerOf2((int)(numEntries / 0.75));
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.apache.datasketches.Util.toLog2;
+import static org.apache.datasketches.frequencies.Util.hash;
+
+/**
+ * Implements a linear-probing based hash map of (fingerprint, item) pairs, which holds one
+ * representative item for each fingerprint tracked by a FingerprintItemsSketch.
+ * Entries are never deleted one at a time. Instead, after the counters of the sketch have been
+ * purged, the map is rebuilt with only the fingerprints that are still active.
+ *
+ * @param <T> the type of the items
+ */
+final class FingerprintItemMap<T> {
+  private static final double LOAD_FACTOR = 0.75;
+  private int loadThreshold;
+  private long[] keys;
+  private Object[] items; //null marks an empty cell
+  private int numActive = 0;
+
+  /**
+   * Constructor will create arrays of length mapSize, which must be a power of two.
+   * @param mapSize the length of the arrays, which must be a power of 2.
+   */
+  FingerprintItemMap(final int mapSize) {
+    toLog2(mapSize, "mapSize");
+    loadThreshold = (int) (mapSize * LOAD_FACTOR);
+    keys = new long[mapSize];
+    items = new Object[mapSize];
+  }
+
+  /**
+   * Gets the item of the given fingerprint.
+   * @param key the given fingerprint
+   * @return the item of the given fingerprint or null if the fingerprint is not found.
+   */
+  @SuppressWarnings("unchecked")
+  T get(final long key) {
+    return (T) items[hashProbe(key)];
+  }
+
+  /**
+   * Maps the given fingerprint to the given item unless the fingerprint is already present.
+   * This will expand the arrays if necessary.
+   * @param key the given fingerprint
+   * @param item the given item, which must not be null
+   */
+  void putIfAbsent(final long key, final T item) {
+    assert item != null;
+    if (numActive >= loadThreshold) { resize(2 * keys.length); }
+    final int probe = hashProbe(key);
+    if (items[probe] == null) {
+      keys[probe] = key;
+      items[probe] = item;
+      numActive++;
+    }
+  }
+
+  /**
+   * Rebuilds this map with only the fingerprints that are active in the given counter map.
+   * @param counters the counter map of the sketch
+   */
+  void retainActive(final ReversePurgeLongHashMap counters) {
+    final long[] oldKeys = keys;
+    final Object[] oldItems = items;
+    keys = new long[counters.getLength()];
+    items = new Object[counters.getLength()];
+    loadThreshold = (int) (keys.length * LOAD_FACTOR);
+    numActive = 0;
+    final int oldMask = oldKeys.length - 1;
+    final ReversePurgeLongHashMap.Iterator iter = counters.iterator();
+    while (iter.next()) {
+      final long key = iter.getKey();
+      int probe = (int) hash(key) & oldMask;
+      while ((oldItems[probe] != null) && (oldKeys[probe] != key)) {
+        probe = (probe + 1) & oldMask;
+      }
+      if (oldItems[probe] != null) { insert(key, oldItems[probe]); }
+    }
+  }
+
+  /**
+   * @return number of populated fingerprints
+   */
+  int getNumActive() {
+    return numActive;
+  }
+
+  private void resize(final int newSize) {
+    final long[] oldKeys = keys;
+    final Object[] oldItems = items;
+    keys = new long[newSize];
+    items = new Object[newSize];
+    loadThreshold = (int) (newSize * LOAD_FACTOR);
+    numActive = 0;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldItems[i] != null) { insert(oldKeys[i], oldItems[i]); }
+    }
+  }
+
+  //the key must not be present
+  private void insert(final long key, final Object item) {
+    final int probe = hashProbe(key);
+    keys[probe] = key;
+    items[probe] = item;
+    numActive++;
+  }
+
+  private int hashProbe(final long key) {
+    final int arrayMask = keys.length - 1;
+    int probe = (int) hash(key) & arrayMask;
+    while ((items[probe] != null) && (keys[probe] != key)) {
+      probe = (probe + 1) & arrayMask;
+    }
+    return probe;
+  }
+
+}
@@ -0,0 +1,506 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.Util.LS;
+import static org.apache.datasketches.Util.toLog2;
+import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
+import static org.apache.datasketches.frequencies.Util.SAMPLE_SIZE;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.hash.MurmurHash3;
+
+/**
+ * <p>This is a variant of the {@link ItemsSketch} that tracks the approximate frequencies of
+ * items of type <i>&lt;T&gt;</i> by their 64-bit fingerprints. The counters are kept in the same
+ * primitive hash map of (long, long) pairs as in the {@link LongsSketch}, so the update of an item
+ * costs one fingerprint computation plus the update of a LongsSketch, and no calls to
+ * <i>equals()</i> or <i>hashCode()</i> of the items are needed.</p>
+ *
+ * <p>Optionally, the sketch also keeps one representative item for each tracked fingerprint in a
+ * side table, which is only written when a fingerprint gets a new counter. The side table allows
+ * {@link #getFrequentItems(ErrorType)} to return the items themselves, otherwise only the
+ * fingerprints are returned.</p>
+ *
+ * <p>Distinct items with the same fingerprint are counted as one item. With a good 64-bit
+ * fingerprint function, such as the one used by {@link #forStrings(int, boolean)}, the
+ * probability of any collision among a billion distinct items is less than 3%, and a collision
+ * only affects the estimates of the two items involved. Otherwise the error guarantees and space
+ * usage are those of the {@link LongsSketch}, plus about 16 bytes per tracked item for the side
+ * table if it is kept. Keys that are already primitive longs or ints should use the
+ * {@link LongsSketch} directly.</p>
+ *
+ * @param <T> The type of item to be tracked by this sketch
+ */
+public class FingerprintItemsSketch<T> {
+
+  /**
+   * Log2 Maximum length of the arrays internal to the hash map supported by the data
+   * structure.
+   */
+  private final int lgMaxMapSize;
+
+  /**
+   * The current number of counters supported by the hash map.
+   */
+  private int curMapCap; //the threshold to purge
+
+  /**
+   * Tracks the total of decremented counts.
+   */
+  private long offset;
+
+  /**
+   * The sum of all frequencies of the stream so far.
+   */
+  private long streamWeight = 0;
+
+  /**
+   * The maximum number of samples used to compute approximate median of counters when doing
+   * decrement
+   */
+  private final int sampleSize;
+
+  /**
+   * Computes the fingerprint of an item
+   */
+  private final ToLongFunction<? super T> fingerprinter;
+
+  /**
+   * Hash map mapping fingerprints to approximate counts
+   */
+  private ReversePurgeLongHashMap hashMap;
+
+  /**
+   * Hash map mapping fingerprints to representative items, or null if the items are not kept
+   */
+  private FingerprintItemMap<T> itemMap;
+
+  /**
+   * Construct this sketch with the parameter maxMapSize and the default initialMapSize (8).
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map managed by this
+   * sketch and must be a power of 2. The maximum capacity of this internal hash map is
+   * 0.75 times * maxMapSize. Both the ultimate accuracy and size of this sketch are
+   * functions of maxMapSize.
+   * @param fingerprinter computes the 64-bit fingerprint of an item. Equal items must have equal
+   * fingerprints, and distinct items should have distinct fingerprints with high probability.
+   * @param keepItems if true, one representative item is kept for each tracked fingerprint.
+   */
+  public FingerprintItemsSketch(final int maxMapSize, final ToLongFunction<? super T> fingerprinter,
+      final boolean keepItems) {
+    Objects.requireNonNull(fingerprinter, "Parameter 'fingerprinter' must not be null");
+    lgMaxMapSize = Math.max(toLog2(maxMapSize, "maxMapSize"), LG_MIN_MAP_SIZE);
+    this.fingerprinter = fingerprinter;
+    hashMap = new ReversePurgeLongHashMap(1 << LG_MIN_MAP_SIZE);
+    curMapCap = hashMap.getCapacity();
+    itemMap = keepItems ? new FingerprintItemMap<>(1 << LG_MIN_MAP_SIZE) : null;
+    offset = 0;
+    sampleSize = Math.min(SAMPLE_SIZE, getMaximumMapCapacity());
+  }
+
+  /**
+   * Returns a new sketch for String items, which are fingerprinted with the 64-bit MurmurHash3 of
+   * their UTF-8 encoding.
+   * @param maxMapSize See {@link #FingerprintItemsSketch(int, ToLongFunction, boolean)}
+   * @param keepItems if true, one representative item is kept for each tracked fingerprint.
+   * @return a new sketch for String items
+   */
+  public static FingerprintItemsSketch<String> forStrings(final int maxMapSize,
+      final boolean keepItems) {
+    return new FingerprintItemsSketch<>(maxMapSize, FingerprintItemsSketch::fingerprint, keepItems);
+  }
+
+  /**
+   * Returns the 64-bit fingerprint of the given String used by {@link #forStrings(int, boolean)}.
+   * @param item the given String
+   * @return the 64-bit fingerprint of the given String
+   */
+  public static long fingerprint(final String item) {
+    return MurmurHash3.hash(item.getBytes(UTF_8), DEFAULT_UPDATE_SEED)[0];
+  }
+
+  /**
+   * Returns the current number of counters the sketch is configured to support.
+   *
+   * @return the current number of counters the sketch is configured to support.
+   */
+  public int getCurrentMapCapacity() {
+    return curMapCap;
+  }
+
+  /**
+   * Gets the estimate of the frequency of the given item.
+   *
+   * @param item the given item
+   * @return the estimate of the frequency of the given item
+   */
+  public long getEstimate(final T item) {
+    if (item == null) { return 0; }
+    final long itemCount = hashMap.get(fingerprinter.applyAsLong(item));
+    return (itemCount > 0) ? itemCount + offset : 0;
+  }
+
+  /**
+   * Gets the guaranteed lower bound frequency of the given item, which can never be
+   * negative.
+   *
+   * @param item the given item.
+   * @return the guaranteed lower bound frequency of the given item. That is, a number which
+   * is guaranteed to be no larger than the real frequency.
+   */
+  public long getLowerBound(final T item) {
+    if (item == null) { return 0; }
+    return hashMap.get(fingerprinter.applyAsLong(item));
+  }
+
+  /**
+   * Gets the guaranteed upper bound frequency of the given item.
+   *
+   * @param item the given item
+   * @return the guaranteed upper bound frequency of the given item. That is, a number which
+   * is guaranteed to be no smaller than the real frequency.
+   */
+  public long getUpperBound(final T item) {
+    if (item == null) { return offset; }
+    return hashMap.get(fingerprinter.applyAsLong(item)) + offset;
+  }
+
+  /**
+   * Returns an array of Rows that include frequent items, estimates, upper and lower bounds
+   * given a threshold and an ErrorCondition. If the threshold is lower than getMaximumError(),
+   * then getMaximumError() will be used instead. See
+   * {@link ItemsSketch#getFrequentItems(long, ErrorType)}.
+   *
+   * @param threshold to include items in the result list
+   * @param errorType determines whether no false positives or no false negatives are
+   * desired.
+   * @return an array of frequent items
+   */
+  public Row<T>[] getFrequentItems(final long threshold, final ErrorType errorType) {
+    return sortItems(threshold > getMaximumError() ? threshold : getMaximumError(), errorType);
+  }
+
+  /**
+   * Returns an array of Rows that include frequent items, estimates, upper and lower bounds
+   * given an ErrorCondition and the default threshold.
+   * This is the same as getFrequentItems(getMaximumError(), errorType)
+   *
+   * @param errorType determines whether no false positives or no false negatives are
+   * desired.
+   * @return an array of frequent items
+   */
+  public Row<T>[] getFrequentItems(final ErrorType errorType) {
+    return sortItems(getMaximumError(), errorType);
+  }
+
+  /**
+   * @return An upper bound on the maximum error of getEstimate(item) for any item.
+   * This is equivalent to the maximum distance between the upper bound and the lower bound
+   * for any item.
+   */
+  public long getMaximumError() {
+    return offset;
+  }
+
+  /**
+   * Returns the maximum number of counters the sketch is configured to support.
+   *
+   * @return the maximum number of counters the sketch is configured to support.
+   */
+  public int getMaximumMapCapacity() {
+    return (int) ((1 << lgMaxMapSize) * ReversePurgeLongHashMap.getLoadFactor());
+  }
+
+  /**
+   * @return the number of active items in the sketch.
+   */
+  public int getNumActiveItems() {
+    return hashMap.getNumActive();
+  }
+
+  /**
+   * Returns the sum of the frequencies in the stream seen so far by the sketch
+   *
+   * @return the sum of the frequencies in the stream seen so far by the sketch
+   */
+  public long getStreamLength() {
+    return streamWeight;
+  }
+
+  /**
+   * Returns true if this sketch keeps a representative item for each tracked fingerprint.
+   * @return true if this sketch keeps a representative item for each tracked fingerprint.
+   */
+  public boolean isKeepingItems() {
+    return itemMap != null;
+  }
+
+  /**
+   * Returns true if this sketch is empty
+   *
+   * @return true if this sketch is empty
+   */
+  public boolean isEmpty() {
+    return getNumActiveItems() == 0;
+  }
+
+  /**
+   * This function merges the other sketch into this one.
+   * The other sketch may be of a different size, but must use the same fingerprint function.
+   * If this sketch keeps items, the items of the other sketch are taken over when it keeps them.
+   *
+   * @param other sketch of this class
+   * @return a sketch whose estimates are within the guarantees of the
+   * largest error tolerance of the two merged sketches.
+   */
+  public FingerprintItemsSketch<T> merge(final FingerprintItemsSketch<T> other) {
+    if (other == null) { return this; }
+    if (other.isEmpty()) { return this; }
+
+    final long streamWt = streamWeight + other.streamWeight; //capture before merge
+
+    final ReversePurgeLongHashMap.Iterator iter = other.hashMap.iterator();
+    while (iter.next()) { //this may add to offset during rebuilds
+      final long fp = iter.getKey();
+      update(fp, iter.getValue(), (other.itemMap == null) ? null : other.itemMap.get(fp));
+    }
+    offset += other.offset;
+    streamWeight = streamWt; //corrected streamWeight
+    return this;
+  }
+
+  /**
+   * Resets this sketch to a virgin state.
+   */
+  public void reset() {
+    hashMap = new ReversePurgeLongHashMap(1 << LG_MIN_MAP_SIZE);
+    curMapCap = hashMap.getCapacity();
+    if (itemMap != null) { itemMap = new FingerprintItemMap<>(1 << LG_MIN_MAP_SIZE); }
+    offset = 0;
+    streamWeight = 0;
+  }
+
+  /**
+   * Returns a human readable summary of this sketch.
+   * @return a human readable summary of this sketch.
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("FingerprintItemsSketch<T>:").append(LS);
+    sb.append("  Stream Length    : " + streamWeight).append(LS);
+    sb.append("  Max Error Offset : " + offset).append(LS);
+    sb.append("  Keeping Items    : " + isKeepingItems()).append(LS);
+    sb.append(hashMap.toString());
+    return sb.toString();
+  }
+
+  /**
+   * Update this sketch with an item and a frequency count of one.
+   * @param item for which the frequency should be increased.
+   */
+  public void update(final T item) {
+    update(item, 1);
+  }
+
+  /**
+   * Update this sketch with an item and a positive frequency count.
+   * @param item for which the frequency should be increased. The sketch uses only the fingerprint
+   * of the item. If items are kept, the item is kept when its fingerprint gets a new counter.
+   * @param count the amount by which the frequency of the item should be increased.
+   * A count of zero is a no-op, and a negative count will throw an exception.
+   */
+  public void update(final T item, final long count) {
+    if ((item == null) || (count == 0)) {
+      return;
+    }
+    if (count < 0) {
+      throw new SketchesArgumentException("Count may not be negative");
+    }
+    update(fingerprinter.applyAsLong(item), count, item);
+  }
+
+  private void update(final long fp, final long count, final T item) {
+    streamWeight += count;
+    final int numActive = hashMap.getNumActive();
+    hashMap.adjustOrPutValue(fp, count);
+    if ((itemMap != null) && (item != null) && (hashMap.getNumActive() > numActive)) {
+      itemMap.putIfAbsent(fp, item);
+    }
+
+    if (getNumActiveItems() > curMapCap) { //over the threshold, we need to do something
+      if (hashMap.getLgLength() < lgMaxMapSize) { //below tgt size, we can grow
+        hashMap.resize(2 * hashMap.getLength());
+        curMapCap = hashMap.getCapacity();
+      } else { //At tgt size, must purge
+        offset += hashMap.purge(sampleSize);
+        if (getNumActiveItems() > getMaximumMapCapacity()) {
+          throw new SketchesStateException("Purge did not reduce active items.");
+        }
+        if (itemMap != null) { itemMap.retainActive(hashMap); }
+      }
+    }
+  }
+
+  /**
+   * Row class that defines the return values from a getFrequentItems query.
+   * @param <T> type of item
+   */
+  public static class Row<T> implements Comparable<Row<T>> {
+    final T item;
+    final long fingerprint;
+    final long est;
+    final long ub;
+    final long lb;
+    private static final String FMT =  "  %12d%12d%12d %20d %s";
+    private static final String HFMT = "  %12s%12s%12s %20s %s";
+
+    Row(final T item, final long fingerprint, final long estimate, final long ub, final long lb) {
+      this.item = item;
+      this.fingerprint = fingerprint;
+      est = estimate;
+      this.ub = ub;
+      this.lb = lb;
+    }
+
+    /**
+     * @return item of type T, or null if the sketch does not keep items
+     */
+    public T getItem() { return item; }
+
+    /**
+     * @return the fingerprint of the item
+     */
+    public long getFingerprint() { return fingerprint; }
+
+    /**
+     * @return the estimate
+     */
+    public long getEstimate() { return est; }
+
+    /**
+     * @return the upper bound
+     */
+    public long getUpperBound() { return ub; }
+
+    /**
+     * @return return the lower bound
+     */
+    public long getLowerBound() { return lb; }
+
+    /**
+     * @return the descriptive row header
+     */
+    public static String getRowHeader() {
+      return String.format(HFMT,"Est", "UB", "LB", "Fingerprint", "Item");
+    }
+
+    @Override
+    public String toString() {
+      return String.format(FMT, est, ub, lb, fingerprint, item);
+    }
+
+    /**
+     * This compareTo is strictly limited to the Row.getEstimate() value and does not imply any
+     * ordering whatsoever to the other elements of the row: item and upper and lower bounds.
+     * Defined this way, this compareTo will be consistent with hashCode() and equals(Object).
+     * @param that the other row to compare to.
+     * @return a negative integer, zero, or a positive integer as this.getEstimate() is less than,
+     * equal to, or greater than that.getEstimate().
+     */
+    @Override
+    public int compareTo(final Row<T> that) {
+      return (est < that.est) ? -1 : (est > that.est) ? 1 : 0;
+    }
+
+    /**
+     * This hashCode is computed only from the Row.getEstimate() value.
+     * Defined this way, this hashCode will be consistent with equals(Object):<br>
+     * If (x.equals(y)) implies: x.hashCode() == y.hashCode().<br>
+     * If (!x.equals(y)) does NOT imply: x.hashCode() != y.hashCode().
+     * @return the hashCode computed from getEstimate().
+     */
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = (prime * result) + (int) (est ^ (est >>> 32));
+      return result;
+    }
+
+    /**
+     * This equals is computed only from the Row.getEstimate() value and does not imply equality
+     * of the other items within the row: item and upper and lower bounds.
+     * Defined this way, this equals will be consistent with compareTo(Row).
+     * @param obj the other row to determine equality with.
+     * @return true if this.getEstimate() equals ((Row&lt;T&gt;)obj).getEstimate().
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) { return true; }
+      if (obj == null) { return false; }
+      if ( !(obj instanceof Row)) { return false; }
+      final Row<T> that = (Row<T>) obj;
+      if (est != that.est) { return false; }
+      return true;
+    }
+
+  } //End of class Row<T>
+
+  Row<T>[] sortItems(final long threshold, final ErrorType errorType) {
+    final ArrayList<Row<T>> rowList = new ArrayList<>();
+    final ReversePurgeLongHashMap.Iterator iter = hashMap.iterator();
+    while (iter.next()) {
+      final long fp = iter.getKey();
+      final long lb = iter.getValue();
+      final long ub = lb + offset;
+      final long bound = (errorType == ErrorType.NO_FALSE_NEGATIVES) ? ub : lb;
+      if (bound >= threshold) {
+        final T item = (itemMap == null) ? null : itemMap.get(fp);
+        rowList.add(new Row<>(item, fp, lb + offset, ub, lb));
+      }
+    }
+
+    // descending order
+    rowList.sort(new Comparator<Row<T>>() {
+      @Override
+      public int compare(final Row<T> r1, final Row<T> r2) {
+        return r2.compareTo(r1);
+      }
+    });
+
+    @SuppressWarnings("unchecked")
+    final Row<T>[] rowsArr =
+      rowList.toArray((Row<T>[]) Array.newInstance(Row.class, rowList.size()));
+    return rowsArr;
+  }
+
+}
@@ -19,18 +19,17 @@
 
 package org.apache.datasketches.frequencies;
 
+import static org.apache.datasketches.ForkJoinChunks.reduceChunks;
 import static org.apache.datasketches.Util.LS;
 import static org.apache.datasketches.Util.isPowerOf2;
 import static org.apache.datasketches.Util.toLog2;
 import static org.apache.datasketches.frequencies.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.frequencies.PreambleUtil.SER_VER;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractActiveItems;
-import static org.apache.datasketches.frequencies.PreambleUtil.extractFamilyID;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractFlags;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractLgCurMapSize;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractLgMaxMapSize;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractPreLongs;
-import static org.apache.datasketches.frequencies.PreambleUtil.extractSerVer;
 import static org.apache.datasketches.frequencies.PreambleUtil.insertActiveItems;
 import static org.apache.datasketches.frequencies.PreambleUtil.insertFamilyID;
 import static org.apache.datasketches.frequencies.PreambleUtil.insertFlags;
@@ -38,11 +37,17 @@ import static org.apache.datasketches.frequencies.PreambleUtil.insertLgCurMapSiz
 import static org.apache.datasketches.frequencies.PreambleUtil.insertLgMaxMapSize;
 import static org.apache.datasketches.frequencies.PreambleUtil.insertPreLongs;
 import static org.apache.datasketches.frequencies.PreambleUtil.insertSerVer;
+import static org.apache.datasketches.frequencies.Util.lgAggregationHeadroom;
 import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
 import static org.apache.datasketches.frequencies.Util.SAMPLE_SIZE;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
@@ -220,37 +225,12 @@ public class LongsSketch {
    * @return a sketch instance of this class.
    */
   public static LongsSketch getInstance(final Memory srcMem) {
-    final long pre0 = PreambleUtil.checkPreambleSize(srcMem); //make sure preamble will fit
-    final int maxPreLongs = Family.FREQUENCY.getMaxPreLongs();
-
+    final long pre0 = PreambleUtil.checkPreamble(srcMem);
     final int preLongs = extractPreLongs(pre0);         //Byte 0
-    final int serVer = extractSerVer(pre0);             //Byte 1
-    final int familyID = extractFamilyID(pre0);         //Byte 2
     final int lgMaxMapSize = extractLgMaxMapSize(pre0); //Byte 3
     final int lgCurMapSize = extractLgCurMapSize(pre0); //Byte 4
     final boolean empty = (extractFlags(pre0) & EMPTY_FLAG_MASK) != 0; //Byte 5
 
-    // Checks
-    final boolean preLongsEq1 = (preLongs == 1);        //Byte 0
-    final boolean preLongsEqMax = (preLongs == maxPreLongs);
-    if (!preLongsEq1 && !preLongsEqMax) {
-      throw new SketchesArgumentException(
-          "Possible Corruption: PreLongs must be 1 or " + maxPreLongs + ": " + preLongs);
-    }
-    if (serVer != SER_VER) {                            //Byte 1
-      throw new SketchesArgumentException(
-          "Possible Corruption: Ser Ver must be " + SER_VER + ": " + serVer);
-    }
-    final int actFamID = Family.FREQUENCY.getID();      //Byte 2
-    if (familyID != actFamID) {
-      throw new SketchesArgumentException(
-          "Possible Corruption: FamilyID must be " + actFamID + ": " + familyID);
-    }
-    if (empty ^ preLongsEq1) {                          //Byte 5 and Byte 0
-      throw new SketchesArgumentException(
-          "Possible Corruption: (PreLongs == 1) ^ Empty == True.");
-    }
-
     if (empty) {
       return new LongsSketch(lgMaxMapSize, LG_MIN_MAP_SIZE);
     }
@@ -516,6 +496,156 @@ public class LongsSketch {
     return this;
   }
 
+  /**
+   * Merges the given sketches into this one. Rather than updating this sketch with the counters of
+   * each sketch one at a time, which may purge many times, all of the counters are added into one
+   * table sized to hold them and the table is then purged once down to the maximum map capacity of
+   * this sketch. The maximum error of the result is the sum of the maximum errors of the merged
+   * sketches plus the total decremented by that purge.
+   * @param others the given sketches
+   * @param lgHeadroom log2 of the largest size of the table relative to the maximum map size
+   * @return this sketch
+   */
+  LongsSketch mergeSketches(final List<? extends LongsSketch> others, final int lgHeadroom) {
+    long numItems = getNumActiveItems();
+    for (final LongsSketch other : others) { numItems += other.getNumActiveItems(); }
+    final int lgLimit = lgMaxMapSize + lgHeadroom;
+    growForAggregation(numItems, lgLimit);
+    for (final LongsSketch other : others) {
+      final ReversePurgeLongHashMap.Iterator iter = other.hashMap.iterator();
+      while (iter.next()) {
+        aggregate(iter.getKey(), iter.getValue(), lgLimit);
+      }
+      offset += other.offset;
+      streamWeight += other.streamWeight;
+    }
+    finishAggregation();
+    return this;
+  }
+
+  /**
+   * Merges the sketches of the given Memory images into this one the same way as
+   * {@link #mergeSketches(List, int)}, reading the counters straight from the images.
+   * @param images the given Memory images
+   * @param lgHeadroom log2 of the largest size of the table relative to the maximum map size
+   * @return this sketch
+   */
+  LongsSketch mergeImages(final List<? extends Memory> images, final int lgHeadroom) {
+    long numItems = getNumActiveItems();
+    for (final Memory image : images) {
+      final long pre0 = PreambleUtil.checkPreamble(image);
+      if ((extractFlags(pre0) & EMPTY_FLAG_MASK) == 0) {
+        numItems += extractActiveItems(image.getLong(8));
+      }
+    }
+    final int lgLimit = lgMaxMapSize + lgHeadroom;
+    growForAggregation(numItems, lgLimit);
+    for (final Memory image : images) {
+      final long pre0 = image.getLong(0);
+      if ((extractFlags(pre0) & EMPTY_FLAG_MASK) != 0) { continue; }
+      final int preBytes = extractPreLongs(pre0) << 3;
+      final int activeItems = extractActiveItems(image.getLong(8));
+      final long itemsOffset = preBytes + ((long) activeItems << 3);
+      for (int i = 0; i < activeItems; i++) {
+        aggregate(image.getLong(itemsOffset + ((long) i << 3)), image.getLong(preBytes + ((long) i << 3)),
+            lgLimit);
+      }
+      streamWeight += image.getLong(16);
+      offset += image.getLong(24);
+    }
+    finishAggregation();
+    return this;
+  }
+
+  /**
+   * Returns a new sketch that is the merge of all of the given sketches, using the common
+   * ForkJoinPool. See {@link #mergeAll(Collection, ForkJoinPool)}.
+   * @param sketches the given sketches
+   * @return a new sketch that is the merge of all of the given sketches
+   */
+  public static LongsSketch mergeAll(final Collection<? extends LongsSketch> sketches) {
+    return mergeAll(sketches, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a new sketch that is the merge of all of the given sketches. Rather than merging the
+   * sketches one at a time, the counters of a group of sketches are added into one table that is
+   * purged once. The groups are merged in parallel by the given ForkJoinPool and the partial
+   * results are merged pairwise up a tree.
+   * The estimates and bounds of the result have the same guarantees as merging the sketches one at
+   * a time with {@link #merge(LongsSketch)}, and {@link #getMaximumError()} includes the maximum
+   * errors of all of the given sketches. The maximum map size of the result is the largest maximum
+   * map size of the given sketches.
+   *
+   * <p>Each concurrent merge adds its counters into a table that grows with the number of counters
+   * it holds. The tables of the merges that run at the same time take at most about 8 times the
+   * memory of the maximum map of the result together, or twice that memory per thread of the pool
+   * if it has more than 4 threads.</p>
+   *
+   * <p>The given sketches are not modified, and must not be modified while this method runs.</p>
+   *
+   * @param sketches the given sketches
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new sketch that is the merge of all of the given sketches
+   */
+  public static LongsSketch mergeAll(final Collection<? extends LongsSketch> sketches,
+      final ForkJoinPool pool) {
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final List<LongsSketch> nonEmpty = new ArrayList<>(sketches.size());
+    int lgMaxMapSize = LG_MIN_MAP_SIZE;
+    for (final LongsSketch sketch : sketches) {
+      lgMaxMapSize = Math.max(lgMaxMapSize, sketch.lgMaxMapSize);
+      if (!sketch.isEmpty()) { nonEmpty.add(sketch); }
+    }
+    final int lgMaxMapSz = lgMaxMapSize;
+    final int lgHeadroom = lgAggregationHeadroom(pool.getParallelism());
+    if (nonEmpty.isEmpty()) { return new LongsSketch(lgMaxMapSz, LG_MIN_MAP_SIZE); }
+    return reduceChunks(nonEmpty.size(),
+        (lo, hi) -> new LongsSketch(lgMaxMapSz, LG_MIN_MAP_SIZE).mergeSketches(nonEmpty.subList(lo, hi), lgHeadroom),
+        (sk1, sk2) -> sk1.mergeSketches(Collections.singletonList(sk2), lgHeadroom), pool);
+  }
+
+  /**
+   * Returns a new sketch that is the merge of all of the sketches of the given Memory images,
+   * using the common ForkJoinPool. See {@link #mergeAllImages(Collection, ForkJoinPool)}.
+   * @param images the given Memory images
+   * @return a new sketch that is the merge of all of the sketches of the given Memory images
+   */
+  public static LongsSketch mergeAllImages(final Collection<? extends Memory> images) {
+    return mergeAllImages(images, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a new sketch that is the merge of all of the sketches of the given Memory images.
+   * This is the same as {@link #mergeAll(Collection, ForkJoinPool)} of the sketches of the images,
+   * except that the counters are read straight from the images instead of deserializing each image
+   * into a sketch first.
+   *
+   * @param images the given Memory images
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new sketch that is the merge of all of the sketches of the given Memory images
+   */
+  public static LongsSketch mergeAllImages(final Collection<? extends Memory> images,
+      final ForkJoinPool pool) {
+    Objects.requireNonNull(images, "Parameter 'images' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final List<Memory> nonEmpty = new ArrayList<>(images.size());
+    int lgMaxMapSize = LG_MIN_MAP_SIZE;
+    for (final Memory image : images) {
+      final long pre0 = PreambleUtil.checkPreamble(image);
+      lgMaxMapSize = Math.max(lgMaxMapSize, extractLgMaxMapSize(pre0));
+      if ((extractFlags(pre0) & EMPTY_FLAG_MASK) == 0) { nonEmpty.add(image); }
+    }
+    final int lgMaxMapSz = lgMaxMapSize;
+    final int lgHeadroom = lgAggregationHeadroom(pool.getParallelism());
+    if (nonEmpty.isEmpty()) { return new LongsSketch(lgMaxMapSz, LG_MIN_MAP_SIZE); }
+    return reduceChunks(nonEmpty.size(),
+        (lo, hi) -> new LongsSketch(lgMaxMapSz, LG_MIN_MAP_SIZE).mergeImages(nonEmpty.subList(lo, hi), lgHeadroom),
+        (sk1, sk2) -> sk1.mergeSketches(Collections.singletonList(sk2), lgHeadroom), pool);
+  }
+
   /**
    * Resets this sketch to a virgin state.
    */
@@ -664,6 +794,46 @@ public class LongsSketch {
     }
   }
 
+  //grows the hash map so that it can hold the given number of items, up to the given limit
+  private void growForAggregation(final long numItems, final int lgLimit) {
+    int lgLength = hashMap.getLgLength();
+    while ((lgLength < lgLimit)
+        && (((1L << lgLength) * ReversePurgeLongHashMap.getLoadFactor()) < numItems)) {
+      lgLength++;
+    }
+    if (lgLength > hashMap.getLgLength()) { hashMap.resize(1 << lgLength); }
+  }
+
+  //adds a counter without updating the stream weight and grows or purges the hash map as needed
+  private void aggregate(final long item, final long count, final int lgLimit) {
+    hashMap.adjustOrPutValue(item, count);
+    if (hashMap.getNumActive() > hashMap.getCapacity()) {
+      if (hashMap.getLgLength() < lgLimit) {
+        hashMap.resize(2 * hashMap.getLength());
+      } else {
+        purgeTo(getMaximumMapCapacity());
+      }
+    }
+  }
+
+  //purges down to the maximum map capacity and shrinks the hash map back to its normal size
+  private void finishAggregation() {
+    purgeTo(getMaximumMapCapacity());
+    int lgLength = LG_MIN_MAP_SIZE;
+    while ((lgLength < lgMaxMapSize)
+        && (((1 << lgLength) * ReversePurgeLongHashMap.getLoadFactor()) < getNumActiveItems())) {
+      lgLength++;
+    }
+    if (lgLength != hashMap.getLgLength()) { hashMap.resize(1 << lgLength); }
+    curMapCap = hashMap.getCapacity();
+  }
+
+  private void purgeTo(final int numItems) {
+    while (getNumActiveItems() > numItems) {
+      offset += hashMap.purge(sampleSize);
+    }
+  }
+
   /**
    * Row class that defines the return values from a getFrequentItems query.
    */
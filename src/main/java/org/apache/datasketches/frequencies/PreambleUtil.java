@@ -265,6 +265,44 @@ final class PreambleUtil {
     return pre0;
   }
 
+  /**
+   * Checks the preamble of the given Memory image of a frequencies sketch and returns the first
+   * 8 bytes.
+   * @param mem the given Memory
+   * @return the first 8 bytes of preamble as a long.
+   */
+  static long checkPreamble(final Memory mem) {
+    final long pre0 = checkPreambleSize(mem); //make sure preamble will fit
+    final int maxPreLongs = Family.FREQUENCY.getMaxPreLongs();
+
+    final int preLongs = extractPreLongs(pre0);         //Byte 0
+    final int serVer = extractSerVer(pre0);             //Byte 1
+    final int familyID = extractFamilyID(pre0);         //Byte 2
+    final boolean empty = (extractFlags(pre0) & EMPTY_FLAG_MASK) != 0; //Byte 5
+
+    // Checks
+    final boolean preLongsEq1 = (preLongs == 1);        //Byte 0
+    final boolean preLongsEqMax = (preLongs == maxPreLongs);
+    if (!preLongsEq1 && !preLongsEqMax) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: PreLongs must be 1 or " + maxPreLongs + ": " + preLongs);
+    }
+    if (serVer != SER_VER) {                            //Byte 1
+      throw new SketchesArgumentException(
+          "Possible Corruption: Ser Ver must be " + SER_VER + ": " + serVer);
+    }
+    final int actFamID = Family.FREQUENCY.getID();      //Byte 2
+    if (familyID != actFamID) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: FamilyID must be " + actFamID + ": " + familyID);
+    }
+    if (empty ^ preLongsEq1) {                          //Byte 5 and Byte 0
+      throw new SketchesArgumentException(
+          "Possible Corruption: (PreLongs == 1) ^ Empty == True.");
+    }
+    return pre0;
+  }
+
   private static void throwNotBigEnough(final long cap, final int required) {
     throw new SketchesArgumentException(
         "Possible Corruption: "
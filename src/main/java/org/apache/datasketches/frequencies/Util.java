@@ -37,6 +37,25 @@ final class Util {
    */
   static final int SAMPLE_SIZE = 1024;
 
+  /**
+   * When merging many sketches at once, the counters are first added into tables that together may
+   * grow to 2^LG_AGGREGATION_HEADROOM times the maximum map size of the result before they must be
+   * purged.
+   */
+  static final int LG_AGGREGATION_HEADROOM = 3;
+
+  /**
+   * Returns the headroom of the table of each of the given number of concurrent merges, so that
+   * the tables together stay within 2^LG_AGGREGATION_HEADROOM times the maximum map size of the
+   * result. Each table may still grow to twice the maximum map size.
+   * @param parallelism the number of merges that may run at the same time
+   * @return log2 of the size of the table of each merge relative to the maximum map size
+   */
+  static int lgAggregationHeadroom(final int parallelism) {
+    final int lgParallelism = 32 - Integer.numberOfLeadingZeros(Math.max(parallelism, 1) - 1);
+    return Math.max(1, LG_AGGREGATION_HEADROOM - lgParallelism);
+  }
+
   /**
    * @param key to be hashed
    * @return an index into the hash table This hash function is taken from the internals of 
@@ -270,6 +270,22 @@ public final class MurmurHash3 implements Serializable {
    * @return a 128-bit hash of the input as a long array of size 2.
    */
   public static long[] hash(final byte[] key, final int offsetBytes, final int lengthBytes, final long seed) {
+    return hash(key, offsetBytes, lengthBytes, seed, new long[2]);
+  }
+
+  /**
+   * Hash a portion of the given byte[] array into the given array. This avoids allocating a new
+   * array for each hash when many keys are hashed in a loop.
+   *
+   * @param key The input byte[] array. It must be non-null and non-empty.
+   * @param offsetBytes the starting offset in bytes.
+   * @param lengthBytes the length in bytes of the portion of the array to be hashed.
+   * @param seed A long valued seed.
+   * @param hashOut the array of size 2 that receives the 128-bit hash of the input.
+   * @return hashOut
+   */
+  public static long[] hash(final byte[] key, final int offsetBytes, final int lengthBytes,
+      final long seed, final long[] hashOut) {
     Objects.requireNonNull(key);
     final int arrLen = key.length;
     checkPositive(arrLen);
@@ -303,7 +319,7 @@ public final class MurmurHash3 implements Serializable {
       k2 = 0;
     }
     // Mix the tail into the hash and return
-    return hashState.finalMix128(k1, k2, lengthBytes);
+    return hashState.finalMix128(k1, k2, lengthBytes, hashOut);
   }
 
   //--Hash of ByteBuffer---------------------------------------------------
@@ -410,6 +426,11 @@ public final class MurmurHash3 implements Serializable {
     }
 
     long[] finalMix128(final long k1, final long k2, final long inputLengthBytes) {
+      return finalMix128(k1, k2, inputLengthBytes, new long[2]);
+    }
+
+    long[] finalMix128(final long k1, final long k2, final long inputLengthBytes,
+        final long[] hashOut) {
       h1 ^= mixK1(k1);
       h2 ^= mixK2(k2);
       h1 ^= inputLengthBytes;
@@ -420,7 +441,9 @@ public final class MurmurHash3 implements Serializable {
       h2 = finalMix64(h2);
       h1 += h2;
       h2 += h1;
-      return new long[] { h1, h2 };
+      hashOut[0] = h1;
+      hashOut[1] = h2;
+      return hashOut;
     }
 
     /**
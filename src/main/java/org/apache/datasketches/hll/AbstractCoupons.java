@@ -19,8 +19,6 @@
 
 package org.apache.datasketches.hll;
 
-import static java.lang.Math.max;
-import static org.apache.datasketches.hll.HllUtil.COUPON_RSE;
 import static org.apache.datasketches.hll.HllUtil.EMPTY;
 import static org.apache.datasketches.hll.HllUtil.KEY_MASK_26;
 import static org.apache.datasketches.hll.ToByteArrayImpl.toCouponByteArray;
@@ -58,10 +56,7 @@ abstract class AbstractCoupons extends HllSketchImpl {
    */
   @Override
   double getEstimate() {
-    final int couponCount = getCouponCount();
-    final double est = CubicInterpolation.usingXAndYTables(CouponMapping.xArr,
-        CouponMapping.yArr, couponCount);
-    return max(est, couponCount);
+    return HllEstimators.couponEstimate(getCouponCount());
   }
 
   @Override
@@ -74,21 +69,13 @@ abstract class AbstractCoupons extends HllSketchImpl {
   @Override
   double getLowerBound(final int numStdDev) {
     HllUtil.checkNumStdDev(numStdDev);
-    final int couponCount = getCouponCount();
-    final double est = CubicInterpolation.usingXAndYTables(CouponMapping.xArr,
-        CouponMapping.yArr, couponCount);
-    final double tmp = est / (1.0 + (numStdDev * COUPON_RSE));
-    return max(tmp, couponCount);
+    return HllEstimators.couponLowerBound(getCouponCount(), numStdDev);
   }
 
   @Override
   double getUpperBound(final int numStdDev) {
     HllUtil.checkNumStdDev(numStdDev);
-    final int couponCount = getCouponCount();
-    final double est = CubicInterpolation.usingXAndYTables(CouponMapping.xArr,
-        CouponMapping.yArr, couponCount);
-    final double tmp = est / (1.0 - (numStdDev * COUPON_RSE));
-    return max(tmp, couponCount);
+    return HllEstimators.couponUpperBound(getCouponCount(), numStdDev);
   }
 
   @Override
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hll;
+
+import static org.apache.datasketches.Util.invPow2;
+import static org.apache.datasketches.hll.TgtHllType.HLL_4;
+import static org.apache.datasketches.hll.TgtHllType.HLL_8;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Word-parallel merging of HLL register arrays into an HLL_8 register array, as used by the
+ * union operator.
+ *
+ * <p>Source registers of any <i>TgtHllType</i> are unpacked eight at a time into the eight bytes
+ * of a long, and the bytewise maximum with eight target registers is computed with a single
+ * subtraction and a few masks (SIMD within a register). Heap register arrays are accessed
+ * through a Memory wrap of the <i>byte[]</i>, so heap and direct arrays share the same code.</p>
+ *
+ * <p>While each target word is written back, the resulting register values are counted in a
+ * histogram from which <i>curMin</i>, <i>numAtCurMin</i>, <i>kxq0</i> and <i>kxq1</i> are
+ * computed, so the target does not need a separate rebuild pass afterwards.</p>
+ */
+final class HllArrayMerge {
+  private static final long LOW_BITS = 0X0101_0101_0101_0101L;
+  private static final long HIGH_BITS = 0X8080_8080_8080_8080L;
+
+  private HllArrayMerge() {}
+
+  /**
+   * Merges the registers of the given HLL mode source array into the given HLL_8 target array
+   * and rebuilds the <i>curMin</i>, <i>numAtCurMin</i> and <i>KxQ</i> registers of the target.
+   * The HIP accumulator and the out-of-order flag of the target are not changed.
+   * @param src the source array of any TgtHllType, heap or direct
+   * @param tgt the target HLL_8 array, heap or direct, with lgConfigK &le; that of the source.
+   */
+  static void merge(final AbstractHllArray src, final AbstractHllArray tgt) {
+    assert tgt.getTgtHllType() == HLL_8;
+    final int[] hist = new int[64];
+    final WritableMemory tgtWmem = registerWritableMemory(tgt);
+    final long tgtStart = registerStart(tgt);
+    mergeRegisters(registerMemory(src), registerStart(src), src.getTgtHllType(),
+        src.getLgConfigK(), src.getCurMin(), tgtWmem, tgtStart, tgt.getLgConfigK(), hist);
+    final PairIterator auxItr = src.getAuxIterator();
+    if (auxItr != null) {
+      final int tgtKmask = (1 << tgt.getLgConfigK()) - 1;
+      while (auxItr.nextValid()) {
+        mergeAuxValue(tgtWmem, tgtStart, auxItr.getSlot() & tgtKmask, auxItr.getValue(), hist);
+      }
+    }
+    putCurMinNumKxQ(tgt, hist);
+  }
+
+  /**
+   * Merges the registers of a source register array into an HLL_8 target register array and
+   * accumulates the histogram of the resulting target register values. For HLL_4 sources, slots
+   * holding the AUX_TOKEN are skipped here and must be merged with
+   * {@link #mergeAuxValue(WritableMemory, long, int, int, int[])} afterwards.
+   * @param srcMem the Memory holding the source registers
+   * @param srcStart the byte offset of the source registers in srcMem
+   * @param srcType the TgtHllType of the source registers
+   * @param srcLgK the lgConfigK of the source
+   * @param srcCurMin the curMin of the source, only used for HLL_4.
+   * @param tgtWmem the WritableMemory holding the HLL_8 target registers
+   * @param tgtStart the byte offset of the target registers in tgtWmem
+   * @param tgtLgK the lgConfigK of the target, which must be &le; srcLgK.
+   * @param hist the histogram of 64 counts, which must be zero on entry.
+   */
+  static void mergeRegisters(final Memory srcMem, final long srcStart, final TgtHllType srcType,
+      final int srcLgK, final int srcCurMin, final WritableMemory tgtWmem, final long tgtStart,
+      final int tgtLgK, final int[] hist) {
+    assert srcLgK >= tgtLgK;
+    final int srcK = 1 << srcLgK;
+    final int tgtK = 1 << tgtLgK;
+    final long curMinBytes = srcCurMin * LOW_BITS;
+    for (int j = 0; j < tgtK; j += 8) {
+      final long tgtOffset = tgtStart + j;
+      final long oldRegs = tgtWmem.getLong(tgtOffset);
+      long regs = oldRegs;
+      for (int i = j; i < srcK; i += tgtK) { //folds all source slots that map to slot j
+        regs = maxBytes(regs, getEightRegisters(srcMem, srcStart, srcType, i, curMinBytes));
+      }
+      if (regs != oldRegs) { tgtWmem.putLong(tgtOffset, regs); }
+      for (int shift = 0; shift < 64; shift += 8) {
+        hist[(int) (regs >>> shift) & 0X3F]++;
+      }
+    }
+  }
+
+  /**
+   * Merges one exception value into the target and keeps the histogram current.
+   * @param tgtWmem the WritableMemory holding the HLL_8 target registers
+   * @param tgtStart the byte offset of the target registers in tgtWmem
+   * @param tgtSlot the target slot number
+   * @param value the value to merge
+   * @param hist the histogram of the target register values
+   */
+  static void mergeAuxValue(final WritableMemory tgtWmem, final long tgtStart, final int tgtSlot,
+      final int value, final int[] hist) {
+    final long offset = tgtStart + tgtSlot;
+    final int oldValue = tgtWmem.getByte(offset);
+    if (value > oldValue) {
+      tgtWmem.putByte(offset, (byte) value);
+      hist[oldValue]--;
+      hist[value]++;
+    }
+  }
+
+  /**
+   * Sets curMin, numAtCurMin, kxq0 and kxq1 of the given HLL_8 array from the given histogram of
+   * all of its register values, and clears its rebuild flag.
+   * @param tgt the HLL_8 array
+   * @param hist the histogram of all of its register values
+   */
+  static void putCurMinNumKxQ(final AbstractHllArray tgt, final int[] hist) {
+    int curMin = 0;
+    while (hist[curMin] == 0) { curMin++; }
+    //every term is a multiple of 2^-31 and < 2^22, so these sums are exact in any order
+    double kxq0 = 0;
+    double kxq1 = 0;
+    for (int v = curMin; v < 64; v++) {
+      if (hist[v] == 0) { continue; }
+      if (v < 32) { kxq0 += hist[v] * invPow2(v); }
+      else        { kxq1 += hist[v] * invPow2(v); }
+    }
+    tgt.putKxQ0(kxq0);
+    tgt.putKxQ1(kxq1);
+    tgt.putCurMin(curMin);
+    tgt.putNumAtCurMin(hist[curMin]);
+    tgt.putRebuildCurMinNumKxQFlag(false);
+  }
+
+  //Returns source registers i to i + 7 in the bytes of a long, register i in the low byte.
+  //HLL_4 slots holding the AUX_TOKEN are returned as zero.
+  private static long getEightRegisters(final Memory srcMem, final long srcStart,
+      final TgtHllType srcType, final int i, final long curMinBytes) {
+    if (srcType == HLL_8) {
+      return srcMem.getLong(srcStart + i);
+    }
+    if (srcType == HLL_4) {
+      final long nibbles = unpack4BitRegisters(srcMem.getInt(srcStart + (i >>> 1)));
+      final long auxBits = nibbles & (nibbles >>> 1) & (nibbles >>> 2) & (nibbles >>> 3) & LOW_BITS;
+      return (nibbles + curMinBytes) & ~(auxBits * 0XFFL);
+    }
+    //HLL_6: 8 registers occupy 6 bytes; the array has one spare byte, so a long read could overrun
+    final long offset = srcStart + ((i >>> 3) * 6L);
+    return unpack6BitRegisters((srcMem.getInt(offset) & 0XFFFF_FFFFL)
+        | ((srcMem.getShort(offset + 4) & 0XFFFFL) << 32));
+  }
+
+  //Spreads the 8 little-endian 4-bit registers of the given int into the 8 bytes of a long.
+  static long unpack4BitRegisters(final int packed) {
+    long x = packed & 0XFFFF_FFFFL;
+    x = (x | (x << 16)) & 0X0000_FFFF_0000_FFFFL;
+    x = (x | (x << 8))  & 0X00FF_00FF_00FF_00FFL;
+    x = (x | (x << 4))  & 0X0F0F_0F0F_0F0F_0F0FL;
+    return x;
+  }
+
+  //Spreads the 8 little-endian 6-bit registers of the low 48 bits of the given long
+  //into the 8 bytes of a long.
+  static long unpack6BitRegisters(final long packed) {
+    long x = (packed & 0XFF_FFFFL) | ((packed & 0XFFFF_FF00_0000L) << 8);
+    x = (x & 0X0000_0FFF_0000_0FFFL) | ((x & 0X00FF_F000_00FF_F000L) << 4);
+    x = (x & 0X003F_003F_003F_003FL) | ((x & 0X0FC0_0FC0_0FC0_0FC0L) << 2);
+    return x;
+  }
+
+  /**
+   * Returns the bytewise maximum of the given words, where every byte must be &le; 127.
+   * For each byte, (a | 0x80) - b cannot borrow from the next byte, and its high bit is set
+   * exactly when a &ge; b.
+   * @param a eight register values
+   * @param b eight register values
+   * @return the bytewise maximum
+   */
+  static long maxBytes(final long a, final long b) {
+    final long aGeB = (((a | HIGH_BITS) - b) & HIGH_BITS) >>> 7;
+    final long mask = aGeB * 0XFFL;
+    return (a & mask) | (b & ~mask);
+  }
+
+  private static Memory registerMemory(final AbstractHllArray arr) {
+    return arr.isMemory() ? arr.getMemory() : Memory.wrap(((HllArray) arr).hllByteArr);
+  }
+
+  private static WritableMemory registerWritableMemory(final AbstractHllArray arr) {
+    return arr.isMemory()
+        ? arr.getWritableMemory()
+        : WritableMemory.writableWrap(((HllArray) arr).hllByteArr);
+  }
+
+  private static long registerStart(final AbstractHllArray arr) {
+    return arr.isMemory() ? PreambleUtil.HLL_BYTE_ARR_START : 0;
+  }
+
+}
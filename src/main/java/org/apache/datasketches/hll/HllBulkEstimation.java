@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hll;
+
+import static org.apache.datasketches.ForkJoinChunks.forEachChunk;
+import static org.apache.datasketches.Util.invPow2;
+import static org.apache.datasketches.hll.HllUtil.checkPreamble;
+import static org.apache.datasketches.hll.PreambleUtil.HLL_BYTE_ARR_START;
+import static org.apache.datasketches.hll.PreambleUtil.extractCurMin;
+import static org.apache.datasketches.hll.PreambleUtil.extractHashSetCount;
+import static org.apache.datasketches.hll.PreambleUtil.extractHipAccum;
+import static org.apache.datasketches.hll.PreambleUtil.extractKxQ0;
+import static org.apache.datasketches.hll.PreambleUtil.extractKxQ1;
+import static org.apache.datasketches.hll.PreambleUtil.extractLgK;
+import static org.apache.datasketches.hll.PreambleUtil.extractListCount;
+import static org.apache.datasketches.hll.PreambleUtil.extractNumAtCurMin;
+import static org.apache.datasketches.hll.PreambleUtil.extractOooFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractRebuildCurMinNumKxQFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractTgtHllType;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Computes the estimates and bounds of many HLL sketches at once.
+ *
+ * <p>For Memory images the estimator state is read directly from the preamble: the coupon count
+ * in LIST and SET modes, and the HIP accumulator, <i>kxq0</i>, <i>kxq1</i>, <i>curMin</i> and
+ * <i>numAtCurMin</i> in HLL mode. No sketch objects or iterators are created. Only images of a
+ * union that were serialized before these values were rebuilt require a scan of the registers,
+ * and the images are never modified.</p>
+ *
+ * <p>The given list is split into contiguous chunks that are processed as tasks of a
+ * {@link ForkJoinPool}. The results are identical to calling <i>getEstimate()</i>,
+ * <i>getLowerBound(numStdDev)</i> and <i>getUpperBound(numStdDev)</i> on each sketch, or on
+ * <i>HllSketch.heapify(mem)</i> of each image, and are returned in the same order as the input
+ * list.</p>
+ */
+public final class HllBulkEstimation {
+  /** Row index of the estimates in the array returned by the getEstimatesAndBounds methods. */
+  public static final int ESTIMATES = 0;
+  /** Row index of the lower bounds in the array returned by the getEstimatesAndBounds methods. */
+  public static final int LOWER_BOUNDS = 1;
+  /** Row index of the upper bounds in the array returned by the getEstimatesAndBounds methods. */
+  public static final int UPPER_BOUNDS = 2;
+
+  private HllBulkEstimation() {}
+
+  /**
+   * Returns the estimates of the given sketch images using the common ForkJoinPool.
+   * @param images the given HllSketch images, which may be of any type, mode and form.
+   * @return the estimates in the same order as the given images.
+   */
+  public static double[] getEstimates(final List<? extends Memory> images) {
+    return getEstimates(images, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the estimates of the given sketch images using the given ForkJoinPool.
+   * @param images the given HllSketch images, which may be of any type, mode and form.
+   * @param pool the ForkJoinPool that performs the estimation
+   * @return the estimates in the same order as the given images.
+   */
+  public static double[] getEstimates(final List<? extends Memory> images,
+      final ForkJoinPool pool) {
+    return estimate(images, null, 0, false, pool)[ESTIMATES];
+  }
+
+  /**
+   * Returns the estimates, lower bounds and upper bounds of the given sketch images using the
+   * common ForkJoinPool.
+   * @param images the given HllSketch images, which may be of any type, mode and form.
+   * @param numStdDev the number of standard deviations for the bounds, which must be 1, 2 or 3.
+   * @return an array of three rows indexed by {@link #ESTIMATES}, {@link #LOWER_BOUNDS} and
+   * {@link #UPPER_BOUNDS}, each in the same order as the given images.
+   */
+  public static double[][] getEstimatesAndBounds(final List<? extends Memory> images,
+      final int numStdDev) {
+    return getEstimatesAndBounds(images, numStdDev, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the estimates, lower bounds and upper bounds of the given sketch images using the
+   * given ForkJoinPool.
+   * @param images the given HllSketch images, which may be of any type, mode and form.
+   * @param numStdDev the number of standard deviations for the bounds, which must be 1, 2 or 3.
+   * @param pool the ForkJoinPool that performs the estimation
+   * @return an array of three rows indexed by {@link #ESTIMATES}, {@link #LOWER_BOUNDS} and
+   * {@link #UPPER_BOUNDS}, each in the same order as the given images.
+   */
+  public static double[][] getEstimatesAndBounds(final List<? extends Memory> images,
+      final int numStdDev, final ForkJoinPool pool) {
+    HllUtil.checkNumStdDev(numStdDev);
+    return estimate(images, null, numStdDev, true, pool);
+  }
+
+  /**
+   * Returns the estimates, lower bounds and upper bounds of the given sketches using the
+   * given ForkJoinPool.
+   * @param sketches the given sketches
+   * @param numStdDev the number of standard deviations for the bounds, which must be 1, 2 or 3.
+   * @param pool the ForkJoinPool that performs the estimation
+   * @return an array of three rows indexed by {@link #ESTIMATES}, {@link #LOWER_BOUNDS} and
+   * {@link #UPPER_BOUNDS}, each in the same order as the given sketches.
+   */
+  public static double[][] getSketchEstimatesAndBounds(final List<HllSketch> sketches,
+      final int numStdDev, final ForkJoinPool pool) {
+    HllUtil.checkNumStdDev(numStdDev);
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    return estimate(null, sketches, numStdDev, true, pool);
+  }
+
+  private static double[][] estimate(final List<? extends Memory> images,
+      final List<HllSketch> sketches, final int numStdDev, final boolean bounds,
+      final ForkJoinPool pool) {
+    if (sketches == null) { Objects.requireNonNull(images, "Parameter 'images' must not be null"); }
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final int n = (sketches == null) ? images.size() : sketches.size();
+    final double[][] out = bounds
+        ? new double[][] {new double[n], new double[n], new double[n]}
+        : new double[][] {new double[n]};
+    if (n == 0) { return out; }
+    forEachChunk(n, (lo, hi) -> {
+      if (sketches == null) {
+        for (int i = lo; i < hi; i++) { estimate(images.get(i), numStdDev, out, i); }
+      } else {
+        for (int i = lo; i < hi; i++) {
+          final HllSketch sketch = sketches.get(i);
+          out[ESTIMATES][i] = sketch.getEstimate();
+          out[LOWER_BOUNDS][i] = sketch.getLowerBound(numStdDev);
+          out[UPPER_BOUNDS][i] = sketch.getUpperBound(numStdDev);
+        }
+      }
+    }, pool);
+    return out;
+  }
+
+  /**
+   * Computes the estimate, and optionally the bounds, of one image into slot i of out.
+   * @param mem the HllSketch image
+   * @param numStdDev the number of standard deviations for the bounds
+   * @param out one row of estimates and, if it has three rows, of lower and upper bounds.
+   * @param i the index into the rows of out
+   */
+  static void estimate(final Memory mem, final int numStdDev, final double[][] out, final int i) {
+    final CurMode curMode = checkPreamble(mem);
+    final boolean bounds = out.length > 1;
+    if (curMode != CurMode.HLL) {
+      final int couponCount =
+          (curMode == CurMode.LIST) ? extractListCount(mem) : extractHashSetCount(mem);
+      out[ESTIMATES][i] = HllEstimators.couponEstimate(couponCount);
+      if (bounds) {
+        out[LOWER_BOUNDS][i] = HllEstimators.couponLowerBound(couponCount, numStdDev);
+        out[UPPER_BOUNDS][i] = HllEstimators.couponUpperBound(couponCount, numStdDev);
+      }
+      return;
+    }
+    final int lgConfigK = extractLgK(mem);
+    final boolean oooFlag = extractOooFlag(mem);
+    int curMin;
+    int numAtCurMin;
+    double kxq0;
+    double kxq1;
+    if (extractRebuildCurMinNumKxQFlag(mem) && (extractTgtHllType(mem) == TgtHllType.HLL_8)) {
+      //a non-finalized union image: histogram the registers without modifying the image
+      final int[] hist = new int[64];
+      final int configK = 1 << lgConfigK;
+      for (int j = 0; j < configK; j += 8) {
+        final long regs = mem.getLong(HLL_BYTE_ARR_START + j);
+        for (int shift = 0; shift < 64; shift += 8) {
+          hist[(int) (regs >>> shift) & 0X3F]++;
+        }
+      }
+      curMin = 0;
+      while (hist[curMin] == 0) { curMin++; }
+      numAtCurMin = hist[curMin];
+      //accumulated in two registers split at 32, as HllArrayMerge.putCurMinNumKxQ() does
+      kxq0 = 0;
+      kxq1 = 0;
+      for (int v = curMin; v < 64; v++) {
+        if (hist[v] == 0) { continue; }
+        if (v < 32) { kxq0 += hist[v] * invPow2(v); }
+        else        { kxq1 += hist[v] * invPow2(v); }
+      }
+    } else {
+      curMin = extractCurMin(mem);
+      numAtCurMin = extractNumAtCurMin(mem);
+      kxq0 = extractKxQ0(mem);
+      kxq1 = extractKxQ1(mem);
+    }
+    final double est = (oooFlag)
+        ? HllEstimators.hllCompositeEstimate(lgConfigK, kxq0 + kxq1, curMin, numAtCurMin)
+        : extractHipAccum(mem);
+    out[ESTIMATES][i] = est;
+    if (bounds) {
+      out[LOWER_BOUNDS][i] =
+          HllEstimators.hllLowerBound(lgConfigK, curMin, numAtCurMin, oooFlag, est, numStdDev);
+      out[UPPER_BOUNDS][i] = HllEstimators.hllUpperBound(lgConfigK, oooFlag, est, numStdDev);
+    }
+  }
+
+}
@@ -21,10 +21,25 @@ package org.apache.datasketches.hll;
 
 import static org.apache.datasketches.Util.invPow2;
 import static org.apache.datasketches.hll.HllUtil.EMPTY;
+import static org.apache.datasketches.hll.HllUtil.checkPreamble;
+import static org.apache.datasketches.hll.HllUtil.getPairLow26;
+import static org.apache.datasketches.hll.HllUtil.getPairValue;
+import static org.apache.datasketches.hll.PreambleUtil.HASH_SET_INT_ARR_START;
 import static org.apache.datasketches.hll.PreambleUtil.HLL_BYTE_ARR_START;
+import static org.apache.datasketches.hll.PreambleUtil.LIST_INT_ARR_START;
+import static org.apache.datasketches.hll.PreambleUtil.extractAuxCount;
+import static org.apache.datasketches.hll.PreambleUtil.extractCompactFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractCurMin;
+import static org.apache.datasketches.hll.PreambleUtil.extractEmptyFlag;
+import static org.apache.datasketches.hll.PreambleUtil.extractHashSetCount;
+import static org.apache.datasketches.hll.PreambleUtil.extractLgArr;
+import static org.apache.datasketches.hll.PreambleUtil.extractLgK;
+import static org.apache.datasketches.hll.PreambleUtil.extractListCount;
 import static org.apache.datasketches.hll.PreambleUtil.extractTgtHllType;
 import static org.apache.datasketches.hll.TgtHllType.HLL_8;
 
+import java.util.Objects;
+
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
@@ -303,6 +318,80 @@ public class Union extends BaseHllSketch {
     gadget.hllSketchImpl = unionImpl(sketch, gadget, lgMaxK);
   }
 
+  /**
+   * Update this union operator with the given Memory image of an HllSketch, which may be of any
+   * <i>TgtHllType</i>, in any mode, and in either compact or updatable form.
+   *
+   * <p>This has the same result as <i>update(HllSketch.heapify(mem))</i>. However, the coupons of
+   * LIST and SET images are read directly from the image and, once this union is in HLL mode, the
+   * registers of HLL images with a <i>lgConfigK</i> not less than that of this union are unpacked
+   * eight at a time straight from the image and merged into this union. In these cases no
+   * intermediate sketch objects are created.</p>
+   *
+   * @param mem the given Memory image, which is read-only.
+   */
+  public void update(final Memory mem) {
+    Objects.requireNonNull(mem, "Parameter 'mem' must not be null");
+    final CurMode srcMode = checkPreamble(mem);
+    if (srcMode != CurMode.HLL) {
+      mergeCouponsFromMemory(mem, srcMode);
+      return;
+    }
+    if (extractEmptyFlag(mem)) { return; }
+    final int srcLgK = extractLgK(mem);
+    if (gadget.isEmpty() || (gadget.getCurMode() != CurMode.HLL)
+        || (srcLgK < gadget.getLgConfigK())) {
+      //the gadget must be replaced or downsampled, which the sketch path already handles
+      update(HllSketch.heapify(mem, false));
+      return;
+    }
+    mergeHllMemoryToGadget(mem, srcLgK);
+    gadget.putOutOfOrderFlag(true);
+  }
+
+  private void mergeCouponsFromMemory(final Memory mem, final CurMode srcMode) {
+    final boolean list = srcMode == CurMode.LIST;
+    final int count = list ? extractListCount(mem) : extractHashSetCount(mem);
+    if (count == 0) { return; }
+    final int dataStart = list ? LIST_INT_ARR_START : HASH_SET_INT_ARR_START;
+    final int lenInts = extractCompactFlag(mem) ? count : 1 << extractLgArr(mem);
+    for (int i = 0; i < lenInts; i++) {
+      couponUpdate(mem.getInt(dataStart + (i << 2))); //skips empty slots
+    }
+  }
+
+  //Merges the registers of an HLL mode image into the HLL mode gadget, where srcLgK >= gadgetLgK.
+  private void mergeHllMemoryToGadget(final Memory srcMem, final int srcLgK) {
+    final AbstractHllArray tgt = (AbstractHllArray) gadget.hllSketchImpl;
+    final int tgtLgK = tgt.getLgConfigK();
+    final WritableMemory tgtWmem;
+    final long tgtStart;
+    if (tgt.isMemory()) {
+      tgtWmem = tgt.getWritableMemory();
+      tgtStart = HLL_BYTE_ARR_START;
+    } else {
+      tgtWmem = WritableMemory.writableWrap(((HllArray) tgt).hllByteArr);
+      tgtStart = 0;
+    }
+    final TgtHllType srcType = extractTgtHllType(srcMem);
+    final int[] hist = new int[64];
+    HllArrayMerge.mergeRegisters(srcMem, HLL_BYTE_ARR_START, srcType, srcLgK,
+        extractCurMin(srcMem), tgtWmem, tgtStart, tgtLgK, hist);
+    final int auxCount = (srcType == TgtHllType.HLL_4) ? extractAuxCount(srcMem) : 0;
+    if (auxCount > 0) {
+      final int auxStart = HLL_BYTE_ARR_START + AbstractHllArray.hll4ArrBytes(srcLgK);
+      final int auxInts = extractCompactFlag(srcMem) ? auxCount : 1 << extractLgArr(srcMem);
+      final int tgtKmask = (1 << tgtLgK) - 1;
+      for (int i = 0; i < auxInts; i++) {
+        final int pair = srcMem.getInt(auxStart + (i << 2));
+        if (pair == EMPTY) { continue; }
+        HllArrayMerge.mergeAuxValue(tgtWmem, tgtStart, getPairLow26(pair) & tgtKmask,
+            getPairValue(pair), hist);
+      }
+    }
+    HllArrayMerge.putCurMinNumKxQ(tgt, hist);
+  }
+
   @Override
   void couponUpdate(final int coupon) {
     if (coupon == EMPTY) { return; }
@@ -414,7 +503,7 @@ public class Union extends BaseHllSketch {
       case 21://src >  max, src >= gdt, gdtHLL, gdtMemory
       { //Action: forward HLL merge w/autofold, ooof=True
         //merge src(Hll4,6,8,heap/mem,Mode=HLL) -> gdt(Hll8,heap,Mode=HLL)
-        mergeHlltoHLLmode(source, gadget, srcLgK, gadgetLgK, srcIsMem, gdtIsMem);
+        mergeHlltoHLLmode(source, gadget);
         hllSketchImpl = gadget.putOutOfOrderFlag(true).hllSketchImpl;
         break;
       }
@@ -422,7 +511,7 @@ public class Union extends BaseHllSketch {
       { //Action: downsample gdt to srcLgK, forward HLL merge w/autofold, ooof=True
         final HllSketch gdtHll8Heap = downsample(gadget, srcLgK);
         //merge src(Hll4,6,8;heap/mem,Mode=HLL) -> gdt(Hll8,heap,hll)
-        mergeHlltoHLLmode(source, gdtHll8Heap, srcLgK, gadgetLgK, srcIsMem, false);
+        mergeHlltoHLLmode(source, gdtHll8Heap);
         hllSketchImpl = gdtHll8Heap.putOutOfOrderFlag(true).hllSketchImpl;
         break;
       }
@@ -430,7 +519,7 @@ public class Union extends BaseHllSketch {
       { //Action: downsample gdt to srcLgK, forward HLL merge w/autofold, use gdt memory, ooof=True
         final HllSketch gdtHll8Heap = downsample(gadget, srcLgK);
         //merge src(Hll4,6,8;heap/mem;Mode=HLL) -> gdt(Hll8,heap,Mode=HLL)
-        mergeHlltoHLLmode(source, gdtHll8Heap, srcLgK, gadgetLgK, srcIsMem, false);
+        mergeHlltoHLLmode(source, gdtHll8Heap);
         hllSketchImpl = useGadgetMemory(gadget, gdtHll8Heap, true).hllSketchImpl;
         break;
       }
@@ -477,135 +566,10 @@ public class Union extends BaseHllSketch {
         : HllSketch.writableWrap(wmem, false);                        //wrap & return
   }
 
-  private static final void mergeHlltoHLLmode(final HllSketch src, final HllSketch tgt,
-      final int srcLgK, final int tgtLgK, final boolean srcIsMem, final boolean tgtIsMem) {
-      final int sw = (tgtIsMem ? 1 : 0) | (srcIsMem ? 2 : 0)
-          | ((srcLgK > tgtLgK) ? 4 : 0) | ((src.getTgtHllType() != HLL_8) ? 8 : 0);
-      switch (sw) {
-        case 0: { //HLL_8, srcLgK=tgtLgK, src=heap, tgt=heap
-          final int srcK = 1 << srcLgK;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final byte tgtV = tgtArr[i];
-            tgtArr[i] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
-        }
-        case 1: { //HLL_8, srcLgK=tgtLgK, src=heap, tgt=mem
-          final int srcK = 1 << srcLgK;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + i);
-            tgtMem.putByte(HLL_BYTE_ARR_START + i, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 2: { //HLL_8, srcLgK=tgtLgK, src=mem,  tgt=heap
-          final int srcK = 1 << srcLgK;
-          final Memory srcMem = src.getMemory();
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final byte tgtV = tgtArr[i];
-            tgtArr[i] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
-        }
-        case 3: { //HLL_8, srcLgK=tgtLgK, src=mem,  tgt=mem
-          final int srcK = 1 << srcLgK;
-          final Memory srcMem = src.getMemory();
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + i);
-            tgtMem.putByte(HLL_BYTE_ARR_START + i, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 4: { //HLL_8, srcLgK>tgtLgK, src=heap, tgt=heap
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtArr[j];
-            tgtArr[j] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
-        }
-        case 5: { //HLL_8, srcLgK>tgtLgK, src=heap, tgt=mem
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final byte[] srcArr = ((Hll8Array) src.hllSketchImpl).hllByteArr;
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcArr[i];
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + j);
-            tgtMem.putByte(HLL_BYTE_ARR_START + j, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 6: { //HLL_8, srcLgK>tgtLgK, src=mem,  tgt=heap
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final Memory srcMem = src.getMemory();
-          final byte[] tgtArr = ((Hll8Array) tgt.hllSketchImpl).hllByteArr;
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtArr[j];
-            tgtArr[j] = (srcV > tgtV) ? srcV : tgtV;
-          }
-          break;
-        }
-        case 7: { //HLL_8, srcLgK>tgtLgK, src=mem,  tgt=mem
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final Memory srcMem = src.getMemory();
-          final WritableMemory tgtMem = tgt.getWritableMemory();
-          for (int i = 0; i < srcK; i++) {
-            final byte srcV = srcMem.getByte(HLL_BYTE_ARR_START + i);
-            final int j = i & tgtKmask;
-            final byte tgtV = tgtMem.getByte(HLL_BYTE_ARR_START + j);
-            tgtMem.putByte(HLL_BYTE_ARR_START + j, (srcV > tgtV) ? srcV : tgtV);
-          }
-          break;
-        }
-        case 8: case 9: case 10: case 11:
-        {
-          //!HLL_8, srcLgK=tgtLgK, src=heap/mem, tgt=heap/mem
-          final int srcK = 1 << srcLgK;
-          final AbstractHllArray srcAbsHllArr = (AbstractHllArray)(src.hllSketchImpl);
-          final AbstractHllArray tgtAbsHllArr = (AbstractHllArray)(tgt.hllSketchImpl);
-          for (int i = 0; i < srcK; i++) {
-            final int srcV = srcAbsHllArr.getSlotValue(i);
-            tgtAbsHllArr.updateSlotNoKxQ(i, srcV);
-          }
-          break;
-        }
-        case 12: case 13: case 14: case 15:
-        {
-          //!HLL_8, srcLgK>tgtLgK, src=heap/mem, tgt=heap/mem
-          final int srcK = 1 << srcLgK;
-          final int tgtKmask = (1 << tgtLgK) - 1;
-          final AbstractHllArray srcAbsHllArr = (AbstractHllArray)(src.hllSketchImpl);
-          final AbstractHllArray tgtAbsHllArr = (AbstractHllArray)(tgt.hllSketchImpl);
-          for (int i = 0; i < srcK; i++) {
-            final int srcV = srcAbsHllArr.getSlotValue(i);
-            final int j = i & tgtKmask;
-            tgtAbsHllArr.updateSlotNoKxQ(j, srcV);
-          }
-          break;
-        }
-      }
-      tgt.hllSketchImpl.putRebuildCurMinNumKxQFlag(true);
+  //merge src(Hll4,6,8;heap/mem;Mode=HLL) -> tgt(Hll8;heap/mem;Mode=HLL), srcLgK >= tgtLgK.
+  //This also rebuilds curMin, numAtCurMin and KxQ of the tgt.
+  private static final void mergeHlltoHLLmode(final HllSketch src, final HllSketch tgt) {
+    HllArrayMerge.merge((AbstractHllArray) src.hllSketchImpl, (AbstractHllArray) tgt.hllSketchImpl);
   }
 
   //Used by union operator.  Always copies or downsamples to Heap HLL_8.
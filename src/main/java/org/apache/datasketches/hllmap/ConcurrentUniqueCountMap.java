@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hllmap;
+
+import static org.apache.datasketches.Util.checkIfPowerOf2;
+
+import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.memory.MemoryRequestServer;
+
+/**
+ * A thread-safe {@link UniqueCountMap} for multi-threaded ingest.
+ *
+ * <p>The keys are partitioned by hash into a power of 2 number of stripes. Each stripe is an
+ * independent UniqueCountMap with its own hierarchy of internal maps and its own lock, so threads
+ * that update keys of different stripes do not contend. All operations on a given key are routed to
+ * the same stripe, so the estimate of a key is exactly the estimate a single UniqueCountMap would
+ * have produced from the same updates of that key. The statistics methods aggregate over all
+ * stripes.</p>
+ *
+ * <p>The number of stripes should be several times the number of updating threads to keep the
+ * probability of contention low.</p>
+ */
+public final class ConcurrentUniqueCountMap {
+  private static final String LS = System.getProperty("line.separator");
+  private static final int INITIAL_NUM_ENTRIES = 1000003;
+  private static final int STRIPES_PER_PROCESSOR = 4;
+  //distinct from the seed of the internal maps, so the stripe is independent of the table index
+  private static final long STRIPE_SEED = 9001L;
+
+  private final int keySizeBytes_;
+  private final int stripeMask_;
+  private final UniqueCountMap[] stripes_;
+
+  /**
+   * Constructs a ConcurrentUniqueCountMap with an initial capacity of one million entries and
+   * four stripes per available processor, rounded up to a power of 2.
+   * @param keySizeBytes must be at least 4 bytes to have sufficient entropy.
+   */
+  public ConcurrentUniqueCountMap(final int keySizeBytes) {
+    this(defaultNumStripes(), INITIAL_NUM_ENTRIES, keySizeBytes, null);
+  }
+
+  /**
+   * Constructs a ConcurrentUniqueCountMap with the given number of stripes and the given total
+   * initial number of entries.
+   * @param numStripes the number of stripes, which must be a power of 2.
+   * @param initialNumEntries The total initial number of entries of all stripes.
+   * @param keySizeBytes must be at least 4 bytes to have sufficient entropy.
+   */
+  public ConcurrentUniqueCountMap(final int numStripes, final int initialNumEntries,
+      final int keySizeBytes) {
+    this(numStripes, initialNumEntries, keySizeBytes, null);
+  }
+
+  /**
+   * Constructs a ConcurrentUniqueCountMap with the given number of stripes and the given total
+   * initial number of entries, where the storage of all stripes is obtained from the given
+   * MemoryRequestServer as with {@link UniqueCountMap#UniqueCountMap(int, int, MemoryRequestServer)}.
+   * Different stripes may request and return memory concurrently, so the given MemoryRequestServer
+   * must be thread-safe.
+   * @param numStripes the number of stripes, which must be a power of 2.
+   * @param initialNumEntries The total initial number of entries of all stripes.
+   * @param keySizeBytes must be at least 4 bytes to have sufficient entropy.
+   * @param memReqSvr the MemoryRequestServer that provides the storage, which may be off-heap.
+   * If null, the storage is allocated on the heap.
+   */
+  public ConcurrentUniqueCountMap(final int numStripes, final int initialNumEntries,
+      final int keySizeBytes, final MemoryRequestServer memReqSvr) {
+    checkIfPowerOf2(numStripes, "numStripes");
+    keySizeBytes_ = keySizeBytes;
+    stripeMask_ = numStripes - 1;
+    stripes_ = new UniqueCountMap[numStripes];
+    final int stripeEntries = initialNumEntries / numStripes;
+    for (int i = 0; i < numStripes; i++) {
+      stripes_[i] = new UniqueCountMap(stripeEntries, keySizeBytes, memReqSvr);
+    }
+  }
+
+  /**
+   * Updates the map with a given key and identifier and returns the estimate of the number of
+   * unique identifiers encountered so far for the given key.
+   * @param key the given key
+   * @param identifier the given identifier for unique counting associated with the key
+   * @return the estimate of the number of unique identifiers encountered so far for the given key.
+   * @see UniqueCountMap#update(byte[], byte[])
+   */
+  public double update(final byte[] key, final byte[] identifier) {
+    if (key == null) { return Double.NaN; }
+    final UniqueCountMap stripe = getStripe(key);
+    synchronized (stripe) {
+      return stripe.update(key, identifier);
+    }
+  }
+
+  /**
+   * Retrieves the current estimate of unique count for a given key.
+   * @param key given key
+   * @return estimate of unique count so far
+   * @see UniqueCountMap#getEstimate(byte[])
+   */
+  public double getEstimate(final byte[] key) {
+    if (key == null) { return Double.NaN; }
+    final UniqueCountMap stripe = getStripe(key);
+    synchronized (stripe) {
+      return stripe.getEstimate(key);
+    }
+  }
+
+  /**
+   * Returns the upper bound cardinality with respect to {@link #getEstimate(byte[])} associated
+   * with the given key.
+   * @param key the given key
+   * @return the upper bound cardinality with respect to {@link #getEstimate(byte[])} associated
+   * with the given key.
+   */
+  public double getUpperBound(final byte[] key) {
+    if (key == null) { return Double.NaN; }
+    final UniqueCountMap stripe = getStripe(key);
+    synchronized (stripe) {
+      return stripe.getUpperBound(key);
+    }
+  }
+
+  /**
+   * Returns the lower bound cardinality with respect to {@link #getEstimate(byte[])} associated
+   * with the given key.
+   * @param key the given key
+   * @return the lower bound cardinality with respect to {@link #getEstimate(byte[])} associated
+   * with the given key.
+   */
+  public double getLowerBound(final byte[] key) {
+    if (key == null) { return Double.NaN; }
+    final UniqueCountMap stripe = getStripe(key);
+    synchronized (stripe) {
+      return stripe.getLowerBound(key);
+    }
+  }
+
+  /**
+   * Returns the number of stripes
+   * @return the number of stripes
+   */
+  public int getNumStripes() {
+    return stripes_.length;
+  }
+
+  /**
+   * Returns the number of active, unique keys across all stripes
+   * @return the number of active, unique keys across all stripes
+   */
+  public long getActiveEntries() {
+    long total = 0;
+    for (final UniqueCountMap stripe : stripes_) {
+      synchronized (stripe) {
+        total += stripe.getActiveEntries();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Returns total bytes used by all internal maps of all stripes
+   * @return total bytes used by all internal maps of all stripes
+   */
+  public long getMemoryUsageBytes() {
+    long total = 0;
+    for (final UniqueCountMap stripe : stripes_) {
+      synchronized (stripe) {
+        total += stripe.getMemoryUsageBytes();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Returns total bytes used for key storage by all stripes
+   * @return total bytes used for key storage by all stripes
+   */
+  public long getKeyMemoryUsageBytes() {
+    long total = 0;
+    for (final UniqueCountMap stripe : stripes_) {
+      synchronized (stripe) {
+        total += stripe.getKeyMemoryUsageBytes();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Returns the average memory storage per key that is dedicated to sketching the unique counts.
+   * The stripes are read one after the other, so under concurrent updates this is approximate.
+   * @return the average memory storage per key that is dedicated to sketching the unique counts.
+   */
+  public double getAverageSketchMemoryPerKey() {
+    long mem = 0;
+    long keyMem = 0;
+    long entries = 0;
+    for (final UniqueCountMap stripe : stripes_) {
+      synchronized (stripe) {
+        mem += stripe.getMemoryUsageBytes();
+        keyMem += stripe.getKeyMemoryUsageBytes();
+        entries += stripe.getActiveEntries();
+      }
+    }
+    return (double) (mem - keyMem) / entries;
+  }
+
+  /**
+   * Closes all stripes. This map cannot be used afterwards.
+   * @see UniqueCountMap#close()
+   */
+  public void close() {
+    for (final UniqueCountMap stripe : stripes_) {
+      synchronized (stripe) {
+        stripe.close();
+      }
+    }
+  }
+
+  /**
+   * Returns a string with a human-readable summary of the ConcurrentUniqueCountMap
+   * @return human-readable summary
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    final String thisSimpleName = this.getClass().getSimpleName();
+    sb.append("## ").append(thisSimpleName).append(" SUMMARY: ").append(LS);
+    sb.append("   Key Size Bytes             : ").append(Map.fmtLong(keySizeBytes_)).append(LS);
+    sb.append("   Stripes                    : ").append(Map.fmtLong(stripes_.length)).append(LS);
+    sb.append("   Total keys                 : ").append(Map.fmtLong(getActiveEntries()))
+      .append(LS);
+    sb.append("   Total Memory Bytes         : ").append(Map.fmtLong(getMemoryUsageBytes()))
+      .append(LS);
+    sb.append("   Total Key Memory Bytes     : ").append(Map.fmtLong(getKeyMemoryUsageBytes()))
+      .append(LS);
+    sb.append("   Avg Sketch Memory Bytes/Key: ")
+      .append(Map.fmtDouble(getAverageSketchMemoryPerKey())).append(LS);
+    sb.append("## ").append("END CONCURRENT UNIQUE COUNT MAP SUMMARY");
+    sb.append(LS);
+    return sb.toString();
+  }
+
+  UniqueCountMap getStripe(final byte[] key) {
+    return stripes_[getStripeIndex(key)];
+  }
+
+  int getStripeIndex(final byte[] key) {
+    return (int) MurmurHash3.hash(key, STRIPE_SEED)[0] & stripeMask_;
+  }
+
+  private static int defaultNumStripes() {
+    final int target = STRIPES_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+    return Integer.highestOneBit(target - 1) << 1;
+  }
+
+}
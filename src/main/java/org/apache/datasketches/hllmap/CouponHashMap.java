@@ -22,10 +22,11 @@ package org.apache.datasketches.hllmap;
 import static org.apache.datasketches.Util.checkIfPowerOf2;
 import static org.apache.datasketches.Util.invPow2;
 
-import java.util.Arrays;
-
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * Implements a key-value map where the value is a hash map of coupons.
@@ -36,6 +37,9 @@ import org.apache.datasketches.hash.MurmurHash3;
  *
  * <p>The inner hash tables are implemented with linear probing or OASH and a load factor of 0.75.
  *
+ * <p>The arrays, in snapshot segment order, are: invPow2Sum (float), hipEstAccum (float),
+ * coupons, keys, curCounts.</p>
+ *
  * @author Lee Rhodes
  * @author Alexander Saydakov
  * @author Kevin Lang
@@ -47,6 +51,15 @@ final class CouponHashMap extends Map {
   private static final int COUPON_K = 1024;
   private static final double RSE = 0.408 / Math.sqrt(1024);
 
+  // arrays of the storage
+  private static final int INV_POW2_SUM = 0;
+  private static final int HIP_EST_ACCUM = 1;
+  private static final int COUPONS = 2;
+  private static final int KEYS = 3;
+  private static final int CUR_COUNTS = 4; //also acts as a stateArr: 0 empty, 255 deleted
+  private static final int[] ARRAY_TYPES = {MapStorage.FLOATS, MapStorage.FLOATS,
+      MapStorage.SHORTS, MapStorage.BYTES, MapStorage.BYTES};
+
   private final int maxCouponsPerKey_;
   private final int capacityCouponsPerKey_;
   private final int entrySizeBytes_;
@@ -56,35 +69,54 @@ final class CouponHashMap extends Map {
   private int numActiveKeys_;
   private int numDeletedKeys_;
 
-  //Arrays
-  private byte[] keysArr_;
-  private short[] couponsArr_;
-  private byte[] curCountsArr_; //also acts as a stateArr: 0 empty, 255 deleted
-  private float[] invPow2SumArr_;
-  private float[] hipEstAccumArr_;
+  private MapStorage storage_;
 
-  private CouponHashMap(final int keySizeBytes, final int maxCouponsPerKey) {
-    super(keySizeBytes);
+  private CouponHashMap(final int keySizeBytes, final int maxCouponsPerKey,
+      final MemoryRequestServer memReqSvr) {
+    super(keySizeBytes, memReqSvr);
     maxCouponsPerKey_ = maxCouponsPerKey;
     capacityCouponsPerKey_ = (int)(maxCouponsPerKey * INNER_LOAD_FACTOR);
     entrySizeBytes_ = keySizeBytes + (maxCouponsPerKey * Short.BYTES) + 1 + 4 + 4;
   }
 
   static CouponHashMap getInstance(final int keySizeBytes, final int maxCouponsPerKey) {
+    return getInstance(keySizeBytes, maxCouponsPerKey, null);
+  }
+
+  static CouponHashMap getInstance(final int keySizeBytes, final int maxCouponsPerKey,
+      final MemoryRequestServer memReqSvr) {
     checkMaxCouponsPerKey(maxCouponsPerKey);
     final int tableEntries = COUPON_MAP_MIN_NUM_ENTRIES;
 
-    final CouponHashMap map = new CouponHashMap(keySizeBytes, maxCouponsPerKey);
-    map.tableEntries_ = tableEntries;
-    map.capacityEntries_ = (int)(tableEntries * COUPON_MAP_GROW_TRIGGER_FACTOR);
+    final CouponHashMap map = new CouponHashMap(keySizeBytes, maxCouponsPerKey, memReqSvr);
     map.numActiveKeys_ = 0;
     map.numDeletedKeys_ = 0;
+    map.setTable(tableEntries,
+        map.allocateStorage(ARRAY_TYPES, map.arrayLengths(tableEntries), null));
+    return map;
+  }
 
-    map.keysArr_ = new byte[tableEntries * keySizeBytes];
-    map.couponsArr_ = new short[tableEntries * maxCouponsPerKey];
-    map.curCountsArr_ = new byte[tableEntries];
-    map.invPow2SumArr_ = new float[tableEntries];
-    map.hipEstAccumArr_ = new float[tableEntries];
+  /**
+   * Returns a map restored from a level of a snapshot.
+   * @param keySizeBytes the key size in bytes
+   * @param srcMem the snapshot
+   * @param srcWmem the snapshot if its segment is to be used directly, otherwise null.
+   * @param offsetBytes the offset of the level header
+   * @param memReqSvr the MemoryRequestServer for the storage of the map, or null.
+   * @return a map restored from a level of a snapshot
+   */
+  static CouponHashMap restoreInstance(final int keySizeBytes, final Memory srcMem,
+      final WritableMemory srcWmem, final long offsetBytes, final MemoryRequestServer memReqSvr) {
+    final int maxCouponsPerKey = srcMem.getInt(offsetBytes + COUPONS_PER_KEY_INT);
+    checkMaxCouponsPerKey(maxCouponsPerKey);
+    final int tableEntries = srcMem.getInt(offsetBytes + TABLE_ENTRIES_INT);
+    final CouponHashMap map = new CouponHashMap(keySizeBytes, maxCouponsPerKey, memReqSvr);
+    final long[] lengths = map.arrayLengths(tableEntries);
+    checkSegmentBytes(srcMem, offsetBytes, MapStorage.segmentBytes(ARRAY_TYPES, lengths));
+    map.numActiveKeys_ = srcMem.getInt(offsetBytes + ACTIVE_ENTRIES_INT);
+    map.numDeletedKeys_ = srcMem.getInt(offsetBytes + DELETED_ENTRIES_INT);
+    map.setTable(tableEntries, MapStorage.restore(ARRAY_TYPES, lengths, srcMem, srcWmem,
+        offsetBytes + LEVEL_HEADER_BYTES, memReqSvr));
     return map;
   }
 
@@ -96,34 +128,40 @@ final class CouponHashMap extends Map {
 
   @Override
   double update(final int entryIndex, final short coupon) {
-    final int couponMapArrEntryIndex = entryIndex * maxCouponsPerKey_;
+    final long couponMapArrEntryIndex = (long) entryIndex * maxCouponsPerKey_;
 
     int innerCouponIndex = (coupon & 0xFFFF) % maxCouponsPerKey_;
 
-    while (couponsArr_[couponMapArrEntryIndex + innerCouponIndex] != 0) {
-      if (couponsArr_[couponMapArrEntryIndex + innerCouponIndex] == coupon) {
-        return hipEstAccumArr_[entryIndex]; //duplicate, returns the estimate
+    short innerCoupon;
+    while ((innerCoupon = storage_.getShort(COUPONS, couponMapArrEntryIndex + innerCouponIndex))
+        != 0) {
+      if (innerCoupon == coupon) {
+        return getHipEstAccum(entryIndex); //duplicate, returns the estimate
       }
       innerCouponIndex = (innerCouponIndex + 1) % maxCouponsPerKey_; //linear search
     }
-    if (((curCountsArr_[entryIndex] + 1) & BYTE_MASK) > capacityCouponsPerKey_) {
+    final byte curCount = storage_.getByte(CUR_COUNTS, entryIndex);
+    if (((curCount + 1) & BYTE_MASK) > capacityCouponsPerKey_) {
       //returns the negative estimate, as signal to promote
-      return -hipEstAccumArr_[entryIndex];
+      return -getHipEstAccum(entryIndex);
     }
 
-    couponsArr_[couponMapArrEntryIndex + innerCouponIndex] = coupon; //insert
-    curCountsArr_[entryIndex]++;
+    storage_.putShort(COUPONS, couponMapArrEntryIndex + innerCouponIndex, coupon); //insert
+    storage_.putByte(CUR_COUNTS, entryIndex, (byte) (curCount + 1));
     //hip +=  k/qt; qt -= 1/2^(val);
-    hipEstAccumArr_[entryIndex] += COUPON_K / invPow2SumArr_[entryIndex];
-    invPow2SumArr_[entryIndex] -= invPow2(coupon16Value(coupon));
-    return hipEstAccumArr_[entryIndex]; //returns the estimate
+    final float invPow2Sum = storage_.getFloat(INV_POW2_SUM, entryIndex);
+    final float hipEstAccum = getHipEstAccum(entryIndex) + (COUPON_K / invPow2Sum);
+    storage_.putFloat(HIP_EST_ACCUM, entryIndex, hipEstAccum);
+    storage_.putFloat(INV_POW2_SUM, entryIndex,
+        (float) (invPow2Sum - invPow2(coupon16Value(coupon))));
+    return hipEstAccum; //returns the estimate
   }
 
   @Override
   double getEstimate(final byte[] key) {
     final int index = findKey(key);
     if (index < 0) { return 0; }
-    return hipEstAccumArr_[index];
+    return getHipEstAccum(index);
   }
 
   @Override
@@ -141,7 +179,7 @@ final class CouponHashMap extends Map {
     if (entryIndex < 0) {
       throw new SketchesArgumentException("Key not found.");
     }
-    hipEstAccumArr_[entryIndex] = (float) estimate;
+    storage_.putFloat(HIP_EST_ACCUM, entryIndex, (float) estimate);
   }
 
   /**
@@ -157,14 +195,15 @@ final class CouponHashMap extends Map {
     int firstDeletedIndex = -1;
     final int loopIndex = entryIndex;
     do {
-      if (curCountsArr_[entryIndex] == 0) {
+      final byte curCount = storage_.getByte(CUR_COUNTS, entryIndex);
+      if (curCount == 0) {
         return firstDeletedIndex == -1 ? ~entryIndex : ~firstDeletedIndex; // found empty or deleted
       }
-      if (curCountsArr_[entryIndex] == DELETED_KEY_MARKER) {
+      if (curCount == DELETED_KEY_MARKER) {
         if (firstDeletedIndex == -1) {
           firstDeletedIndex = entryIndex;
         }
-      } else if (Map.arraysEqual(keysArr_, entryIndex * keySizeBytes_, key, 0, keySizeBytes_)) {
+      } else if (storage_.keyEquals(KEYS, (long) entryIndex * keySizeBytes_, key)) {
         return entryIndex; // found key
       }
       entryIndex = (entryIndex + getStride(hash[1], tableEntries_)) % tableEntries_;
@@ -177,10 +216,10 @@ final class CouponHashMap extends Map {
     int entryIndex = findKey(key);
     if (entryIndex < 0) { //key not found
       entryIndex = ~entryIndex;
-      if (curCountsArr_[entryIndex] == DELETED_KEY_MARKER) { // reusing slot from a deleted key
-        Arrays.fill(couponsArr_, entryIndex * maxCouponsPerKey_,
-            (entryIndex + 1) *  maxCouponsPerKey_, (short) 0);
-        curCountsArr_[entryIndex] = 0;
+      if (storage_.getByte(CUR_COUNTS, entryIndex) == DELETED_KEY_MARKER) {
+        // reusing slot from a deleted key
+        storage_.clear(COUPONS, (long) entryIndex * maxCouponsPerKey_, maxCouponsPerKey_);
+        storage_.putByte(CUR_COUNTS, entryIndex, (byte) 0);
         numDeletedKeys_--;
       }
       if ((numActiveKeys_ + numDeletedKeys_) >= capacityEntries_) {
@@ -189,10 +228,10 @@ final class CouponHashMap extends Map {
         assert entryIndex >= 0;
       }
       //insert new key
-      System.arraycopy(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_);
+      storage_.putBytes(KEYS, (long) entryIndex * keySizeBytes_, key);
       //initialize HIP:  qt <- k; hip <- 0;
-      invPow2SumArr_[entryIndex] = COUPON_K;
-      hipEstAccumArr_[entryIndex] = 0;
+      storage_.putFloat(INV_POW2_SUM, entryIndex, COUPON_K);
+      storage_.putFloat(HIP_EST_ACCUM, entryIndex, 0);
       numActiveKeys_++;
     }
     return entryIndex;
@@ -200,7 +239,7 @@ final class CouponHashMap extends Map {
 
   @Override
   void deleteKey(final int entryIndex) {
-    curCountsArr_[entryIndex] = DELETED_KEY_MARKER;
+    storage_.putByte(CUR_COUNTS, entryIndex, DELETED_KEY_MARKER);
     numActiveKeys_--;
     numDeletedKeys_++;
     if ((numActiveKeys_ > COUPON_MAP_MIN_NUM_ENTRIES)
@@ -211,7 +250,8 @@ final class CouponHashMap extends Map {
 
   @Override
   CouponsIterator getCouponsIterator(final int entryIndex) {
-    return new CouponsIterator(couponsArr_, entryIndex * maxCouponsPerKey_, maxCouponsPerKey_);
+    return new CouponsIterator(storage_, COUPONS, (long) entryIndex * maxCouponsPerKey_,
+        maxCouponsPerKey_);
   }
 
   @Override
@@ -236,15 +276,25 @@ final class CouponHashMap extends Map {
 
   @Override
   long getMemoryUsageBytes() {
-    final long arrays = keysArr_.length
-        + ((long) couponsArr_.length * Short.BYTES)
-        + curCountsArr_.length
-        + ((long) invPow2SumArr_.length * Float.BYTES)
-        + ((long) hipEstAccumArr_.length * Float.BYTES);
+    final long arrays = storage_.getCapacityBytes();
     final long other = 4 * 5;
     return arrays + other;
   }
 
+  @Override
+  MapStorage getStorage() {
+    return storage_;
+  }
+
+  @Override
+  void putLevelHeader(final WritableMemory mem, final long offsetBytes) {
+    mem.putInt(offsetBytes + TABLE_ENTRIES_INT, tableEntries_);
+    mem.putInt(offsetBytes + ACTIVE_ENTRIES_INT, numActiveKeys_);
+    mem.putInt(offsetBytes + DELETED_ENTRIES_INT, numDeletedKeys_);
+    mem.putInt(offsetBytes + COUPONS_PER_KEY_INT, maxCouponsPerKey_);
+    mem.putLong(offsetBytes + SEGMENT_BYTES_LONG, storage_.getCapacityBytes());
+  }
+
   @Override
   int getActiveEntries() {
     return numActiveKeys_;
@@ -265,6 +315,10 @@ final class CouponHashMap extends Map {
     return capacityCouponsPerKey_;
   }
 
+  private float getHipEstAccum(final int entryIndex) {
+    return storage_.getFloat(HIP_EST_ACCUM, entryIndex);
+  }
+
   private static final void checkMaxCouponsPerKey(final int maxCouponsPerKey) {
     checkIfPowerOf2(maxCouponsPerKey, "maxCouponsPerKey");
     final int cpk = maxCouponsPerKey;
@@ -274,42 +328,47 @@ final class CouponHashMap extends Map {
     }
   }
 
+  private long[] arrayLengths(final int tableEntries) {
+    return new long[] {tableEntries, tableEntries, (long) tableEntries * maxCouponsPerKey_,
+        (long) tableEntries * keySizeBytes_, tableEntries};
+  }
+
+  private void setTable(final int tableEntries, final MapStorage storage) {
+    tableEntries_ = tableEntries;
+    capacityEntries_ = (int)(tableEntries * COUPON_MAP_GROW_TRIGGER_FACTOR);
+    storage_ = storage;
+  }
+
   private void resize() {
-    final byte[] oldKeysArr = keysArr_;
-    final short[] oldCouponMapArr = couponsArr_;
-    final byte[] oldCurCountsArr = curCountsArr_;
-    final float[] oldInvPow2SumArr = invPow2SumArr_;
-    final float[] oldHipEstAccumArr = hipEstAccumArr_;
+    final MapStorage oldStorage = storage_;
     final int oldNumEntries = tableEntries_;
-    tableEntries_ = Math.max(
+    final int newTableEntries = Math.max(
       nextPrime((int) (numActiveKeys_ / COUPON_MAP_TARGET_FILL_FACTOR)),
       COUPON_MAP_MIN_NUM_ENTRIES
     );
-    capacityEntries_ = (int)(tableEntries_ * COUPON_MAP_GROW_TRIGGER_FACTOR);
-    keysArr_ = new byte[tableEntries_ * keySizeBytes_];
-    couponsArr_ = new short[tableEntries_ * maxCouponsPerKey_];
-    curCountsArr_ = new byte[tableEntries_];
-    invPow2SumArr_ = new float[tableEntries_];
-    hipEstAccumArr_ = new float[tableEntries_];
+    setTable(newTableEntries,
+        allocateStorage(ARRAY_TYPES, arrayLengths(newTableEntries), oldStorage));
     numActiveKeys_ = 0;
     numDeletedKeys_ = 0;
+    final byte[] key = new byte[keySizeBytes_];
     for (int i = 0; i < oldNumEntries; i++) {
-      if ((oldCurCountsArr[i] != 0) && (oldCurCountsArr[i] != DELETED_KEY_MARKER)) {
+      final byte oldCurCount = oldStorage.getByte(CUR_COUNTS, i);
+      if ((oldCurCount != 0) && (oldCurCount != DELETED_KEY_MARKER)) {
         //extract an old valid key
-        final byte[] key =
-            Arrays.copyOfRange(oldKeysArr, i * keySizeBytes_, (i * keySizeBytes_) + keySizeBytes_);
+        oldStorage.getBytes(KEYS, (long) i * keySizeBytes_, key);
         //insert the key and get its index
         final int index = insertKey(key);
         //copy the coupons array into that index
-        System.arraycopy(oldCouponMapArr, i * maxCouponsPerKey_, couponsArr_,
-            index * maxCouponsPerKey_, maxCouponsPerKey_);
+        oldStorage.copyTo(COUPONS, (long) i * maxCouponsPerKey_, storage_,
+            (long) index * maxCouponsPerKey_, maxCouponsPerKey_);
         //transfer the count
-        curCountsArr_[index] = oldCurCountsArr[i];
+        storage_.putByte(CUR_COUNTS, index, oldCurCount);
         //transfer the HIP registers
-        invPow2SumArr_[index] = oldInvPow2SumArr[i];
-        hipEstAccumArr_[index] = oldHipEstAccumArr[i];
+        storage_.putFloat(INV_POW2_SUM, index, oldStorage.getFloat(INV_POW2_SUM, i));
+        storage_.putFloat(HIP_EST_ACCUM, index, oldStorage.getFloat(HIP_EST_ACCUM, i));
       }
     }
+    oldStorage.release(storage_);
   }
 
   // for internal use by resize, no resize check and no deleted key check here
@@ -319,8 +378,8 @@ final class CouponHashMap extends Map {
     int entryIndex = getIndex(hash[0], tableEntries_);
     final int loopIndex = entryIndex;
     do {
-      if (curCountsArr_[entryIndex] == 0) {
-        System.arraycopy(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_);
+      if (storage_.getByte(CUR_COUNTS, entryIndex) == 0) {
+        storage_.putBytes(KEYS, (long) entryIndex * keySizeBytes_, key);
         numActiveKeys_++;
         return entryIndex;
       }
@@ -19,10 +19,11 @@
 
 package org.apache.datasketches.hllmap;
 
-import java.util.Arrays;
-
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * Implements a key-value map where the value is a simple array of coupons. Search operations are a
@@ -32,12 +33,27 @@ import org.apache.datasketches.hash.MurmurHash3;
  * <p>The map is implemented as a prime-sized, Open Address, Double Hash, with deletes and a 1-bit
  * state array. The size of this map can grow or shrink.
  *
+ * <p>The arrays, in snapshot segment order, are: coupons, keys, state.</p>
+ *
  * @author Lee Rhodes
  * @author Alexander Saydakov
  * @author Kevin Lang
  */
 final class CouponTraverseMap extends Map {
   private static final double RSE = 0.408 / Math.sqrt(1024);
+
+  // arrays of the storage
+  private static final int COUPONS = 0;
+  private static final int KEYS = 1;
+  /**
+   * <ul><li>State: 0: Empty always, don't need to look at 1st coupon. Coupons could be dirty.</li>
+   * <li>State: 1: Valid entry or dirty. During rebuild, look at the first coupon to determine.
+   * If first coupon != 0 means valid entry; first coupon == 0: dirty (we set to 0 when deleted)</li>
+   * </ul>
+   */
+  private static final int STATE = 2;
+  private static final int[] ARRAY_TYPES = {MapStorage.SHORTS, MapStorage.BYTES, MapStorage.BYTES};
+
   private final int maxCouponsPerKey_;
 
   private int tableEntries_;
@@ -46,34 +62,48 @@ final class CouponTraverseMap extends Map {
   private int numDeletedKeys_;
   private double entrySizeBytes_;
 
-  //Arrays
-  private byte[] keysArr_;
-  private short[] couponsArr_;
-
-  /**
-   * <ul><li>State: 0: Empty always, don't need to look at 1st coupon. Coupons could be dirty.</li>
-   * <li>State: 1: Valid entry or dirty. During rebuild, look at the first coupon to determine.
-   * If first coupon != 0 means valid entry; first coupon == 0: dirty (we set to 0 when deleted)</li>
-   * </ul>
-   */
-  private byte[] stateArr_;
+  private MapStorage storage_;
 
-  private CouponTraverseMap(final int keySizeBytes, final int maxCouponsPerKey) {
-    super(keySizeBytes);
+  private CouponTraverseMap(final int keySizeBytes, final int maxCouponsPerKey,
+      final MemoryRequestServer memReqSvr) {
+    super(keySizeBytes, memReqSvr);
     maxCouponsPerKey_ = maxCouponsPerKey;
   }
 
   static CouponTraverseMap getInstance(final int keySizeBytes, final int maxCouponsPerKey) {
-    final CouponTraverseMap map = new CouponTraverseMap(keySizeBytes, maxCouponsPerKey);
-    map.tableEntries_ = COUPON_MAP_MIN_NUM_ENTRIES;
-    map.capacityEntries_ = (int)(map.tableEntries_ * COUPON_MAP_GROW_TRIGGER_FACTOR);
+    return getInstance(keySizeBytes, maxCouponsPerKey, null);
+  }
+
+  static CouponTraverseMap getInstance(final int keySizeBytes, final int maxCouponsPerKey,
+      final MemoryRequestServer memReqSvr) {
+    final CouponTraverseMap map = new CouponTraverseMap(keySizeBytes, maxCouponsPerKey, memReqSvr);
     map.numActiveKeys_ = 0;
     map.numDeletedKeys_ = 0;
-    map.entrySizeBytes_ = updateEntrySizeBytes(map.tableEntries_, keySizeBytes, maxCouponsPerKey);
+    map.setTable(COUPON_MAP_MIN_NUM_ENTRIES, map.allocateStorage(ARRAY_TYPES,
+        map.arrayLengths(COUPON_MAP_MIN_NUM_ENTRIES), null));
+    return map;
+  }
 
-    map.keysArr_ = new byte[COUPON_MAP_MIN_NUM_ENTRIES * keySizeBytes];
-    map.couponsArr_ = new short[COUPON_MAP_MIN_NUM_ENTRIES * maxCouponsPerKey];
-    map.stateArr_ = new byte[(int) Math.ceil(COUPON_MAP_MIN_NUM_ENTRIES / 8.0)];
+  /**
+   * Returns a map restored from a level of a snapshot.
+   * @param keySizeBytes the key size in bytes
+   * @param srcMem the snapshot
+   * @param srcWmem the snapshot if its segment is to be used directly, otherwise null.
+   * @param offsetBytes the offset of the level header
+   * @param memReqSvr the MemoryRequestServer for the storage of the map, or null.
+   * @return a map restored from a level of a snapshot
+   */
+  static CouponTraverseMap restoreInstance(final int keySizeBytes, final Memory srcMem,
+      final WritableMemory srcWmem, final long offsetBytes, final MemoryRequestServer memReqSvr) {
+    final int tableEntries = srcMem.getInt(offsetBytes + TABLE_ENTRIES_INT);
+    final int maxCouponsPerKey = srcMem.getInt(offsetBytes + COUPONS_PER_KEY_INT);
+    final CouponTraverseMap map = new CouponTraverseMap(keySizeBytes, maxCouponsPerKey, memReqSvr);
+    final long[] lengths = map.arrayLengths(tableEntries);
+    checkSegmentBytes(srcMem, offsetBytes, MapStorage.segmentBytes(ARRAY_TYPES, lengths));
+    map.numActiveKeys_ = srcMem.getInt(offsetBytes + ACTIVE_ENTRIES_INT);
+    map.numDeletedKeys_ = srcMem.getInt(offsetBytes + DELETED_ENTRIES_INT);
+    map.setTable(tableEntries, MapStorage.restore(ARRAY_TYPES, lengths, srcMem, srcWmem,
+        offsetBytes + LEVEL_HEADER_BYTES, memReqSvr));
     return map;
   }
 
@@ -85,15 +115,16 @@ final class CouponTraverseMap extends Map {
 
   @Override
   double update(final int entryIndex, final short value) {
-    final int offset = entryIndex * maxCouponsPerKey_;
+    final long offset = (long) entryIndex * maxCouponsPerKey_;
     boolean wasFound = false;
     for (int i = 0; i < maxCouponsPerKey_; i++) {
-      if (couponsArr_[offset + i] == 0) {
+      final short coupon = storage_.getShort(COUPONS, offset + i);
+      if (coupon == 0) {
         if (wasFound) { return i; }
-        couponsArr_[offset + i] = value;
+        storage_.putShort(COUPONS, offset + i, value);
         return i + 1;
       }
-      if (couponsArr_[offset + i] == value) {
+      if (coupon == value) {
         wasFound = true;
       }
     }
@@ -131,12 +162,12 @@ final class CouponTraverseMap extends Map {
     int firstDeletedIndex = -1;
     final int loopIndex = entryIndex;
     do {
-      if (isBitClear(stateArr_, entryIndex)) {
+      if (storage_.isBitClear(STATE, entryIndex)) {
         return firstDeletedIndex == -1 ? ~entryIndex : ~firstDeletedIndex; // found empty or deleted
       }
-      if (couponsArr_[entryIndex * maxCouponsPerKey_] == 0) { //found deleted
+      if (storage_.getShort(COUPONS, (long) entryIndex * maxCouponsPerKey_) == 0) { //found deleted
         if (firstDeletedIndex == -1) { firstDeletedIndex = entryIndex; }
-      } else if (Map.arraysEqual(keysArr_, entryIndex * keySizeBytes_, key, 0, keySizeBytes_)) {
+      } else if (storage_.keyEquals(KEYS, (long) entryIndex * keySizeBytes_, key)) {
         return entryIndex; // found key
       }
       entryIndex = (entryIndex + getStride(hash[1], tableEntries_)) % tableEntries_;
@@ -149,8 +180,8 @@ final class CouponTraverseMap extends Map {
     int entryIndex = findKey(key);
     if (entryIndex < 0) {
       entryIndex = ~entryIndex;
-      if (isBitSet(stateArr_, entryIndex)) { // reusing slot from a deleted key
-        clearCouponArea(entryIndex);
+      if (storage_.isBitSet(STATE, entryIndex)) { // reusing slot from a deleted key
+        storage_.clear(COUPONS, (long) entryIndex * maxCouponsPerKey_, maxCouponsPerKey_);
         numDeletedKeys_--;
       }
       if ((numActiveKeys_ + numDeletedKeys_ + 1) > capacityEntries_) {
@@ -158,8 +189,8 @@ final class CouponTraverseMap extends Map {
         entryIndex = ~findKey(key);
         assert entryIndex >= 0;
       }
-      System.arraycopy(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_);
-      setBit(stateArr_, entryIndex);
+      storage_.putBytes(KEYS, (long) entryIndex * keySizeBytes_, key);
+      storage_.setBit(STATE, entryIndex);
       numActiveKeys_++;
     }
     return entryIndex;
@@ -167,7 +198,7 @@ final class CouponTraverseMap extends Map {
 
   @Override
   void deleteKey(final int entryIndex) {
-    couponsArr_[entryIndex * maxCouponsPerKey_] = 0;
+    storage_.putShort(COUPONS, (long) entryIndex * maxCouponsPerKey_, (short) 0);
     numActiveKeys_--;
     numDeletedKeys_++;
     if ((numActiveKeys_ > COUPON_MAP_MIN_NUM_ENTRIES)
@@ -177,9 +208,9 @@ final class CouponTraverseMap extends Map {
   }
 
   private int getCouponCount(final int entryIndex) {
-    final int offset = entryIndex * maxCouponsPerKey_;
+    final long offset = (long) entryIndex * maxCouponsPerKey_;
     for (int i = 0; i < maxCouponsPerKey_; i++) {
-      if (couponsArr_[offset + i] == 0) {
+      if (storage_.getShort(COUPONS, offset + i) == 0) {
         return i;
       }
     }
@@ -188,7 +219,8 @@ final class CouponTraverseMap extends Map {
 
   @Override
   CouponsIterator getCouponsIterator(final int entryIndex) {
-    return new CouponsIterator(couponsArr_, entryIndex * maxCouponsPerKey_, maxCouponsPerKey_);
+    return new CouponsIterator(storage_, COUPONS, (long) entryIndex * maxCouponsPerKey_,
+        maxCouponsPerKey_);
   }
 
   @Override
@@ -213,9 +245,21 @@ final class CouponTraverseMap extends Map {
 
   @Override
   long getMemoryUsageBytes() {
-    return keysArr_.length
-        + ((long)couponsArr_.length * Short.BYTES)
-        + stateArr_.length + (4L * Integer.BYTES);
+    return storage_.getCapacityBytes() + (4L * Integer.BYTES);
+  }
+
+  @Override
+  MapStorage getStorage() {
+    return storage_;
+  }
+
+  @Override
+  void putLevelHeader(final WritableMemory mem, final long offsetBytes) {
+    mem.putInt(offsetBytes + TABLE_ENTRIES_INT, tableEntries_);
+    mem.putInt(offsetBytes + ACTIVE_ENTRIES_INT, numActiveKeys_);
+    mem.putInt(offsetBytes + DELETED_ENTRIES_INT, numDeletedKeys_);
+    mem.putInt(offsetBytes + COUPONS_PER_KEY_INT, maxCouponsPerKey_);
+    mem.putLong(offsetBytes + SEGMENT_BYTES_LONG, storage_.getCapacityBytes());
   }
 
   @Override
@@ -238,34 +282,37 @@ final class CouponTraverseMap extends Map {
     return maxCouponsPerKey_;
   }
 
+  private void setTable(final int tableEntries, final MapStorage storage) {
+    tableEntries_ = tableEntries;
+    capacityEntries_ = (int)(tableEntries * COUPON_MAP_GROW_TRIGGER_FACTOR);
+    entrySizeBytes_ = updateEntrySizeBytes(tableEntries, keySizeBytes_, maxCouponsPerKey_);
+    storage_ = storage;
+  }
+
   private void resize() { //can grow or shrink
-    final byte[] oldKeysArr = keysArr_;
-    final short[] oldCouponsArr = couponsArr_;
-    final byte[] oldStateArr = stateArr_;
+    final MapStorage oldStorage = storage_;
     final int oldSizeKeys = tableEntries_;
-    tableEntries_ = Math.max(
+    final int newTableEntries = Math.max(
       nextPrime((int) (numActiveKeys_ / COUPON_MAP_TARGET_FILL_FACTOR)),
       COUPON_MAP_MIN_NUM_ENTRIES
     );
-    capacityEntries_ = (int)(tableEntries_ * COUPON_MAP_GROW_TRIGGER_FACTOR);
     numActiveKeys_ = 0;
     numDeletedKeys_ = 0;
-    entrySizeBytes_ = updateEntrySizeBytes(tableEntries_, keySizeBytes_, maxCouponsPerKey_);
-
-    keysArr_ = new byte[tableEntries_ * keySizeBytes_];
-    couponsArr_ = new short[tableEntries_ * maxCouponsPerKey_];
-    stateArr_ = new byte[(int) Math.ceil(tableEntries_ / 8.0)];
+    setTable(newTableEntries,
+        allocateStorage(ARRAY_TYPES, arrayLengths(newTableEntries), oldStorage));
 
     //move data
+    final byte[] key = new byte[keySizeBytes_];
     for (int i = 0; i < oldSizeKeys; i++) {
-      if (isBitSet(oldStateArr, i) && (oldCouponsArr[i * maxCouponsPerKey_] != 0)) {
-        final byte[] key =
-            Arrays.copyOfRange(oldKeysArr, i * keySizeBytes_, (i * keySizeBytes_) + keySizeBytes_);
+      final long oldCouponOffset = (long) i * maxCouponsPerKey_;
+      if (oldStorage.isBitSet(STATE, i) && (oldStorage.getShort(COUPONS, oldCouponOffset) != 0)) {
+        oldStorage.getBytes(KEYS, (long) i * keySizeBytes_, key);
         final int index = insertKey(key);
-        System.arraycopy(oldCouponsArr, i * maxCouponsPerKey_, couponsArr_,
-            index * maxCouponsPerKey_, maxCouponsPerKey_);
+        oldStorage.copyTo(COUPONS, oldCouponOffset, storage_, (long) index * maxCouponsPerKey_,
+            maxCouponsPerKey_);
       }
     }
+    oldStorage.release(storage_);
   }
 
   // for internal use during resize, so no resize check here
@@ -274,9 +321,9 @@ final class CouponTraverseMap extends Map {
     int entryIndex = getIndex(hash[0], tableEntries_);
     final int loopIndex = entryIndex;
     do {
-      if (isBitClear(stateArr_, entryIndex)) {
-        System.arraycopy(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_);
-        setBit(stateArr_, entryIndex);
+      if (storage_.isBitClear(STATE, entryIndex)) {
+        storage_.putBytes(KEYS, (long) entryIndex * keySizeBytes_, key);
+        storage_.setBit(STATE, entryIndex);
         numActiveKeys_++;
         return entryIndex;
       }
@@ -285,11 +332,9 @@ final class CouponTraverseMap extends Map {
     throw new SketchesArgumentException("Key not found and no empty slots!");
   }
 
-  private void clearCouponArea(final int entryIndex) {
-    final int couponAreaIndex = entryIndex * maxCouponsPerKey_;
-    for (int i = 0; i < maxCouponsPerKey_; i++) {
-      couponsArr_[couponAreaIndex + i] = 0;
-    }
+  private long[] arrayLengths(final int tableEntries) {
+    return new long[] {(long) tableEntries * maxCouponsPerKey_, (long) tableEntries * keySizeBytes_,
+        stateArrBytes(tableEntries)};
   }
 
   private static final double updateEntrySizeBytes(final int tableEntries, final int keySizeBytes,
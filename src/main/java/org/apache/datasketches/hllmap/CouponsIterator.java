@@ -26,15 +26,25 @@ package org.apache.datasketches.hllmap;
  */
 class CouponsIterator {
 
-  private final int offset_;
+  private final MapStorage storage_;
+  private final int arr_;
+  private final long offset_;
   private final int maxEntries_;
-  private final short[] couponsArr_;
   private int index_;
 
-  CouponsIterator(final short[] couponsArr, final int offset, final int maxEntries) {
+  /**
+   * Constructs an iterator over an array of coupons.
+   * @param storage the storage holding the coupons
+   * @param arr the id of the coupons array in the storage
+   * @param offset the index of the first coupon in the coupons array
+   * @param maxEntries the number of coupons to iterate over
+   */
+  CouponsIterator(final MapStorage storage, final int arr, final long offset,
+      final int maxEntries) {
+    storage_ = storage;
+    arr_ = arr;
     offset_ = offset;
     maxEntries_ = maxEntries;
-    couponsArr_ = couponsArr;
     index_ = -1;
   }
 
@@ -45,7 +55,7 @@ class CouponsIterator {
   boolean next() {
     index_++;
     while (index_ < maxEntries_) {
-      if (couponsArr_[offset_ + index_] != 0) { return true; }
+      if (storage_.getShort(arr_, offset_ + index_) != 0) { return true; }
       index_++;
     }
     return false;
@@ -56,7 +66,7 @@ class CouponsIterator {
    * @return the value at the current index.
    */
   short getValue() {
-    return couponsArr_[offset_ + index_];
+    return storage_.getShort(arr_, offset_ + index_);
   }
 
 }
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hllmap;
+
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Map storage with all map arrays in one WritableMemory segment, in array id order.
+ */
+final class DirectMapStorage extends MapStorage {
+  private final WritableMemory mem_;
+  private final long[] offsets_; //byte offset of each array
+  private final int[] lgElementBytes_;
+
+  //if not null, the segment is returned to this server when it is released
+  private final MemoryRequestServer memReqSvr_;
+
+  DirectMapStorage(final int[] types, final long[] lengths, final WritableMemory segment,
+      final MemoryRequestServer memReqSvr) {
+    super(types, lengths);
+    mem_ = segment;
+    memReqSvr_ = memReqSvr;
+    offsets_ = new long[types.length];
+    lgElementBytes_ = new int[types.length];
+    long offset = 0;
+    for (int i = 0; i < types.length; i++) {
+      offsets_[i] = offset;
+      lgElementBytes_[i] = lgElementBytes(types[i]);
+      offset += lengths[i] << lgElementBytes_[i];
+    }
+  }
+
+  WritableMemory getSegment() {
+    return mem_;
+  }
+
+  @Override
+  byte getByte(final int arr, final long index) {
+    return mem_.getByte(offsets_[arr] + index);
+  }
+
+  @Override
+  void putByte(final int arr, final long index, final byte value) {
+    mem_.putByte(offsets_[arr] + index, value);
+  }
+
+  @Override
+  short getShort(final int arr, final long index) {
+    return mem_.getShort(offsets_[arr] + (index << 1));
+  }
+
+  @Override
+  void putShort(final int arr, final long index, final short value) {
+    mem_.putShort(offsets_[arr] + (index << 1), value);
+  }
+
+  @Override
+  float getFloat(final int arr, final long index) {
+    return mem_.getFloat(offsets_[arr] + (index << 2));
+  }
+
+  @Override
+  void putFloat(final int arr, final long index, final float value) {
+    mem_.putFloat(offsets_[arr] + (index << 2), value);
+  }
+
+  @Override
+  double getDouble(final int arr, final long index) {
+    return mem_.getDouble(offsets_[arr] + (index << 3));
+  }
+
+  @Override
+  void putDouble(final int arr, final long index, final double value) {
+    mem_.putDouble(offsets_[arr] + (index << 3), value);
+  }
+
+  @Override
+  long getLong(final int arr, final long index) {
+    return mem_.getLong(offsets_[arr] + (index << 3));
+  }
+
+  @Override
+  void putLong(final int arr, final long index, final long value) {
+    mem_.putLong(offsets_[arr] + (index << 3), value);
+  }
+
+  @Override
+  void putBytes(final int arr, final long index, final byte[] src) {
+    mem_.putByteArray(offsets_[arr] + index, src, 0, src.length);
+  }
+
+  @Override
+  void getBytes(final int arr, final long index, final byte[] dst) {
+    mem_.getByteArray(offsets_[arr] + index, dst, 0, dst.length);
+  }
+
+  @Override
+  boolean keyEquals(final int arr, final long index, final byte[] key) {
+    final long offset = offsets_[arr] + index;
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != mem_.getByte(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  void clear(final int arr, final long index, final long length) {
+    mem_.clear(offsets_[arr] + (index << lgElementBytes_[arr]), length << lgElementBytes_[arr]);
+  }
+
+  @Override
+  void copyTo(final int arr, final long index, final MapStorage dst, final long dstIndex,
+      final long length) {
+    if (dst instanceof DirectMapStorage) {
+      final DirectMapStorage d = (DirectMapStorage) dst;
+      final int lgBytes = lgElementBytes_[arr];
+      mem_.copyTo(offsets_[arr] + (index << lgBytes), d.mem_, d.offsets_[arr] + (dstIndex << lgBytes),
+          length << lgBytes);
+    } else {
+      super.copyTo(arr, index, dst, dstIndex, length);
+    }
+  }
+
+  @Override
+  void writeTo(final WritableMemory dstWmem, final long offsetBytes) {
+    mem_.copyTo(0, dstWmem, offsetBytes, getCapacityBytes());
+  }
+
+  @Override
+  void release(final MapStorage replacement) {
+    if (memReqSvr_ != null) {
+      memReqSvr_.requestClose(mem_, (replacement instanceof DirectMapStorage)
+          ? ((DirectMapStorage) replacement).mem_ : null);
+    }
+  }
+
+}
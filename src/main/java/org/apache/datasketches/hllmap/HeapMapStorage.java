@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hllmap;
+
+import java.util.Arrays;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Map storage with one Java array per map array.
+ */
+final class HeapMapStorage extends MapStorage {
+  private final Object[] arrays_;
+
+  HeapMapStorage(final int[] types, final long[] lengths) {
+    super(types, lengths);
+    arrays_ = new Object[types.length];
+    for (int i = 0; i < types.length; i++) {
+      if (lengths[i] > Integer.MAX_VALUE) {
+        throw new SketchesArgumentException("Map array too large: " + lengths[i]);
+      }
+      final int len = (int) lengths[i];
+      switch (types[i]) {
+        case BYTES: arrays_[i] = new byte[len]; break;
+        case SHORTS: arrays_[i] = new short[len]; break;
+        case FLOATS: arrays_[i] = new float[len]; break;
+        case DOUBLES: arrays_[i] = new double[len]; break;
+        default: arrays_[i] = new long[len];
+      }
+    }
+  }
+
+  static HeapMapStorage read(final int[] types, final long[] lengths, final Memory srcMem,
+      final long offsetBytes) {
+    final HeapMapStorage storage = new HeapMapStorage(types, lengths);
+    long offset = offsetBytes;
+    for (int i = 0; i < types.length; i++) {
+      final int len = (int) lengths[i];
+      switch (types[i]) {
+        case BYTES: srcMem.getByteArray(offset, (byte[]) storage.arrays_[i], 0, len); break;
+        case SHORTS: srcMem.getShortArray(offset, (short[]) storage.arrays_[i], 0, len); break;
+        case FLOATS: srcMem.getFloatArray(offset, (float[]) storage.arrays_[i], 0, len); break;
+        case DOUBLES: srcMem.getDoubleArray(offset, (double[]) storage.arrays_[i], 0, len); break;
+        default: srcMem.getLongArray(offset, (long[]) storage.arrays_[i], 0, len);
+      }
+      offset += lengths[i] << lgElementBytes(types[i]);
+    }
+    return storage;
+  }
+
+  @Override
+  byte getByte(final int arr, final long index) {
+    return ((byte[]) arrays_[arr])[(int) index];
+  }
+
+  @Override
+  void putByte(final int arr, final long index, final byte value) {
+    ((byte[]) arrays_[arr])[(int) index] = value;
+  }
+
+  @Override
+  short getShort(final int arr, final long index) {
+    return ((short[]) arrays_[arr])[(int) index];
+  }
+
+  @Override
+  void putShort(final int arr, final long index, final short value) {
+    ((short[]) arrays_[arr])[(int) index] = value;
+  }
+
+  @Override
+  float getFloat(final int arr, final long index) {
+    return ((float[]) arrays_[arr])[(int) index];
+  }
+
+  @Override
+  void putFloat(final int arr, final long index, final float value) {
+    ((float[]) arrays_[arr])[(int) index] = value;
+  }
+
+  @Override
+  double getDouble(final int arr, final long index) {
+    return ((double[]) arrays_[arr])[(int) index];
+  }
+
+  @Override
+  void putDouble(final int arr, final long index, final double value) {
+    ((double[]) arrays_[arr])[(int) index] = value;
+  }
+
+  @Override
+  long getLong(final int arr, final long index) {
+    return ((long[]) arrays_[arr])[(int) index];
+  }
+
+  @Override
+  void putLong(final int arr, final long index, final long value) {
+    ((long[]) arrays_[arr])[(int) index] = value;
+  }
+
+  @Override
+  void putBytes(final int arr, final long index, final byte[] src) {
+    System.arraycopy(src, 0, arrays_[arr], (int) index, src.length);
+  }
+
+  @Override
+  void getBytes(final int arr, final long index, final byte[] dst) {
+    System.arraycopy(arrays_[arr], (int) index, dst, 0, dst.length);
+  }
+
+  @Override
+  boolean keyEquals(final int arr, final long index, final byte[] key) {
+    final byte[] bytes = (byte[]) arrays_[arr];
+    final int start = (int) index;
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != bytes[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  void clear(final int arr, final long index, final long length) {
+    final int from = (int) index;
+    final int to = (int) (index + length);
+    switch (types_[arr]) {
+      case BYTES: Arrays.fill((byte[]) arrays_[arr], from, to, (byte) 0); break;
+      case SHORTS: Arrays.fill((short[]) arrays_[arr], from, to, (short) 0); break;
+      case FLOATS: Arrays.fill((float[]) arrays_[arr], from, to, 0); break;
+      case DOUBLES: Arrays.fill((double[]) arrays_[arr], from, to, 0); break;
+      default: Arrays.fill((long[]) arrays_[arr], from, to, 0);
+    }
+  }
+
+  @Override
+  void copyTo(final int arr, final long index, final MapStorage dst, final long dstIndex,
+      final long length) {
+    if (dst instanceof HeapMapStorage) {
+      System.arraycopy(arrays_[arr], (int) index, ((HeapMapStorage) dst).arrays_[arr],
+          (int) dstIndex, (int) length);
+    } else {
+      super.copyTo(arr, index, dst, dstIndex, length);
+    }
+  }
+
+  @Override
+  void writeTo(final WritableMemory dstWmem, final long offsetBytes) {
+    long offset = offsetBytes;
+    for (int i = 0; i < types_.length; i++) {
+      final int len = (int) lengths_[i];
+      switch (types_[i]) {
+        case BYTES: dstWmem.putByteArray(offset, (byte[]) arrays_[i], 0, len); break;
+        case SHORTS: dstWmem.putShortArray(offset, (short[]) arrays_[i], 0, len); break;
+        case FLOATS: dstWmem.putFloatArray(offset, (float[]) arrays_[i], 0, len); break;
+        case DOUBLES: dstWmem.putDoubleArray(offset, (double[]) arrays_[i], 0, len); break;
+        default: dstWmem.putLongArray(offset, (long[]) arrays_[i], 0, len);
+      }
+      offset += lengths_[i] << lgElementBytes(types_[i]);
+    }
+  }
+
+  @Override
+  void release(final MapStorage replacement) {
+    //the arrays are reclaimed by the garbage collector
+  }
+
+}
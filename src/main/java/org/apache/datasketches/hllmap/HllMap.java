@@ -23,10 +23,11 @@ import static java.lang.Math.log;
 import static java.lang.Math.sqrt;
 import static org.apache.datasketches.Util.invPow2;
 
-import java.util.Arrays;
-
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * Implements a key-value map where the value is a compact HLL sketch of size k.
@@ -39,6 +40,9 @@ import org.apache.datasketches.hash.MurmurHash3;
  * estimators and the early estimators in this implementation are quite novel and provide superior
  * error performance over most other HLL implementations.
  *
+ * <p>The arrays, in snapshot segment order, are: HLL arrays, invPow2SumHi, invPow2SumLo,
+ * hipEstAccum, keys, state.</p>
+ *
  * @author Lee Rhodes
  * @author KevinLang
  * @author Alexander Saydakov
@@ -48,6 +52,17 @@ final class HllMap extends Map {
   private static final int HLL_INIT_NUM_ENTRIES = 157;
   private static final float HLL_RESIZE_FACTOR = 2.0F;
   private static final double RSE = sqrt(log(2.0)) / 32.0;
+
+  // arrays of the storage
+  private static final int HLL = 0;
+  private static final int INV_POW2_SUM_HI = 1;
+  private static final int INV_POW2_SUM_LO = 2;
+  private static final int HIP_EST_ACCUM = 3;
+  private static final int KEYS = 4; //keys of zero are allowed
+  private static final int STATE = 5;
+  private static final int[] ARRAY_TYPES = {MapStorage.LONGS, MapStorage.DOUBLES,
+      MapStorage.DOUBLES, MapStorage.DOUBLES, MapStorage.BYTES, MapStorage.BYTES};
+
   private final int k_;
   private final int hllArrLongs_; //# of longs required to store the HLL array
 
@@ -57,41 +72,56 @@ final class HllMap extends Map {
   private float growthFactor_;    //e.g., 1.2 to 2.0
   private double entrySizeBytes_;
 
-  //Arrays
-  private byte[] keysArr_; //keys of zero are allowed
-  private long[] arrOfHllArr_;
-  private double[] invPow2SumHiArr_;
-  private double[] invPow2SumLoArr_;
-  private double[] hipEstAccumArr_;
-  private byte[] stateArr_;
+  private MapStorage storage_;
 
   /**
    * Private constructor used to set all finals
    * @param keySizeBytes size of key in bytes
    * @param k size of HLL sketch
+   * @param memReqSvr the MemoryRequestServer for the storage of this map, or null for the heap.
    */
-  private HllMap(final int keySizeBytes, final int k) {
-    super(keySizeBytes);
+  private HllMap(final int keySizeBytes, final int k, final MemoryRequestServer memReqSvr) {
+    super(keySizeBytes, memReqSvr);
     k_ = k;
     hllArrLongs_ = (k / 10) + 1;
   }
 
   static HllMap getInstance(final int keySizeBytes, final int k) {
+    return getInstance(keySizeBytes, k, null);
+  }
+
+  static HllMap getInstance(final int keySizeBytes, final int k,
+      final MemoryRequestServer memReqSvr) {
     final int tableEntries = HLL_INIT_NUM_ENTRIES;
 
-    final HllMap map = new HllMap(keySizeBytes, k);
-    map.tableEntries_ = tableEntries;
-    map.capacityEntries_ = (int)(tableEntries * LOAD_FACTOR);
+    final HllMap map = new HllMap(keySizeBytes, k, memReqSvr);
     map.curCountEntries_ = 0;
     map.growthFactor_ = HLL_RESIZE_FACTOR;
-    map.entrySizeBytes_ = updateEntrySizeBytes(map.tableEntries_, keySizeBytes, map.hllArrLongs_);
-
-    map.keysArr_ = new byte[tableEntries * map.keySizeBytes_];
-    map.arrOfHllArr_ = new long[tableEntries * map.hllArrLongs_];
-    map.invPow2SumHiArr_ = new double[tableEntries];
-    map.invPow2SumLoArr_ = new double[tableEntries];
-    map.hipEstAccumArr_ = new double[tableEntries];
-    map.stateArr_ = new byte[(int) Math.ceil(tableEntries / 8.0)];
+    map.setTable(tableEntries,
+        map.allocateStorage(ARRAY_TYPES, map.arrayLengths(tableEntries), null));
+    return map;
+  }
+
+  /**
+   * Returns a map restored from a level of a snapshot.
+   * @param keySizeBytes the key size in bytes
+   * @param srcMem the snapshot
+   * @param srcWmem the snapshot if its segment is to be used directly, otherwise null.
+   * @param offsetBytes the offset of the level header
+   * @param memReqSvr the MemoryRequestServer for the storage of the map, or null.
+   * @return a map restored from a level of a snapshot
+   */
+  static HllMap restoreInstance(final int keySizeBytes, final Memory srcMem,
+      final WritableMemory srcWmem, final long offsetBytes, final MemoryRequestServer memReqSvr) {
+    final int k = srcMem.getInt(offsetBytes + COUPONS_PER_KEY_INT);
+    final int tableEntries = srcMem.getInt(offsetBytes + TABLE_ENTRIES_INT);
+    final HllMap map = new HllMap(keySizeBytes, k, memReqSvr);
+    final long[] lengths = map.arrayLengths(tableEntries);
+    checkSegmentBytes(srcMem, offsetBytes, MapStorage.segmentBytes(ARRAY_TYPES, lengths));
+    map.curCountEntries_ = srcMem.getInt(offsetBytes + ACTIVE_ENTRIES_INT);
+    map.growthFactor_ = srcMem.getFloat(offsetBytes + GROWTH_FACTOR_FLOAT);
+    map.setTable(tableEntries, MapStorage.restore(ARRAY_TYPES, lengths, srcMem, srcWmem,
+        offsetBytes + LEVEL_HEADER_BYTES, memReqSvr));
     return map;
   }
 
@@ -104,7 +134,7 @@ final class HllMap extends Map {
   @Override
   double update(final int entryIndex, final short coupon) {
     updateHll(entryIndex, coupon); //update HLL array, updates HIP
-    return hipEstAccumArr_[entryIndex];
+    return storage_.getDouble(HIP_EST_ACCUM, entryIndex);
   }
 
   @Override
@@ -114,7 +144,7 @@ final class HllMap extends Map {
     if (entryIndex < 0) {
       return 0;
     }
-    return hipEstAccumArr_[entryIndex];
+    return storage_.getDouble(HIP_EST_ACCUM, entryIndex);
   }
 
   @Override
@@ -129,7 +159,7 @@ final class HllMap extends Map {
 
   @Override
   void updateEstimate(final int entryIndex, final double estimate) {
-    hipEstAccumArr_[entryIndex] = estimate;
+    storage_.putDouble(HIP_EST_ACCUM, entryIndex, estimate);
   }
 
   /**
@@ -147,10 +177,10 @@ final class HllMap extends Map {
     final int loopIndex = entryIndex;
 
     do {
-      if (isBitClear(stateArr_, entryIndex)) { //check if slot is empty
+      if (storage_.isBitClear(STATE, entryIndex)) { //check if slot is empty
         return ~entryIndex;
       }
-      if (arraysEqual(key, 0, keysArr_, entryIndex * keyLen, keyLen)) { //check for key match
+      if (storage_.keyEquals(KEYS, (long) entryIndex * keyLen, key)) { //check for key match
         return entryIndex;
       }
       entryIndex = (entryIndex + stride) % tableEntries_;
@@ -163,11 +193,11 @@ final class HllMap extends Map {
     int entryIndex = findKey(key);
     if (entryIndex < 0) { //key not found, initialize new row
       entryIndex = ~entryIndex;
-      System.arraycopy(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_);
-      setBit(stateArr_, entryIndex);
-      invPow2SumHiArr_[entryIndex] = k_;
-      invPow2SumLoArr_[entryIndex] = 0;
-      hipEstAccumArr_[entryIndex] = 0;
+      storage_.putBytes(KEYS, (long) entryIndex * keySizeBytes_, key);
+      storage_.setBit(STATE, entryIndex);
+      storage_.putDouble(INV_POW2_SUM_HI, entryIndex, k_);
+      storage_.putDouble(INV_POW2_SUM_LO, entryIndex, 0);
+      storage_.putDouble(HIP_EST_ACCUM, entryIndex, 0);
       curCountEntries_++;
       if (curCountEntries_ > capacityEntries_) {
         resize();
@@ -200,16 +230,26 @@ final class HllMap extends Map {
 
   @Override
   long getMemoryUsageBytes() {
-    final long arrays = keysArr_.length
-        + ((long) arrOfHllArr_.length * Long.BYTES)
-        + ((long) invPow2SumLoArr_.length * Double.BYTES)
-        + ((long) invPow2SumHiArr_.length * Double.BYTES)
-        + ((long) hipEstAccumArr_.length * Double.BYTES)
-        + stateArr_.length;
+    final long arrays = storage_.getCapacityBytes();
     final long other = (5L * Integer.BYTES) + Float.BYTES + Double.BYTES;
     return arrays + other;
   }
 
+  @Override
+  MapStorage getStorage() {
+    return storage_;
+  }
+
+  @Override
+  void putLevelHeader(final WritableMemory mem, final long offsetBytes) {
+    mem.putInt(offsetBytes + TABLE_ENTRIES_INT, tableEntries_);
+    mem.putInt(offsetBytes + ACTIVE_ENTRIES_INT, curCountEntries_);
+    mem.putInt(offsetBytes + DELETED_ENTRIES_INT, 0);
+    mem.putInt(offsetBytes + COUPONS_PER_KEY_INT, k_);
+    mem.putLong(offsetBytes + SEGMENT_BYTES_LONG, storage_.getCapacityBytes());
+    mem.putFloat(offsetBytes + GROWTH_FACTOR_FLOAT, growthFactor_);
+  }
+
   @Override
   CouponsIterator getCouponsIterator(final int index) {
     // not applicable
@@ -243,21 +283,19 @@ final class HllMap extends Map {
    * Only used by resize, where it is known that the key does not exist in the table.
    * Throws an exception if no empty slots.
    * @param key the given key
-   * @param tableEntries prime size of table
-   * @param stateArr the valid bit array
    * @return the first empty slot for the given key
    */
-  private static final int findEmpty(final byte[] key, final int tableEntries, final byte[] stateArr) {
+  private int findEmpty(final byte[] key) {
     final long[] hash = MurmurHash3.hash(key, SEED);
-    int entryIndex  = getIndex(hash[0], tableEntries);
-    final int stride = getStride(hash[1], tableEntries);
+    int entryIndex  = getIndex(hash[0], tableEntries_);
+    final int stride = getStride(hash[1], tableEntries_);
     final int loopIndex = entryIndex;
 
     do {
-      if (isBitClear(stateArr, entryIndex)) { //check if slot is empty
+      if (storage_.isBitClear(STATE, entryIndex)) { //check if slot is empty
         return entryIndex;
       }
-      entryIndex = (entryIndex + stride) % tableEntries;
+      entryIndex = (entryIndex + stride) % tableEntries_;
     } while (entryIndex != loopIndex);
     throw new SketchesArgumentException("No empty slots.");
   }
@@ -270,67 +308,71 @@ final class HllMap extends Map {
     final int longIdx = hllIdx / 10;
     final int shift = ((hllIdx % 10) * 6) & SIX_BIT_MASK;
 
-    long hllLong = arrOfHllArr_[(entryIndex * hllArrLongs_) + longIdx];
+    final long hllLongIndex = ((long) entryIndex * hllArrLongs_) + longIdx;
+    long hllLong = storage_.getLong(HLL, hllLongIndex);
     final int oldValue = (int)(hllLong >>> shift) & SIX_BIT_MASK;
     if (newValue <= oldValue) { return false; }
     // newValue > oldValue
 
     //update hipEstAccum BEFORE updating invPow2Sum
-    final double invPow2Sum = invPow2SumHiArr_[entryIndex] + invPow2SumLoArr_[entryIndex];
+    double invPow2SumHi = storage_.getDouble(INV_POW2_SUM_HI, entryIndex);
+    double invPow2SumLo = storage_.getDouble(INV_POW2_SUM_LO, entryIndex);
+    final double invPow2Sum = invPow2SumHi + invPow2SumLo;
     final double oneOverQ = k_ / invPow2Sum;
-    hipEstAccumArr_[entryIndex] += oneOverQ;
+    storage_.putDouble(HIP_EST_ACCUM, entryIndex,
+        storage_.getDouble(HIP_EST_ACCUM, entryIndex) + oneOverQ);
 
     //update invPow2Sum
-    if (oldValue < 32) { invPow2SumHiArr_[entryIndex] -= invPow2(oldValue); }
-    else               { invPow2SumLoArr_[entryIndex] -= invPow2(oldValue); }
-    if (newValue < 32) { invPow2SumHiArr_[entryIndex] += invPow2(newValue); }
-    else               { invPow2SumLoArr_[entryIndex] += invPow2(newValue); }
+    if (oldValue < 32) { invPow2SumHi -= invPow2(oldValue); }
+    else               { invPow2SumLo -= invPow2(oldValue); }
+    if (newValue < 32) { invPow2SumHi += invPow2(newValue); }
+    else               { invPow2SumLo += invPow2(newValue); }
+    storage_.putDouble(INV_POW2_SUM_HI, entryIndex, invPow2SumHi);
+    storage_.putDouble(INV_POW2_SUM_LO, entryIndex, invPow2SumLo);
 
     //insert the new value
     hllLong &= ~(0X3FL << shift);  //zero out the 6-bit field
     hllLong |=  ((long)newValue) << shift; //insert
-    arrOfHllArr_[(entryIndex * hllArrLongs_) + longIdx] = hllLong;
+    storage_.putLong(HLL, hllLongIndex, hllLong);
     return true;
   }
 
+  private long[] arrayLengths(final int tableEntries) {
+    return new long[] {(long) tableEntries * hllArrLongs_, tableEntries, tableEntries,
+        tableEntries, (long) tableEntries * keySizeBytes_, stateArrBytes(tableEntries)};
+  }
+
+  private void setTable(final int tableEntries, final MapStorage storage) {
+    tableEntries_ = tableEntries;
+    capacityEntries_ = (int)(tableEntries * LOAD_FACTOR);
+    entrySizeBytes_ = updateEntrySizeBytes(tableEntries, keySizeBytes_, hllArrLongs_);
+    storage_ = storage;
+  }
+
   private final void resize() {
+    final MapStorage oldStorage = storage_;
+    final int oldTableEntries = tableEntries_;
     final int newTableEntries = nextPrime((int)(tableEntries_ * growthFactor_));
-    final int newCapacityEntries = (int)(newTableEntries * LOAD_FACTOR);
-
-    final byte[] newKeysArr = new byte[newTableEntries * keySizeBytes_];
-    final long[] newArrOfHllArr = new long[newTableEntries * hllArrLongs_];
-    final double[] newInvPow2Sum1 = new double[newTableEntries];
-    final double[] newInvPow2Sum2 = new double[newTableEntries];
-    final double[] newHipEstAccum = new double[newTableEntries];
-    final byte[] newStateArr = new byte[(int) Math.ceil(newTableEntries / 8.0)];
+    //curCountEntries_, growthFactor_  unchanged
+    setTable(newTableEntries,
+        allocateStorage(ARRAY_TYPES, arrayLengths(newTableEntries), oldStorage));
 
-    for (int oldIndex = 0; oldIndex < tableEntries_; oldIndex++) {
-      if (isBitClear(stateArr_, oldIndex)) { continue; }
+    final byte[] key = new byte[keySizeBytes_];
+    for (int oldIndex = 0; oldIndex < oldTableEntries; oldIndex++) {
+      if (oldStorage.isBitClear(STATE, oldIndex)) { continue; }
       // extract an old key
-      final byte[] key =
-          Arrays.copyOfRange(keysArr_, oldIndex * keySizeBytes_, (oldIndex + 1) * keySizeBytes_);
-      final int newIndex = findEmpty(key, newTableEntries, newStateArr);
-      System.arraycopy(key, 0, newKeysArr, newIndex * keySizeBytes_, keySizeBytes_); //put key
+      oldStorage.getBytes(KEYS, (long) oldIndex * keySizeBytes_, key);
+      final int newIndex = findEmpty(key);
+      storage_.putBytes(KEYS, (long) newIndex * keySizeBytes_, key);
       //put the rest of the row
-      System.arraycopy(arrOfHllArr_, oldIndex * hllArrLongs_, newArrOfHllArr,
-          newIndex * hllArrLongs_, hllArrLongs_);
-      newInvPow2Sum1[newIndex] = invPow2SumHiArr_[oldIndex];
-      newInvPow2Sum2[newIndex] = invPow2SumLoArr_[oldIndex];
-      newHipEstAccum[newIndex] = hipEstAccumArr_[oldIndex];
-      setBit(newStateArr, newIndex);
+      oldStorage.copyTo(HLL, (long) oldIndex * hllArrLongs_, storage_,
+          (long) newIndex * hllArrLongs_, hllArrLongs_);
+      storage_.putDouble(INV_POW2_SUM_HI, newIndex, oldStorage.getDouble(INV_POW2_SUM_HI, oldIndex));
+      storage_.putDouble(INV_POW2_SUM_LO, newIndex, oldStorage.getDouble(INV_POW2_SUM_LO, oldIndex));
+      storage_.putDouble(HIP_EST_ACCUM, newIndex, oldStorage.getDouble(HIP_EST_ACCUM, oldIndex));
+      storage_.setBit(STATE, newIndex);
     }
-    //restore into sketch
-    tableEntries_ = newTableEntries;
-    capacityEntries_ = newCapacityEntries;
-    //curCountEntries_, growthFactor_  unchanged
-    entrySizeBytes_ = updateEntrySizeBytes(tableEntries_, keySizeBytes_, hllArrLongs_);
-
-    keysArr_ = newKeysArr;
-    arrOfHllArr_ = newArrOfHllArr;
-    invPow2SumHiArr_ = newInvPow2Sum1; //init to k
-    invPow2SumLoArr_ = newInvPow2Sum2; //init to 0
-    hipEstAccumArr_ = newHipEstAccum;  //init to 0
-    stateArr_ = newStateArr;
+    oldStorage.release(storage_);
   }
 
   private static final double updateEntrySizeBytes(final int tableEntries, final int keySizeBytes,
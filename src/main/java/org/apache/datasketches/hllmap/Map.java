@@ -21,7 +21,11 @@ package org.apache.datasketches.hllmap;
 
 import java.math.BigInteger;
 
+import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * Base class and API for all the maps.
@@ -45,10 +49,24 @@ abstract class Map {
   static final double COUPON_MAP_GROW_TRIGGER_FACTOR = 15.0 / 16.0;
   static final double COUPON_MAP_TARGET_FILL_FACTOR = 2.0 / 3.0;
 
+  // Layout of the level header that precedes the segment of each map in a serialized image.
+  // See UniqueCountMap for the layout of the whole image.
+  static final int LEVEL_HEADER_BYTES = 32;
+  static final int TABLE_ENTRIES_INT = 0;
+  static final int ACTIVE_ENTRIES_INT = 4;
+  static final int DELETED_ENTRIES_INT = 8;
+  static final int COUPONS_PER_KEY_INT = 12; //maxCouponsPerKey, or k for the HllMap
+  static final int SEGMENT_BYTES_LONG = 16;
+  static final int GROWTH_FACTOR_FLOAT = 24;
+
   final int keySizeBytes_;
 
-  Map(final int keySizeBytes) {
+  //if not null, the storage of this map is obtained from and returned to this server
+  final MemoryRequestServer memReqSvr_;
+
+  Map(final int keySizeBytes, final MemoryRequestServer memReqSvr) {
     keySizeBytes_ = keySizeBytes;
+    memReqSvr_ = memReqSvr;
   }
 
   /**
@@ -127,39 +145,64 @@ abstract class Map {
 
   abstract long getMemoryUsageBytes();
 
-  int getKeySizeBytes() {
-    return keySizeBytes_;
+  /**
+   * Returns the storage that holds all the arrays of this map.
+   * @return the storage of this map
+   */
+  abstract MapStorage getStorage();
+
+  /**
+   * Writes the level header of this map, which describes the layout of its snapshot segment.
+   * @param mem the destination
+   * @param offsetBytes the offset of the level header in the destination
+   */
+  abstract void putLevelHeader(WritableMemory mem, long offsetBytes);
+
+  /**
+   * Allocates new zeroed storage for the arrays of this map, either on the heap or from the
+   * MemoryRequestServer of this map.
+   * @param types the type of each array
+   * @param lengths the number of elements of each array
+   * @param current the current storage of this map, or null if this is the first storage.
+   * @return new storage
+   */
+  MapStorage allocateStorage(final int[] types, final long[] lengths, final MapStorage current) {
+    return MapStorage.allocate(types, lengths, memReqSvr_, current);
   }
 
   /**
-   * Delete the key at the given index
-   * @param index the given index
+   * Releases the storage of this map. This map must not be used afterwards.
    */
-  void deleteKey(final int index) {}
+  void close() {
+    getStorage().release(null);
+  }
 
   /**
-   * Returns <code>true</code> if the two specified sub-arrays of bytes are <i>equal</i> to one another.
-   * Two arrays are considered equal if all corresponding pairs of elements in the two arrays are
-   * equal. In other words, two arrays are equal if and only if they contain the same elements
-   * in the same order.
-   *
-   * @param a one sub-array to be tested for equality
-   * @param offsetA the offset in bytes of the start of sub-array <i>a</i>.
-   * @param b the other sub-array to be tested for equality
-   * @param offsetB the offset in bytes of the start of sub-array <i>b</i>.
-   * @param length the length in bytes of the two sub-arrays.
-   * @return <code>true</code> if the two sub-arrays are equal
+   * Checks that the segment size given by a level header matches the size required by the layout
+   * of the map.
+   * @param header the Memory holding the level header
+   * @param offsetBytes the offset of the level header
+   * @param segmentBytes the required size in bytes
    */
-  static final boolean arraysEqual(final byte[] a, final int offsetA, final byte[] b,
-      final int offsetB, final int length) {
-    for (int i = 0; i < length; i++) {
-      if (a[i + offsetA] != b[i + offsetB]) {
-        return false;
-      }
+  static void checkSegmentBytes(final Memory header, final long offsetBytes,
+      final long segmentBytes) {
+    final long imageBytes = header.getLong(offsetBytes + SEGMENT_BYTES_LONG);
+    if (imageBytes != segmentBytes) {
+      throw new SketchesArgumentException("Corrupt image: map segment must be " + segmentBytes
+          + " bytes: " + imageBytes);
     }
-    return true;
+  }
+
+  int getKeySizeBytes() {
+    return keySizeBytes_;
   }
 
+  /**
+   * Delete the key at the given index
+   * @param index the given index
+   */
+  void deleteKey(final int index) {}
+
   /**
    * Returns the HLL array index and value as a 16-bit coupon given the identifier to be hashed
    * and k.
@@ -167,7 +210,21 @@ abstract class Map {
    * @return the HLL array index and value
    */
   static final int coupon16(final byte[] identifier) {
-    final long[] hash = MurmurHash3.hash(identifier, SEED);
+    return coupon16(identifier, 0, identifier.length, new long[2]);
+  }
+
+  /**
+   * Returns the HLL array index and value as a 16-bit coupon given a portion of an array that
+   * holds the identifier to be hashed.
+   * @param identifiers the array holding the identifier
+   * @param offsetBytes the offset of the identifier
+   * @param lengthBytes the length of the identifier
+   * @param hash a scratch array of size 2 that receives the hash
+   * @return the HLL array index and value
+   */
+  static final int coupon16(final byte[] identifiers, final int offsetBytes,
+      final int lengthBytes, final long[] hash) {
+    MurmurHash3.hash(identifiers, offsetBytes, lengthBytes, SEED, hash);
     final int hllIdx = (int) (((hash[0] >>> 1) % 1024) & TEN_BIT_MASK); //hash[0] for 10-bit address
     final int lz = Long.numberOfLeadingZeros(hash[1]);
     final int value = (lz > 62 ? 62 : lz) + 1;
@@ -186,28 +243,8 @@ abstract class Map {
     return (int) ((hash >>> 1) % (tableEntries - 2L) + 1L);
   }
 
-  static boolean isBitSet(final byte[] byteArr, final int bitIndex) {
-    final int byteIndex = bitIndex / 8;
-    final int mask = 1 << (bitIndex % 8);
-    return (byteArr[byteIndex] & mask) > 0;
-  }
-
-  static boolean isBitClear(final byte[] byteArr, final int bitIndex) {
-    final int byteIndex = bitIndex / 8;
-    final int mask = 1 << (bitIndex % 8);
-    return (byteArr[byteIndex] & mask) == 0;
-  }
-
-  static void clearBit(final byte[] byteArr, final int index) {
-    final int byteIndex = index / 8;
-    final int mask = 1 << (index % 8);
-    byteArr[byteIndex] &= ~mask;
-  }
-
-  static void setBit(final byte[] bits, final int index) {
-    final int byteIndex = index / 8;
-    final int mask = 1 << (index % 8);
-    bits[byteIndex] |= mask;
+  static long stateArrBytes(final int tableEntries) {
+    return (tableEntries + 7) >>> 3;
   }
 
   /**
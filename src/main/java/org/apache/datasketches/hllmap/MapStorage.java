@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hllmap;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * The storage of the arrays of one map. The maps access their arrays only through this class, by
+ * array id and element index, so that each map algorithm exists once regardless of where its
+ * arrays live.
+ *
+ * <p>{@link HeapMapStorage} holds one Java array per map array. {@link DirectMapStorage} holds all
+ * arrays of the map in one WritableMemory segment, in array id order, which is either obtained
+ * from a MemoryRequestServer or is a region of a wrapped snapshot. Both write the same segment
+ * layout to a snapshot.</p>
+ */
+abstract class MapStorage {
+  // array types
+  static final int BYTES = 0;
+  static final int SHORTS = 1;
+  static final int FLOATS = 2;
+  static final int DOUBLES = 3;
+  static final int LONGS = 4;
+
+  private static final int[] LG_ELEMENT_BYTES = {0, 1, 2, 3, 3};
+
+  //passed as the current memory when the first segment of a map is requested
+  private static final WritableMemory NO_SEGMENT = WritableMemory.allocate(0);
+
+  final int[] types_;
+  final long[] lengths_; //in elements
+
+  MapStorage(final int[] types, final long[] lengths) {
+    types_ = types;
+    lengths_ = lengths;
+  }
+
+  /**
+   * Returns new zeroed storage for arrays of the given types and lengths, either on the heap or
+   * from the given MemoryRequestServer.
+   * @param types the type of each array
+   * @param lengths the number of elements of each array
+   * @param memReqSvr the MemoryRequestServer, or null for the heap.
+   * @param current the storage being replaced, or null if this is the first storage of the map.
+   * @return new zeroed storage
+   */
+  static MapStorage allocate(final int[] types, final long[] lengths,
+      final MemoryRequestServer memReqSvr, final MapStorage current) {
+    if (memReqSvr == null) {
+      return new HeapMapStorage(types, lengths);
+    }
+    final long segmentBytes = segmentBytes(types, lengths);
+    final WritableMemory currentSegment = (current instanceof DirectMapStorage)
+        ? ((DirectMapStorage) current).getSegment() : NO_SEGMENT;
+    final WritableMemory segment = memReqSvr.request(currentSegment, segmentBytes);
+    if (segment == null) {
+      throw new SketchesArgumentException("MemoryRequestServer could not allocate "
+          + segmentBytes + " bytes.");
+    }
+    segment.clear(); //off-heap memory is not zeroed
+    return new DirectMapStorage(types, lengths, segment, memReqSvr);
+  }
+
+  /**
+   * Returns storage restored from the segment of a snapshot.
+   * @param types the type of each array
+   * @param lengths the number of elements of each array
+   * @param srcMem the snapshot
+   * @param srcWmem the snapshot if its segment is to be used directly, otherwise null.
+   * @param offsetBytes the offset of the segment in the snapshot
+   * @param memReqSvr the MemoryRequestServer for a copy of the segment, or null for the heap.
+   * @return storage restored from the segment of a snapshot
+   */
+  static MapStorage restore(final int[] types, final long[] lengths, final Memory srcMem,
+      final WritableMemory srcWmem, final long offsetBytes, final MemoryRequestServer memReqSvr) {
+    final long segmentBytes = segmentBytes(types, lengths);
+    if (srcWmem != null) {
+      return new DirectMapStorage(types, lengths, srcWmem.writableRegion(offsetBytes, segmentBytes),
+          null);
+    }
+    if (memReqSvr == null) {
+      return HeapMapStorage.read(types, lengths, srcMem, offsetBytes);
+    }
+    final DirectMapStorage storage = (DirectMapStorage) allocate(types, lengths, memReqSvr, null);
+    srcMem.copyTo(offsetBytes, storage.getSegment(), 0, segmentBytes);
+    return storage;
+  }
+
+  /**
+   * Returns the size in bytes of a segment that holds arrays of the given types and lengths.
+   * @param types the type of each array
+   * @param lengths the number of elements of each array
+   * @return the size in bytes of the segment
+   */
+  static long segmentBytes(final int[] types, final long[] lengths) {
+    long bytes = 0;
+    for (int i = 0; i < types.length; i++) {
+      bytes += lengths[i] << LG_ELEMENT_BYTES[types[i]];
+    }
+    return bytes;
+  }
+
+  static int lgElementBytes(final int type) {
+    return LG_ELEMENT_BYTES[type];
+  }
+
+  /**
+   * Returns the size in bytes of all arrays, which is also the size of their snapshot segment.
+   * @return the size in bytes of all arrays
+   */
+  long getCapacityBytes() {
+    return segmentBytes(types_, lengths_);
+  }
+
+  abstract byte getByte(int arr, long index);
+
+  abstract void putByte(int arr, long index, byte value);
+
+  abstract short getShort(int arr, long index);
+
+  abstract void putShort(int arr, long index, short value);
+
+  abstract float getFloat(int arr, long index);
+
+  abstract void putFloat(int arr, long index, float value);
+
+  abstract double getDouble(int arr, long index);
+
+  abstract void putDouble(int arr, long index, double value);
+
+  abstract long getLong(int arr, long index);
+
+  abstract void putLong(int arr, long index, long value);
+
+  /**
+   * Copies bytes of the given byte array into the given array.
+   * @param arr the id of a byte array of this storage
+   * @param index the index of the first destination element
+   * @param src the source bytes, all of which are copied
+   */
+  abstract void putBytes(int arr, long index, byte[] src);
+
+  /**
+   * Copies elements of the given byte array into the given bytes.
+   * @param arr the id of a byte array of this storage
+   * @param index the index of the first source element
+   * @param dst the destination, which is filled
+   */
+  abstract void getBytes(int arr, long index, byte[] dst);
+
+  /**
+   * Returns true if the given key equals the bytes at the given index of the given array.
+   * @param arr the id of a byte array of this storage
+   * @param index the index of the first byte of the stored key
+   * @param key the key to compare
+   * @return true if the given key equals the stored key
+   */
+  abstract boolean keyEquals(int arr, long index, byte[] key);
+
+  /**
+   * Sets elements of the given array to zero.
+   * @param arr the id of an array of this storage
+   * @param index the index of the first element
+   * @param length the number of elements
+   */
+  abstract void clear(int arr, long index, long length);
+
+  /**
+   * Copies elements of the given array to the same array of the given storage, which has the same
+   * array types but may have different lengths.
+   * @param arr the id of an array of this storage
+   * @param index the index of the first source element
+   * @param dst the destination storage
+   * @param dstIndex the index of the first destination element
+   * @param length the number of elements
+   */
+  void copyTo(final int arr, final long index, final MapStorage dst, final long dstIndex,
+      final long length) {
+    switch (types_[arr]) {
+      case BYTES: {
+        for (long i = 0; i < length; i++) { dst.putByte(arr, dstIndex + i, getByte(arr, index + i)); }
+        break;
+      }
+      case SHORTS: {
+        for (long i = 0; i < length; i++) {
+          dst.putShort(arr, dstIndex + i, getShort(arr, index + i));
+        }
+        break;
+      }
+      case FLOATS: {
+        for (long i = 0; i < length; i++) {
+          dst.putFloat(arr, dstIndex + i, getFloat(arr, index + i));
+        }
+        break;
+      }
+      case DOUBLES: {
+        for (long i = 0; i < length; i++) {
+          dst.putDouble(arr, dstIndex + i, getDouble(arr, index + i));
+        }
+        break;
+      }
+      default: {
+        for (long i = 0; i < length; i++) { dst.putLong(arr, dstIndex + i, getLong(arr, index + i)); }
+      }
+    }
+  }
+
+  /**
+   * Writes all arrays in array id order, which is the snapshot segment of the map.
+   * @param dstWmem the destination
+   * @param offsetBytes the offset of the segment in the destination
+   */
+  abstract void writeTo(WritableMemory dstWmem, long offsetBytes);
+
+  /**
+   * Releases this storage, which must not be used afterwards.
+   * @param replacement the storage that replaces this one, or null if the map is being closed.
+   */
+  abstract void release(MapStorage replacement);
+
+  boolean isBitSet(final int arr, final int bitIndex) {
+    final int mask = 1 << (bitIndex & 7);
+    return (getByte(arr, bitIndex >>> 3) & mask) != 0;
+  }
+
+  boolean isBitClear(final int arr, final int bitIndex) {
+    return !isBitSet(arr, bitIndex);
+  }
+
+  void setBit(final int arr, final int bitIndex) {
+    final int byteIndex = bitIndex >>> 3;
+    putByte(arr, byteIndex, (byte) (getByte(arr, byteIndex) | (1 << (bitIndex & 7))));
+  }
+
+  void clearBit(final int arr, final int bitIndex) {
+    final int byteIndex = bitIndex >>> 3;
+    putByte(arr, byteIndex, (byte) (getByte(arr, byteIndex) & ~(1 << (bitIndex & 7))));
+  }
+
+}
@@ -19,10 +19,11 @@
 
 package org.apache.datasketches.hllmap;
 
-import java.util.Arrays;
-
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * Implements a key-value map where the value is a single coupon or a map reference.
@@ -30,6 +31,8 @@ import org.apache.datasketches.hash.MurmurHash3;
  * This map is implemented with a prime sized Open Address, Double Hash, with a 1-bit state array,
  * which indicates the contents of the value.
  *
+ * <p>The arrays, in snapshot segment order, are: coupons, keys, state.</p>
+ *
  * @author Lee Rhodes
  * @author Alexander Saydakov
  * @author Kevin Lang
@@ -37,39 +40,62 @@ import org.apache.datasketches.hash.MurmurHash3;
 final class SingleCouponMap extends Map {
   private static final double RSE = 0.408 / Math.sqrt(1024);
 
-  private int tableEntries_;
-  private int capacityEntries_;
-  private int curCountEntries_;
-  private double entrySizeBytes_;
-
-  // Arrays
-  private byte[] keysArr_;
-  private short[] couponsArr_;
-
+  // arrays of the storage
+  private static final int COUPONS = 0;
+  private static final int KEYS = 1;
   /**
    * <ul><li>state: 0: empty or valid; empty if coupon is 0, otherwise valid.</li>
    * <li>state: 1: original coupon has been promoted, current coupon contains a table #
    * reference instead.</li>
    * </ul>
    */
-  private byte[] stateArr_;
+  private static final int STATE = 2;
+  private static final int[] ARRAY_TYPES = {MapStorage.SHORTS, MapStorage.BYTES, MapStorage.BYTES};
 
-  private SingleCouponMap(final int keySizeBytes) {
-    super(keySizeBytes);
+  private int tableEntries_;
+  private int capacityEntries_;
+  private int curCountEntries_;
+  private double entrySizeBytes_;
+
+  private MapStorage storage_;
+
+  private SingleCouponMap(final int keySizeBytes, final MemoryRequestServer memReqSvr) {
+    super(keySizeBytes, memReqSvr);
   }
 
   static SingleCouponMap getInstance(final int initialNumEntries, final int keySizeBytes) {
+    return getInstance(initialNumEntries, keySizeBytes, null);
+  }
+
+  static SingleCouponMap getInstance(final int initialNumEntries, final int keySizeBytes,
+      final MemoryRequestServer memReqSvr) {
     final int tableEntries = nextPrime(initialNumEntries);
 
-    final SingleCouponMap map = new SingleCouponMap(keySizeBytes);
-    map.tableEntries_ = tableEntries;
-    map.capacityEntries_ = (int)(tableEntries * COUPON_MAP_GROW_TRIGGER_FACTOR);
+    final SingleCouponMap map = new SingleCouponMap(keySizeBytes, memReqSvr);
     map.curCountEntries_ = 0;
-    map.entrySizeBytes_ = updateEntrySizeBytes(tableEntries, keySizeBytes);
+    map.setTable(tableEntries,
+        map.allocateStorage(ARRAY_TYPES, arrayLengths(tableEntries, keySizeBytes), null));
+    return map;
+  }
 
-    map.keysArr_ = new byte[tableEntries * map.keySizeBytes_];
-    map.couponsArr_ = new short[tableEntries];
-    map.stateArr_ = new byte[(int) Math.ceil(tableEntries / 8.0)];
+  /**
+   * Returns a map restored from a level of a snapshot.
+   * @param keySizeBytes the key size in bytes
+   * @param srcMem the snapshot
+   * @param srcWmem the snapshot if its segment is to be used directly, otherwise null.
+   * @param offsetBytes the offset of the level header
+   * @param memReqSvr the MemoryRequestServer for the storage of the map, or null.
+   * @return a map restored from a level of a snapshot
+   */
+  static SingleCouponMap restoreInstance(final int keySizeBytes, final Memory srcMem,
+      final WritableMemory srcWmem, final long offsetBytes, final MemoryRequestServer memReqSvr) {
+    final int tableEntries = srcMem.getInt(offsetBytes + TABLE_ENTRIES_INT);
+    final long[] lengths = arrayLengths(tableEntries, keySizeBytes);
+    checkSegmentBytes(srcMem, offsetBytes, MapStorage.segmentBytes(ARRAY_TYPES, lengths));
+    final SingleCouponMap map = new SingleCouponMap(keySizeBytes, memReqSvr);
+    map.curCountEntries_ = srcMem.getInt(offsetBytes + ACTIVE_ENTRIES_INT);
+    map.setTable(tableEntries, MapStorage.restore(ARRAY_TYPES, lengths, srcMem, srcWmem,
+        offsetBytes + LEVEL_HEADER_BYTES, memReqSvr));
     return map;
   }
 
@@ -81,17 +107,18 @@ final class SingleCouponMap extends Map {
 
   @Override
   double update(final int entryIndex, final short coupon) {
-    if (couponsArr_[entryIndex] == 0) {
-      couponsArr_[entryIndex] = coupon;
+    final short oldCoupon = getCoupon(entryIndex);
+    if (oldCoupon == 0) {
+      storage_.putShort(COUPONS, entryIndex, coupon);
       return 1;
     }
     if (isCoupon(entryIndex)) {
-      if (couponsArr_[entryIndex] == coupon) { //duplicate
+      if (oldCoupon == coupon) { //duplicate
         return 1;
       }
       return 0; // signal to promote
     }
-    return -couponsArr_[entryIndex]; // negative level number
+    return -oldCoupon; // negative level number
   }
 
   @Override
@@ -127,10 +154,10 @@ final class SingleCouponMap extends Map {
     final int loopIndex = entryIndex;
 
     do {
-      if (couponsArr_[entryIndex] == 0) {
+      if (getCoupon(entryIndex) == 0) {
         return ~entryIndex; //empty
       }
-      if (Map.arraysEqual(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_)) {
+      if (storage_.keyEquals(KEYS, (long) entryIndex * keySizeBytes_, key)) {
         return entryIndex;
       }
       entryIndex = (entryIndex + stride) % tableEntries_;
@@ -148,7 +175,7 @@ final class SingleCouponMap extends Map {
         assert entryIndex < 0;
       }
       entryIndex = ~entryIndex;
-      System.arraycopy(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_);
+      storage_.putBytes(KEYS, (long) entryIndex * keySizeBytes_, key);
       curCountEntries_++;
     }
     return entryIndex;
@@ -156,7 +183,7 @@ final class SingleCouponMap extends Map {
 
   @Override
   CouponsIterator getCouponsIterator(final int entryIndex) {
-    return new CouponsIterator(couponsArr_, entryIndex, 1);
+    return new CouponsIterator(storage_, COUPONS, entryIndex, 1);
   }
 
   @Override
@@ -180,25 +207,25 @@ final class SingleCouponMap extends Map {
   }
 
   boolean isCoupon(final int entryIndex) {
-    return !isBitSet(stateArr_, entryIndex);
+    return storage_.isBitClear(STATE, entryIndex);
   }
 
   short getCoupon(final int entryIndex) {
-    return couponsArr_[entryIndex];
+    return storage_.getShort(COUPONS, entryIndex);
   }
 
   void setCoupon(final int entryIndex, final short coupon, final boolean isLevel) {
-    couponsArr_[entryIndex] = coupon;
+    storage_.putShort(COUPONS, entryIndex, coupon);
     if (isLevel) {
-      setBit(stateArr_, entryIndex);
+      storage_.setBit(STATE, entryIndex);
     } else {
-      clearBit(stateArr_, entryIndex);
+      storage_.clearBit(STATE, entryIndex);
     }
   }
 
   void setLevel(final int entryIndex, final int level) {
-    couponsArr_[entryIndex] = (short) level;
-    setBit(stateArr_, entryIndex);
+    storage_.putShort(COUPONS, entryIndex, (short) level);
+    storage_.setBit(STATE, entryIndex);
   }
 
   @Override
@@ -223,32 +250,48 @@ final class SingleCouponMap extends Map {
 
   @Override
   long getMemoryUsageBytes() {
-    final long arrays = keysArr_.length
-        + (long)couponsArr_.length * Short.BYTES
-        + stateArr_.length;
+    final long arrays = storage_.getCapacityBytes();
     final long other = 4 * 4 + 8;
     return arrays + other;
   }
 
+  @Override
+  MapStorage getStorage() {
+    return storage_;
+  }
+
+  @Override
+  void putLevelHeader(final WritableMemory mem, final long offsetBytes) {
+    mem.putInt(offsetBytes + TABLE_ENTRIES_INT, tableEntries_);
+    mem.putInt(offsetBytes + ACTIVE_ENTRIES_INT, curCountEntries_);
+    mem.putInt(offsetBytes + DELETED_ENTRIES_INT, 0);
+    mem.putInt(offsetBytes + COUPONS_PER_KEY_INT, 1);
+    mem.putLong(offsetBytes + SEGMENT_BYTES_LONG, storage_.getCapacityBytes());
+  }
+
+  private void setTable(final int tableEntries, final MapStorage storage) {
+    tableEntries_ = tableEntries;
+    capacityEntries_ = (int)(tableEntries * COUPON_MAP_GROW_TRIGGER_FACTOR);
+    entrySizeBytes_ = updateEntrySizeBytes(tableEntries, keySizeBytes_);
+    storage_ = storage;
+  }
+
   private void resize() {
-    final byte[] oldKeysArr = keysArr_;
-    final short[] oldCouponsArr = couponsArr_;
-    final byte[] oldStateArr = stateArr_;
+    final MapStorage oldStorage = storage_;
     final int oldTableEntries = tableEntries_;
-    tableEntries_ = nextPrime((int) (curCountEntries_ / COUPON_MAP_TARGET_FILL_FACTOR));
-    capacityEntries_ = (int)(tableEntries_ * COUPON_MAP_GROW_TRIGGER_FACTOR);
-    keysArr_ = new byte[tableEntries_ * keySizeBytes_];
-    couponsArr_ = new short[tableEntries_];
-    stateArr_ = new byte[(int) Math.ceil(tableEntries_ / 8.0)];
-    entrySizeBytes_ = updateEntrySizeBytes(tableEntries_, keySizeBytes_);
+    final int newTableEntries = nextPrime((int) (curCountEntries_ / COUPON_MAP_TARGET_FILL_FACTOR));
+    setTable(newTableEntries, allocateStorage(ARRAY_TYPES,
+        arrayLengths(newTableEntries, keySizeBytes_), oldStorage));
     //move the data
+    final byte[] key = new byte[keySizeBytes_];
     for (int i = 0; i < oldTableEntries; i++) {
-      if (oldCouponsArr[i] != 0) {
-        final byte[] key =
-            Arrays.copyOfRange(oldKeysArr, i * keySizeBytes_, i * keySizeBytes_ + keySizeBytes_);
-        insertEntry(key, oldCouponsArr[i], isBitSet(oldStateArr, i));
+      final short coupon = oldStorage.getShort(COUPONS, i);
+      if (coupon != 0) {
+        oldStorage.getBytes(KEYS, (long) i * keySizeBytes_, key);
+        insertEntry(key, coupon, oldStorage.isBitSet(STATE, i));
       }
     }
+    oldStorage.release(storage_);
   }
 
   // for internal use during resize, so no resize check here
@@ -258,8 +301,8 @@ final class SingleCouponMap extends Map {
     final int stride = getStride(hash[1], tableEntries_);
     final int loopIndex = entryIndex;
     do {
-      if (couponsArr_[entryIndex] == 0) {
-        System.arraycopy(key, 0, keysArr_, entryIndex * keySizeBytes_, keySizeBytes_);
+      if (getCoupon(entryIndex) == 0) {
+        storage_.putBytes(KEYS, (long) entryIndex * keySizeBytes_, key);
         setCoupon(entryIndex, (short)coupon, setStateOne);
         return;
       }
@@ -268,6 +311,10 @@ final class SingleCouponMap extends Map {
     throw new SketchesArgumentException("Key not found and no empty slots!");
   }
 
+  private static long[] arrayLengths(final int tableEntries, final int keySizeBytes) {
+    return new long[] {tableEntries, (long) tableEntries * keySizeBytes, stateArrBytes(tableEntries)};
+  }
+
   private static final double updateEntrySizeBytes(final int tableEntries, final int keySizeBytes) {
     final double byteFraction = Math.ceil(tableEntries / 8.0) / tableEntries;
     return keySizeBytes + Short.BYTES + byteFraction;
@@ -19,7 +19,13 @@
 
 package org.apache.datasketches.hllmap;
 
+import java.util.Objects;
+
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * This is a real-time, key-value HLL mapping sketch that tracks approximate unique counts of
@@ -76,6 +82,40 @@ import org.apache.datasketches.SketchesArgumentException;
  * In this same package is the VariousMapRSETest class that was used to generate the error plots
  * for the web site. Please refer to the javadocs for those classes for more information.
  *
+ * <p>A snapshot of the whole hierarchy is a small preamble followed by one level header and one
+ * segment per active level, where the segment holds all arrays of the level back to back.
+ * A snapshot can be restored with {@link #heapify(Memory)}, which copies the segments into heap
+ * arrays, or with {@link #writableWrap(WritableMemory)}, which uses regions of the given
+ * WritableMemory directly. Wrapping a memory-mapped snapshot file restores the map without reading
+ * or copying the segments up front.
+ *
+ * <p>A map constructed with a {@link MemoryRequestServer} obtains the storage of all levels from
+ * that server, one segment per level, which the server may allocate off-heap. When a level grows
+ * or shrinks, its new segment is requested from the server, the entries are rehashed directly
+ * from the old segment into the new one, and the old segment is immediately returned to the
+ * server. No heap arrays are created or copied, so the size of the map does not affect garbage
+ * collection. {@link #close()} returns all segments to the server. The map algorithms are the
+ * same for heap arrays and segments.
+ *
+ * <p>The layout of a snapshot is:
+ * <pre>
+ * Preamble (16 bytes):
+ *   byte 0: serialization version
+ *   byte 1: number of levels
+ *   bytes 4-7: key size in bytes
+ *   bytes 8-11: bitmap of the levels present in the image
+ *
+ * For each level present, in increasing level order:
+ *   Level header (32 bytes):
+ *     bytes 0-3: table entries
+ *     bytes 4-7: active entries
+ *     bytes 8-11: deleted entries
+ *     bytes 12-15: max coupons per key, or k for the HLL level
+ *     bytes 16-23: segment bytes
+ *     bytes 24-27: growth factor (HLL level only)
+ *   Segment, padded to a multiple of 8 bytes
+ * </pre>
+ *
  * @author Lee Rhodes
  * @author Alexander Saydakov
  * @author Kevin Lang
@@ -87,10 +127,19 @@ public class UniqueCountMap {
   private static final int HLL_K = 1024;
   private static final int INITIAL_NUM_ENTRIES = 1000003;
   private static final int MIN_INITIAL_NUM_ENTRIES = 157;
+  private static final byte SER_VER = 1;
+  //snapshot preamble
+  private static final int SER_VER_BYTE = 0;
+  private static final int NUM_LEVELS_BYTE = 1;
+  private static final int KEY_SIZE_BYTES_INT = 4;
+  private static final int LEVELS_BITMAP_INT = 8;
+  private static final int PREAMBLE_BYTES = 16;
   private final int keySizeBytes_;
+  private final MemoryRequestServer memReqSvr_; //null for heap arrays
 
   /** TraverseCouponMap or HashCouponMap instances */
   private final Map[] maps_;
+  private boolean closed_ = false;
 
   /**
    * Constructs a UniqueCountMap with an initial capacity of one million entries.
@@ -108,11 +157,197 @@ public class UniqueCountMap {
    * @param keySizeBytes must be at least 4 bytes to have sufficient entropy
    */
   public UniqueCountMap(final int initialNumEntries, final int keySizeBytes) {
+    this(initialNumEntries, keySizeBytes, null);
+  }
+
+  /**
+   * Constructs a UniqueCountMap with a given initial number of entries, where the storage of all
+   * internal maps is obtained from the given MemoryRequestServer.
+   *
+   * <p>The first segment of each internal map is requested with an empty WritableMemory as the
+   * current memory, and every segment that is no longer used is returned with
+   * {@link MemoryRequestServer#requestClose(WritableMemory, WritableMemory)}. The remaining
+   * segments are returned by {@link #close()}.</p>
+   *
+   * @param initialNumEntries The initial number of entries provides a tradeoff between
+   * wasted space, if too high, and wasted time resizing the table, if too low.
+   * @param keySizeBytes must be at least 4 bytes to have sufficient entropy
+   * @param memReqSvr the MemoryRequestServer that provides the storage, which may be off-heap.
+   * If null, the storage is allocated on the heap.
+   */
+  public UniqueCountMap(final int initialNumEntries, final int keySizeBytes,
+      final MemoryRequestServer memReqSvr) {
     checkConstructorKeySize(keySizeBytes);
     final int initEntries = Math.max(initialNumEntries, MIN_INITIAL_NUM_ENTRIES);
     keySizeBytes_ = keySizeBytes;
+    memReqSvr_ = memReqSvr;
     maps_ = new Map[NUM_LEVELS]; // includes base level and top level
-    maps_[0] = SingleCouponMap.getInstance(initEntries, keySizeBytes);
+    maps_[0] = SingleCouponMap.getInstance(initEntries, keySizeBytes, memReqSvr);
+  }
+
+  private UniqueCountMap(final int keySizeBytes, final Map[] maps,
+      final MemoryRequestServer memReqSvr) {
+    keySizeBytes_ = keySizeBytes;
+    memReqSvr_ = memReqSvr;
+    maps_ = maps;
+  }
+
+  /**
+   * Returns a heap UniqueCountMap restored from the given snapshot. The snapshot is copied and not
+   * referenced by the returned map.
+   * @param srcMem a snapshot created by {@link #toByteArray()} or {@link #writeTo(WritableMemory)}
+   * @return a heap UniqueCountMap restored from the given snapshot
+   */
+  public static UniqueCountMap heapify(final Memory srcMem) {
+    return restore(srcMem, null, null);
+  }
+
+  /**
+   * Returns a UniqueCountMap restored from the given snapshot, where the storage of all internal
+   * maps is obtained from the given MemoryRequestServer, as with
+   * {@link #UniqueCountMap(int, int, MemoryRequestServer)}. The snapshot is copied and not
+   * referenced by the returned map.
+   * @param srcMem a snapshot created by {@link #toByteArray()} or {@link #writeTo(WritableMemory)}
+   * @param memReqSvr the MemoryRequestServer that provides the storage, which may be off-heap.
+   * @return a UniqueCountMap restored from the given snapshot
+   */
+  public static UniqueCountMap heapify(final Memory srcMem, final MemoryRequestServer memReqSvr) {
+    Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
+    return restore(srcMem, null, memReqSvr);
+  }
+
+  /**
+   * Returns a UniqueCountMap that uses the segments of the given snapshot directly, without
+   * copying them. This is intended for restoring from a memory-mapped snapshot file.
+   *
+   * <p>Updates of the returned map are written through to the given WritableMemory. However, the
+   * level headers and the preamble are not maintained, and a level that needs to grow or shrink
+   * is moved to new heap arrays. The given WritableMemory is therefore a valid snapshot
+   * only until the first update, and a new snapshot must be written with
+   * {@link #writeTo(WritableMemory)} to a different destination.</p>
+   *
+   * @param srcWmem a snapshot created by {@link #toByteArray()} or {@link #writeTo(WritableMemory)}
+   * @return a UniqueCountMap that uses the segments of the given snapshot directly
+   */
+  public static UniqueCountMap writableWrap(final WritableMemory srcWmem) {
+    Objects.requireNonNull(srcWmem, "Parameter 'srcWmem' must not be null");
+    return restore(srcWmem, srcWmem, null);
+  }
+
+  private static UniqueCountMap restore(final Memory srcMem, final WritableMemory srcWmem,
+      final MemoryRequestServer memReqSvr) {
+    Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
+    final long capBytes = srcMem.getCapacity();
+    if (capBytes < PREAMBLE_BYTES) {
+      throw new SketchesArgumentException("Snapshot too small: " + capBytes);
+    }
+    final int serVer = srcMem.getByte(SER_VER_BYTE);
+    final int numLevels = srcMem.getByte(NUM_LEVELS_BYTE);
+    if ((serVer != SER_VER) || (numLevels != NUM_LEVELS)) {
+      throw new SketchesArgumentException("Not a UniqueCountMap snapshot: serVer " + serVer
+          + ", numLevels " + numLevels);
+    }
+    final int keySizeBytes = srcMem.getInt(KEY_SIZE_BYTES_INT);
+    checkConstructorKeySize(keySizeBytes);
+    final int levelsBitmap = srcMem.getInt(LEVELS_BITMAP_INT);
+    if ((levelsBitmap & 1) == 0) {
+      throw new SketchesArgumentException("Corrupt snapshot: base level missing");
+    }
+    final Map[] maps = new Map[NUM_LEVELS];
+    long offset = PREAMBLE_BYTES;
+    for (int level = 0; level < NUM_LEVELS; level++) {
+      if ((levelsBitmap & (1 << level)) == 0) { continue; }
+      if ((offset + Map.LEVEL_HEADER_BYTES) > capBytes) {
+        throw new SketchesArgumentException("Snapshot too small: " + capBytes);
+      }
+      final long segmentBytes = srcMem.getLong(offset + Map.SEGMENT_BYTES_LONG);
+      final long segmentOffset = offset + Map.LEVEL_HEADER_BYTES;
+      if ((segmentBytes < 0) || ((segmentOffset + segmentBytes) > capBytes)) {
+        throw new SketchesArgumentException("Snapshot too small: " + capBytes);
+      }
+      maps[level] = restoreLevel(level, keySizeBytes, srcMem, srcWmem, offset, memReqSvr);
+      offset = segmentOffset + pad8(segmentBytes);
+    }
+    return new UniqueCountMap(keySizeBytes, maps, memReqSvr);
+  }
+
+  private static Map restoreLevel(final int level, final int keySizeBytes, final Memory srcMem,
+      final WritableMemory srcWmem, final long offset, final MemoryRequestServer memReqSvr) {
+    if (level == 0) {
+      return SingleCouponMap.restoreInstance(keySizeBytes, srcMem, srcWmem, offset, memReqSvr);
+    }
+    if (level <= NUM_TRAVERSE_MAPS) {
+      return CouponTraverseMap.restoreInstance(keySizeBytes, srcMem, srcWmem, offset, memReqSvr);
+    }
+    if (level < (NUM_LEVELS - 1)) {
+      return CouponHashMap.restoreInstance(keySizeBytes, srcMem, srcWmem, offset, memReqSvr);
+    }
+    return HllMap.restoreInstance(keySizeBytes, srcMem, srcWmem, offset, memReqSvr);
+  }
+
+  /**
+   * Returns the number of bytes required for a snapshot of this map.
+   * @return the number of bytes required for a snapshot of this map
+   */
+  public long getSerializationBytes() {
+    checkOpen();
+    long bytes = PREAMBLE_BYTES;
+    for (int i = 0; i < maps_.length; i++) {
+      if (maps_[i] != null) {
+        bytes += Map.LEVEL_HEADER_BYTES + pad8(maps_[i].getStorage().getCapacityBytes());
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns a snapshot of this map as a byte array.
+   * Use {@link #writeTo(WritableMemory)} for snapshots larger than a byte array.
+   * @return a snapshot of this map as a byte array
+   */
+  public byte[] toByteArray() {
+    final long bytes = getSerializationBytes();
+    if (bytes > Integer.MAX_VALUE) {
+      throw new SketchesArgumentException("Snapshot too large for a byte array: " + bytes);
+    }
+    final byte[] byteArr = new byte[(int) bytes];
+    writeTo(WritableMemory.writableWrap(byteArr));
+    return byteArr;
+  }
+
+  /**
+   * Writes a snapshot of this map to the start of the given WritableMemory, which may, for example,
+   * be a memory-mapped file. The given WritableMemory must not be the one wrapped by this map.
+   * @param dstWmem the destination, which must have at least {@link #getSerializationBytes()} bytes.
+   */
+  public void writeTo(final WritableMemory dstWmem) {
+    Objects.requireNonNull(dstWmem, "Parameter 'dstWmem' must not be null");
+    checkOpen();
+    final long bytes = getSerializationBytes();
+    if (dstWmem.getCapacity() < bytes) {
+      throw new SketchesArgumentException("Destination too small: " + dstWmem.getCapacity()
+          + " < " + bytes);
+    }
+    dstWmem.clear(0, PREAMBLE_BYTES);
+    dstWmem.putByte(SER_VER_BYTE, SER_VER);
+    dstWmem.putByte(NUM_LEVELS_BYTE, (byte) NUM_LEVELS);
+    dstWmem.putInt(KEY_SIZE_BYTES_INT, keySizeBytes_);
+    int levelsBitmap = 0;
+    long offset = PREAMBLE_BYTES;
+    for (int level = 0; level < maps_.length; level++) {
+      final Map map = maps_[level];
+      if (map == null) { continue; }
+      levelsBitmap |= 1 << level;
+      dstWmem.clear(offset, Map.LEVEL_HEADER_BYTES);
+      map.putLevelHeader(dstWmem, offset);
+      offset += Map.LEVEL_HEADER_BYTES;
+      final MapStorage storage = map.getStorage();
+      final long segmentBytes = storage.getCapacityBytes();
+      storage.writeTo(dstWmem, offset);
+      dstWmem.clear(offset + segmentBytes, pad8(segmentBytes) - segmentBytes);
+      offset += pad8(segmentBytes);
+    }
+    dstWmem.putInt(LEVELS_BITMAP_INT, levelsBitmap);
   }
 
   /**
@@ -126,8 +361,42 @@ public class UniqueCountMap {
     if (key == null) { return Double.NaN; }
     checkMethodKeySize(key);
     if (identifier == null) { return getEstimate(key); }
-    final short coupon = (short) Map.coupon16(identifier);
+    return updateCoupon(key, (short) Map.coupon16(identifier));
+  }
+
+  /**
+   * Updates the map with a block of keys and identifiers. This is equivalent to calling
+   * {@link #update(byte[], byte[])} for each pair in order, but the keys and identifiers are read
+   * from packed arrays of fixed-width entries and no objects are created per pair.
+   * @param keys the packed keys, where key i occupies bytes <i>i * keySizeBytes</i> up to
+   * <i>(i + 1) * keySizeBytes</i>.
+   * @param identifiers the packed identifiers, where identifier i occupies bytes
+   * <i>i * identifierSizeBytes</i> up to <i>(i + 1) * identifierSizeBytes</i>.
+   * @param identifierSizeBytes the size in bytes of each identifier, which must be positive.
+   * @param count the number of key-identifier pairs
+   */
+  public void update(final byte[] keys, final byte[] identifiers, final int identifierSizeBytes,
+      final int count) {
+    Objects.requireNonNull(keys, "Parameter 'keys' must not be null");
+    Objects.requireNonNull(identifiers, "Parameter 'identifiers' must not be null");
+    checkOpen();
+    if ((identifierSizeBytes < 1) || (count < 0)) {
+      throw new SketchesArgumentException("identifierSizeBytes must be > 0 and count must be >= 0: "
+          + identifierSizeBytes + ", " + count);
+    }
+    checkPackedLength(keys.length, keySizeBytes_, count, "keys");
+    checkPackedLength(identifiers.length, identifierSizeBytes, count, "identifiers");
+    final byte[] key = new byte[keySizeBytes_];
+    final long[] hash = new long[2];
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(keys, i * keySizeBytes_, key, 0, keySizeBytes_);
+      final int coupon =
+          Map.coupon16(identifiers, i * identifierSizeBytes, identifierSizeBytes, hash);
+      updateCoupon(key, (short) coupon);
+    }
+  }
 
+  private double updateCoupon(final byte[] key, final short coupon) {
     final int baseMapIndex = maps_[0].findOrInsertKey(key);
     final double baseMapEstimate = maps_[0].update(baseMapIndex, coupon);
     if (baseMapEstimate > 0) { return baseMapEstimate; }
@@ -159,6 +428,55 @@ public class UniqueCountMap {
     return map.getEstimate(key);
   }
 
+  /**
+   * Retrieves the current estimates of unique count for a block of keys.
+   *
+   * <p>The keys are first looked up in the base map, which resolves the estimates of all keys that
+   * have not been promoted and the levels of the others. The promoted keys are then looked up one
+   * level at a time, so each internal map is probed in a single pass. Keys that are not present
+   * get an estimate of zero.</p>
+   *
+   * @param keys the packed keys, where key i occupies bytes <i>i * keySizeBytes</i> up to
+   * <i>(i + 1) * keySizeBytes</i>. The length must be a multiple of the key size.
+   * @param out receives the estimate of key i at index i. It must have at least as many entries as
+   * there are keys.
+   */
+  public void getEstimates(final byte[] keys, final double[] out) {
+    Objects.requireNonNull(keys, "Parameter 'keys' must not be null");
+    Objects.requireNonNull(out, "Parameter 'out' must not be null");
+    checkOpen();
+    if ((keys.length % keySizeBytes_) != 0) {
+      throw new SketchesArgumentException("Length of keys must be a multiple of "
+          + keySizeBytes_ + ": " + keys.length);
+    }
+    final int count = keys.length / keySizeBytes_;
+    if (out.length < count) {
+      throw new SketchesArgumentException("out must have at least " + count + " entries: "
+          + out.length);
+    }
+    final byte[] key = new byte[keySizeBytes_];
+    int levelsBitmap = 0;
+    //pass 1: the base map gives the estimate, or the negative level of a promoted key
+    for (int i = 0; i < count; i++) {
+      System.arraycopy(keys, i * keySizeBytes_, key, 0, keySizeBytes_);
+      final double est = maps_[0].getEstimate(key);
+      out[i] = est;
+      if (est < 0.0) { levelsBitmap |= 1 << -(int) est; }
+    }
+    //pass 2: one pass per level over the promoted keys of that level
+    for (int level = 1; level < NUM_LEVELS; level++) {
+      if ((levelsBitmap & (1 << level)) == 0) { continue; }
+      final Map map = maps_[level];
+      final double levelMarker = -level;
+      for (int i = 0; i < count; i++) {
+        if (out[i] == levelMarker) {
+          System.arraycopy(keys, i * keySizeBytes_, key, 0, keySizeBytes_);
+          out[i] = map.getEstimate(key);
+        }
+      }
+    }
+  }
+
   /**
    * Returns the upper bound cardinality with respect to {@link #getEstimate(byte[])} associated
    * with the given key.
@@ -200,6 +518,7 @@ public class UniqueCountMap {
    * @return the number of active, unique keys across all internal maps
    */
   public int getActiveEntries() {
+    checkOpen();
     return maps_[0].getCurrentCountEntries();
   }
 
@@ -208,6 +527,7 @@ public class UniqueCountMap {
    * @return total bytes used by all internal maps
    */
   public long getMemoryUsageBytes() {
+    checkOpen();
     long total = 0;
     for (int i = 0; i < maps_.length; i++) {
       if (maps_[i] != null) {
@@ -222,6 +542,7 @@ public class UniqueCountMap {
    * @return total bytes used for key storage
    */
   public long getKeyMemoryUsageBytes() {
+    checkOpen();
     long total = 0;
     for (int i = 0; i < maps_.length; i++) {
       if (maps_[i] != null) {
@@ -239,6 +560,31 @@ public class UniqueCountMap {
     return (double) (getMemoryUsageBytes() - getKeyMemoryUsageBytes()) / getActiveEntries();
   }
 
+  /**
+   * Returns the storage of all internal maps to the MemoryRequestServer given at construction,
+   * if any, and drops all references to it. With an off-heap MemoryRequestServer this releases
+   * the native memory deterministically. This map cannot be used afterwards, and calling this
+   * method again has no effect.
+   */
+  public void close() {
+    if (closed_) { return; }
+    closed_ = true;
+    for (int i = 0; i < maps_.length; i++) {
+      if (maps_[i] != null) {
+        maps_[i].close();
+        maps_[i] = null;
+      }
+    }
+  }
+
+  /**
+   * Returns true if this map has been closed.
+   * @return true if this map has been closed.
+   */
+  public boolean isClosed() {
+    return closed_;
+  }
+
   /**
    * Returns the number of active internal maps so far.
    * Only the base map is initialized in the constructor, so this method would return 1.
@@ -337,16 +683,34 @@ public class UniqueCountMap {
     if (maps_[level] == null) {
       final int newLevelCapacity = 1 << level;
       if (level <= NUM_TRAVERSE_MAPS) {
-        maps_[level] = CouponTraverseMap.getInstance(keySizeBytes_, newLevelCapacity);
+        maps_[level] = CouponTraverseMap.getInstance(keySizeBytes_, newLevelCapacity, memReqSvr_);
       } else if (level < (maps_.length - 1)) {
-        maps_[level] = CouponHashMap.getInstance(keySizeBytes_, newLevelCapacity);
+        maps_[level] = CouponHashMap.getInstance(keySizeBytes_, newLevelCapacity, memReqSvr_);
       } else {
-        maps_[level] = HllMap.getInstance(keySizeBytes_, HLL_K);
+        maps_[level] = HllMap.getInstance(keySizeBytes_, HLL_K, memReqSvr_);
       }
     }
     return maps_[level];
   }
 
+  private void checkOpen() {
+    if (closed_) {
+      throw new SketchesStateException("This UniqueCountMap has been closed.");
+    }
+  }
+
+  private static void checkPackedLength(final int length, final int entryBytes, final int count,
+      final String name) {
+    if (length < ((long) entryBytes * count)) {
+      throw new SketchesArgumentException("Length of " + name + " must be at least "
+          + ((long) entryBytes * count) + ": " + length);
+    }
+  }
+
+  private static long pad8(final long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
   private static final void checkConstructorKeySize(final int keySizeBytes) {
     if (keySizeBytes < 4) {
       throw new SketchesArgumentException("KeySizeBytes must be >= 4: " + keySizeBytes);
@@ -354,6 +718,7 @@ public class UniqueCountMap {
   }
 
   private final void checkMethodKeySize(final byte[] key) {
+    checkOpen();
     if (key.length != keySizeBytes_) {
       throw new SketchesArgumentException("Key size must be " + keySizeBytes_ + " bytes.");
     }
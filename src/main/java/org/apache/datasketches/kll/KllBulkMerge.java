@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.datasketches.kll;
+
+import static org.apache.datasketches.ForkJoinChunks.reduceChunks;
+import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.kll.KllSketch.SketchType;
+
+/**
+ * Merging of many KLL sketches of the same type into one, as a fork-join tree.
+ *
+ * <p>The inputs are split into contiguous chunks. Each chunk is merged into a new heap sketch with a
+ * single call that gathers the same-level items of all of its sketches before compacting, and the
+ * partial results are then merged pairwise up the tree. Since every merge is a valid KLL merge, the
+ * result has the same error guarantees as merging the inputs one at a time.</p>
+ */
+final class KllBulkMerge {
+
+  private KllBulkMerge() {}
+
+  /**
+   * Returns a new heap sketch of the given type and k that is the merge of the given sketches.
+   * @param sketches the given sketches, which must all be of the given type
+   * @param k the k of the result
+   * @param sketchType the type of the result
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new heap sketch that is the merge of the given sketches
+   */
+  static KllSketch mergeAll(final List<? extends KllSketch> sketches, final int k,
+      final SketchType sketchType, final ForkJoinPool pool) {
+    final int n = sketches.size();
+    if (n == 0) { return newHeapSketch(k, sketchType); }
+    return reduceChunks(n, (lo, hi) -> mergeChunk(sketches.subList(lo, hi), k, sketchType),
+        (left, right) -> {
+          merge(left, Collections.singletonList(right));
+          return left;
+        }, pool);
+  }
+
+  private static KllSketch mergeChunk(final List<? extends KllSketch> chunk, final int k,
+      final SketchType sketchType) {
+    final KllSketch result = newHeapSketch(k, sketchType);
+    merge(result, chunk);
+    return result;
+  }
+
+  private static KllSketch newHeapSketch(final int k, final SketchType sketchType) {
+    return (sketchType == DOUBLES_SKETCH)
+        ? KllDoublesSketch.newHeapInstance(k)
+        : KllFloatsSketch.newHeapInstance(k);
+  }
+
+  private static void merge(final KllSketch mine, final List<? extends KllSketch> others) {
+    if (mine.sketchType == DOUBLES_SKETCH) {
+      KllDoublesHelper.mergeDoubleImpl(mine, others);
+    } else {
+      KllFloatsHelper.mergeFloatImpl(mine, others);
+    }
+  }
+
+}
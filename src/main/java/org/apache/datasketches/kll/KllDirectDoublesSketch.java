@@ -187,6 +187,14 @@ class KllDirectDoublesSketch extends KllDoublesSketch {
     wmem.putDouble(offset, value);
   }
 
+  @Override
+  void setDoubleItemsArrayAt(final int index, final double[] values, final int offset, final int length) {
+    if (readOnly) { kllSketchThrow(TGT_IS_READ_ONLY); }
+    final int memOffset =
+        DATA_START_ADR + getLevelsArray().length * Integer.BYTES + 2 * Double.BYTES + index * Double.BYTES;
+    wmem.putDoubleArray(memOffset, values, offset, length);
+  }
+
   @Override
   void setLevelZeroSorted(final boolean sorted) {
     if (readOnly) { kllSketchThrow(TGT_IS_READ_ONLY); }
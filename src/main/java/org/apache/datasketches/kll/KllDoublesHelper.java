@@ -25,6 +25,7 @@ import static org.apache.datasketches.Util.isEven;
 import static org.apache.datasketches.Util.isOdd;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.datasketches.SketchesArgumentException;
@@ -172,7 +173,7 @@ final class KllDoublesHelper {
 
       // notice that workbuf is being used as both the input and output
       final int[] result = generalDoublesCompress(mine.getK(), mine.getM(), provisionalNumLevels,
-          workbuf, worklevels, workbuf, outlevels, mine.isLevelZeroSorted(), KllSketch.random);
+          workbuf, worklevels, workbuf, outlevels, mine.isLevelZeroSorted(), mine.getRandom());
       final int targetItemCount = result[1]; //was finalCapacity. Max size given k, m, numLevels
       final int curItemCount = result[2]; //was finalPop
 
@@ -227,6 +228,108 @@ final class KllDoublesHelper {
     assert KllHelper.sumTheSampleWeights(mine.getNumLevels(), mine.getLevelsArray()) == mine.getN();
   }
 
+  /**
+   * Merges all of the other sketches into this one at once. The items of each level of this sketch
+   * and of all the other sketches are first gathered into one work buffer, and then the combined
+   * levels are compacted in a single pass, so each level is compacted at most once no matter how
+   * many sketches are merged.
+   * @param mine the current sketch
+   * @param others the sketches to merge into the current sketch
+   */
+  static void mergeDoubleImpl(final KllSketch mine, final List<? extends KllSketch> others) {
+    final int myNumLevels = mine.getNumLevels();
+    final int[] myLevelsArr = mine.getLevelsArray();
+    long finalN = mine.getN();
+    int myNewMinK = mine.getMinK();
+    double newMin = mine.getMinDoubleValue();
+    double newMax = mine.getMaxDoubleValue();
+    int provisionalNumLevels = myNumLevels;
+    for (final KllSketch other : others) {
+      if (other.isEmpty()) { continue; }
+      finalN += other.getN();
+      if (other.isEstimationMode()) { myNewMinK = min(myNewMinK, other.getMinK()); }
+      newMin = resolveDoubleMinValue(newMin, other.getMinDoubleValue());
+      newMax = resolveDoubleMaxValue(newMax, other.getMaxDoubleValue());
+      if (!other.isCompactSingleItem()) { provisionalNumLevels = max(provisionalNumLevels, other.getNumLevels()); }
+    }
+    if (finalN == mine.getN()) { return; }
+
+    //size each combined level
+    final int ub = KllHelper.ubOnNumLevels(finalN);
+    final int[] worklevels = new int[ub + 2]; // ub+1 does not work
+    final int[] outlevels  = new int[ub + 2];
+    for (int lvl = 0; lvl < myNumLevels; lvl++) {
+      worklevels[lvl + 1] += KllHelper.currentLevelSize(lvl, myNumLevels, myLevelsArr);
+    }
+    for (final KllSketch other : others) {
+      if (other.isEmpty()) { continue; }
+      if (other.isCompactSingleItem()) { worklevels[1]++; continue; }
+      final int otherNumLevels = other.getNumLevels();
+      final int[] otherLevelsArr = other.getLevelsArray();
+      for (int lvl = 0; lvl < otherNumLevels; lvl++) {
+        worklevels[lvl + 1] += KllHelper.currentLevelSize(lvl, otherNumLevels, otherLevelsArr);
+      }
+    }
+    for (int lvl = 0; lvl < provisionalNumLevels; lvl++) {
+      worklevels[lvl + 1] += worklevels[lvl];
+    }
+
+    //gather the levels of all sketches
+    final double[] workbuf = new double[worklevels[provisionalNumLevels]];
+    final int[] fill = Arrays.copyOf(worklevels, provisionalNumLevels);
+    final double[] myDoubleItemsArr = mine.getDoubleItemsArray();
+    for (int lvl = 0; lvl < myNumLevels; lvl++) {
+      final int pop = KllHelper.currentLevelSize(lvl, myNumLevels, myLevelsArr);
+      System.arraycopy(myDoubleItemsArr, myLevelsArr[lvl], workbuf, fill[lvl], pop);
+      fill[lvl] += pop;
+    }
+    for (final KllSketch other : others) {
+      if (other.isEmpty()) { continue; }
+      if (other.isCompactSingleItem()) { workbuf[fill[0]++] = other.getDoubleSingleItem(); continue; }
+      final int otherNumLevels = other.getNumLevels();
+      final int[] otherLevelsArr = other.getLevelsArray();
+      final double[] otherDoubleItemsArr = other.getDoubleItemsArray();
+      for (int lvl = 0; lvl < otherNumLevels; lvl++) {
+        final int pop = KllHelper.currentLevelSize(lvl, otherNumLevels, otherLevelsArr);
+        System.arraycopy(otherDoubleItemsArr, otherLevelsArr[lvl], workbuf, fill[lvl], pop);
+        fill[lvl] += pop;
+      }
+    }
+    for (int lvl = 1; lvl < provisionalNumLevels; lvl++) { //each level above zero is a run of sorted runs
+      Arrays.sort(workbuf, worklevels[lvl], worklevels[lvl + 1]);
+    }
+
+    // notice that workbuf is being used as both the input and output
+    final int[] result = generalDoublesCompress(mine.getK(), mine.getM(), provisionalNumLevels,
+        workbuf, worklevels, workbuf, outlevels, false, mine.getRandom());
+    final int myNewNumLevels = result[0];
+    final int targetItemCount = result[1];
+    final int curItemCount = result[2];
+    assert myNewNumLevels <= ub;
+
+    final double[] myNewDoubleItemsArr = new double[targetItemCount];
+    final int freeSpaceAtBottom = targetItemCount - curItemCount;
+    System.arraycopy(workbuf, outlevels[0], myNewDoubleItemsArr, freeSpaceAtBottom, curItemCount);
+    final int theShift = freeSpaceAtBottom - outlevels[0];
+    final int[] myNewLevelsArr = new int[max(myLevelsArr.length, myNewNumLevels + 1)];
+    for (int lvl = 0; lvl < myNewNumLevels + 1; lvl++) { // includes the "extra" index
+      myNewLevelsArr[lvl] = outlevels[lvl] + theShift;
+    }
+
+    if (mine.updatableMemFormat) {
+      mine.wmem = KllHelper.memorySpaceMgmt(mine, myNewLevelsArr.length, myNewDoubleItemsArr.length);
+    }
+    mine.setN(finalN);
+    mine.setMinK(myNewMinK);
+    mine.setNumLevels(myNewNumLevels);
+    mine.setLevelsArray(myNewLevelsArr);
+    mine.setDoubleItemsArray(myNewDoubleItemsArr);
+    mine.setLevelZeroSorted(false);
+    mine.setMinDoubleValue(newMin);
+    mine.setMaxDoubleValue(newMax);
+    assert KllHelper.sumTheSampleWeights(mine.getNumLevels(), mine.getLevelsArray()) == mine.getN();
+  }
+
   static void mergeSortedDoubleArrays(
       final double[] bufA, final int startA, final int lenA,
       final double[] bufB, final int startB, final int lenB,
@@ -312,6 +415,64 @@ final class KllDoublesHelper {
     mine.setDoubleItemsArrayAt(nextPos, value);
   }
 
+  /**
+   * Updates the given sketch with a batch of values. Instead of one write per value, the free space
+   * below level 0 is filled with one block copy, and the sketch is compacted only when that space is
+   * exhausted. NaNs are ignored.
+   * @param mine the current sketch
+   * @param values the given array of values
+   * @param offset the index of the first value
+   * @param length the number of values
+   * @param sorted if true, the values must be in ascending order. A block of sorted values that fills
+   * an empty level 0 leaves level 0 sorted, so its next compaction skips the sort.
+   */
+  static void updateDoubles(final KllDoublesSketch mine, final double[] values, final int offset,
+      final int length, final boolean sorted) {
+    int numNaNs = 0;
+    double batchMin = Double.NaN;
+    double batchMax = Double.NaN;
+    for (int i = offset; i < offset + length; i++) {
+      final double value = values[i];
+      if (Double.isNaN(value)) { numNaNs++; continue; }
+      if (sorted && value < batchMax) {
+        throw new SketchesArgumentException("Values must be in ascending order, not at index: " + i);
+      }
+      batchMin = resolveDoubleMinValue(batchMin, value);
+      batchMax = resolveDoubleMaxValue(batchMax, value);
+    }
+    final int srcLen = length - numNaNs;
+    if (srcLen == 0) { return; }
+    double[] src = values;
+    int srcOff = offset;
+    if (numNaNs > 0) {
+      src = new double[srcLen];
+      srcOff = 0;
+      int j = 0;
+      for (int i = offset; i < offset + length; i++) {
+        if (!Double.isNaN(values[i])) { src[j++] = values[i]; }
+      }
+    }
+    mine.setMinDoubleValue(resolveDoubleMinValue(mine.getMinDoubleValue(), batchMin));
+    mine.setMaxDoubleValue(resolveDoubleMaxValue(mine.getMaxDoubleValue(), batchMax));
+
+    int i = srcOff;
+    final int lim = srcOff + srcLen;
+    while (i < lim) {
+      if (mine.getLevelsArray()[0] == 0) { KllHelper.compressWhileUpdatingSketch(mine); }
+      final int[] myLevelsArr = mine.getLevelsArray(); //LevelsArr could be expanded
+      final int free = myLevelsArr[0];
+      final boolean levelZeroEmpty = free == myLevelsArr[1];
+      final int blockLen = min(free, lim - i);
+      final int nextPos = free - blockLen;
+      // a sorted block stays in ascending order at ascending positions
+      mine.setDoubleItemsArrayAt(nextPos, src, i, blockLen);
+      mine.setLevelsArrayAt(0, nextPos);
+      mine.setN(mine.getN() + blockLen);
+      mine.setLevelZeroSorted(sorted && levelZeroEmpty);
+      i += blockLen;
+    }
+  }
+
   /**
    * Compression algorithm used to merge higher levels.
    * <p>Here is what we do for each level:</p>
@@ -21,13 +21,20 @@ package org.apache.datasketches.kll;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
+import static org.apache.datasketches.Util.checkBounds;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryUpdatableFormatFlag;
 import static org.apache.datasketches.kll.KllSketch.Error.MUST_NOT_BE_UPDATABLE_FORMAT;
 import static org.apache.datasketches.kll.KllSketch.Error.MUST_NOT_CALL;
+import static org.apache.datasketches.kll.KllSketch.Error.SRC_MUST_BE_DOUBLE;
 import static org.apache.datasketches.kll.KllSketch.Error.TGT_IS_READ_ONLY;
 import static org.apache.datasketches.kll.KllSketch.Error.kllSketchThrow;
+import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.MemoryRequestServer;
@@ -127,8 +134,11 @@ public abstract class KllDoublesSketch extends KllSketch {
   public static KllDoublesSketch wrap(final Memory srcMem) {
     Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
     final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
+    if (!memVal.doublesSketch) { Error.kllSketchThrow(SRC_MUST_BE_DOUBLE); }
     if (memVal.updatableMemFormat) {
-      return new KllDirectDoublesSketch((WritableMemory) srcMem, null, memVal);
+      //a read only view, so that a writable srcMem does not require a MemoryRequestServer
+      final Memory roMem = srcMem.isReadOnly() ? srcMem : srcMem.region(0, srcMem.getCapacity());
+      return new KllDirectDoublesSketch((WritableMemory) roMem, null, memVal);
     } else {
       return new KllDirectCompactDoublesSketch(srcMem, memVal);
     }
@@ -146,6 +156,7 @@ public abstract class KllDoublesSketch extends KllSketch {
       final MemoryRequestServer memReqSvr) {
     Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
     final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
+    if (!memVal.doublesSketch) { Error.kllSketchThrow(SRC_MUST_BE_DOUBLE); }
     if (memVal.updatableMemFormat) {
       if (!memVal.readOnly) {
         Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
@@ -155,6 +166,73 @@ public abstract class KllDoublesSketch extends KllSketch {
       return new KllDirectCompactDoublesSketch(srcMem, memVal);
     }
   }
+  /**
+   * Returns a new heap sketch that is the merge of all of the given sketches, using the common
+   * ForkJoinPool. See {@link #mergeAll(Collection, ForkJoinPool)}.
+   * @param sketches the given KllDoublesSketches
+   * @return a new heap sketch that is the merge of all of the given sketches
+   */
+  public static KllDoublesSketch mergeAll(final Collection<? extends KllSketch> sketches) {
+    return mergeAll(sketches, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a new heap sketch that is the merge of all of the given sketches. The sketches are
+   * merged in parallel by the given ForkJoinPool as a tree: each task gathers the same-level items
+   * of a group of sketches and compacts them once, and the partial results are merged pairwise.
+   * The result is statistically equivalent to merging the sketches one at a time.
+   * Its <i>k</i> is the largest <i>k</i> of the given sketches, or <i>DEFAULT_K</i> if there are
+   * none, and its accuracy is limited by the smallest <i>k</i>, as for {@link #merge(KllSketch)}.
+   *
+   * <p>The given sketches are not modified, and must not be modified while this method runs.</p>
+   *
+   * @param sketches the given KllDoublesSketches
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new heap sketch that is the merge of all of the given sketches
+   */
+  public static KllDoublesSketch mergeAll(final Collection<? extends KllSketch> sketches,
+      final ForkJoinPool pool) {
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final List<KllSketch> nonEmpty = new ArrayList<>(sketches.size());
+    int k = 0;
+    for (final KllSketch sketch : sketches) {
+      if (!sketch.isDoublesSketch()) { kllSketchThrow(SRC_MUST_BE_DOUBLE); }
+      k = max(k, sketch.getK());
+      if (!sketch.isEmpty()) { nonEmpty.add(sketch); }
+    }
+    return (KllDoublesSketch) KllBulkMerge.mergeAll(nonEmpty, (k == 0) ? DEFAULT_K : k, DOUBLES_SKETCH, pool);
+  }
+
+  /**
+   * Returns a new heap sketch that is the merge of all of the given Memory images of
+   * KllDoublesSketches, using the common ForkJoinPool. See {@link #mergeAllImages(List, ForkJoinPool)}.
+   * @param srcMems the given read only Memory images
+   * @return a new heap sketch that is the merge of all of the given images
+   */
+  public static KllDoublesSketch mergeAllImages(final List<? extends Memory> srcMems) {
+    return mergeAllImages(srcMems, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a new heap sketch that is the merge of all of the given Memory images of
+   * KllDoublesSketches, compact or updatable. The images are wrapped rather than heapified, and
+   * then merged as by {@link #mergeAll(Collection, ForkJoinPool)}.
+   * The given Memory objects are not modified and links to them are not retained.
+   * Every image is wrapped, and so checked to be of a KllDoublesSketch, before any merging starts.
+   * @param srcMems the given read only Memory images
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new heap sketch that is the merge of all of the given images
+   */
+  public static KllDoublesSketch mergeAllImages(final List<? extends Memory> srcMems, final ForkJoinPool pool) {
+    Objects.requireNonNull(srcMems, "Parameter 'srcMems' must not be null");
+    final List<KllDoublesSketch> sketches = new ArrayList<>(srcMems.size());
+    for (final Memory srcMem : srcMems) {
+      sketches.add(wrap(srcMem));
+    }
+    return mergeAll(sketches, pool);
+  }
+
 
   /**
    * Returns an approximation to the Cumulative Distribution Function (CDF), which is the
@@ -341,6 +419,48 @@ public abstract class KllDoublesSketch extends KllSketch {
     KllDoublesHelper.updateDouble(this, value);
   }
 
+  /**
+   * Updates this sketch with the given range of data items. This is equivalent to updating the
+   * sketch with each item in turn, but the items are copied into the sketch in blocks.
+   *
+   * @param values an array of items from a stream of items. NaNs are ignored.
+   * @param offset the index of the first item to update with
+   * @param length the number of items to update with
+   */
+  public void update(final double[] values, final int offset, final int length) {
+    if (readOnly) { kllSketchThrow(TGT_IS_READ_ONLY); }
+    Objects.requireNonNull(values, "Parameter 'values' must not be null");
+    checkBounds(offset, length, values.length);
+    KllDoublesHelper.updateDoubles(this, values, offset, length, false);
+  }
+
+  /**
+   * Updates this sketch with the given range of data items, which must be in ascending order, such as
+   * a sorted block of samples. This is equivalent to updating the sketch with each item in turn,
+   * but the items are copied into the sketch in blocks, and a block that fills an empty level zero
+   * does not need to be sorted again when that level is compacted.
+   *
+   * @param values an array of items from a stream of items in ascending order. NaNs are ignored.
+   * @param offset the index of the first item to update with
+   * @param length the number of items to update with
+   * @throws org.apache.datasketches.SketchesArgumentException if the items are not in ascending order.
+   */
+  public void updateSorted(final double[] values, final int offset, final int length) {
+    if (readOnly) { kllSketchThrow(TGT_IS_READ_ONLY); }
+    Objects.requireNonNull(values, "Parameter 'values' must not be null");
+    checkBounds(offset, length, values.length);
+    KllDoublesHelper.updateDoubles(this, values, offset, length, true);
+  }
+
+  /**
+   * Copies the given range of values into the items array, starting at the given index.
+   * @param index the index of the items array to copy the first value to
+   * @param values the given array of values
+   * @param offset the index of the first value to copy
+   * @param length the number of values to copy
+   */
+  abstract void setDoubleItemsArrayAt(int index, double[] values, int offset, int length);
+
   @Override //Artifact of inheritance
   float[] getFloatItemsArray() { kllSketchThrow(MUST_NOT_CALL); return null; }
 
@@ -362,4 +482,28 @@ public abstract class KllDoublesSketch extends KllSketch {
   @Override //Artifact of inheritance
   void setMinFloatValue(final float value) { kllSketchThrow(MUST_NOT_CALL); }
 
+  @Override //Artifact of inheritance
+  long[] getLongItemsArray() { kllSketchThrow(MUST_NOT_CALL); return null; }
+
+  @Override //Artifact of inheritance
+  long getLongSingleItem() { kllSketchThrow(MUST_NOT_CALL); return 0; }
+
+  @Override //Artifact of inheritance
+  long getMaxLongValue() { kllSketchThrow(MUST_NOT_CALL); return 0; }
+
+  @Override //Artifact of inheritance
+  long getMinLongValue() { kllSketchThrow(MUST_NOT_CALL); return 0; }
+
+  @Override //Artifact of inheritance
+  void setLongItemsArray(final long[] longItems) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setLongItemsArrayAt(final int index, final long value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMaxLongValue(final long value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMinLongValue(final long value) { kllSketchThrow(MUST_NOT_CALL); }
+
 }
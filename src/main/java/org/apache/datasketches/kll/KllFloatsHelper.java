@@ -25,6 +25,7 @@ import static org.apache.datasketches.Util.isEven;
 import static org.apache.datasketches.Util.isOdd;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.datasketches.SketchesArgumentException;
@@ -172,7 +173,7 @@ final class KllFloatsHelper {
 
       // notice that workbuf is being used as both the input and output
       final int[] result = generalFloatsCompress(mine.getK(), mine.getM(), provisionalNumLevels,
-          workbuf, worklevels, workbuf, outlevels, mine.isLevelZeroSorted(), KllSketch.random);
+          workbuf, worklevels, workbuf, outlevels, mine.isLevelZeroSorted(), mine.getRandom());
       final int targetItemCount = result[1]; //was finalCapacity. Max size given k, m, numLevels
       final int curItemCount = result[2]; //was finalPop
 
@@ -227,6 +228,108 @@ final class KllFloatsHelper {
     assert KllHelper.sumTheSampleWeights(mine.getNumLevels(), mine.getLevelsArray()) == mine.getN();
   }
 
+  /**
+   * Merges all of the other sketches into this one at once. The items of each level of this sketch
+   * and of all the other sketches are first gathered into one work buffer, and then the combined
+   * levels are compacted in a single pass, so each level is compacted at most once no matter how
+   * many sketches are merged.
+   * @param mine the current sketch
+   * @param others the sketches to merge into the current sketch
+   */
+  static void mergeFloatImpl(final KllSketch mine, final List<? extends KllSketch> others) {
+    final int myNumLevels = mine.getNumLevels();
+    final int[] myLevelsArr = mine.getLevelsArray();
+    long finalN = mine.getN();
+    int myNewMinK = mine.getMinK();
+    float newMin = mine.getMinFloatValue();
+    float newMax = mine.getMaxFloatValue();
+    int provisionalNumLevels = myNumLevels;
+    for (final KllSketch other : others) {
+      if (other.isEmpty()) { continue; }
+      finalN += other.getN();
+      if (other.isEstimationMode()) { myNewMinK = min(myNewMinK, other.getMinK()); }
+      newMin = resolveFloatMinValue(newMin, other.getMinFloatValue());
+      newMax = resolveFloatMaxValue(newMax, other.getMaxFloatValue());
+      if (!other.isCompactSingleItem()) { provisionalNumLevels = max(provisionalNumLevels, other.getNumLevels()); }
+    }
+    if (finalN == mine.getN()) { return; }
+
+    //size each combined level
+    final int ub = KllHelper.ubOnNumLevels(finalN);
+    final int[] worklevels = new int[ub + 2]; // ub+1 does not work
+    final int[] outlevels  = new int[ub + 2];
+    for (int lvl = 0; lvl < myNumLevels; lvl++) {
+      worklevels[lvl + 1] += KllHelper.currentLevelSize(lvl, myNumLevels, myLevelsArr);
+    }
+    for (final KllSketch other : others) {
+      if (other.isEmpty()) { continue; }
+      if (other.isCompactSingleItem()) { worklevels[1]++; continue; }
+      final int otherNumLevels = other.getNumLevels();
+      final int[] otherLevelsArr = other.getLevelsArray();
+      for (int lvl = 0; lvl < otherNumLevels; lvl++) {
+        worklevels[lvl + 1] += KllHelper.currentLevelSize(lvl, otherNumLevels, otherLevelsArr);
+      }
+    }
+    for (int lvl = 0; lvl < provisionalNumLevels; lvl++) {
+      worklevels[lvl + 1] += worklevels[lvl];
+    }
+
+    //gather the levels of all sketches
+    final float[] workbuf = new float[worklevels[provisionalNumLevels]];
+    final int[] fill = Arrays.copyOf(worklevels, provisionalNumLevels);
+    final float[] myFloatItemsArr = mine.getFloatItemsArray();
+    for (int lvl = 0; lvl < myNumLevels; lvl++) {
+      final int pop = KllHelper.currentLevelSize(lvl, myNumLevels, myLevelsArr);
+      System.arraycopy(myFloatItemsArr, myLevelsArr[lvl], workbuf, fill[lvl], pop);
+      fill[lvl] += pop;
+    }
+    for (final KllSketch other : others) {
+      if (other.isEmpty()) { continue; }
+      if (other.isCompactSingleItem()) { workbuf[fill[0]++] = other.getFloatSingleItem(); continue; }
+      final int otherNumLevels = other.getNumLevels();
+      final int[] otherLevelsArr = other.getLevelsArray();
+      final float[] otherFloatItemsArr = other.getFloatItemsArray();
+      for (int lvl = 0; lvl < otherNumLevels; lvl++) {
+        final int pop = KllHelper.currentLevelSize(lvl, otherNumLevels, otherLevelsArr);
+        System.arraycopy(otherFloatItemsArr, otherLevelsArr[lvl], workbuf, fill[lvl], pop);
+        fill[lvl] += pop;
+      }
+    }
+    for (int lvl = 1; lvl < provisionalNumLevels; lvl++) { //each level above zero is a run of sorted runs
+      Arrays.sort(workbuf, worklevels[lvl], worklevels[lvl + 1]);
+    }
+
+    // notice that workbuf is being used as both the input and output
+    final int[] result = generalFloatsCompress(mine.getK(), mine.getM(), provisionalNumLevels,
+        workbuf, worklevels, workbuf, outlevels, false, mine.getRandom());
+    final int myNewNumLevels = result[0];
+    final int targetItemCount = result[1];
+    final int curItemCount = result[2];
+    assert myNewNumLevels <= ub;
+
+    final float[] myNewFloatItemsArr = new float[targetItemCount];
+    final int freeSpaceAtBottom = targetItemCount - curItemCount;
+    System.arraycopy(workbuf, outlevels[0], myNewFloatItemsArr, freeSpaceAtBottom, curItemCount);
+    final int theShift = freeSpaceAtBottom - outlevels[0];
+    final int[] myNewLevelsArr = new int[max(myLevelsArr.length, myNewNumLevels + 1)];
+    for (int lvl = 0; lvl < myNewNumLevels + 1; lvl++) { // includes the "extra" index
+      myNewLevelsArr[lvl] = outlevels[lvl] + theShift;
+    }
+
+    if (mine.updatableMemFormat) {
+      mine.wmem = KllHelper.memorySpaceMgmt(mine, myNewLevelsArr.length, myNewFloatItemsArr.length);
+    }
+    mine.setN(finalN);
+    mine.setMinK(myNewMinK);
+    mine.setNumLevels(myNewNumLevels);
+    mine.setLevelsArray(myNewLevelsArr);
+    mine.setFloatItemsArray(myNewFloatItemsArr);
+    mine.setLevelZeroSorted(false);
+    mine.setMinFloatValue(newMin);
+    mine.setMaxFloatValue(newMax);
+    assert KllHelper.sumTheSampleWeights(mine.getNumLevels(), mine.getLevelsArray()) == mine.getN();
+  }
+
   static void mergeSortedFloatArrays(
       final float[] bufA, final int startA, final int lenA,
       final float[] bufB, final int startB, final int lenB,
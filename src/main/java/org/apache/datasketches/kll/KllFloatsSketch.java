@@ -24,10 +24,16 @@ import static java.lang.Math.min;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryUpdatableFormatFlag;
 import static org.apache.datasketches.kll.KllSketch.Error.MUST_NOT_BE_UPDATABLE_FORMAT;
 import static org.apache.datasketches.kll.KllSketch.Error.MUST_NOT_CALL;
+import static org.apache.datasketches.kll.KllSketch.Error.SRC_MUST_BE_FLOAT;
 import static org.apache.datasketches.kll.KllSketch.Error.TGT_IS_READ_ONLY;
 import static org.apache.datasketches.kll.KllSketch.Error.kllSketchThrow;
+import static org.apache.datasketches.kll.KllSketch.SketchType.FLOATS_SKETCH;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.MemoryRequestServer;
@@ -127,8 +133,13 @@ public abstract class KllFloatsSketch extends KllSketch {
   public static KllFloatsSketch wrap(final Memory srcMem) {
     Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
     final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
+    if (memVal.doublesSketch || memVal.longsSketch || memVal.itemsSketch) {
+      Error.kllSketchThrow(SRC_MUST_BE_FLOAT);
+    }
     if (memVal.updatableMemFormat) {
-      return new KllDirectFloatsSketch((WritableMemory) srcMem, null, memVal);
+      //a read only view, so that a writable srcMem does not require a MemoryRequestServer
+      final Memory roMem = srcMem.isReadOnly() ? srcMem : srcMem.region(0, srcMem.getCapacity());
+      return new KllDirectFloatsSketch((WritableMemory) roMem, null, memVal);
     } else {
       return new KllDirectCompactFloatsSketch(srcMem, memVal);
     }
@@ -146,6 +157,9 @@ public abstract class KllFloatsSketch extends KllSketch {
       final MemoryRequestServer memReqSvr) {
     Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
     final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
+    if (memVal.doublesSketch || memVal.longsSketch || memVal.itemsSketch) {
+      Error.kllSketchThrow(SRC_MUST_BE_FLOAT);
+    }
     if (memVal.updatableMemFormat) {
       if (!memVal.readOnly) {
         Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
@@ -155,6 +169,73 @@ public abstract class KllFloatsSketch extends KllSketch {
       return new KllDirectCompactFloatsSketch(srcMem, memVal);
     }
   }
+  /**
+   * Returns a new heap sketch that is the merge of all of the given sketches, using the common
+   * ForkJoinPool. See {@link #mergeAll(Collection, ForkJoinPool)}.
+   * @param sketches the given KllFloatsSketches
+   * @return a new heap sketch that is the merge of all of the given sketches
+   */
+  public static KllFloatsSketch mergeAll(final Collection<? extends KllSketch> sketches) {
+    return mergeAll(sketches, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a new heap sketch that is the merge of all of the given sketches. The sketches are
+   * merged in parallel by the given ForkJoinPool as a tree: each task gathers the same-level items
+   * of a group of sketches and compacts them once, and the partial results are merged pairwise.
+   * The result is statistically equivalent to merging the sketches one at a time.
+   * Its <i>k</i> is the largest <i>k</i> of the given sketches, or <i>DEFAULT_K</i> if there are
+   * none, and its accuracy is limited by the smallest <i>k</i>, as for {@link #merge(KllSketch)}.
+   *
+   * <p>The given sketches are not modified, and must not be modified while this method runs.</p>
+   *
+   * @param sketches the given KllFloatsSketches
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new heap sketch that is the merge of all of the given sketches
+   */
+  public static KllFloatsSketch mergeAll(final Collection<? extends KllSketch> sketches,
+      final ForkJoinPool pool) {
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final List<KllSketch> nonEmpty = new ArrayList<>(sketches.size());
+    int k = 0;
+    for (final KllSketch sketch : sketches) {
+      if (!sketch.isFloatsSketch()) { kllSketchThrow(SRC_MUST_BE_FLOAT); }
+      k = max(k, sketch.getK());
+      if (!sketch.isEmpty()) { nonEmpty.add(sketch); }
+    }
+    return (KllFloatsSketch) KllBulkMerge.mergeAll(nonEmpty, (k == 0) ? DEFAULT_K : k, FLOATS_SKETCH, pool);
+  }
+
+  /**
+   * Returns a new heap sketch that is the merge of all of the given Memory images of
+   * KllFloatsSketches, using the common ForkJoinPool. See {@link #mergeAllImages(List, ForkJoinPool)}.
+   * @param srcMems the given read only Memory images
+   * @return a new heap sketch that is the merge of all of the given images
+   */
+  public static KllFloatsSketch mergeAllImages(final List<? extends Memory> srcMems) {
+    return mergeAllImages(srcMems, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a new heap sketch that is the merge of all of the given Memory images of
+   * KllFloatsSketches, compact or updatable. The images are wrapped rather than heapified, and
+   * then merged as by {@link #mergeAll(Collection, ForkJoinPool)}.
+   * The given Memory objects are not modified and links to them are not retained.
+   * Every image is wrapped, and so checked to be of a KllFloatsSketch, before any merging starts.
+   * @param srcMems the given read only Memory images
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new heap sketch that is the merge of all of the given images
+   */
+  public static KllFloatsSketch mergeAllImages(final List<? extends Memory> srcMems, final ForkJoinPool pool) {
+    Objects.requireNonNull(srcMems, "Parameter 'srcMems' must not be null");
+    final List<KllFloatsSketch> sketches = new ArrayList<>(srcMems.size());
+    for (final Memory srcMem : srcMems) {
+      sketches.add(wrap(srcMem));
+    }
+    return mergeAll(sketches, pool);
+  }
+
 
   /**
    * Returns an approximation to the Cumulative Distribution Function (CDF), which is the
@@ -362,4 +443,28 @@ public abstract class KllFloatsSketch extends KllSketch {
   @Override //Artifact of inheritance
   void setMinDoubleValue(final double value) { kllSketchThrow(MUST_NOT_CALL); }
 
+  @Override //Artifact of inheritance
+  long[] getLongItemsArray() { kllSketchThrow(MUST_NOT_CALL); return null; }
+
+  @Override //Artifact of inheritance
+  long getLongSingleItem() { kllSketchThrow(MUST_NOT_CALL); return 0; }
+
+  @Override //Artifact of inheritance
+  long getMaxLongValue() { kllSketchThrow(MUST_NOT_CALL); return 0; }
+
+  @Override //Artifact of inheritance
+  long getMinLongValue() { kllSketchThrow(MUST_NOT_CALL); return 0; }
+
+  @Override //Artifact of inheritance
+  void setLongItemsArray(final long[] longItems) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setLongItemsArrayAt(final int index, final long value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMaxLongValue(final long value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMinLongValue(final long value) { kllSketchThrow(MUST_NOT_CALL); }
+
 }
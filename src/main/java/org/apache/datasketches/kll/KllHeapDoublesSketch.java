@@ -172,6 +172,11 @@ final class KllHeapDoublesSketch extends KllDoublesSketch {
   @Override
   void setDoubleItemsArrayAt(final int index, final double value) { doubleItems_[index] = value; }
 
+  @Override
+  void setDoubleItemsArrayAt(final int index, final double[] values, final int offset, final int length) {
+    System.arraycopy(values, offset, doubleItems_, index, length);
+  }
+
   @Override
   void setLevelZeroSorted(final boolean sorted) { this.isLevelZeroSorted_ = sorted; }
 
@@ -123,7 +123,7 @@ final class KllHeapFloatsSketch extends KllFloatsSketch {
   static KllHeapFloatsSketch heapifyImpl(final Memory srcMem) {
     Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
     final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
-    if (memVal.doublesSketch) { Error.kllSketchThrow(SRC_MUST_BE_FLOAT); }
+    if (memVal.doublesSketch || memVal.longsSketch || memVal.itemsSketch) { Error.kllSketchThrow(SRC_MUST_BE_FLOAT); }
     return new KllHeapFloatsSketch(srcMem, memVal);
   }
 
@@ -36,6 +36,7 @@ import static org.apache.datasketches.kll.KllPreambleUtil.EMPTY_BIT_MASK;
 import static org.apache.datasketches.kll.KllPreambleUtil.FLAGS_BYTE_ADR;
 import static org.apache.datasketches.kll.KllPreambleUtil.KLL_FAMILY;
 import static org.apache.datasketches.kll.KllPreambleUtil.K_SHORT_ADR;
+import static org.apache.datasketches.kll.KllPreambleUtil.LONGS_SKETCH_BIT_MASK;
 import static org.apache.datasketches.kll.KllPreambleUtil.PREAMBLE_INTS_EMPTY_SINGLE;
 import static org.apache.datasketches.kll.KllPreambleUtil.PREAMBLE_INTS_FULL;
 import static org.apache.datasketches.kll.KllPreambleUtil.SERIAL_VERSION_EMPTY_FULL;
@@ -48,6 +49,7 @@ import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryEmptyFlag;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryFamilyID;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryK;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryLevelZeroSortedFlag;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryLongSketchFlag;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryM;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryMinK;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryN;
@@ -57,6 +59,7 @@ import static org.apache.datasketches.kll.KllPreambleUtil.setMemorySerVer;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemorySingleItemFlag;
 import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryUpdatableFlag;
 import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
+import static org.apache.datasketches.kll.KllSketch.SketchType.LONGS_SKETCH;
 
 import java.util.Arrays;
 
@@ -163,13 +166,13 @@ final class KllHelper {
 
     if (mine.sketchType == DOUBLES_SKETCH) {
       final double[] myDoubleItemsArr = mine.getDoubleItemsArray();
-      if (level == 0) { // level zero might not be sorted, so we must sort it if we wish to compact it
+      if (level == 0 && !mine.isLevelZeroSorted()) { // level zero must be sorted to compact it
         Arrays.sort(myDoubleItemsArr, adjBeg, adjBeg + adjPop);
       }
       if (popAbove == 0) {
-        KllDoublesHelper.randomlyHalveUpDoubles(myDoubleItemsArr, adjBeg, adjPop, KllSketch.random);
+        KllDoublesHelper.randomlyHalveUpDoubles(myDoubleItemsArr, adjBeg, adjPop, mine.getRandom());
       } else {
-        KllDoublesHelper.randomlyHalveDownDoubles(myDoubleItemsArr, adjBeg, adjPop, KllSketch.random);
+        KllDoublesHelper.randomlyHalveDownDoubles(myDoubleItemsArr, adjBeg, adjPop, mine.getRandom());
         KllDoublesHelper.mergeSortedDoubleArrays(
             myDoubleItemsArr, adjBeg, halfAdjPop,
             myDoubleItemsArr, rawEnd, popAbove,
@@ -201,15 +204,55 @@ final class KllHelper {
       }
       mine.setDoubleItemsArray(myDoubleItemsArr);
     }
+    else if (mine.sketchType == LONGS_SKETCH) {
+      final long[] myLongItemsArr = mine.getLongItemsArray();
+      if (level == 0 && !mine.isLevelZeroSorted()) { // level zero must be sorted to compact it
+        Arrays.sort(myLongItemsArr, adjBeg, adjBeg + adjPop);
+      }
+      if (popAbove == 0) {
+        KllLongsHelper.randomlyHalveUpLongs(myLongItemsArr, adjBeg, adjPop, mine.getRandom());
+      } else {
+        KllLongsHelper.randomlyHalveDownLongs(myLongItemsArr, adjBeg, adjPop, mine.getRandom());
+        KllLongsHelper.mergeSortedLongArrays(
+            myLongItemsArr, adjBeg, halfAdjPop,
+            myLongItemsArr, rawEnd, popAbove,
+            myLongItemsArr, adjBeg + halfAdjPop);
+      }
+
+      int newIndex = myLevelsArr[level + 1] - halfAdjPop;  // adjust boundaries of the level above
+      mine.setLevelsArrayAt(level + 1, newIndex);
+
+      if (oddPop) {
+        mine.setLevelsArrayAt(level, myLevelsArr[level + 1] - 1); // the current level now contains one item
+        myLongItemsArr[myLevelsArr[level]] = myLongItemsArr[rawBeg];  // namely this leftover guy
+      } else {
+        mine.setLevelsArrayAt(level, myLevelsArr[level + 1]); // the current level is now empty
+      }
+
+      // verify that we freed up halfAdjPop array slots just below the current level
+      assert myLevelsArr[level] == rawBeg + halfAdjPop;
+
+      // finally, we need to shift up the data in the levels below
+      // so that the freed-up space can be used by level zero
+      if (level > 0) {
+        final int amount = rawBeg - myLevelsArr[0];
+        System.arraycopy(myLongItemsArr, myLevelsArr[0], myLongItemsArr, myLevelsArr[0] + halfAdjPop, amount);
+      }
+      for (int lvl = 0; lvl < level; lvl++) {
+        newIndex = myLevelsArr[lvl] + halfAdjPop; //adjust boundary
+        mine.setLevelsArrayAt(lvl, newIndex);
+      }
+      mine.setLongItemsArray(myLongItemsArr);
+    }
     else { //Float sketch
       final float[] myFloatItemsArr = mine.getFloatItemsArray();
-      if (level == 0) { // level zero might not be sorted, so we must sort it if we wish to compact it
+      if (level == 0 && !mine.isLevelZeroSorted()) { // level zero must be sorted to compact it
         Arrays.sort(myFloatItemsArr, adjBeg, adjBeg + adjPop);
       }
       if (popAbove == 0) {
-        KllFloatsHelper.randomlyHalveUpFloats(myFloatItemsArr, adjBeg, adjPop, KllSketch.random);
+        KllFloatsHelper.randomlyHalveUpFloats(myFloatItemsArr, adjBeg, adjPop, mine.getRandom());
       } else {
-        KllFloatsHelper.randomlyHalveDownFloats(myFloatItemsArr, adjBeg, adjPop, KllSketch.random);
+        KllFloatsHelper.randomlyHalveDownFloats(myFloatItemsArr, adjBeg, adjPop, mine.getRandom());
         KllFloatsHelper.mergeSortedFloatArrays(
             myFloatItemsArr, adjBeg, halfAdjPop,
             myFloatItemsArr, rawEnd, popAbove,
@@ -306,7 +349,7 @@ final class KllHelper {
    * @param k the given user configured sketch parameter
    * @param m the given user configured sketch parameter
    * @param n the desired stream length
-   * @param sketchType the given sketch type (DOUBLES_SKETCH or FLOATS_SKETCH)
+   * @param sketchType the given sketch type (DOUBLES_SKETCH, FLOATS_SKETCH or LONGS_SKETCH)
    * @param printGrowthScheme if true the entire growth scheme of the sketch will be printed.
    * @return GrowthStats with the final values of the growth scheme
    */
@@ -332,7 +375,7 @@ final class KllHelper {
       println("Given N         : " + gStats.givenN);
       printf("%10s %10s %20s %13s %15s\n", "NumLevels", "MaxItems", "MaxN", "CompactBytes", "UpdatableBytes");
     }
-    final int typeBytes = (sketchType == DOUBLES_SKETCH) ? Double.BYTES : Float.BYTES;
+    final int typeBytes = KllSketch.typeBytes(sketchType);
     do {
       gStats.numLevels++; //
       lvlStats = getFinalSketchStatsAtNumLevels(gStats.k, gStats.m, gStats.numLevels, false);
@@ -425,7 +468,7 @@ final class KllHelper {
   }
 
   /**
-   * This method is for direct Double and Float sketches only and does the following:
+   * This method is for direct Double, Float and Long sketches only and does the following:
    * <ul>
    * <li>Determines if the required sketch bytes will fit in the current Memory.
    * If so, it will stretch the positioning of the arrays to fit. Otherwise:
@@ -445,7 +488,7 @@ final class KllHelper {
       final int newItemsArrLen) {
     final KllSketch.SketchType sketchType = sketch.sketchType;
     final WritableMemory oldWmem = sketch.wmem;
-    final int typeBytes = (sketchType == DOUBLES_SKETCH) ? Double.BYTES : Float.BYTES;
+    final int typeBytes = KllSketch.typeBytes(sketchType);
 
     final int requiredSketchBytes =  DATA_START_ADR
       + newLevelsArrLen * Integer.BYTES
@@ -464,16 +507,20 @@ final class KllHelper {
     return newWmem;
   }
 
-  static String outputData(final boolean doubleType, final int numLevels, final int[] levelsArr,
-      final float[] floatItemsArr, final double[] doubleItemsArr) {
+  static String outputData(final SketchType sketchType, final int numLevels, final int[] levelsArr,
+      final float[] floatItemsArr, final double[] doubleItemsArr, final long[] longItemsArr) {
     final StringBuilder sb =  new StringBuilder();
     sb.append("### KLL items data {index, item}:").append(Util.LS);
     if (levelsArr[0] > 0) {
       sb.append(" Garbage:" + Util.LS);
-      if (doubleType) {
+      if (sketchType == DOUBLES_SKETCH) {
         for (int i = 0; i < levelsArr[0]; i++) {
           sb.append("   ").append(i + ", ").append(doubleItemsArr[i]).append(Util.LS);
         }
+      } else if (sketchType == LONGS_SKETCH) {
+        for (int i = 0; i < levelsArr[0]; i++) {
+          sb.append("   ").append(i + ", ").append(longItemsArr[i]).append(Util.LS);
+        }
       } else {
         for (int i = 0; i < levelsArr[0]; i++) {
           sb.append("   ").append(i + ", ").append(floatItemsArr[i]).append(Util.LS);
@@ -481,7 +528,7 @@ final class KllHelper {
       }
     }
     int level = 0;
-    if (doubleType) {
+    if (sketchType == DOUBLES_SKETCH) {
       while (level < numLevels) {
         final int fromIndex = levelsArr[level];
         final int toIndex = levelsArr[level + 1]; // exclusive
@@ -496,6 +543,21 @@ final class KllHelper {
         level++;
       }
     }
+    else if (sketchType == LONGS_SKETCH) {
+      while (level < numLevels) {
+        final int fromIndex = levelsArr[level];
+        final int toIndex = levelsArr[level + 1]; // exclusive
+        if (fromIndex < toIndex) {
+          sb.append(" level[").append(level).append("]: offset: " + levelsArr[level] + " wt: " + (1 << level));
+          sb.append(Util.LS);
+        }
+
+        for (int i = fromIndex; i < toIndex; i++) {
+          sb.append("   ").append(i + ", ").append(longItemsArr[i]).append(Util.LS);
+        }
+        level++;
+      }
+    }
     else {
       while (level < numLevels) {
         final int fromIndex = levelsArr[level];
@@ -552,6 +614,7 @@ final class KllHelper {
     loadFirst8Bytes(mine, wmem, false);
     if (mine.getN() == 0) { return byteArr; } //empty
     final boolean doubleType = (mine.sketchType == DOUBLES_SKETCH);
+    final boolean longType = (mine.sketchType == LONGS_SKETCH);
 
     //load data
     int offset = DATA_START_ADR_SINGLE_ITEM;
@@ -559,6 +622,8 @@ final class KllHelper {
     if (mine.getN() == 1) { //single item
       if (doubleType) {
         wmem.putDouble(offset,  mine.getDoubleItemsArray()[myLevelsArr[0]]);
+      } else if (longType) {
+        wmem.putLong(offset, mine.getLongItemsArray()[myLevelsArr[0]]);
       } else {
         wmem.putFloat(offset, mine.getFloatItemsArray()[myLevelsArr[0]]);
       }
@@ -581,6 +646,12 @@ final class KllHelper {
         wmem.putDouble(offset, mine.getMaxDoubleValue());
         offset += Double.BYTES;
         wmem.putDoubleArray(offset, mine.getDoubleItemsArray(), myLevelsArr[0], mine.getNumRetained());
+      } else if (longType) {
+        wmem.putLong(offset, mine.getMinLongValue());
+        offset += Long.BYTES;
+        wmem.putLong(offset, mine.getMaxLongValue());
+        offset += Long.BYTES;
+        wmem.putLongArray(offset, mine.getLongItemsArray(), myLevelsArr[0], mine.getNumRetained());
       } else {
         wmem.putFloat(offset, mine.getMinFloatValue());
         offset += Float.BYTES;
@@ -593,29 +664,30 @@ final class KllHelper {
   }
 
   static byte[] fastEmptyCompactByteArray(final KllSketch mine) {
-    final int doubleFlagBit = (mine.sketchType == DOUBLES_SKETCH) ? DOUBLES_SKETCH_BIT_MASK : 0;
+    final int typeFlagBit = typeFlagBit(mine.sketchType);
     final byte[] byteArr = new byte[8];
     byteArr[0] = PREAMBLE_INTS_EMPTY_SINGLE; //2
     byteArr[1] = SERIAL_VERSION_EMPTY_FULL;  //1
     byteArr[2] = KLL_FAMILY; //15
-    byteArr[3] = (byte) (EMPTY_BIT_MASK | doubleFlagBit);
+    byteArr[3] = (byte) (EMPTY_BIT_MASK | typeFlagBit);
     ByteArrayUtil.putShortLE(byteArr, K_SHORT_ADR, (short)mine.getK());
     byteArr[6] = (byte)mine.getM();
     return byteArr;
   }
 
   static byte[] fastSingleItemCompactByteArray(final KllSketch mine) {
-    final boolean doubleSketch = mine.sketchType == DOUBLES_SKETCH;
-    final int doubleFlagBit = doubleSketch ? DOUBLES_SKETCH_BIT_MASK : 0;
-    final byte[] byteArr = new byte[8 + (doubleSketch ? Double.BYTES : Float.BYTES)];
+    final int typeFlagBit = typeFlagBit(mine.sketchType);
+    final byte[] byteArr = new byte[8 + KllSketch.typeBytes(mine.sketchType)];
     byteArr[0] = PREAMBLE_INTS_EMPTY_SINGLE; //2
     byteArr[1] = SERIAL_VERSION_SINGLE;      //2
     byteArr[2] = KLL_FAMILY; //15
-    byteArr[3] = (byte) (SINGLE_ITEM_BIT_MASK | doubleFlagBit);
+    byteArr[3] = (byte) (SINGLE_ITEM_BIT_MASK | typeFlagBit);
     ByteArrayUtil.putShortLE(byteArr, K_SHORT_ADR, (short)mine.getK());
     byteArr[6] = (byte)mine.getM();
-    if (doubleSketch) {
+    if (mine.sketchType == DOUBLES_SKETCH) {
       ByteArrayUtil.putDoubleLE(byteArr, DATA_START_ADR_SINGLE_ITEM, mine.getDoubleSingleItem());
+    } else if (mine.sketchType == LONGS_SKETCH) {
+      ByteArrayUtil.putLongLE(byteArr, DATA_START_ADR_SINGLE_ITEM, mine.getLongSingleItem());
     } else {
       ByteArrayUtil.putFloatLE(byteArr, DATA_START_ADR_SINGLE_ITEM, mine.getFloatSingleItem());
     }
@@ -623,7 +695,7 @@ final class KllHelper {
   }
 
   static String toStringImpl(final KllSketch mine, final boolean withLevels, final boolean withData) {
-    final boolean doubleType = (mine.sketchType == DOUBLES_SKETCH);
+    final SketchType sketchType = mine.sketchType;
     final int k = mine.getK();
     final int m = mine.getM();
     final int numLevels = mine.getNumLevels();
@@ -631,7 +703,8 @@ final class KllHelper {
     final String epsPct = String.format("%.3f%%", mine.getNormalizedRankError(false) * 100);
     final String epsPMFPct = String.format("%.3f%%", mine.getNormalizedRankError(true) * 100);
     final StringBuilder sb = new StringBuilder();
-    final String skType = (mine.updatableMemFormat ? "Direct" : "") + (doubleType ? "Doubles" : "Floats");
+    final String skType = (mine.updatableMemFormat ? "Direct" : "")
+        + ((sketchType == DOUBLES_SKETCH) ? "Doubles" : (sketchType == LONGS_SKETCH) ? "Longs" : "Floats");
     sb.append(Util.LS).append("### Kll").append(skType).append("Sketch Summary:").append(Util.LS);
     sb.append("   K                      : ").append(k).append(Util.LS);
     sb.append("   Dynamic min K          : ").append(mine.getMinK()).append(Util.LS);
@@ -651,9 +724,12 @@ final class KllHelper {
       sb.append("   Compact Storage Bytes  : ").append(mine.getCurrentCompactSerializedSizeBytes()).append(Util.LS);
     }
 
-    if (doubleType) {
+    if (sketchType == DOUBLES_SKETCH) {
       sb.append("   Min Value              : ").append(mine.getMinDoubleValue()).append(Util.LS);
       sb.append("   Max Value              : ").append(mine.getMaxDoubleValue()).append(Util.LS);
+    } else if (sketchType == LONGS_SKETCH) {
+      sb.append("   Min Value              : ").append(mine.getMinLongValue()).append(Util.LS);
+      sb.append("   Max Value              : ").append(mine.getMaxLongValue()).append(Util.LS);
     } else {
       sb.append("   Min Value              : ").append(mine.getMinFloatValue()).append(Util.LS);
       sb.append("   Max Value              : ").append(mine.getMaxFloatValue()).append(Util.LS);
@@ -662,8 +738,11 @@ final class KllHelper {
 
     double[] myDoubleItemsArr = null;
     float[] myFloatItemsArr = null;
-    if (doubleType) {
+    long[] myLongItemsArr = null;
+    if (sketchType == DOUBLES_SKETCH) {
       myDoubleItemsArr = mine.getDoubleItemsArray();
+    } else if (sketchType == LONGS_SKETCH) {
+      myLongItemsArr = mine.getLongItemsArray();
     } else {
       myFloatItemsArr = mine.getFloatItemsArray();
     }
@@ -671,7 +750,7 @@ final class KllHelper {
       sb.append(outputLevels(k, m, numLevels, levelsArr));
     }
     if (withData) {
-      sb.append(outputData(doubleType, numLevels, levelsArr, myFloatItemsArr, myDoubleItemsArr));
+      sb.append(outputData(sketchType, numLevels, levelsArr, myFloatItemsArr, myDoubleItemsArr, myLongItemsArr));
     }
     return sb.toString();
   }
@@ -684,13 +763,12 @@ final class KllHelper {
    * @return a byte array in an updatable form.
    */
   private static byte[] toUpdatableByteArrayFromUpdatableMemory(final KllSketch mine) {
-    final boolean doubleType = (mine.sketchType == SketchType.DOUBLES_SKETCH);
     final int curBytes = mine.getCurrentUpdatableSerializedSizeBytes();
     final long n = mine.getN();
     final byte flags = (byte) (UPDATABLE_BIT_MASK
         | ((n == 0) ? EMPTY_BIT_MASK : 0)
         | ((n == 1) ? SINGLE_ITEM_BIT_MASK : 0)
-        | (doubleType ? DOUBLES_SKETCH_BIT_MASK : 0));
+        | typeFlagBit(mine.sketchType));
     final byte[] byteArr = new byte[curBytes];
     mine.wmem.getByteArray(0, byteArr, 0, curBytes);
     byteArr[FLAGS_BYTE_ADR] = flags;
@@ -734,6 +812,13 @@ final class KllHelper {
       offset += Double.BYTES;
       final double[] doubleItemsArr = mine.getDoubleItemsArray();
       wmem.putDoubleArray(offset, doubleItemsArr, 0, doubleItemsArr.length);
+    } else if (mine.sketchType == LONGS_SKETCH) {
+      wmem.putLong(offset, mine.getMinLongValue());
+      offset += Long.BYTES;
+      wmem.putLong(offset, mine.getMaxLongValue());
+      offset += Long.BYTES;
+      final long[] longItemsArr = mine.getLongItemsArray();
+      wmem.putLongArray(offset, longItemsArr, 0, longItemsArr.length);
     } else {
       wmem.putFloat(offset, mine.getMinFloatValue());
       offset += Float.BYTES;
@@ -767,9 +852,12 @@ final class KllHelper {
     double maxDouble = Double.NaN;
     float minFloat = Float.NaN;
     float maxFloat = Float.NaN;
+    long minLong = Long.MAX_VALUE;
+    long maxLong = Long.MIN_VALUE;
 
     double[] myCurDoubleItemsArr = null;
     float[] myCurFloatItemsArr = null;
+    long[] myCurLongItemsArr = null;
 
     final int myNewNumLevels;
     final int[] myNewLevelsArr;
@@ -777,6 +865,7 @@ final class KllHelper {
 
     float[] myNewFloatItemsArr = null;
     double[] myNewDoubleItemsArr = null;
+    long[] myNewLongItemsArr = null;
 
     if (mine.sketchType == DOUBLES_SKETCH) {
       minDouble = mine.getMinDoubleValue();
@@ -784,6 +873,11 @@ final class KllHelper {
       myCurDoubleItemsArr = mine.getDoubleItemsArray();
       //assert we are following a certain growth scheme
       assert myCurDoubleItemsArr.length == myCurTotalItemsCapacity;
+    } else if (mine.sketchType == LONGS_SKETCH) {
+      minLong = mine.getMinLongValue();
+      maxLong = mine.getMaxLongValue();
+      myCurLongItemsArr = mine.getLongItemsArray();
+      assert myCurLongItemsArr.length == myCurTotalItemsCapacity;
     } else { //FLOATS_SKETCH
       minFloat = mine.getMinFloatValue();
       maxFloat = mine.getMaxFloatValue();
@@ -821,6 +915,10 @@ final class KllHelper {
       myNewDoubleItemsArr = new double[myNewTotalItemsCapacity];
       // copy and shift the current data into the new array
       System.arraycopy(myCurDoubleItemsArr, 0, myNewDoubleItemsArr, deltaItemsCap, myCurTotalItemsCapacity);
+    } else if (mine.sketchType == LONGS_SKETCH) {
+      myNewLongItemsArr = new long[myNewTotalItemsCapacity];
+      // copy and shift the current items data into the new array
+      System.arraycopy(myCurLongItemsArr, 0, myNewLongItemsArr, deltaItemsCap, myCurTotalItemsCapacity);
     } else {
       myNewFloatItemsArr = new float[myNewTotalItemsCapacity];
       // copy and shift the current items data into the new array
@@ -838,6 +936,10 @@ final class KllHelper {
       mine.setMinDoubleValue(minDouble);
       mine.setMaxDoubleValue(maxDouble);
       mine.setDoubleItemsArray(myNewDoubleItemsArr);
+    } else if (mine.sketchType == LONGS_SKETCH) {
+      mine.setMinLongValue(minLong);
+      mine.setMaxLongValue(maxLong);
+      mine.setLongItemsArray(myNewLongItemsArr);
     } else { //Float sketch
       mine.setMinFloatValue(minFloat);
       mine.setMaxFloatValue(maxFloat);
@@ -852,7 +954,7 @@ final class KllHelper {
    * @param numLevels one-based number of current levels
    * @return level to compact
    */
-  private static int findLevelToCompact(final int k, final int m, final int numLevels, final int[] levels) {
+  static int findLevelToCompact(final int k, final int m, final int numLevels, final int[] levels) {
     int level = 0;
     while (true) {
       assert level < numLevels;
@@ -902,6 +1004,7 @@ final class KllHelper {
     final boolean lvlZeroSorted = sk.isLevelZeroSorted();
     final boolean singleItem = sk.getN() == 1;
     final boolean doubleType = (sk.sketchType == DOUBLES_SKETCH);
+    final boolean longType = (sk.sketchType == LONGS_SKETCH);
     final int preInts = updatableFormat
         ? PREAMBLE_INTS_FULL
         : (empty || singleItem) ? PREAMBLE_INTS_EMPTY_SINGLE : PREAMBLE_INTS_FULL;
@@ -915,11 +1018,20 @@ final class KllHelper {
     setMemoryLevelZeroSortedFlag(wmem, lvlZeroSorted);
     setMemorySingleItemFlag(wmem, singleItem);
     setMemoryDoubleSketchFlag(wmem, doubleType);
+    setMemoryLongSketchFlag(wmem, longType);
     setMemoryUpdatableFlag(wmem, updatableFormat);
     setMemoryK(wmem, sk.getK());
     setMemoryM(wmem, sk.getM());
   }
 
+  private static int typeFlagBit(final SketchType sketchType) {
+    switch (sketchType) {
+      case DOUBLES_SKETCH: return DOUBLES_SKETCH_BIT_MASK;
+      case LONGS_SKETCH: return LONGS_SKETCH_BIT_MASK;
+      default: return 0;
+    }
+  }
+
   /**
    * @param fmt format
    * @param args arguments
@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.apache.datasketches.Util.isEven;
+import static org.apache.datasketches.Util.isOdd;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.apache.datasketches.SketchesArgumentException;
+
+/**
+ * Static methods to support KllItemsSketch.
+ * These follow the algorithms of KllHelper and the primitive helpers, except that the items are
+ * ordered by the Comparator of the sketch.
+ */
+final class KllItemsHelper {
+
+  private KllItemsHelper() {}
+
+  /**
+   * The following code is only valid in the special case of exactly reaching capacity while updating.
+   * It cannot be used while merging, while reducing k, or anything else.
+   * @param <T> the item type
+   * @param mine the current sketch
+   */
+  static <T> void compressWhileUpdatingSketch(final KllItemsSketch<T> mine) {
+    final int level =
+        KllHelper.findLevelToCompact(mine.getK(), mine.getM(), mine.getNumLevels(), mine.getLevelsArray());
+    if (level == mine.getNumLevels() - 1) {
+      //The level to compact is the top level, thus we need to add a level.
+      addEmptyTopLevelToCompletelyFullSketch(mine);
+    }
+    //after this point, the levelsArray will not be expanded, only modified.
+    final int[] myLevelsArr = mine.getLevelsArray();
+    final Object[] myItemsArr = mine.getItemsArray();
+    final Comparator<? super T> comparator = mine.getComparator();
+    final int rawBeg = myLevelsArr[level];
+    final int rawEnd = myLevelsArr[level + 1];
+    // +2 is OK because we already added a new top level if necessary
+    final int popAbove = myLevelsArr[level + 2] - rawEnd;
+    final int rawPop = rawEnd - rawBeg;
+    final boolean oddPop = isOdd(rawPop);
+    final int adjBeg = oddPop ? rawBeg + 1 : rawBeg;
+    final int adjPop = oddPop ? rawPop - 1 : rawPop;
+    final int halfAdjPop = adjPop / 2;
+
+    if (level == 0) { // level zero might not be sorted, so we must sort it if we wish to compact it
+      sortItems(myItemsArr, adjBeg, adjBeg + adjPop, comparator);
+    }
+    if (popAbove == 0) {
+      randomlyHalveUpItems(myItemsArr, adjBeg, adjPop, mine.getRandom());
+    } else {
+      randomlyHalveDownItems(myItemsArr, adjBeg, adjPop, mine.getRandom());
+      mergeSortedItemsArrays(
+          myItemsArr, adjBeg, halfAdjPop,
+          myItemsArr, rawEnd, popAbove,
+          myItemsArr, adjBeg + halfAdjPop, comparator);
+    }
+
+    myLevelsArr[level + 1] -= halfAdjPop; // adjust boundaries of the level above
+
+    if (oddPop) {
+      myLevelsArr[level] = myLevelsArr[level + 1] - 1; // the current level now contains one item
+      myItemsArr[myLevelsArr[level]] = myItemsArr[rawBeg];  // namely this leftover guy
+    } else {
+      myLevelsArr[level] = myLevelsArr[level + 1]; // the current level is now empty
+    }
+
+    // verify that we freed up halfAdjPop array slots just below the current level
+    assert myLevelsArr[level] == rawBeg + halfAdjPop;
+
+    // finally, we need to shift up the data in the levels below
+    // so that the freed-up space can be used by level zero
+    if (level > 0) {
+      final int amount = rawBeg - myLevelsArr[0];
+      System.arraycopy(myItemsArr, myLevelsArr[0], myItemsArr, myLevelsArr[0] + halfAdjPop, amount);
+    }
+    for (int lvl = 0; lvl < level; lvl++) {
+      myLevelsArr[lvl] += halfAdjPop;
+    }
+    // release the references to the discarded items
+    Arrays.fill(myItemsArr, 0, myLevelsArr[0], null);
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> void mergeItemsImpl(final KllItemsSketch<T> mine, final KllItemsSketch<T> other) {
+    if (other.isEmpty()) { return; }
+    final long finalN = mine.getN() + other.getN();
+    final Comparator<? super T> comparator = mine.getComparator();
+    final int otherNumLevels = other.getNumLevels();
+    final int[] otherLevelsArr = other.getLevelsArray();
+    final Object[] otherItemsArr = other.getItemsArray();
+    final int myMinK = mine.getMinK();
+
+    //update this sketch with level0 items from the other sketch
+    for (int i = otherLevelsArr[0]; i < otherLevelsArr[1]; i++) {
+      updateItem(mine, (T) otherItemsArr[i]);
+    }
+    // after the level 0 update, we capture the state of levels and items arrays
+    final int myCurNumLevels = mine.getNumLevels();
+    final int[] myCurLevelsArr = mine.getLevelsArray();
+    final Object[] myCurItemsArr = mine.getItemsArray();
+
+    if (otherNumLevels > 1) { //now merge other levels if they exist
+      final int tmpSpaceNeeded = mine.getNumRetained()
+          + KllHelper.getNumRetainedAboveLevelZero(otherNumLevels, otherLevelsArr);
+      final Object[] workbuf = new Object[tmpSpaceNeeded];
+      final int ub = KllHelper.ubOnNumLevels(finalN);
+      final int[] worklevels = new int[ub + 2]; // ub+1 does not work
+      final int[] outlevels  = new int[ub + 2];
+
+      final int provisionalNumLevels = max(myCurNumLevels, otherNumLevels);
+
+      populateItemsWorkArrays(workbuf, worklevels, provisionalNumLevels,
+          myCurNumLevels, myCurLevelsArr, myCurItemsArr,
+          otherNumLevels, otherLevelsArr, otherItemsArr, comparator);
+
+      // notice that workbuf is being used as both the input and output
+      final int[] result = generalItemsCompress(mine.getK(), mine.getM(), provisionalNumLevels,
+          workbuf, worklevels, workbuf, outlevels, mine.isLevelZeroSorted(), mine.getRandom(), comparator);
+      final int myNewNumLevels = result[0];
+      final int targetItemCount = result[1];
+      final int curItemCount = result[2];
+      assert myNewNumLevels <= ub; // ub may be much bigger
+
+      // a new items array is always allocated so that no references to the discarded items remain
+      final Object[] myNewItemsArr = new Object[targetItemCount];
+      final int freeSpaceAtBottom = targetItemCount - curItemCount;
+      System.arraycopy(workbuf, outlevels[0], myNewItemsArr, freeSpaceAtBottom, curItemCount);
+      final int theShift = freeSpaceAtBottom - outlevels[0];
+
+      final int[] myNewLevelsArr = new int[myNewNumLevels + 1];
+      for (int lvl = 0; lvl < myNewNumLevels + 1; lvl++) { // includes the "extra" index
+        myNewLevelsArr[lvl] = outlevels[lvl] + theShift;
+      }
+      mine.setLevelsArray(myNewLevelsArr);
+      mine.setItemsArray(myNewItemsArr);
+    }
+
+    mine.setN(finalN);
+    if (other.isEstimationMode()) { //otherwise the merge brings over exact items.
+      mine.setMinK(min(myMinK, other.getMinK()));
+    }
+
+    //the min and max of other may no longer be among its retained items
+    final T otherMin = other.getMinValue();
+    final T otherMax = other.getMaxValue();
+    final T curMin = mine.getMinValue();
+    final T curMax = mine.getMaxValue();
+    if (curMin == null || comparator.compare(otherMin, curMin) < 0) { mine.setMinValue(otherMin); }
+    if (curMax == null || comparator.compare(otherMax, curMax) > 0) { mine.setMaxValue(otherMax); }
+    assert KllHelper.sumTheSampleWeights(mine.getNumLevels(), mine.getLevelsArray()) == mine.getN();
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> void mergeSortedItemsArrays(
+      final Object[] bufA, final int startA, final int lenA,
+      final Object[] bufB, final int startB, final int lenB,
+      final Object[] bufC, final int startC, final Comparator<? super T> comparator) {
+    final int lenC = lenA + lenB;
+    final int limA = startA + lenA;
+    final int limB = startB + lenB;
+    final int limC = startC + lenC;
+
+    int a = startA;
+    int b = startB;
+
+    for (int c = startC; c < limC; c++) {
+      if (a == limA) {
+        bufC[c] = bufB[b];
+        b++;
+      } else if (b == limB) {
+        bufC[c] = bufA[a];
+        a++;
+      } else if (comparator.compare((T) bufA[a], (T) bufB[b]) < 0) {
+        bufC[c] = bufA[a];
+        a++;
+      } else {
+        bufC[c] = bufB[b];
+        b++;
+      }
+    }
+    assert a == limA;
+    assert b == limB;
+  }
+
+  /**
+   * Validation Method. This must be modified to test validation
+   * @param buf the items array
+   * @param start data start
+   * @param length items length
+   * @param random instance of Random
+   */ //NOTE Validation Method: Need to modify.
+  static void randomlyHalveDownItems(final Object[] buf, final int start, final int length, final Random random) {
+    assert isEven(length);
+    final int half_length = length / 2;
+    final int offset = random.nextInt(2);
+    int j = start + offset;
+    for (int i = start; i < (start + half_length); i++) {
+      buf[i] = buf[j];
+      j += 2;
+    }
+  }
+
+  /**
+   * Validation Method. This must be modified to test validation
+   * @param buf the items array
+   * @param start data start
+   * @param length items length
+   * @param random instance of Random
+   */ //NOTE Validation Method: Need to modify.
+  static void randomlyHalveUpItems(final Object[] buf, final int start, final int length, final Random random) {
+    assert isEven(length);
+    final int half_length = length / 2;
+    final int offset = random.nextInt(2);
+    int j = (start + length) - 1 - offset;
+    for (int i = (start + length) - 1; i >= (start + half_length); i--) {
+      buf[i] = buf[j];
+      j -= 2;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> void sortItems(final Object[] buf, final int fromIndex, final int toIndex,
+      final Comparator<? super T> comparator) {
+    Arrays.sort((T[]) buf, fromIndex, toIndex, comparator);
+  }
+
+  static <T> void updateItem(final KllItemsSketch<T> mine, final T item) {
+    final Comparator<? super T> comparator = mine.getComparator();
+    if (mine.isEmpty()) {
+      mine.setMinValue(item);
+      mine.setMaxValue(item);
+    } else {
+      if (comparator.compare(item, mine.getMinValue()) < 0) { mine.setMinValue(item); }
+      if (comparator.compare(item, mine.getMaxValue()) > 0) { mine.setMaxValue(item); }
+    }
+    if (mine.getLevelsArray()[0] == 0) { compressWhileUpdatingSketch(mine); }
+    final int[] myLevelsArr = mine.getLevelsArray(); //LevelsArr could be expanded
+    mine.setN(mine.getN() + 1);
+    mine.setLevelZeroSorted(false);
+    final int nextPos = myLevelsArr[0] - 1;
+    assert myLevelsArr[0] >= 0;
+    myLevelsArr[0] = nextPos;
+    mine.getItemsArray()[nextPos] = item;
+  }
+
+  /**
+   * Checks the sequential validity of the given array of split points.
+   * They must be non-null, unique and monotonically increasing.
+   * @param <T> the item type
+   * @param values the given array of values
+   * @param comparator the comparator of the sketch
+   */
+  static <T> void validateItemValues(final T[] values, final Comparator<? super T> comparator) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null
+          || (i < values.length - 1 && values[i + 1] != null && comparator.compare(values[i], values[i + 1]) >= 0)) {
+        throw new SketchesArgumentException(
+          "Values must be unique, monotonically increasing and not null.");
+      }
+    }
+  }
+
+  /**
+   * This grows the levels arr by 1 and increases the capacity of the items array at the bottom.
+   * Only the levels array and the items array are affected.
+   * @param <T> the item type
+   * @param mine the current sketch
+   */
+  private static <T> void addEmptyTopLevelToCompletelyFullSketch(final KllItemsSketch<T> mine) {
+    final int[] myCurLevelsArr = mine.getLevelsArray();
+    final int myCurNumLevels = mine.getNumLevels();
+    final int myCurTotalItemsCapacity = myCurLevelsArr[myCurNumLevels];
+    final Object[] myCurItemsArr = mine.getItemsArray();
+    //assert we are following a certain growth scheme
+    assert myCurItemsArr.length == myCurTotalItemsCapacity;
+    assert myCurLevelsArr[0] == 0; //definition of full is part of the growth scheme
+
+    final int deltaItemsCap = KllHelper.levelCapacity(mine.getK(), myCurNumLevels + 1, 0, mine.getM());
+    final int myNewTotalItemsCapacity = myCurTotalItemsCapacity + deltaItemsCap;
+
+    //grow levels arr by one and copy the old data to the new array, extra space at the top.
+    final int[] myNewLevelsArr = Arrays.copyOf(myCurLevelsArr, myCurNumLevels + 2);
+    // This loop updates all level indices EXCLUDING the "extra" index at the top
+    for (int level = 0; level <= myCurNumLevels; level++) {
+      myNewLevelsArr[level] += deltaItemsCap;
+    }
+    myNewLevelsArr[myCurNumLevels + 1] = myNewTotalItemsCapacity; // initialize the new "extra" index at the top
+
+    // copy and shift the current items data into the new array
+    final Object[] myNewItemsArr = new Object[myNewTotalItemsCapacity];
+    System.arraycopy(myCurItemsArr, 0, myNewItemsArr, deltaItemsCap, myCurTotalItemsCapacity);
+
+    mine.setLevelsArray(myNewLevelsArr);
+    mine.setItemsArray(myNewItemsArr);
+  }
+
+  /**
+   * Compression algorithm used to merge higher levels.
+   * This is the same algorithm as the generalCompress of the primitive helpers.
+   *
+   * <p>This trashes inBuf and inLevels and modifies outBuf and outLevels.</p>
+   *
+   * @param k The sketch parameter k
+   * @param m The minimum level size
+   * @param numLevelsIn provisional number of number of levels = max(this.numLevels, other.numLevels)
+   * @param inBuf work buffer of size = this.getNumRetained() + other.getNumRetainedAboveLevelZero().
+   * @param inLevels work levels array size = ubOnNumLevels(this.n + other.n) + 2
+   * @param outBuf the same array as inBuf
+   * @param outLevels the same size as inLevels
+   * @param isLevelZeroSorted true if this.level 0 is sorted
+   * @param random instance of java.util.Random
+   * @param comparator the comparator of the sketch
+   * @return int array of: {numLevels, targetItemCount, currentItemCount)
+   */
+  private static <T> int[] generalItemsCompress(
+      final int k,
+      final int m,
+      final int numLevelsIn,
+      final Object[] inBuf,
+      final int[] inLevels,
+      final Object[] outBuf,
+      final int[] outLevels,
+      final boolean isLevelZeroSorted,
+      final Random random,
+      final Comparator<? super T> comparator) {
+    assert numLevelsIn > 0; // things are too weird if zero levels are allowed
+    int numLevels = numLevelsIn;
+    int currentItemCount = inLevels[numLevels] - inLevels[0]; // decreases with each compaction
+    int targetItemCount = KllHelper.computeTotalItemCapacity(k, m, numLevels); // increases if we add levels
+    boolean doneYet = false;
+    outLevels[0] = 0;
+    int curLevel = -1;
+    while (!doneYet) {
+      curLevel++; // start out at level 0
+
+      // If we are at the current top level, add an empty level above it for convenience,
+      // but do not increment numLevels until later
+      if (curLevel == (numLevels - 1)) {
+        inLevels[curLevel + 2] = inLevels[curLevel + 1];
+      }
+
+      final int rawBeg = inLevels[curLevel];
+      final int rawLim = inLevels[curLevel + 1];
+      final int rawPop = rawLim - rawBeg;
+
+      if ((currentItemCount < targetItemCount) || (rawPop < KllHelper.levelCapacity(k, numLevels, curLevel, m))) {
+        // copy level over as is
+        // because inBuf and outBuf could be the same, make sure we are not moving data upwards!
+        assert (rawBeg >= outLevels[curLevel]);
+        System.arraycopy(inBuf, rawBeg, outBuf, outLevels[curLevel], rawPop);
+        outLevels[curLevel + 1] = outLevels[curLevel] + rawPop;
+      }
+      else {
+        // The sketch is too full AND this level is too full, so we compact it
+        // Note: this can add a level and thus change the sketch's capacity
+
+        final int popAbove = inLevels[curLevel + 2] - rawLim;
+        final boolean oddPop = isOdd(rawPop);
+        final int adjBeg = oddPop ? 1 + rawBeg : rawBeg;
+        final int adjPop = oddPop ? rawPop - 1 : rawPop;
+        final int halfAdjPop = adjPop / 2;
+
+        if (oddPop) { // copy one guy over
+          outBuf[outLevels[curLevel]] = inBuf[rawBeg];
+          outLevels[curLevel + 1] = outLevels[curLevel] + 1;
+        } else { // copy zero guys over
+          outLevels[curLevel + 1] = outLevels[curLevel];
+        }
+
+        // level zero might not be sorted, so we must sort it if we wish to compact it
+        if ((curLevel == 0) && !isLevelZeroSorted) {
+          sortItems(inBuf, adjBeg, adjBeg + adjPop, comparator);
+        }
+
+        if (popAbove == 0) { // Level above is empty, so halve up
+          randomlyHalveUpItems(inBuf, adjBeg, adjPop, random);
+        } else { // Level above is nonempty, so halve down, then merge up
+          randomlyHalveDownItems(inBuf, adjBeg, adjPop, random);
+          mergeSortedItemsArrays(inBuf, adjBeg, halfAdjPop, inBuf, rawLim, popAbove, inBuf, adjBeg + halfAdjPop,
+              comparator);
+        }
+
+        // track the fact that we just eliminated some data
+        currentItemCount -= halfAdjPop;
+
+        // Adjust the boundaries of the level above
+        inLevels[curLevel + 1] = inLevels[curLevel + 1] - halfAdjPop;
+
+        // Increment numLevels if we just compacted the old top level
+        // This creates some more capacity (the size of the new bottom level)
+        if (curLevel == (numLevels - 1)) {
+          numLevels++;
+          targetItemCount += KllHelper.levelCapacity(k, numLevels, 0, m);
+        }
+      } // end of code for compacting a level
+
+      // determine whether we have processed all levels yet (including any new levels that we created)
+      if (curLevel == (numLevels - 1)) { doneYet = true; }
+    } // end of loop over levels
+
+    assert (outLevels[numLevels] - outLevels[0]) == currentItemCount;
+    return new int[] {numLevels, targetItemCount, currentItemCount};
+  }
+
+  private static <T> void populateItemsWorkArrays(
+      final Object[] workbuf, final int[] worklevels, final int provisionalNumLevels,
+      final int myCurNumLevels, final int[] myCurLevelsArr, final Object[] myCurItemsArr,
+      final int otherNumLevels, final int[] otherLevelsArr, final Object[] otherItemsArr,
+      final Comparator<? super T> comparator) {
+    worklevels[0] = 0;
+
+    // Note: the level zero data from "other" was already inserted into "self"
+    final int selfPopZero = KllHelper.currentLevelSize(0, myCurNumLevels, myCurLevelsArr);
+    System.arraycopy(myCurItemsArr, myCurLevelsArr[0], workbuf, worklevels[0], selfPopZero);
+    worklevels[1] = worklevels[0] + selfPopZero;
+
+    for (int lvl = 1; lvl < provisionalNumLevels; lvl++) {
+      final int selfPop = KllHelper.currentLevelSize(lvl, myCurNumLevels, myCurLevelsArr);
+      final int otherPop = KllHelper.currentLevelSize(lvl, otherNumLevels, otherLevelsArr);
+      worklevels[lvl + 1] = worklevels[lvl] + selfPop + otherPop;
+
+      if (selfPop > 0 && otherPop == 0) {
+        System.arraycopy(myCurItemsArr, myCurLevelsArr[lvl], workbuf, worklevels[lvl], selfPop);
+      } else if (selfPop == 0 && otherPop > 0) {
+        System.arraycopy(otherItemsArr, otherLevelsArr[lvl], workbuf, worklevels[lvl], otherPop);
+      } else if (selfPop > 0 && otherPop > 0) {
+        mergeSortedItemsArrays(myCurItemsArr, myCurLevelsArr[lvl], selfPop, otherItemsArr,
+            otherLevelsArr[lvl], otherPop, workbuf, worklevels[lvl], comparator);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,668 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.apache.datasketches.kll.KllPreambleUtil.DATA_START_ADR;
+import static org.apache.datasketches.kll.KllPreambleUtil.DATA_START_ADR_SINGLE_ITEM;
+import static org.apache.datasketches.kll.KllPreambleUtil.EMPTY_BIT_MASK;
+import static org.apache.datasketches.kll.KllPreambleUtil.ITEMS_SKETCH_BIT_MASK;
+import static org.apache.datasketches.kll.KllPreambleUtil.KLL_FAMILY;
+import static org.apache.datasketches.kll.KllPreambleUtil.LEVEL_ZERO_SORTED_BIT_MASK;
+import static org.apache.datasketches.kll.KllPreambleUtil.N_LONG_ADR;
+import static org.apache.datasketches.kll.KllPreambleUtil.PREAMBLE_INTS_EMPTY_SINGLE;
+import static org.apache.datasketches.kll.KllPreambleUtil.PREAMBLE_INTS_FULL;
+import static org.apache.datasketches.kll.KllPreambleUtil.SERIAL_VERSION_EMPTY_FULL;
+import static org.apache.datasketches.kll.KllPreambleUtil.SERIAL_VERSION_SINGLE;
+import static org.apache.datasketches.kll.KllPreambleUtil.SINGLE_ITEM_BIT_MASK;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryFamilyID;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryFlags;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryK;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryM;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryMinK;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryN;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryNumLevels;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemoryPreInts;
+import static org.apache.datasketches.kll.KllPreambleUtil.setMemorySerVer;
+import static org.apache.datasketches.kll.KllSketch.Error.SRC_MUST_BE_ITEMS;
+
+import java.lang.reflect.Array;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.datasketches.ArrayOfItemsSerDe;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.Util;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * This is an implementation of the KLL sketch for generic items that are ordered by a given
+ * Comparator, such as strings or composite keys. It has the same level structure, compaction
+ * and merge algorithms as the KllDoublesSketch, and needs roughly half of the space of the
+ * classic quantiles ItemsSketch for the same rank error.
+ *
+ * <p>This sketch is on the Java heap only. Its serialized form is the compact form of the other KLL
+ * sketches with the ITEMS_SKETCH flag set, where the items are serialized by a given
+ * ArrayOfItemsSerDe.</p>
+ *
+ * <p>The retained items sorted together with their cumulative weights are computed by the first
+ * quantile, rank, PMF or CDF query and kept until the sketch is next updated, merged or reset,
+ * so a sequence of queries pays the cost of the merge sort only once.</p>
+ *
+ * <p>Please refer to the documentation in the package-info:<br>
+ * {@link org.apache.datasketches.kll}</p>
+ *
+ * @param <T> the item type
+ */
+public final class KllItemsSketch<T> {
+  private final int k_;    // configured value of K.
+  private final int m_;    // configured value of M.
+  private final Comparator<? super T> comparator_;
+  private long n_;        // number of items input into this sketch.
+  private int minK_;    // dynamic minK for error estimation after merging with different k.
+  private boolean isLevelZeroSorted_;
+  private T minValue_;
+  private T maxValue_;
+  private int[] levelsArr_;
+  private Object[] items_;
+  private KllItemsSortedView<T> sortedView_; // null until the next query
+  private Random random_; // null uses the ThreadLocalRandom of the calling thread
+
+  private KllItemsSketch(final int k, final int m, final Comparator<? super T> comparator) {
+    KllHelper.checkM(m);
+    KllHelper.checkK(k, m);
+    k_ = k;
+    m_ = m;
+    comparator_ = comparator;
+    n_ = 0;
+    minK_ = k;
+    isLevelZeroSorted_ = false;
+    levelsArr_ = new int[] {k, k};
+    minValue_ = null;
+    maxValue_ = null;
+    items_ = new Object[k];
+  }
+
+  /**
+   * Create a new heap instance of this sketch with the default <em>k = 200</em>.
+   * The default <em>k</em> = 200 results in a normalized rank error of about
+   * 1.65%. Higher values of K will have smaller error but the sketch will be larger (and slower).
+   * @param <T> the item type
+   * @param comparator to compare items
+   * @return new KllItemsSketch on the heap.
+   */
+  public static <T> KllItemsSketch<T> newHeapInstance(final Comparator<? super T> comparator) {
+    return newHeapInstance(KllSketch.DEFAULT_K, comparator);
+  }
+
+  /**
+   * Create a new heap instance of this sketch with a given parameter <em>k</em>.
+   * <em>k</em> can be any value between DEFAULT_M and 65535, inclusive.
+   * The default <em>k</em> = 200 results in a normalized rank error of about
+   * 1.65%. Higher values of K will have smaller error but the sketch will be larger (and slower).
+   * @param <T> the item type
+   * @param k parameter that controls size of the sketch and accuracy of estimates.
+   * @param comparator to compare items
+   * @return new KllItemsSketch on the heap.
+   */
+  public static <T> KllItemsSketch<T> newHeapInstance(final int k, final Comparator<? super T> comparator) {
+    Objects.requireNonNull(comparator, "Parameter 'comparator' must not be null");
+    return new KllItemsSketch<>(k, KllSketch.DEFAULT_M, comparator);
+  }
+
+  /**
+   * Factory heapify takes the sketch image in Memory and instantiates an on-heap sketch.
+   * The resulting sketch will not retain any link to the source Memory.
+   * @param <T> the item type
+   * @param srcMem a Memory image of a sketch serialized by this sketch.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @param comparator to compare items
+   * @param serDe an instance of ArrayOfItemsSerDe
+   * @return a heap-based sketch based on the given Memory.
+   */
+  public static <T> KllItemsSketch<T> heapify(final Memory srcMem,
+      final Comparator<? super T> comparator, final ArrayOfItemsSerDe<T> serDe) {
+    Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
+    Objects.requireNonNull(comparator, "Parameter 'comparator' must not be null");
+    Objects.requireNonNull(serDe, "Parameter 'serDe' must not be null");
+    final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
+    if (!memVal.itemsSketch) { KllSketch.Error.kllSketchThrow(SRC_MUST_BE_ITEMS); }
+    final KllItemsSketch<T> sk = new KllItemsSketch<>(memVal.k, memVal.m, comparator);
+    if (memVal.empty) { return sk; }
+    if (memVal.singleItem) {
+      final Memory reg = srcMem.region(DATA_START_ADR_SINGLE_ITEM,
+          srcMem.getCapacity() - DATA_START_ADR_SINGLE_ITEM);
+      sk.update(serDe.deserializeFromMemory(reg, 1)[0]);
+      return sk;
+    }
+    sk.n_ = memVal.n;
+    sk.minK_ = memVal.minK;
+    sk.isLevelZeroSorted_ = memVal.level0Sorted;
+    sk.levelsArr_ = memVal.levelsArr;
+    final int capacityItems = sk.levelsArr_[memVal.numLevels];
+    final int retainedItems = capacityItems - sk.levelsArr_[0];
+    final int offsetBytes = DATA_START_ADR + memVal.numLevels * Integer.BYTES;
+    final Memory reg = srcMem.region(offsetBytes, srcMem.getCapacity() - offsetBytes);
+    final T[] minMaxItems = serDe.deserializeFromMemory(reg, retainedItems + 2); //+2 is for min & max
+    sk.minValue_ = minMaxItems[0];
+    sk.maxValue_ = minMaxItems[1];
+    sk.items_ = new Object[capacityItems];
+    System.arraycopy(minMaxItems, 2, sk.items_, sk.levelsArr_[0], retainedItems);
+    return sk;
+  }
+
+  /**
+   * Gets the normalized rank error given k and pmf.
+   * Static method version of the <i>getNormalizedRankError(boolean)</i>.
+   * @param k the configuration parameter
+   * @param pmf if true, returns the "double-sided" normalized rank error for the getPMF() function.
+   * Otherwise, it is the "single-sided" normalized rank error for all the other queries.
+   * @return if pmf is true, the normalized rank error for the getPMF() function.
+   * Otherwise, it is the "single-sided" normalized rank error for all the other queries.
+   */
+  public static double getNormalizedRankError(final int k, final boolean pmf) {
+    return KllHelper.getNormalizedRankError(k, pmf);
+  }
+
+  /**
+   * Returns an approximation to the Cumulative Distribution Function (CDF), which is the
+   * cumulative analog of the PMF, of the input stream given a set of splitPoint (values).
+   *
+   * <p>The resulting approximations have a probabilistic guarantee that can be obtained from the
+   * getNormalizedRankError(false) function.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing item values
+   * that divide the ordered space into <i>m+1</i> consecutive disjoint intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
+   * exclusive of the right splitPoint, with the exception that the last interval will include
+   * the maximum value.
+   * It is not necessary to include either the min or max values in these split points.
+   *
+   * @return an array of m+1 double values on the interval [0.0, 1.0),
+   * which are a consecutive approximation to the CDF of the input stream given the splitPoints.
+   * The value at array position j of the returned CDF array is the sum of the returned values
+   * in positions 0 through j of the returned PMF array.
+   */
+  public double[] getCDF(final T[] splitPoints) {
+    if (isEmpty()) { return null; }
+    KllItemsHelper.validateItemValues(splitPoints, comparator_);
+    return getSortedView().getPmfOrCdf(splitPoints, true);
+  }
+
+  /**
+   * Returns the configured value of K
+   * @return the configured value of K
+   */
+  public int getK() {
+    return k_;
+  }
+
+  /**
+   * Returns the max value of the stream.
+   * If the sketch is empty this returns null.
+   *
+   * @return the max value of the stream
+   */
+  public T getMaxValue() {
+    return maxValue_;
+  }
+
+  /**
+   * Returns the min value of the stream.
+   * If the sketch is empty this returns null.
+   *
+   * @return the min value of the stream
+   */
+  public T getMinValue() {
+    return minValue_;
+  }
+
+  /**
+   * Returns the length of the input stream.
+   * @return stream length
+   */
+  public long getN() {
+    return n_;
+  }
+
+  /**
+   * Gets the approximate rank error of this sketch normalized as a fraction between zero and one.
+   * @param pmf if true, returns the "double-sided" normalized rank error for the getPMF() function.
+   * Otherwise, it is the "single-sided" normalized rank error for all the other queries.
+   * The epsilon value returned is a best fit to 99 percentile empirically measured max error in
+   * thousands of trials
+   * @return if pmf is true, returns the normalized rank error for the getPMF() function.
+   * Otherwise, it is the "single-sided" normalized rank error for all the other queries.
+   */
+  public double getNormalizedRankError(final boolean pmf) {
+    return getNormalizedRankError(minK_, pmf);
+  }
+
+  /**
+   * Returns the number of retained items (samples) in the sketch.
+   * @return the number of retained items (samples) in the sketch
+   */
+  public int getNumRetained() {
+    return levelsArr_[getNumLevels()] - levelsArr_[0];
+  }
+
+  /**
+   * Returns an approximation to the Probability Mass Function (PMF) of the input stream
+   * given a set of splitPoints (values).
+   *
+   * <p>The resulting approximations have a probabilistic guarantee that can be obtained from the
+   * getNormalizedRankError(true) function.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing item values
+   * that divide the ordered space into <i>m+1</i> consecutive disjoint intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
+   * exclusive of the right splitPoint, with the exception that the last interval will include
+   * the maximum value.
+   * It is not necessary to include either the min or max values in these split points.
+   *
+   * @return an array of m+1 doubles on the interval [0.0, 1.0),
+   * each of which is an approximation to the fraction of the total input stream values
+   * (the mass) that fall into one of those intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint and exclusive of the right
+   * splitPoint, with the exception that the last interval will include maximum value.
+   */
+  public double[] getPMF(final T[] splitPoints) {
+    if (isEmpty()) { return null; }
+    KllItemsHelper.validateItemValues(splitPoints, comparator_);
+    return getSortedView().getPmfOrCdf(splitPoints, false);
+  }
+
+  /**
+   * Returns an approximation to the value of the data item
+   * that would be preceded by the given fraction of a hypothetical sorted
+   * version of the input stream so far.
+   *
+   * <p>The first call after the sketch has been modified computes the sorted view of the retained
+   * items, which later calls reuse.</p>
+   *
+   * <p>If the sketch is empty this returns null.
+   *
+   * @param fraction the specified fractional position in the hypothetical sorted stream.
+   * These are also called normalized ranks or fractional ranks.
+   * If fraction = 0.0, the true minimum value of the stream is returned.
+   * If fraction = 1.0, the true maximum value of the stream is returned.
+   *
+   * @return the approximation to the value at the given fraction
+   */
+  public T getQuantile(final double fraction) {
+    if (fraction < 0.0 || fraction > 1.0) {
+      throw new SketchesArgumentException("Fraction cannot be less than zero nor greater than 1.0");
+    }
+    if (isEmpty()) { return null; }
+    //These two assumptions make KLL compatible with the previous classic Quantiles Sketch
+    if (fraction == 0.0) { return minValue_; }
+    if (fraction == 1.0) { return maxValue_; }
+    return getSortedView().getQuantile(fraction);
+  }
+
+  /**
+   * Gets the lower bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%.
+   * @param fraction the given normalized rank as a fraction
+   * @return the lower bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%. Returns null if the sketch is empty.
+   */
+  public T getQuantileLowerBound(final double fraction) {
+    return getQuantile(max(0, fraction - getNormalizedRankError(minK_, false)));
+  }
+
+  /**
+   * This is a more efficient multiple-query version of getQuantile().
+   *
+   * <p>This returns an array that could have been generated by using getQuantile() with many
+   * different fractional ranks, but would be very inefficient.
+   * This method incurs the internal set-up overhead once and obtains multiple quantile values in
+   * a single query. It is strongly recommend that this method be used instead of multiple calls
+   * to getQuantile().
+   *
+   * <p>If the sketch is empty this returns null.
+   *
+   * @param fractions given array of fractional positions in the hypothetical sorted stream.
+   * These are also called normalized ranks or fractional ranks.
+   * These fractions must be in the interval [0.0, 1.0], inclusive.
+   *
+   * @return array of approximations to the given fractions in the same order as given fractions
+   * array.
+   */
+  public T[] getQuantiles(final double[] fractions) {
+    if (isEmpty()) { return null; }
+    @SuppressWarnings("unchecked")
+    final T[] quantiles = (T[]) Array.newInstance(minValue_.getClass(), fractions.length);
+    for (int i = 0; i < fractions.length; i++) {
+      quantiles[i] = getQuantile(fractions[i]);
+    }
+    return quantiles;
+  }
+
+  /**
+   * This is also a more efficient multiple-query version of getQuantile() and allows the caller to
+   * specify the number of evenly spaced fractional ranks.
+   *
+   * <p>If the sketch is empty this returns null.
+   *
+   * @param numEvenlySpaced an integer that specifies the number of evenly spaced fractional ranks.
+   * This must be a positive integer greater than 0. A value of 1 will return the min value.
+   * A value of 2 will return the min and the max value. A value of 3 will return the min,
+   * the median and the max value, etc.
+   *
+   * @return array of approximations to the given fractions in the same order as given fractions
+   * array.
+   */
+  public T[] getQuantiles(final int numEvenlySpaced) {
+    if (isEmpty()) { return null; }
+    return getQuantiles(Util.evenlySpaced(0.0, 1.0, numEvenlySpaced));
+  }
+
+  /**
+   * Gets the upper bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%.
+   * @param fraction the given normalized rank as a fraction
+   * @return the upper bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%. Returns null if the sketch is empty.
+   */
+  public T getQuantileUpperBound(final double fraction) {
+    return getQuantile(min(1.0, fraction + getNormalizedRankError(minK_, false)));
+  }
+
+  /**
+   * Returns an approximation to the normalized (fractional) rank of the given value from 0 to 1,
+   * inclusive.
+   *
+   * <p>The resulting approximation has a probabilistic guarantee that can be obtained from the
+   * getNormalizedRankError(false) function.
+   *
+   * <p>If the sketch is empty this returns NaN.</p>
+   *
+   * @param value to be ranked
+   * @return an approximate rank of the given value
+   */
+  public double getRank(final T value) {
+    if (isEmpty()) { return Double.NaN; }
+    Objects.requireNonNull(value, "Parameter 'value' must not be null");
+    return getSortedView().getRank(value);
+  }
+
+  /**
+   * Returns true if this sketch is empty.
+   * @return empty flag
+   */
+  public boolean isEmpty() {
+    return n_ == 0;
+  }
+
+  /**
+   * Returns true if this sketch is in estimation mode.
+   * @return estimation mode flag
+   */
+  public boolean isEstimationMode() {
+    return getNumLevels() > 1;
+  }
+
+  /**
+   * @return the iterator for this class
+   */
+  public KllItemsSketchIterator<T> iterator() {
+    return new KllItemsSketchIterator<>(items_, levelsArr_, getNumLevels());
+  }
+
+  /**
+   * Merges another sketch into this one.
+   * @param other sketch to merge into this one
+   */
+  public void merge(final KllItemsSketch<T> other) {
+    Objects.requireNonNull(other, "Parameter 'other' must not be null");
+    if (other.isEmpty()) { return; }
+    sortedView_ = null;
+    KllItemsHelper.mergeItemsImpl(this, other);
+  }
+
+  /**
+   * This resets the current sketch back to zero entries.
+   * It retains key parameters such as <em>k</em> and the Comparator.
+   */
+  public void reset() {
+    n_ = 0;
+    minK_ = k_;
+    isLevelZeroSorted_ = false;
+    levelsArr_ = new int[] {k_, k_};
+    minValue_ = null;
+    maxValue_ = null;
+    items_ = new Object[k_];
+    sortedView_ = null;
+  }
+
+  /**
+   * Sets the source of randomness used by the compactions of this sketch.
+   * See {@link KllSketch#setRandom(Random)}.
+   * @param random the source of randomness for this sketch, or null to restore the default.
+   */
+  public void setRandom(final Random random) {
+    random_ = random;
+  }
+
+  /**
+   * Returns serialized sketch in a compact byte array form.
+   * @param serDe an instance of ArrayOfItemsSerDe
+   * @return serialized sketch in a compact byte array form.
+   */
+  @SuppressWarnings("unchecked")
+  public byte[] toByteArray(final ArrayOfItemsSerDe<T> serDe) {
+    Objects.requireNonNull(serDe, "Parameter 'serDe' must not be null");
+    final boolean singleItem = n_ == 1;
+    final int numLevels = getNumLevels();
+    final byte[] itemsBytes;
+    final int preBytes;
+    if (isEmpty()) {
+      itemsBytes = new byte[0];
+      preBytes = N_LONG_ADR;
+    } else if (singleItem) {
+      final T[] single = (T[]) Array.newInstance(minValue_.getClass(), 1);
+      single[0] = minValue_;
+      itemsBytes = serDe.serializeToByteArray(single);
+      preBytes = DATA_START_ADR_SINGLE_ITEM;
+    } else {
+      final int numRetained = getNumRetained();
+      final T[] minMaxItems = (T[]) Array.newInstance(minValue_.getClass(), numRetained + 2);
+      minMaxItems[0] = minValue_;
+      minMaxItems[1] = maxValue_;
+      System.arraycopy(items_, levelsArr_[0], minMaxItems, 2, numRetained);
+      itemsBytes = serDe.serializeToByteArray(minMaxItems);
+      preBytes = DATA_START_ADR + numLevels * Integer.BYTES;
+    }
+    final byte[] bytes = new byte[preBytes + itemsBytes.length];
+    final WritableMemory wmem = WritableMemory.writableWrap(bytes);
+    setMemoryPreInts(wmem, (isEmpty() || singleItem) ? PREAMBLE_INTS_EMPTY_SINGLE : PREAMBLE_INTS_FULL);
+    setMemorySerVer(wmem, singleItem ? SERIAL_VERSION_SINGLE : SERIAL_VERSION_EMPTY_FULL);
+    setMemoryFamilyID(wmem, KLL_FAMILY);
+    setMemoryFlags(wmem, ITEMS_SKETCH_BIT_MASK
+        | (isEmpty() ? EMPTY_BIT_MASK : 0)
+        | (singleItem ? SINGLE_ITEM_BIT_MASK : 0)
+        | (isLevelZeroSorted_ ? LEVEL_ZERO_SORTED_BIT_MASK : 0));
+    setMemoryK(wmem, k_);
+    setMemoryM(wmem, m_);
+    if (!isEmpty() && !singleItem) {
+      setMemoryN(wmem, n_);
+      setMemoryMinK(wmem, minK_);
+      setMemoryNumLevels(wmem, numLevels);
+      wmem.putIntArray(DATA_START_ADR, levelsArr_, 0, numLevels);
+    }
+    wmem.putByteArray(preBytes, itemsBytes, 0, itemsBytes.length);
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return toString(false, false);
+  }
+
+  /**
+   * Returns a summary of the sketch as a string.
+   * @param withLevels if true include information about levels
+   * @param withData if true include sketch data
+   * @return string representation of sketch summary
+   */
+  public String toString(final boolean withLevels, final boolean withData) {
+    final int numLevels = getNumLevels();
+    final String epsPct = String.format("%.3f%%", getNormalizedRankError(false) * 100);
+    final String epsPMFPct = String.format("%.3f%%", getNormalizedRankError(true) * 100);
+    final StringBuilder sb = new StringBuilder();
+    sb.append(Util.LS).append("### KllItemsSketch Summary:").append(Util.LS);
+    sb.append("   K                      : ").append(k_).append(Util.LS);
+    sb.append("   Dynamic min K          : ").append(minK_).append(Util.LS);
+    sb.append("   M                      : ").append(m_).append(Util.LS);
+    sb.append("   N                      : ").append(n_).append(Util.LS);
+    sb.append("   Epsilon                : ").append(epsPct).append(Util.LS);
+    sb.append("   Epsison PMF            : ").append(epsPMFPct).append(Util.LS);
+    sb.append("   Empty                  : ").append(isEmpty()).append(Util.LS);
+    sb.append("   Estimation Mode        : ").append(isEstimationMode()).append(Util.LS);
+    sb.append("   Levels                 : ").append(numLevels).append(Util.LS);
+    sb.append("   Level 0 Sorted         : ").append(isLevelZeroSorted_).append(Util.LS);
+    sb.append("   Capacity Items         : ").append(levelsArr_[numLevels]).append(Util.LS);
+    sb.append("   Retained Items         : ").append(getNumRetained()).append(Util.LS);
+    sb.append("   Min Value              : ").append(minValue_).append(Util.LS);
+    sb.append("   Max Value              : ").append(maxValue_).append(Util.LS);
+    sb.append("### End sketch summary").append(Util.LS);
+    if (withLevels) {
+      sb.append(KllHelper.outputLevels(k_, m_, numLevels, levelsArr_));
+    }
+    if (withData) {
+      sb.append("### KLL items data {index, item}:").append(Util.LS);
+      if (levelsArr_[0] > 0) {
+        sb.append(" Garbage:" + Util.LS);
+        for (int i = 0; i < levelsArr_[0]; i++) {
+          sb.append("   ").append(i + ", ").append(items_[i]).append(Util.LS);
+        }
+      }
+      for (int level = 0; level < numLevels; level++) {
+        final int fromIndex = levelsArr_[level];
+        final int toIndex = levelsArr_[level + 1]; // exclusive
+        if (fromIndex < toIndex) {
+          sb.append(" level[").append(level).append("]: offset: " + levelsArr_[level] + " wt: " + (1 << level));
+          sb.append(Util.LS);
+        }
+        for (int i = fromIndex; i < toIndex; i++) {
+          sb.append("   ").append(i + ", ").append(items_[i]).append(Util.LS);
+        }
+      }
+      sb.append(" level[" + numLevels + "]: offset: " + levelsArr_[numLevels] + " (Exclusive)");
+      sb.append(Util.LS);
+      sb.append("### End items data").append(Util.LS);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Updates this sketch with the given data item.
+   *
+   * @param item an item from a stream of items. Nulls are ignored.
+   */
+  public void update(final T item) {
+    if (item == null) { return; }
+    sortedView_ = null;
+    KllItemsHelper.updateItem(this, item);
+  }
+
+  //restricted
+
+  Comparator<? super T> getComparator() {
+    return comparator_;
+  }
+
+  Object[] getItemsArray() {
+    return items_;
+  }
+
+  int[] getLevelsArray() {
+    return levelsArr_;
+  }
+
+  int getM() {
+    return m_;
+  }
+
+  int getMinK() {
+    return minK_;
+  }
+
+  int getNumLevels() {
+    return levelsArr_.length - 1;
+  }
+
+  Random getRandom() {
+    return random_ != null ? random_ : ThreadLocalRandom.current();
+  }
+
+  boolean isLevelZeroSorted() {
+    return isLevelZeroSorted_;
+  }
+
+  void setItemsArray(final Object[] items) {
+    items_ = items;
+  }
+
+  void setLevelsArray(final int[] levelsArr) {
+    levelsArr_ = levelsArr;
+  }
+
+  void setLevelZeroSorted(final boolean sorted) {
+    isLevelZeroSorted_ = sorted;
+  }
+
+  void setMaxValue(final T value) {
+    maxValue_ = value;
+  }
+
+  void setMinK(final int minK) {
+    minK_ = minK;
+  }
+
+  void setMinValue(final T value) {
+    minValue_ = value;
+  }
+
+  void setN(final long n) {
+    n_ = n;
+  }
+
+  private KllItemsSortedView<T> getSortedView() {
+    if (sortedView_ == null) {
+      if (!isLevelZeroSorted_) {
+        KllItemsHelper.sortItems(items_, levelsArr_[0], levelsArr_[1], comparator_);
+        isLevelZeroSorted_ = true;
+      }
+      sortedView_ = new KllItemsSortedView<>(items_, levelsArr_, getNumLevels(), n_, comparator_);
+    }
+    return sortedView_;
+  }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.datasketches.QuantilesHelper;
+
+/**
+ * The retained items of a KllItemsSketch in sorted order together with their cumulative weights.
+ * A KllItemsSketch keeps this view until the sketch is next modified, so that repeated quantile,
+ * rank, PMF and CDF queries pay the cost of the merge sort only once. Rank queries are answered with
+ * a binary search, which needs O(log(numRetained)) comparisons.
+ *
+ * @param <T> the item type
+ */
+final class KllItemsSortedView<T> {
+
+  private final long n_;
+  private final Object[] items_;
+  private final long[] weights_; //comes in as weights, converted to cumulative weights
+  private final int[] levels_;
+  private final Comparator<? super T> comparator_;
+  private int numLevels_;
+
+  // assumes that all levels are sorted including level 0
+  KllItemsSortedView(final Object[] items, final int[] levels, final int numLevels, final long n,
+      final Comparator<? super T> comparator) {
+    n_ = n;
+    comparator_ = comparator;
+    final int numItems = levels[numLevels] - levels[0];
+    items_ = new Object[numItems];
+    weights_ = new long[numItems + 1]; // one more is intentional
+    levels_ = new int[numLevels + 1];
+    populateFromSketch(items, levels, numLevels, numItems);
+    blockyTandemMergeSort(items_, weights_, levels_, numLevels_, comparator_);
+    QuantilesHelper.convertToPrecedingCummulative(weights_);
+  }
+
+  /**
+   * Returns the retained item at the given normalized rank.
+   * @param rank the given normalized rank, which must be in the interval [0.0, 1.0).
+   * @return the retained item at the given normalized rank.
+   */
+  @SuppressWarnings("unchecked")
+  T getQuantile(final double rank) {
+    final long pos = QuantilesHelper.posOfRank(rank, n_);
+    assert pos >= 0;
+    assert pos < n_;
+    final int index = QuantilesHelper.chunkContainingPos(weights_, pos);
+    return (T) items_[index];
+  }
+
+  /**
+   * Returns the normalized rank of the given value, which is the fraction of the weight of the
+   * retained items that are less than the given value.
+   * @param value the given value
+   * @return the normalized rank of the given value
+   */
+  double getRank(final T value) {
+    return (double) weights_[lowerBound(value)] / n_;
+  }
+
+  /**
+   * Returns the PMF or CDF of the given split points, which must have been validated.
+   * @param splitPoints the given split points
+   * @param isCdf true if the CDF is required, otherwise the PMF.
+   * @return the PMF or CDF of the given split points
+   */
+  double[] getPmfOrCdf(final T[] splitPoints, final boolean isCdf) {
+    final double[] buckets = new double[splitPoints.length + 1];
+    for (int j = 0; j < splitPoints.length; j++) {
+      buckets[j] = getRank(splitPoints[j]);
+    }
+    buckets[splitPoints.length] = 1.0;
+    if (!isCdf) {
+      for (int j = splitPoints.length; j > 0; j--) {
+        buckets[j] -= buckets[j - 1];
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * Returns the index of the first sorted item that is not less than the given value,
+   * or the number of items if there is none.
+   * @param value the given value
+   * @return the index of the first sorted item that is not less than the given value
+   */
+  @SuppressWarnings("unchecked")
+  private int lowerBound(final T value) {
+    int lo = 0;
+    int hi = items_.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (comparator_.compare((T) items_[mid], value) < 0) { lo = mid + 1; }
+      else { hi = mid; }
+    }
+    return lo;
+  }
+
+  private static <T> void blockyTandemMergeSort(final Object[] items, final long[] weights,
+      final int[] levels, final int numLevels, final Comparator<? super T> comparator) {
+    if (numLevels == 1) { return; }
+
+    // duplicate the input in preparation for the "ping-pong" copy reduction strategy.
+    final Object[] itemsTmp = Arrays.copyOf(items, items.length);
+    final long[] weightsTmp = Arrays.copyOf(weights, items.length); // don't need the extra one here
+
+    blockyTandemMergeSortRecursion(itemsTmp, weightsTmp, items, weights, levels, 0, numLevels, comparator);
+  }
+
+  private static <T> void blockyTandemMergeSortRecursion(
+      final Object[] itemsSrc, final long[] weightsSrc,
+      final Object[] itemsDst, final long[] weightsDst,
+      final int[] levels, final int startingLevel, final int numLevels,
+      final Comparator<? super T> comparator) {
+    if (numLevels == 1) { return; }
+    final int numLevels1 = numLevels / 2;
+    final int numLevels2 = numLevels - numLevels1;
+    assert numLevels1 >= 1;
+    assert numLevels2 >= numLevels1;
+    final int startingLevel1 = startingLevel;
+    final int startingLevel2 = startingLevel + numLevels1;
+    // swap roles of src and dst
+    blockyTandemMergeSortRecursion(
+        itemsDst, weightsDst,
+        itemsSrc, weightsSrc,
+        levels, startingLevel1, numLevels1, comparator);
+    blockyTandemMergeSortRecursion(
+        itemsDst, weightsDst,
+        itemsSrc, weightsSrc,
+        levels, startingLevel2, numLevels2, comparator);
+    tandemMerge(
+        itemsSrc, weightsSrc,
+        itemsDst, weightsDst,
+        levels,
+        startingLevel1, numLevels1,
+        startingLevel2, numLevels2, comparator);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> void tandemMerge(
+      final Object[] itemsSrc, final long[] weightsSrc,
+      final Object[] itemsDst, final long[] weightsDst,
+      final int[] levelStarts,
+      final int startingLevel1, final int numLevels1,
+      final int startingLevel2, final int numLevels2,
+      final Comparator<? super T> comparator) {
+    final int fromIndex1 = levelStarts[startingLevel1];
+    final int toIndex1 = levelStarts[startingLevel1 + numLevels1]; // exclusive
+    final int fromIndex2 = levelStarts[startingLevel2];
+    final int toIndex2 = levelStarts[startingLevel2 + numLevels2]; // exclusive
+    int iSrc1 = fromIndex1;
+    int iSrc2 = fromIndex2;
+    int iDst = fromIndex1;
+
+    while (iSrc1 < toIndex1 && iSrc2 < toIndex2) {
+      if (comparator.compare((T) itemsSrc[iSrc1], (T) itemsSrc[iSrc2]) < 0) {
+        itemsDst[iDst] = itemsSrc[iSrc1];
+        weightsDst[iDst] = weightsSrc[iSrc1];
+        iSrc1++;
+      } else {
+        itemsDst[iDst] = itemsSrc[iSrc2];
+        weightsDst[iDst] = weightsSrc[iSrc2];
+        iSrc2++;
+      }
+      iDst++;
+    }
+    if (iSrc1 < toIndex1) {
+      System.arraycopy(itemsSrc, iSrc1, itemsDst, iDst, toIndex1 - iSrc1);
+      System.arraycopy(weightsSrc, iSrc1, weightsDst, iDst, toIndex1 - iSrc1);
+    } else if (iSrc2 < toIndex2) {
+      System.arraycopy(itemsSrc, iSrc2, itemsDst, iDst, toIndex2 - iSrc2);
+      System.arraycopy(weightsSrc, iSrc2, weightsDst, iDst, toIndex2 - iSrc2);
+    }
+  }
+
+  private void populateFromSketch(final Object[] srcItems, final int[] srcLevels,
+      final int numLevels, final int numItems) {
+    final int offset = srcLevels[0];
+    System.arraycopy(srcItems, offset, items_, 0, numItems);
+    int srcLevel = 0;
+    int dstLevel = 0;
+    long weight = 1;
+    while (srcLevel < numLevels) {
+      final int fromIndex = srcLevels[srcLevel] - offset;
+      final int toIndex = srcLevels[srcLevel + 1] - offset; // exclusive
+      if (fromIndex < toIndex) { // if equal, skip empty level
+        Arrays.fill(weights_, fromIndex, toIndex, weight);
+        levels_[dstLevel] = fromIndex;
+        levels_[dstLevel + 1] = toIndex;
+        dstLevel++;
+      }
+      srcLevel++;
+      weight *= 2;
+    }
+    weights_[numItems] = 0;
+    numLevels_ = dstLevel;
+  }
+
+}
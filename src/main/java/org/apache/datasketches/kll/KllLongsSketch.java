@@ -0,0 +1,404 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryUpdatableFormatFlag;
+import static org.apache.datasketches.kll.KllSketch.Error.MUST_NOT_BE_UPDATABLE_FORMAT;
+import static org.apache.datasketches.kll.KllSketch.Error.MUST_NOT_CALL;
+import static org.apache.datasketches.kll.KllSketch.Error.SRC_MUST_BE_LONG;
+import static org.apache.datasketches.kll.KllSketch.Error.TGT_IS_READ_ONLY;
+import static org.apache.datasketches.kll.KllSketch.Error.kllSketchThrow;
+
+import java.util.Objects;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * This variation of the KllSketch implements primitive longs for the quantile values.
+ * The retained items are the original long values, so every quantile returned is one of the
+ * values of the stream, exactly, even above 2<sup>53</sup>, where a KllDoublesSketch would round.
+ *
+ * <p>Please refer to the documentation in the package-info:<br>
+ * {@link org.apache.datasketches.kll}</p>
+ */
+public abstract class KllLongsSketch extends KllSketch {
+
+  KllLongsSketch(final WritableMemory wmem, final MemoryRequestServer memReqSvr) {
+    super(SketchType.LONGS_SKETCH, wmem, memReqSvr);
+  }
+
+  /**
+   * Returns upper bound on the serialized size of a KllLongsSketch given the following parameters.
+   * @param k parameter that controls size of the sketch and accuracy of estimates
+   * @param n stream length
+   * @param updatableMemoryFormat true if updatable Memory format, otherwise the standard compact format.
+   * @return upper bound on the serialized size of a KllSketch.
+   */
+  public static int getMaxSerializedSizeBytes(final int k, final long n, final boolean updatableMemoryFormat) {
+    return getMaxSerializedSizeBytes(k, n, SketchType.LONGS_SKETCH, updatableMemoryFormat);
+  }
+
+  /**
+   * Factory heapify takes the sketch image in Memory and instantiates an on-heap sketch.
+   * The resulting sketch will not retain any link to the source Memory.
+   * @param srcMem a Memory image of a sketch serialized by this sketch.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @return a heap-based sketch based on the given Memory.
+   */
+  public static KllLongsSketch heapify(final Memory srcMem) {
+    Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
+    if (getMemoryUpdatableFormatFlag(srcMem)) { Error.kllSketchThrow(MUST_NOT_BE_UPDATABLE_FORMAT); }
+    return KllHeapLongsSketch.heapifyImpl(srcMem);
+  }
+
+  /**
+   * Create a new direct instance of this sketch with a given <em>k</em>.
+   * @param k parameter that controls size of the sketch and accuracy of estimates.
+   * @param dstMem the given destination WritableMemory object for use by the sketch
+   * @param memReqSvr the given MemoryRequestServer to request a larger WritableMemory
+   * @return a new direct instance of this sketch
+   */
+  public static KllLongsSketch newDirectInstance(
+      final int k,
+      final WritableMemory dstMem,
+      final MemoryRequestServer memReqSvr) {
+    Objects.requireNonNull(dstMem, "Parameter 'dstMem' must not be null");
+    Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
+    return KllDirectLongsSketch.newDirectInstance(k, DEFAULT_M, dstMem, memReqSvr);
+  }
+
+  /**
+   * Create a new direct instance of this sketch with the default <em>k</em>.
+   * The default <em>k</em> = 200 results in a normalized rank error of about
+   * 1.65%. Higher values of <em>k</em> will have smaller error but the sketch will be larger (and slower).
+   * @param dstMem the given destination WritableMemory object for use by the sketch
+   * @param memReqSvr the given MemoryRequestServer to request a larger WritableMemory
+   * @return a new direct instance of this sketch
+   */
+  public static KllLongsSketch newDirectInstance(
+      final WritableMemory dstMem,
+      final MemoryRequestServer memReqSvr) {
+    Objects.requireNonNull(dstMem, "Parameter 'dstMem' must not be null");
+    Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
+    return KllDirectLongsSketch.newDirectInstance(DEFAULT_K, DEFAULT_M, dstMem, memReqSvr);
+  }
+
+  /**
+   * Create a new heap instance of this sketch with the default <em>k = 200</em>.
+   * The default <em>k</em> = 200 results in a normalized rank error of about
+   * 1.65%. Higher values of K will have smaller error but the sketch will be larger (and slower).
+   * This will have a rank error of about 1.65%.
+   * @return new KllLongsSketch on the heap.
+   */
+  public static KllLongsSketch  newHeapInstance() {
+    return new KllHeapLongsSketch(DEFAULT_K, DEFAULT_M);
+  }
+
+  /**
+   * Create a new heap instance of this sketch with a given parameter <em>k</em>.
+   * <em>k</em> can be any value between DEFAULT_M and 65535, inclusive.
+   * The default <em>k</em> = 200 results in a normalized rank error of about
+   * 1.65%. Higher values of K will have smaller error but the sketch will be larger (and slower).
+   * @param k parameter that controls size of the sketch and accuracy of estimates.
+   * @return new KllLongsSketch on the heap.
+   */
+  public static KllLongsSketch newHeapInstance(final int k) {
+    return new KllHeapLongsSketch(k, DEFAULT_M);
+  }
+
+  /**
+   * Wrap a sketch around the given read only source Memory containing sketch data
+   * that originated from this sketch.
+   * @param srcMem the read only source Memory
+   * @return instance of this sketch
+   */
+  public static KllLongsSketch wrap(final Memory srcMem) {
+    Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
+    final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
+    if (!memVal.longsSketch) { Error.kllSketchThrow(SRC_MUST_BE_LONG); }
+    if (memVal.updatableMemFormat) {
+      return new KllDirectLongsSketch((WritableMemory) srcMem, null, memVal);
+    } else {
+      return new KllDirectCompactLongsSketch(srcMem, memVal);
+    }
+  }
+
+  /**
+   * Wrap a sketch around the given source Memory containing sketch data that originated from
+   * this sketch.
+   * @param srcMem a WritableMemory that contains data.
+   * @param memReqSvr the given MemoryRequestServer to request a larger WritableMemory
+   * @return instance of this sketch
+   */
+  public static KllLongsSketch writableWrap(
+      final WritableMemory srcMem,
+      final MemoryRequestServer memReqSvr) {
+    Objects.requireNonNull(srcMem, "Parameter 'srcMem' must not be null");
+    final KllMemoryValidate memVal = new KllMemoryValidate(srcMem);
+    if (!memVal.longsSketch) { Error.kllSketchThrow(SRC_MUST_BE_LONG); }
+    if (memVal.updatableMemFormat) {
+      if (!memVal.readOnly) {
+        Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
+      }
+      return new KllDirectLongsSketch(srcMem, memReqSvr, memVal);
+    } else {
+      return new KllDirectCompactLongsSketch(srcMem, memVal);
+    }
+  }
+
+  /**
+   * Returns an approximation to the Cumulative Distribution Function (CDF), which is the
+   * cumulative analog of the PMF, of the input stream given a set of splitPoint (values).
+   *
+   * <p>The resulting approximations have a probabilistic guarantee that can be obtained from the
+   * getNormalizedRankError(false) function.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing long values
+   * that divide the range of long values into <i>m+1</i> consecutive disjoint intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
+   * exclusive of the right splitPoint, with the exception that the last interval will include
+   * the maximum value.
+   * It is not necessary to include either the min or max values in these split points.
+   *
+   * @return an array of m+1 double values on the interval [0.0, 1.0),
+   * which are a consecutive approximation to the CDF of the input stream given the splitPoints.
+   * The value at array position j of the returned CDF array is the sum of the returned values
+   * in positions 0 through j of the returned PMF array.
+   */
+  public double[] getCDF(final long[] splitPoints) {
+    return KllLongsHelper.getLongsPmfOrCdf(this, splitPoints, true);
+  }
+
+  /**
+   * Returns the max value of the stream.
+   * If the sketch is empty this throws a SketchesArgumentException.
+   *
+   * @return the max value of the stream
+   */
+  public long getMaxValue() { return KllLongsHelper.getLongMaxValue(this); }
+
+  /**
+   * Returns the min value of the stream.
+   * If the sketch is empty this throws a SketchesArgumentException.
+   *
+   * @return the min value of the stream
+   */
+  public long getMinValue() { return KllLongsHelper.getLongMinValue(this); }
+
+  /**
+   * Returns an approximation to the Probability Mass Function (PMF) of the input stream
+   * given a set of splitPoints (values).
+   *
+   * <p>The resulting approximations have a probabilistic guarantee that can be obtained from the
+   * getNormalizedRankError(true) function.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing long values
+   * that divide the range of long values into <i>m+1</i> consecutive disjoint intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
+   * exclusive of the right splitPoint, with the exception that the last interval will include
+   * the maximum value.
+   * It is not necessary to include either the min or max values in these split points.
+   *
+   * @return an array of m+1 doubles on the interval [0.0, 1.0),
+   * each of which is an approximation to the fraction of the total input stream values
+   * (the mass) that fall into one of those intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint and exclusive of the right
+   * splitPoint, with the exception that the last interval will include maximum value.
+   */
+  public double[] getPMF(final long[] splitPoints) {
+    return KllLongsHelper.getLongsPmfOrCdf(this, splitPoints, false);
+  }
+
+  /**
+   * Returns an approximation to the value of the data item
+   * that would be preceded by the given fraction of a hypothetical sorted
+   * version of the input stream so far.
+   *
+   * <p>We note that this method has a fairly large overhead (microseconds instead of nanoseconds)
+   * so it should not be called multiple times to get different quantiles from the same
+   * sketch. Instead use getQuantiles(), which pays the overhead only once.
+   *
+   * <p>If the sketch is empty this throws a SketchesArgumentException.
+   *
+   * @param fraction the specified fractional position in the hypothetical sorted stream.
+   * These are also called normalized ranks or fractional ranks.
+   * If fraction = 0.0, the true minimum value of the stream is returned.
+   * If fraction = 1.0, the true maximum value of the stream is returned.
+   *
+   * @return the approximation to the value at the given fraction
+   */
+  public long getQuantile(final double fraction) {
+    return KllLongsHelper.getLongsQuantile(this, fraction);
+  }
+
+  /**
+   * Gets the lower bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%.
+   * @param fraction the given normalized rank as a fraction
+   * @return the lower bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%.
+   * Throws a SketchesArgumentException if the sketch is empty.
+   */
+  public long getQuantileLowerBound(final double fraction) {
+    return getQuantile(max(0, fraction - KllHelper.getNormalizedRankError(getMinK(), false)));
+  }
+
+  /**
+   * This is a more efficient multiple-query version of getQuantile().
+   *
+   * <p>This returns an array that could have been generated by using getQuantile() with many
+   * different fractional ranks, but would be very inefficient.
+   * This method incurs the internal set-up overhead once and obtains multiple quantile values in
+   * a single query. It is strongly recommend that this method be used instead of multiple calls
+   * to getQuantile().
+   *
+   * <p>If the sketch is empty this returns null.
+   *
+   * @param fractions given array of fractional positions in the hypothetical sorted stream.
+   * These are also called normalized ranks or fractional ranks.
+   * These fractions must be in the interval [0.0, 1.0], inclusive.
+   *
+   * @return array of approximations to the given fractions in the same order as given fractions
+   * array.
+   */
+  public long[] getQuantiles(final double[] fractions) {
+    return KllLongsHelper.getLongsQuantiles(this, fractions);
+  }
+
+  /**
+   * This is also a more efficient multiple-query version of getQuantile() and allows the caller to
+   * specify the number of evenly spaced fractional ranks.
+   *
+   * <p>If the sketch is empty this returns null.
+   *
+   * @param numEvenlySpaced an integer that specifies the number of evenly spaced fractional ranks.
+   * This must be a positive integer greater than 0. A value of 1 will return the min value.
+   * A value of 2 will return the min and the max value. A value of 3 will return the min,
+   * the median and the max value, etc.
+   *
+   * @return array of approximations to the given fractions in the same order as given fractions
+   * array.
+   */
+  public long[] getQuantiles(final int numEvenlySpaced) {
+    if (isEmpty()) { return null; }
+    return getQuantiles(org.apache.datasketches.Util.evenlySpaced(0.0, 1.0, numEvenlySpaced));
+  }
+
+  /**
+   * Gets the upper bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%.
+   * @param fraction the given normalized rank as a fraction
+   * @return the upper bound of the value interval in which the true quantile of the given rank
+   * exists with a confidence of at least 99%.
+   * Throws a SketchesArgumentException if the sketch is empty.
+   */
+  public long getQuantileUpperBound(final double fraction) {
+    return getQuantile(min(1.0, fraction + KllHelper.getNormalizedRankError(getMinK(), false)));
+  }
+
+  /**
+   * Returns an approximation to the normalized (fractional) rank of the given value from 0 to 1,
+   * inclusive.
+   *
+   * <p>The resulting approximation has a probabilistic guarantee that can be obtained from the
+   * getNormalizedRankError(false) function.
+   *
+   * <p>If the sketch is empty this returns NaN.</p>
+   *
+   * @param value to be ranked
+   * @return an approximate rank of the given value
+   */
+  public double getRank(final long value) {
+    return KllLongsHelper.getLongRank(this, value);
+  }
+
+  /**
+   * @return the iterator for this class
+   */
+  public KllLongsSketchIterator iterator() {
+    return new KllLongsSketchIterator(getLongItemsArray(), getLevelsArray(), getNumLevels());
+  }
+
+  /**
+   * Updates this sketch with the given data item.
+   *
+   * @param value an item from a stream of items.
+   */
+  public void update(final long value) {
+    if (readOnly) { kllSketchThrow(TGT_IS_READ_ONLY); }
+    KllLongsHelper.updateLong(this, value);
+  }
+  @Override //Artifact of inheritance
+  double[] getDoubleItemsArray() { kllSketchThrow(MUST_NOT_CALL); return null; }
+
+  @Override //Artifact of inheritance
+  double getDoubleSingleItem() { kllSketchThrow(MUST_NOT_CALL); return Double.NaN; }
+
+  @Override //Artifact of inheritance
+  float[] getFloatItemsArray() { kllSketchThrow(MUST_NOT_CALL); return null; }
+
+  @Override //Artifact of inheritance
+  float getFloatSingleItem() { kllSketchThrow(MUST_NOT_CALL); return Float.NaN; }
+
+  @Override //Artifact of inheritance
+  double getMaxDoubleValue() { kllSketchThrow(MUST_NOT_CALL); return Double.NaN; }
+
+  @Override //Artifact of inheritance
+  float getMaxFloatValue() { kllSketchThrow(MUST_NOT_CALL); return Float.NaN; }
+
+  @Override //Artifact of inheritance
+  double getMinDoubleValue() { kllSketchThrow(MUST_NOT_CALL); return Double.NaN; }
+
+  @Override //Artifact of inheritance
+  float getMinFloatValue() { kllSketchThrow(MUST_NOT_CALL); return Float.NaN; }
+
+  @Override //Artifact of inheritance
+  void setDoubleItemsArray(final double[] doubleItems) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setDoubleItemsArrayAt(final int index, final double value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setFloatItemsArray(final float[] floatItems) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setFloatItemsArrayAt(final int index, final float value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMaxDoubleValue(final double value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMaxFloatValue(final float value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMinDoubleValue(final double value) { kllSketchThrow(MUST_NOT_CALL); }
+
+  @Override //Artifact of inheritance
+  void setMinFloatValue(final float value) { kllSketchThrow(MUST_NOT_CALL); }
+
+}
@@ -20,10 +20,13 @@
 package org.apache.datasketches.kll;
 
 import static org.apache.datasketches.Family.idToFamily;
+import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.DOUBLESBIT_AND_LONGSBIT;
 import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.EMPTYBIT_AND_PREINTS;
 import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.EMPTYBIT_AND_SER_VER;
 import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.EMPTYBIT_AND_SINGLEBIT;
 import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.INVALID_PREINTS;
+import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.ITEMSBIT_AND_TYPEBIT;
+import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.ITEMSBIT_AND_UPDATABLEBIT;
 import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.SINGLEBIT_AND_PREINTS;
 import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.SINGLEBIT_AND_SER_VER;
 import static org.apache.datasketches.kll.KllMemoryValidate.MemoryInputError.SRC_NOT_KLL;
@@ -40,8 +43,10 @@ import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryDoubleSketchF
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryEmptyFlag;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryFamilyID;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryFlags;
+import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryItemsSketchFlag;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryK;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryLevelZeroSortedFlag;
+import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryLongSketchFlag;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryM;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryMinK;
 import static org.apache.datasketches.kll.KllPreambleUtil.getMemoryN;
@@ -74,11 +79,13 @@ final class KllMemoryValidate {
   boolean singleItem;
   final boolean level0Sorted;
   final boolean doublesSketch;
+  final boolean longsSketch;
+  final boolean itemsSketch;
   boolean updatableMemFormat = false;
   final boolean readOnly;
   final int k;
   final int m;
-  final int typeBytes;
+  final int typeBytes; //zero for the items sketch, whose items have no fixed size
 
   // depending on the layout, the next 8-16 bytes of the preamble, may be filled with assumed values.
   // For example, if the layout is compact & empty, n = 0, if compact and single, n = 1, etc.
@@ -87,7 +94,7 @@ final class KllMemoryValidate {
   int minK;
   int numLevels;
   // derived
-  int sketchBytes;
+  int sketchBytes; //for the items sketch, this excludes the serialized items
   int[] levelsArr; //adjusted to include top index
 
   KllMemoryValidate(final Memory srcMem) {
@@ -104,12 +111,17 @@ final class KllMemoryValidate {
     singleItem = getMemorySingleItemFlag(srcMem);
     level0Sorted  = getMemoryLevelZeroSortedFlag(srcMem);
     doublesSketch = getMemoryDoubleSketchFlag(srcMem);
+    longsSketch = getMemoryLongSketchFlag(srcMem);
+    itemsSketch = getMemoryItemsSketchFlag(srcMem);
     k = getMemoryK(srcMem);
     m = getMemoryM(srcMem);
     KllHelper.checkM(m);
     KllHelper.checkK(k, m);
     if ((serVer == SERIAL_VERSION_UPDATABLE) ^ updatableMemFormat) { memoryValidateThrow(UPDATABLEBIT_AND_SER_VER, 1); }
-    typeBytes = doublesSketch ? Double.BYTES : Float.BYTES;
+    if (doublesSketch && longsSketch) { memoryValidateThrow(DOUBLESBIT_AND_LONGSBIT, flags); }
+    if (itemsSketch && (doublesSketch || longsSketch)) { memoryValidateThrow(ITEMSBIT_AND_TYPEBIT, flags); }
+    if (itemsSketch && updatableMemFormat) { memoryValidateThrow(ITEMSBIT_AND_UPDATABLEBIT, flags); }
+    typeBytes = itemsSketch ? 0 : doublesSketch ? Double.BYTES : longsSketch ? Long.BYTES : Float.BYTES;
 
     if (updatableMemFormat) { updatableMemFormatValidate((WritableMemory) srcMem); }
     else { compactMemoryValidate(srcMem); }
@@ -185,7 +197,10 @@ final class KllMemoryValidate {
     SINGLEBIT_AND_PREINTS("Single Item Bit: 1 -> PreInts: " + PREAMBLE_INTS_EMPTY_SINGLE + ", NOT: "),
     INVALID_PREINTS("PreInts Must Be: " + PREAMBLE_INTS_FULL + ", NOT: "),
     UPDATABLEBIT_AND_SER_VER("((SerVer == 3) ^ (Updatable Bit)) must = 0, NOT: "),
-    EMPTYBIT_AND_SINGLEBIT("Empty flag bit and SingleItem flag bit cannot both be set. Flags: ");
+    EMPTYBIT_AND_SINGLEBIT("Empty flag bit and SingleItem flag bit cannot both be set. Flags: "),
+    DOUBLESBIT_AND_LONGSBIT("Doubles flag bit and Longs flag bit cannot both be set. Flags: "),
+    ITEMSBIT_AND_TYPEBIT("Items flag bit cannot be set with the Doubles or Longs flag bit. Flags: "),
+    ITEMSBIT_AND_UPDATABLEBIT("Items flag bit and Updatable flag bit cannot both be set. Flags: ");
 
     private String msg;
 
@@ -42,7 +42,13 @@ import org.apache.datasketches.memory.WritableMemory;
  *
  * <p>An empty sketch requires only 8 bytes, which is only preamble.
  * A serialized, non-empty KllDoublesSketch requires at least 16 bytes of preamble.
- * A serialized, non-empty KllFloatsSketch requires at least 12 bytes of preamble.</p>
+ * A serialized, non-empty KllFloatsSketch requires at least 12 bytes of preamble.
+ * A serialized KllLongsSketch has the same layout as a KllDoublesSketch, except that the items and
+ * the min and max values are longs and the LONGS_SKETCH flag is set instead of the DOUBLES_SKETCH flag.</p>
+ *
+ * <p>A serialized KllItemsSketch has only the compact form and sets the ITEMS_SKETCH flag.
+ * Its preamble is the same as the preamble of the other sketches. The single item, or the min and max
+ * values followed by the retained items, are written as one array by the given ArrayOfItemsSerDe.</p>
  *
  * <pre>{@code
  * Serialized float sketch layout, more than one item:
@@ -159,6 +165,8 @@ final class KllPreambleUtil {
   static final int SINGLE_ITEM_BIT_MASK       = 4;
   static final int DOUBLES_SKETCH_BIT_MASK    = 8;
   static final int UPDATABLE_BIT_MASK         = 16;
+  static final int LONGS_SKETCH_BIT_MASK      = 32;
+  static final int ITEMS_SKETCH_BIT_MASK      = 64;
 
   /**
    * Returns a human readable string summary of the internal state of the given sketch byte array.
@@ -188,6 +196,8 @@ final class KllPreambleUtil {
         + zeroPad(Integer.toBinaryString(flags), 8);
     final int preInts = memVal.preInts;
     final boolean doublesSketch = memVal.doublesSketch;
+    final boolean longsSketch = memVal.longsSketch;
+    final boolean itemsSketch = memVal.itemsSketch;
     final boolean updatableMemFormat = memVal.updatableMemFormat;
     final boolean empty = memVal.empty;
     final boolean singleItem = memVal.singleItem;
@@ -207,6 +217,8 @@ final class KllPreambleUtil {
     sb.append("           2 SINGLE_ITEM COMPACT: ").append(singleItem).append(LS);
     sb.append("           3 DOUBLES_SKETCH     : ").append(doublesSketch).append(LS);
     sb.append("           4 UPDATABLE          : ").append(updatableMemFormat).append(LS);
+    sb.append("           5 LONGS_SKETCH       : ").append(longsSketch).append(LS);
+    sb.append("           6 ITEMS_SKETCH       : ").append(itemsSketch).append(LS);
     sb.append("Bytes  4-5 : K                  : ").append(memVal.k).append(LS);
     sb.append("Byte   6   : Min Level Cap, M   : ").append(memVal.m).append(LS);
     sb.append("Byte   7   : (Reserved)         : ").append(LS);
@@ -229,7 +241,7 @@ final class KllPreambleUtil {
     sb.append("Memory Capacity Bytes           : ").append(mem.getCapacity()).append(LS);
     sb.append("### END KLL Sketch Memory Summary").append(LS);
 
-    if (includeData) {
+    if (includeData && !itemsSketch) { //the items of an items sketch can only be read by its SerDe
       sb.append(LS);
       sb.append("### START KLL DATA:").append(LS);
       int offsetBytes = 0;
@@ -247,6 +259,11 @@ final class KllPreambleUtil {
           offsetBytes += typeBytes;
           sb.append(mem.getDouble(offsetBytes)).append(LS);
           offsetBytes += typeBytes;
+        } else if (longsSketch) {
+          sb.append(mem.getLong(offsetBytes)).append(LS);
+          offsetBytes += typeBytes;
+          sb.append(mem.getLong(offsetBytes)).append(LS);
+          offsetBytes += typeBytes;
         } else { //floats
           sb.append(mem.getFloat(offsetBytes)).append(LS);
           offsetBytes += typeBytes;
@@ -260,6 +277,11 @@ final class KllPreambleUtil {
             sb.append(i + ", " + mem.getDouble(offsetBytes)).append(LS);
             offsetBytes += typeBytes;
           }
+        } else if (longsSketch) {
+          for (int i = 0; i < itemSpace; i++) {
+            sb.append(i + ", " + mem.getLong(offsetBytes)).append(LS);
+            offsetBytes += typeBytes;
+          }
         } else { //floats
           for (int i = 0; i < itemSpace; i++) {
             sb.append(mem.getFloat(offsetBytes)).append(LS);
@@ -281,6 +303,11 @@ final class KllPreambleUtil {
           offsetBytes += typeBytes;
           sb.append(mem.getDouble(offsetBytes)).append(LS);
           offsetBytes += typeBytes;
+        } else if (longsSketch) {
+          sb.append(mem.getLong(offsetBytes)).append(LS);
+          offsetBytes += typeBytes;
+          sb.append(mem.getLong(offsetBytes)).append(LS);
+          offsetBytes += typeBytes;
         } else { //floats
           sb.append(mem.getFloat(offsetBytes)).append(LS);
           offsetBytes += typeBytes;
@@ -294,6 +321,11 @@ final class KllPreambleUtil {
             sb.append(i + ", " + mem.getDouble(offsetBytes)).append(LS);
             offsetBytes += typeBytes;
           }
+        } else if (longsSketch) {
+          for (int i = 0; i < itemSpace; i++) {
+            sb.append(i + ", " + mem.getLong(offsetBytes)).append(LS);
+            offsetBytes += typeBytes;
+          }
         } else { //floats
           for (int i = 0; i < itemSpace; i++) {
             sb.append(i + ", " + mem.getFloat(offsetBytes)).append(LS);
@@ -304,9 +336,13 @@ final class KllPreambleUtil {
       } else { //single item
         if (singleItem) {
           sb.append("SINGLE ITEM DATA").append(LS);
-          sb.append(doublesSketch
-              ? mem.getDouble(DATA_START_ADR_SINGLE_ITEM)
-              : mem.getFloat(DATA_START_ADR_SINGLE_ITEM)).append(LS);
+          if (doublesSketch) {
+            sb.append(mem.getDouble(DATA_START_ADR_SINGLE_ITEM)).append(LS);
+          } else if (longsSketch) {
+            sb.append(mem.getLong(DATA_START_ADR_SINGLE_ITEM)).append(LS);
+          } else {
+            sb.append(mem.getFloat(DATA_START_ADR_SINGLE_ITEM)).append(LS);
+          }
         }
       }
       sb.append("### END KLL DATA:").append(LS);
@@ -346,6 +382,14 @@ final class KllPreambleUtil {
     return (getMemoryFlags(mem) & DOUBLES_SKETCH_BIT_MASK) != 0;
   }
 
+  static boolean getMemoryLongSketchFlag(final Memory mem) {
+    return (getMemoryFlags(mem) & LONGS_SKETCH_BIT_MASK) != 0;
+  }
+
+  static boolean getMemoryItemsSketchFlag(final Memory mem) {
+    return (getMemoryFlags(mem) & ITEMS_SKETCH_BIT_MASK) != 0;
+  }
+
   static boolean getMemoryUpdatableFormatFlag(final Memory mem) {
     return (getMemoryFlags(mem) & UPDATABLE_BIT_MASK) != 0;
   }
@@ -406,6 +450,11 @@ final class KllPreambleUtil {
     setMemoryFlags(wmem, doubleSketch ? flags | DOUBLES_SKETCH_BIT_MASK : flags & ~DOUBLES_SKETCH_BIT_MASK);
   }
 
+  static void setMemoryLongSketchFlag(final WritableMemory wmem,  final boolean longSketch) {
+    final int flags = getMemoryFlags(wmem);
+    setMemoryFlags(wmem, longSketch ? flags | LONGS_SKETCH_BIT_MASK : flags & ~LONGS_SKETCH_BIT_MASK);
+  }
+
   static void setMemoryUpdatableFlag(final WritableMemory wmem,  final boolean updatable) {
     final int flags = getMemoryFlags(wmem);
     setMemoryFlags(wmem, updatable ? flags | UPDATABLE_BIT_MASK : flags & ~UPDATABLE_BIT_MASK);
@@ -24,12 +24,15 @@ import static org.apache.datasketches.kll.KllPreambleUtil.DATA_START_ADR_SINGLE_
 import static org.apache.datasketches.kll.KllPreambleUtil.N_LONG_ADR;
 import static org.apache.datasketches.kll.KllSketch.Error.SRC_MUST_BE_DOUBLE;
 import static org.apache.datasketches.kll.KllSketch.Error.SRC_MUST_BE_FLOAT;
+import static org.apache.datasketches.kll.KllSketch.Error.SRC_MUST_BE_LONG;
 import static org.apache.datasketches.kll.KllSketch.Error.TGT_IS_READ_ONLY;
 import static org.apache.datasketches.kll.KllSketch.Error.kllSketchThrow;
 import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
 import static org.apache.datasketches.kll.KllSketch.SketchType.FLOATS_SKETCH;
+import static org.apache.datasketches.kll.KllSketch.SketchType.LONGS_SKETCH;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
@@ -37,7 +40,7 @@ import org.apache.datasketches.memory.MemoryRequestServer;
 import org.apache.datasketches.memory.WritableMemory;
 
 /*
- * Sampled stream data (floats or doubles) is stored as an array or as part of a Memory object.
+ * Sampled stream data (floats, doubles or longs) is stored as an array or as part of a Memory object.
  * This array is partitioned into sections called levels and the indices into the array of items
  * are tracked by a small integer array called levels or levels array.
  * The data for level i lies in positions levelsArray[i] through levelsArray[i + 1] - 1 inclusive.
@@ -59,7 +62,7 @@ import org.apache.datasketches.memory.WritableMemory;
 
 /**
  * This class is the root of the KLL sketch class hierarchy. It includes the public API that is independent
- * of either sketch type (float or double) and independent of whether the sketch is targeted for use on the
+ * of the sketch type (float, double or long) and independent of whether the sketch is targeted for use on the
  * heap or Direct (off-heap).
  *
  * <p>Please refer to the documentation in the package-info:<br>
@@ -72,12 +75,14 @@ public abstract class KllSketch {
   /**
    * Used to define the variable type of the current instance of this class.
    */
-  public enum SketchType { FLOATS_SKETCH, DOUBLES_SKETCH }
+  public enum SketchType { FLOATS_SKETCH, DOUBLES_SKETCH, LONGS_SKETCH }
 
   enum Error {
     TGT_IS_READ_ONLY("Given sketch Memory is immutable, cannot write."),
     SRC_MUST_BE_DOUBLE("Given sketch must be of type Double."),
     SRC_MUST_BE_FLOAT("Given sketch must be of type Float."),
+    SRC_MUST_BE_LONG("Given sketch must be of type Long."),
+    SRC_MUST_BE_ITEMS("Given sketch must be of type Items."),
     MUST_NOT_CALL("This is an artifact of inheritance and should never be called."),
     SINGLE_ITEM_IMPROPER_CALL("Improper method use for single-item sketch"),
     MRS_MUST_NOT_BE_NULL("MemoryRequestServer cannot be null."),
@@ -118,13 +123,13 @@ public abstract class KllSketch {
   static final int DEFAULT_M = 8;
   static final int MAX_M = 8; //The maximum value of M
   static final int MIN_M = 2; //The minimum value of M
-  static final Random random = new Random();
   final SketchType sketchType;
   final boolean updatableMemFormat;
   final MemoryRequestServer memReqSvr;
   final boolean readOnly;
   int[] levelsArr;
   WritableMemory wmem;
+  private Random random; //null uses the ThreadLocalRandom of the calling thread
 
   /**
    * Constructor for on-heap and off-heap.
@@ -193,7 +198,7 @@ public abstract class KllSketch {
    * Returns upper bound on the serialized size of a KllSketch given the following parameters.
    * @param k parameter that controls size of the sketch and accuracy of estimates
    * @param n stream length
-   * @param sketchType either DOUBLES_SKETCH or FLOATS_SKETCH
+   * @param sketchType one of DOUBLES_SKETCH, FLOATS_SKETCH or LONGS_SKETCH
    * @param updatableMemFormat true if updatable Memory format, otherwise the standard compact format.
    * @return upper bound on the serialized size of a KllSketch.
    */
@@ -220,7 +225,7 @@ public abstract class KllSketch {
   //numItems can be either numRetained, or current max capacity at given K and numLevels.
   static int getCurrentSerializedSizeBytes(final int numLevels, final int numItems,
       final SketchType sketchType, final boolean updatableMemFormat) {
-    final int typeBytes = (sketchType == DOUBLES_SKETCH) ? Double.BYTES : Float.BYTES;
+    final int typeBytes = typeBytes(sketchType);
     int levelsBytes = 0;
     if (updatableMemFormat) {
       levelsBytes = (numLevels + 1) * Integer.BYTES;
@@ -370,8 +375,8 @@ public abstract class KllSketch {
 
   /**
    * Merges another sketch into this one.
-   * Attempting to merge a KllDoublesSketch with a KllFloatsSketch will
-   * throw an exception.
+   * Attempting to merge sketches of different types, such as a KllDoublesSketch with a
+   * KllFloatsSketch, will throw an exception.
    * @param other sketch to merge into this one
    */
   public final void merge(final KllSketch other) {
@@ -379,6 +384,9 @@ public abstract class KllSketch {
     if (sketchType == DOUBLES_SKETCH) {
       if (!other.isDoublesSketch()) { kllSketchThrow(SRC_MUST_BE_DOUBLE); }
       KllDoublesHelper.mergeDoubleImpl(this, other);
+    } else if (sketchType == LONGS_SKETCH) {
+      if (!other.isLongsSketch()) { kllSketchThrow(SRC_MUST_BE_LONG); }
+      KllLongsHelper.mergeLongImpl(this, other);
     } else {
       if (!other.isFloatsSketch()) { kllSketchThrow(SRC_MUST_BE_FLOAT); }
       KllFloatsHelper.mergeFloatImpl(this, other);
@@ -388,7 +396,7 @@ public abstract class KllSketch {
   /**
    * This resets the current sketch back to zero entries.
    * It retains key parameters such as <i>k</i> and
-   * <i>SketchType (double or float)</i>.
+   * <i>SketchType (double, float or long)</i>.
    */
   public final void reset() {
     if (readOnly) { kllSketchThrow(TGT_IS_READ_ONLY); }
@@ -402,6 +410,10 @@ public abstract class KllSketch {
       setMinDoubleValue(Double.NaN);
       setMaxDoubleValue(Double.NaN);
       setDoubleItemsArray(new double[k]);
+    } else if (sketchType == LONGS_SKETCH) {
+      setMinLongValue(Long.MAX_VALUE);
+      setMaxLongValue(Long.MIN_VALUE);
+      setLongItemsArray(new long[k]);
     } else {
       setMinFloatValue(Float.NaN);
       setMaxFloatValue(Float.NaN);
@@ -409,6 +421,19 @@ public abstract class KllSketch {
     }
   }
 
+  /**
+   * Sets the source of randomness used by the compactions of this sketch. By default each
+   * compaction draws from the <i>ThreadLocalRandom</i> of the calling thread, so sketches that are
+   * updated concurrently on different threads never contend on a shared generator.
+   * Supplying a seeded <i>Random</i> makes the results of the sketch deterministic if the input
+   * values are received in exactly the same order, which is useful for test comparisons.
+   * The given generator is not serialized with the sketch.
+   * @param random the source of randomness for this sketch, or null to restore the default.
+   */
+  public final void setRandom(final Random random) {
+    this.random = random;
+  }
+
   /**
    * Returns serialized sketch in a compact byte array form.
    * @return serialized sketch in a compact byte array form.
@@ -446,6 +471,13 @@ public abstract class KllSketch {
 
   abstract float getFloatSingleItem();
 
+  /**
+   * @return full size of internal items array including garbage.
+   */
+  abstract long[] getLongItemsArray();
+
+  abstract long getLongSingleItem();
+
   final int[] getLevelsArray() {
     return levelsArr;
   }
@@ -463,10 +495,14 @@ public abstract class KllSketch {
 
   abstract float getMaxFloatValue();
 
+  abstract long getMaxLongValue();
+
   abstract double getMinDoubleValue();
 
   abstract float getMinFloatValue();
 
+  abstract long getMinLongValue();
+
   /**
    * MinK is the value of K that results from a merge with a sketch configured with a value of K lower than
    * the k of this sketch. This value is then used in computing the estimated upper and lower bounds of error.
@@ -478,6 +514,10 @@ public abstract class KllSketch {
     return levelsArr.length - 1;
   }
 
+  final Random getRandom() {
+    return random != null ? random : ThreadLocalRandom.current();
+  }
+
   abstract void incN();
 
   abstract void incNumLevels();
@@ -490,6 +530,8 @@ public abstract class KllSketch {
 
   boolean isFloatsSketch() { return sketchType == FLOATS_SKETCH; }
 
+  boolean isLongsSketch() { return sketchType == LONGS_SKETCH; }
+
   abstract boolean isLevelZeroSorted();
 
   /**
@@ -506,6 +548,10 @@ public abstract class KllSketch {
 
   abstract void setFloatItemsArrayAt(int index, float value);
 
+  abstract void setLongItemsArray(long[] longItems);
+
+  abstract void setLongItemsArrayAt(int index, long value);
+
   final void setLevelsArray(final int[] levelsArr) {
     if (readOnly) { kllSketchThrow(TGT_IS_READ_ONLY); }
     this.levelsArr = levelsArr;
@@ -529,14 +575,26 @@ public abstract class KllSketch {
 
   abstract void setMaxFloatValue(float value);
 
+  abstract void setMaxLongValue(long value);
+
   abstract void setMinDoubleValue(double value);
 
   abstract void setMinFloatValue(float value);
 
+  abstract void setMinLongValue(long value);
+
   abstract void setMinK(int minK);
 
   abstract void setN(long n);
 
   abstract void setNumLevels(int numLevels);
 
+  static int typeBytes(final SketchType sketchType) {
+    switch (sketchType) {
+      case DOUBLES_SKETCH: return Double.BYTES;
+      case LONGS_SKETCH: return Long.BYTES;
+      default: return Float.BYTES;
+    }
+  }
+
 }
@@ -20,10 +20,12 @@
 package org.apache.datasketches.quantiles;
 
 import static org.apache.datasketches.Util.checkIfPowerOf2;
+import static org.apache.datasketches.quantiles.PreambleUtil.COMBINED_BUFFER;
 import static org.apache.datasketches.quantiles.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.quantiles.PreambleUtil.FLAGS_BYTE;
 
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
 /**
@@ -130,6 +132,85 @@ final class DoublesMergeImpl {
     tgt.putMinValue(Math.min(srcMin, tgtMin));
   }
 
+  /**
+   * Merges a source sketch that wraps a Memory image into the target sketch, reading the source
+   * levels straight from Memory and reusing buffers provided by the caller. The source must either
+   * be in exact mode or have the same K as the target, and the target must already have the
+   * capacity required for the combined N, so that the target accessor stays valid across calls.
+   * The source is not modified.
+   *
+   * @param src The direct source sketch
+   * @param tgt The target sketch
+   * @param srcBufAcc wraps srcBuf
+   * @param srcBuf holds a source level or base buffer, with room for max(2K, base buffer count) items
+   * @param scratch2KAcc a scratch buffer of 2K items
+   * @param tgtSketchBuf an accessor of the target created with forceSize
+   */
+  //used by DoublesUnionImpl
+  static void mergeInto(final DoublesSketch src, final UpdateDoublesSketch tgt,
+      final DoublesArrayAccessor srcBufAcc, final double[] srcBuf,
+      final DoublesArrayAccessor scratch2KAcc, final DoublesSketchAccessor tgtSketchBuf) {
+    assert src.isDirect();
+    final int tgtK = tgt.getK();
+    final long nFinal = tgt.getN() + src.getN();
+    final Memory srcMem = src.getMemory();
+    final int bbCount = src.getBaseBufferCount();
+
+    srcMem.getDoubleArray(COMBINED_BUFFER, srcBuf, 0, bbCount);
+    for (int i = 0; i < bbCount; i++) { // update only the base buffer
+      tgt.update(srcBuf[i]);
+    }
+    assert DoublesUpdateImpl.getRequiredItemCapacity(tgtK, nFinal) <= tgt.getCombinedBufferItemCapacity();
+
+    long srcBitPattern = src.getBitPattern();
+    assert (srcBitPattern == 0L) || (src.getK() == tgtK);
+    long newTgtBitPattern = tgt.getBitPattern();
+
+    // compact images store only the valid levels, right after the retained base buffer items
+    final int levelBytes = tgtK << 3;
+    long srcOffset = COMBINED_BUFFER + ((long) (src.isCompact() ? bbCount : 2 * tgtK) << 3);
+    for (int srcLvl = 0; srcBitPattern != 0L; srcLvl++, srcBitPattern >>>= 1) {
+      if ((srcBitPattern & 1L) > 0L) {
+        srcMem.getDoubleArray(srcOffset, srcBuf, 0, tgtK);
+        newTgtBitPattern = DoublesUpdateImpl.inPlacePropagateCarry(
+                srcLvl,
+                srcBufAcc,
+                scratch2KAcc,
+                false,
+                tgtK,
+                tgtSketchBuf,
+                newTgtBitPattern
+        );
+        srcOffset += levelBytes;
+      } else if (!src.isCompact()) {
+        srcOffset += levelBytes;
+      }
+    }
+
+    if (tgt.isDirect() && (nFinal > 0)) {
+      final WritableMemory mem = tgt.getMemory();
+      mem.clearBits(FLAGS_BYTE, (byte) EMPTY_FLAG_MASK);
+    }
+
+    tgt.putN(nFinal);
+    tgt.putBitPattern(newTgtBitPattern); // no-op if direct
+
+    assert (tgt.getN() / (2L * tgtK)) == tgt.getBitPattern(); // internal consistency check
+
+    double srcMax = src.getMaxValue();
+    srcMax = Double.isNaN(srcMax) ? Double.NEGATIVE_INFINITY : srcMax;
+    double srcMin = src.getMinValue();
+    srcMin = Double.isNaN(srcMin) ? Double.POSITIVE_INFINITY : srcMin;
+
+    double tgtMax = tgt.getMaxValue();
+    tgtMax = Double.isNaN(tgtMax) ? Double.NEGATIVE_INFINITY : tgtMax;
+    double tgtMin = tgt.getMinValue();
+    tgtMin = Double.isNaN(tgtMin) ? Double.POSITIVE_INFINITY : tgtMin;
+
+    tgt.putMaxValue(Math.max(srcMax, tgtMax));
+    tgt.putMinValue(Math.min(srcMin, tgtMin));
+  }
+
   /**
    * Merges the source sketch into the target sketch that can have a smaller value of K.
    * However, it is required that the ratio of the two K values be a power of 2.
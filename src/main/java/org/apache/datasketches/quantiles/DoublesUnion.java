@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.quantiles;
 
+import java.util.List;
+
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -136,6 +138,20 @@ public abstract class DoublesUnion {
    */
   public abstract void update(Memory mem);
 
+  /**
+   * Bulk union operation, which merges the given Memory images of DoublesSketches, compact or
+   * updatable, into this union object. The result is equivalent to calling
+   * {@link #update(Memory)} for each image in turn, but the internal sketch is sized once for the
+   * combined N and the images with the union's effective <i>k</i> are merged straight from Memory
+   * with scratch buffers that are shared by all of them.
+   * The given Memory objects are not modified and links to them are not retained.
+   * The same requirements on the K values as in {@link #update(Memory)} apply.
+   * Null or empty images are ignored.
+   *
+   * @param mems the Memory images of DoublesSketches to be merged into this one.
+   */
+  public abstract void update(List<? extends Memory> mems);
+
   /**
    * Update this union with the given double (or float) data Item.
    *
@@ -21,6 +21,10 @@ package org.apache.datasketches.quantiles;
 
 import static org.apache.datasketches.quantiles.DoublesUtil.copyToHeap;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -123,6 +127,53 @@ final class DoublesUnionImpl extends DoublesUnionImplR {
     gadget_ = updateLogic(maxK_, gadget_, DoublesSketch.wrap(mem));
   }
 
+  @Override
+  public void update(final List<? extends Memory> mems) {
+    Objects.requireNonNull(mems, "Parameter 'mems' must not be null");
+    final List<DoublesSketch> sketches = new ArrayList<>(mems.size());
+    boolean sawImage = false;
+    int tgtK = (gadget_ == null) ? maxK_ : gadget_.getK();
+    long nIn = 0;
+    int maxBbCount = 0;
+    for (final Memory mem : mems) {
+      if (mem == null) { continue; }
+      sawImage = true;
+      final DoublesSketch sketch = DoublesSketch.wrap(mem);
+      if (sketch.isEmpty()) { continue; }
+      if (sketch.isEstimationMode()) { tgtK = Math.min(tgtK, sketch.getK()); }
+      nIn += sketch.getN();
+      maxBbCount = Math.max(maxBbCount, sketch.getBaseBufferCount());
+      sketches.add(sketch);
+    }
+    if (!sawImage) { return; }
+
+    if (gadget_ == null) {
+      gadget_ = HeapUpdateDoublesSketch.newInstance(tgtK);
+    } else if (gadget_.getK() > tgtK) {
+      gadget_ = downsize(gadget_, tgtK);
+    }
+    if (sketches.isEmpty()) { return; }
+
+    // size the gadget once, so that no merge below needs to grow it
+    final int spaceNeeded = DoublesUpdateImpl.getRequiredItemCapacity(tgtK, gadget_.getN() + nIn);
+    final int combBufItemCap = gadget_.getCombinedBufferItemCapacity();
+    if (spaceNeeded > combBufItemCap) {
+      gadget_.growCombinedBuffer(combBufItemCap, spaceNeeded);
+    }
+
+    final double[] srcBuf = new double[Math.max(2 * tgtK, maxBbCount)];
+    final DoublesArrayAccessor srcBufAcc = DoublesArrayAccessor.wrap(srcBuf);
+    final DoublesArrayAccessor scratch2KAcc = DoublesArrayAccessor.initialize(2 * tgtK);
+    final DoublesSketchAccessor tgtSketchBuf = DoublesSketchAccessor.wrap(gadget_, true);
+    for (final DoublesSketch sketch : sketches) {
+      if (!sketch.isEstimationMode() || (sketch.getK() == tgtK)) {
+        DoublesMergeImpl.mergeInto(sketch, gadget_, srcBufAcc, srcBuf, scratch2KAcc, tgtSketchBuf);
+      } else {
+        DoublesMergeImpl.downSamplingMergeInto(sketch, gadget_);
+      }
+    }
+  }
+
   @Override
   public void update(final double dataItem) {
     if (gadget_ == null) {
@@ -144,6 +195,22 @@ final class DoublesUnionImpl extends DoublesUnionImplR {
     gadget_ = null;
   }
 
+  /**
+   * Returns a sketch with the given smaller K that holds the data of the given sketch, reusing the
+   * Memory of the given sketch if it is direct.
+   */
+  private static UpdateDoublesSketch downsize(final UpdateDoublesSketch qs, final int newK) {
+    final DoublesSketchBuilder bldr = DoublesSketch.builder().setK(newK);
+    if (qs.isEmpty()) {
+      return qs.isDirect() ? bldr.build(qs.getMemory()) : bldr.build();
+    }
+    final UpdateDoublesSketch tmp = bldr.build();
+    DoublesMergeImpl.downSamplingMergeInto(qs, tmp);
+    final UpdateDoublesSketch ret = qs.isDirect() ? bldr.build(qs.getMemory()) : bldr.build();
+    DoublesMergeImpl.mergeInto(tmp, ret);
+    return ret;
+  }
+
   //@formatter:off
   static UpdateDoublesSketch updateLogic(final int myMaxK, final UpdateDoublesSketch myQS,
                                          final DoublesSketch other) {
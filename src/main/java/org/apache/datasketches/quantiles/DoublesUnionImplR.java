@@ -21,6 +21,8 @@ package org.apache.datasketches.quantiles;
 
 import static org.apache.datasketches.Util.LS;
 
+import java.util.List;
+
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.SketchesReadOnlyException;
 import org.apache.datasketches.memory.Memory;
@@ -67,6 +69,11 @@ class DoublesUnionImplR extends DoublesUnion {
     throw new SketchesReadOnlyException("Call to update() on read-only Union");
   }
 
+  @Override
+  public void update(final List<? extends Memory> mems) {
+    throw new SketchesReadOnlyException("Call to update() on read-only Union");
+  }
+
   @Override
   public void update(final double dataItem) {
     throw new SketchesReadOnlyException("Call to update() on read-only Union");
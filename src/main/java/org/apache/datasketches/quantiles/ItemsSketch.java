@@ -117,12 +117,19 @@ public final class ItemsSketch<T> {
   Object[] combinedBuffer_;
 
   /**
-   * Setting the seed makes the results of the sketch deterministic if the input values are
-   * received in exactly the same order. This is only useful when performing test comparisons,
-   * otherwise is not recommended.
+   * The source of the seeds of the generators of sketches that have not been given their own with
+   * {@link #setRandom(Random)}. Each such sketch draws one seed from it when it is created.
+   * Setting the seed makes the results of the sketch deterministic if the sketches are created and
+   * the input values are received in exactly the same order. This is only useful when performing
+   * test comparisons, otherwise is not recommended.
    */
   public static final Random rand = new Random();
 
+  /**
+   * The source of randomness of this sketch.
+   */
+  private Random random_ = new Random(rand.nextLong());
+
   private ItemsSketch(final int k, final Comparator<? super T> comparator) {
     Util.checkK(k);
     k_ = k;
@@ -556,6 +563,19 @@ public final class ItemsSketch<T> {
     maxValue_ = null;
   }
 
+  /**
+   * Sets the source of randomness used by the compactions of this sketch. By default each sketch
+   * has its own generator, seeded from the static {@link #rand} when the sketch is created, so
+   * sketches updated concurrently on different threads do not contend for a shared generator.
+   * The given generator is not serialized with the sketch, and copies and down-sampled sketches
+   * have their own default generators.
+   * @param random the source of randomness for this sketch, for example a seeded <i>Random</i> or a
+   * faster subclass, or null to restore a default generator.
+   */
+  public void setRandom(final Random random) {
+    random_ = (random != null) ? random : new Random(rand.nextLong());
+  }
+
   /**
    * Serialize this sketch to a byte array form.
    * @param serDe an instance of ArrayOfItemsSerDe
@@ -695,6 +715,14 @@ public final class ItemsSketch<T> {
     return comparator_;
   }
 
+  /**
+   * Returns the source of randomness of this sketch
+   * @return the source of randomness of this sketch
+   */
+  Random getRandom() {
+    return random_;
+  }
+
   /**
    * Loads the Combined Buffer, min and max from the given items array.
    * The Combined Buffer is always in non-compact form and must be pre-allocated.
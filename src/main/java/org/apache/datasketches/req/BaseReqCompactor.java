@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static java.lang.Math.round;
+import static org.apache.datasketches.Util.numberOfTrailingOnes;
+import static org.apache.datasketches.req.BaseReqSketch.INIT_NUMBER_OF_SECTIONS;
+import static org.apache.datasketches.req.BaseReqSketch.MIN_K;
+import static org.apache.datasketches.req.BaseReqSketch.NOM_CAP_MULT;
+
+import java.util.Random;
+
+import org.apache.datasketches.memory.WritableBuffer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.req.BaseReqSketch.CompactorReturn;
+
+/**
+ * The root of the compactor classes of the Relative Error Quantiles sketches. It holds the
+ * compaction schedule, which is independent of the type of the retained items. The subclasses hold
+ * the buffer of the items.
+ *
+ * @param <C> the type of the compactors of a sketch
+ * @author Lee Rhodes
+ */
+abstract class BaseReqCompactor<C extends BaseReqCompactor<C>> {
+  //finals
+  private static final double SQRT2 = Math.sqrt(2.0);
+  private final byte lgWeight;
+  private final boolean hra;
+  //state variables
+  private long state; //State of the deterministic compaction schedule
+  private float sectionSizeFlt;
+  private int sectionSize; //initialized with k, minimum 4
+  private byte numSections; //# of sections, initial size 3
+  private boolean coin; //true or false at random for each compaction
+  //objects
+  private final ReqDebug reqDebug = null;
+  private Random rand;
+
+  /**
+   * Normal Constructor with a given source of randomness. The subclass creates the buffer.
+   * @param lgWeight the lgWeight of this compactor
+   * @param hra High Rank Accuracy
+   * @param sectionSize initially the value of k
+   * @param rand the source of randomness, which may be shared with the other compactors of a sketch
+   */
+  BaseReqCompactor(
+      final byte lgWeight,
+      final boolean hra,
+      final int sectionSize,
+      final Random rand) {
+    this.lgWeight = lgWeight;
+    this.hra = hra;
+    this.sectionSize = sectionSize;
+    sectionSizeFlt = sectionSize;
+    state = 0;
+    coin = false;
+    numSections = INIT_NUMBER_OF_SECTIONS;
+    this.rand = rand;
+  }
+
+  /**
+   * Copy Constructor. The subclass copies the buffer.
+   * @param other the compactor to be copied into this one
+   */
+  BaseReqCompactor(final C other) {
+    final BaseReqCompactor<C> o = other;
+    lgWeight = o.lgWeight;
+    hra = o.hra;
+    sectionSizeFlt = o.sectionSizeFlt;
+    numSections = o.numSections;
+    sectionSize = o.sectionSize;
+    state = o.state;
+    coin = o.coin;
+    rand = new Random();
+  }
+
+  /**
+   * Construct from elements. The subclass sets the buffer.
+   */
+  BaseReqCompactor(
+      final byte lgWeight,
+      final boolean hra,
+      final long state,
+      final float sectionSizeFlt,
+      final byte numSections) {
+    rand = new Random();
+    this.lgWeight = lgWeight;
+    this.hra = hra;
+    this.sectionSizeFlt = sectionSizeFlt;
+    this.numSections = numSections;
+    this.state = state;
+    coin = rand.nextDouble() < 0.5;
+    sectionSize = nearestEven(sectionSizeFlt);
+    //ReqDebug left at null
+  }
+
+  /**
+   * Gets the number of items in the buffer of this compactor
+   * @return the number of items in the buffer of this compactor
+   */
+  abstract int getCount();
+
+  /**
+   * Ensures that the buffer of this compactor has at least the given capacity
+   * @param newCapacity the given capacity
+   */
+  abstract void ensureCapacity(int newCapacity);
+
+  /**
+   * Removes the given region from the buffer of this compactor and merges either its evens or its
+   * odds into the buffer of the next compactor.
+   * @param startOffset the start offset of the region
+   * @param endOffset the end offset of the region, exclusive
+   * @param odds if true, the odds are promoted, otherwise the evens
+   * @param next the compactor of the next level
+   * @return the number of items promoted
+   */
+  abstract int promote(int startOffset, int endOffset, boolean odds, C next);
+
+  /**
+   * Merges the buffer of the other given compactor into the buffer of this one.
+   * @param other the other given compactor
+   */
+  abstract void mergeBuffer(C other);
+
+  /**
+   * Returns the items of the buffer as bytes, in the order of the buffer.
+   * @return the items of the buffer as bytes
+   */
+  abstract byte[] itemsToBytes();
+
+  /**
+   * Returns a printable formatted string of the items of the buffer.
+   * @param fmt The format for each printed item.
+   * @param width the number of items to print per line
+   * @return a printable, formatted string of the items of the buffer.
+   */
+  abstract String toHorizList(String fmt, int width);
+
+  /**
+   * Perform a compaction operation on this compactor. The promoted items are merged into the
+   * given compactor of the next level.
+   * @param next the compactor of the next level
+   * @param cReturn returns the changes of the retained items and of the nominal size
+   */
+  final void compact(final C next, final CompactorReturn cReturn) {
+    if (reqDebug != null) { reqDebug.emitCompactingStart(lgWeight); }
+    final int startRetItems = getCount();
+    final int startNomCap = getNomCapacity();
+    // choose a part of the buffer to compact
+    final int secsToCompact = Math.min(numberOfTrailingOnes(state) + 1, numSections);
+    final long compactionRange = computeCompactionRange(secsToCompact);
+    final int compactionStart = (int) (compactionRange & 0xFFFF_FFFFL); //low 32
+    final int compactionEnd = (int) (compactionRange >>> 32); //high 32
+    assert compactionEnd - compactionStart >= 2;
+
+    if ((state & 1L) == 1L) { coin = !coin; } //if numCompactions odd, flip coin;
+    else { coin = rand.nextDouble() < 0.5; }       //random coin flip
+
+    final int promoteCount = promote(compactionStart, compactionEnd, coin, next);
+
+    if (reqDebug != null) {
+      reqDebug.emitCompactionDetail(compactionStart, compactionEnd, secsToCompact,
+          promoteCount, coin);
+    }
+
+    state += 1;
+    ensureEnoughSections();
+    cReturn.deltaRetItems = getCount() - startRetItems + promoteCount;
+    cReturn.deltaNomSize = getNomCapacity() - startNomCap;
+    if (reqDebug != null) { reqDebug.emitCompactionDone(lgWeight); }
+  } //End Compact
+
+  boolean getCoin() {
+    return coin;
+  }
+
+  /**
+   * Sets the source of randomness of this compactor
+   * @param rand the source of randomness, which may be shared with the other compactors of a sketch
+   */
+  void setRandom(final Random rand) {
+    this.rand = rand;
+  }
+
+  /**
+   * Sets the source of randomness of this compactor and redraws the coin from it. The coin is not
+   * serialized, so this is used after deserialization.
+   * @param rand the source of randomness, which may be shared with the other compactors of a sketch
+   */
+  void resetRandom(final Random rand) {
+    this.rand = rand;
+    coin = rand.nextDouble() < 0.5;
+  }
+
+  /**
+   * Gets the lgWeight of this buffer
+   * @return the lgWeight of this buffer
+   */
+  byte getLgWeight() {
+    return lgWeight;
+  }
+
+  /**
+   * Sets the current nominal capacity of this compactor.
+   * @return the current nominal capacity of this compactor.
+   */
+  int getNomCapacity() {
+    return NOM_CAP_MULT * numSections * sectionSize;
+  }
+
+  int getNumSections() {
+    return numSections;
+  }
+
+  int getSectionSize() {
+    return sectionSize;
+  }
+
+  float getSectionSizeFlt() {
+    return sectionSizeFlt;
+  }
+
+  long getState() {
+    return state;
+  }
+
+  boolean isHighRankAccuracy() {
+    return hra;
+  }
+
+  /**
+   * Merge the other given compactor into this one. They both must have the
+   * same lgWeight
+   * @param other the other given compactor
+   */
+  final void merge(final C other) {
+    mergeState(other);
+    while (ensureEnoughSections()) {}
+    mergeBuffer(other);
+  }
+
+  /**
+   * Merges the compaction schedule of the other given compactor into this one. They both must have
+   * the same lgWeight. The sections must be adjusted afterwards.
+   * @param other the other given compactor
+   */
+  final void mergeState(final C other) {
+    final BaseReqCompactor<C> o = other;
+    assert lgWeight == o.lgWeight;
+    state |= o.state;
+  }
+
+  /**
+   * Adjust the sectionSize and numSections if possible.
+   * @return true if the SectionSize and NumSections were adjusted.
+   */
+  final boolean ensureEnoughSections() {
+    final float szf;
+    final int ne;
+    if (state >= 1L << numSections - 1
+        && sectionSize > MIN_K
+        && (ne = nearestEven(szf = (float)(sectionSizeFlt / SQRT2))) >= MIN_K)
+    {
+      sectionSizeFlt = szf;
+      sectionSize = ne;
+      numSections <<= 1;
+      ensureCapacity(2 * getNomCapacity());
+      if (reqDebug != null) { reqDebug.emitAdjSecSizeNumSec(lgWeight); }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Computes the start and end indices of the compacted region
+   * @param secsToCompact the number of contiguous sections to compact
+   * @return the  start and end indices of the compacted region
+   */
+  private long computeCompactionRange(final int secsToCompact) {
+    final int bufLen = getCount();
+    int nonCompact = getNomCapacity() / 2 + (numSections - secsToCompact) * sectionSize;
+    //make compacted region even:
+    nonCompact = (bufLen - nonCompact & 1) == 1 ? nonCompact + 1 : nonCompact;
+    final long low =  hra ? 0                   : nonCompact;
+    final long high = hra ? bufLen - nonCompact : bufLen;
+    return (high << 32) + low;
+  }
+
+  /**
+   * Returns the nearest even integer to the given value. Also used by test.
+   * @param value the given value
+   * @return the nearest even integer to the given value.
+   */
+  static final int nearestEven(final float value) {
+    return (int) round(value / 2.0) << 1;
+  }
+
+  /**
+   * Compactor SERIALIZATION FORMAT.
+   *
+   * <p>Low significance bytes of this data structure are on the right just for visualization.
+   * The multi-byte values are stored in native byte order.
+   * The <i>byte</i> values are treated as unsigned. Multibyte values are indicated with "*" and
+   * their size depends on the specific implementation.</p>
+   *
+   * <p>The binary format for a compactor: </p>
+   *
+   * <pre>
+   * Binary Format. Starting offset is either 24 or 8, both are 8-byte aligned.
+   *
+   * +Long Adr / +Byte Offset
+   *      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |    0   |
+   *  0   ||-----------------------------state-------------------------------------|
+   *
+   *      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |    8   |
+   *  1   ||----(empty)------|-#Sects-|--lgWt--|------------sectionSizeFlt---------|
+   *
+   *      ||        |        |        |        |        |        |        |   16   |
+   *  2   ||----------floats[] or doubles[]----|---------------count---------------|
+   *
+   * </pre>
+   */
+  byte[] toByteArray() {
+    final byte[] items = itemsToBytes();
+    final int bytes = 20 + items.length;
+    final byte[] arr = new byte[bytes];
+    final WritableBuffer wbuf = WritableMemory.writableWrap(arr).asWritableBuffer();
+    wbuf.putLong(state);
+    wbuf.putFloat(sectionSizeFlt);
+    wbuf.putByte(lgWeight);
+    wbuf.putByte(numSections);
+    wbuf.incrementPosition(2); //pad 2
+    //buf.sort(); //sort if necessary
+    wbuf.putInt(getCount()); //count
+    wbuf.putByteArray(items, 0, items.length);
+    assert wbuf.getPosition() == bytes;
+    return arr;
+  }
+
+  /**
+   * Returns a printable formatted prefix string summarizing the list.
+   * The first number is the compactor height. the second number in brackets is the current count
+   * of the compactor buffer. The third number in brackets is the nominal capacity of the compactor.
+   * @return a printable formatted prefix string summarizing the list.
+   */
+  String toListPrefix() {
+    final int h = getLgWeight();
+    final int len = getCount();
+    final int nom = getNomCapacity();
+    final int secSz = getSectionSize();
+    final int numSec = getNumSections();
+    final long num = getState();
+    final String prefix = String.format(
+      "  C:%d Len:%d NomSz:%d SecSz:%d NumSec:%d State:%d",
+           h, len, nom, secSz, numSec, num);
+    return prefix;
+  }
+
+}
@@ -19,123 +19,243 @@
 
 package org.apache.datasketches.req;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.datasketches.SketchesArgumentException;
+
 /**
- * This abstract class provides a single place to define and document the public API
- * for the Relative Error Quantiles Sketch.
+ * This abstract class is the root of the Relative Error Quantiles sketches. It provides a single
+ * place to define and document the public API that is independent of the type of the retained
+ * items, and it holds the compaction and rank logic that the ReqSketch and the ReqDoublesSketch
+ * share.
  *
+ * @param <C> the type of the compactors of the sketch
+ * @param <A> the type of the auxiliary table of the sketch, which supports the quantile queries
  * @author Lee Rhodes
  */
-abstract class BaseReqSketch {
+abstract class BaseReqSketch<C extends BaseReqCompactor<C>, A> {
+  //static finals
+  static final String LS = System.getProperty("line.separator");
+  static final byte INIT_NUMBER_OF_SECTIONS = 3;
+  static final byte MIN_K = 4;
+  static final byte NOM_CAP_MULT = 2;
+  //These two factors are used by upper and lower bounds
+  private static final double relRseFactor = Math.sqrt(0.0512 / INIT_NUMBER_OF_SECTIONS);
+  private static final double fixRseFactor = .084;
+  //finals
+  final int k; //default is 12 (1% @ 95% Conf)
+  final boolean hra; //default is true
+  //state variables
+  boolean ltEq = false; //default: LT, can be set after construction
+  long totalN;
+  //computed from compactors
+  int retItems = 0; //number of retained items in the sketch
+  int maxNomSize = 0; //sum of nominal capacities of all compactors
+  //Objects
+  A aux = null;
+  List<C> compactors = new ArrayList<>();
+  ReqDebug reqDebug = null; //user config, default: null, only set by the ReqSketch.
+  final Random rand; //shared by all compactors of this sketch
+  private final CompactorReturn cReturn = new CompactorReturn(); //used in compress()
 
   /**
-   * Returns an approximation to the Cumulative Distribution Function (CDF), which is the
-   * cumulative analog of the PMF, of the input stream given a set of splitPoint (values).
-   *
-   * <p>The resulting approximations have a probabilistic guarantee that be obtained, a priori,
-   * from the <i>getRSE(int, double, boolean, long)</i> function.
-   *
-   * <p>If the sketch is empty this returns null.</p>
-   *
-   * @param splitPoints an array of <i>m</i> unique, monotonically increasing double values
-   * that divide the real number line into <i>m+1</i> consecutive disjoint intervals.
-   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
-   * exclusive of the right splitPoint, with the exception that the last interval will include
-   * the maximum value.
-   * It is not necessary to include either the min or max values in these split points.
-   *
-   * @return an array of m+1 double values, which are a consecutive approximation to the CDF
-   * of the input stream given the splitPoints. The value at array position j of the returned
-   * CDF array is the sum of the returned values in positions 0 through j of the returned PMF
-   * array.
+   * Normal Constructor. The subclass adds the first compactor.
+   * @param k Controls the size and error of the sketch. It must be even and in the range
+   * [4, 1024], inclusive.
+   * @param highRankAccuracy if true, the high ranks are prioritized for better
+   * accuracy. Otherwise the low ranks are prioritized for better accuracy.
+   * @param rand the source of randomness for the compactions.
    */
-  public abstract double[] getCDF(final float[] splitPoints);
+  BaseReqSketch(final int k, final boolean highRankAccuracy, final Random rand) {
+    checkK(k);
+    this.rand = rand;
+    this.k = k;
+    hra = highRankAccuracy;
+    retItems = 0;
+    maxNomSize = 0;
+    totalN = 0;
+  }
 
   /**
-   * If true, the high ranks are prioritized for better accuracy. Otherwise
-   * the low ranks are prioritized for better accuracy.  This state is chosen during sketch
-   * construction.
-   * @return the high ranks accuracy state.
+   * Construct from elements. After sketch is constructed, retItems and maxNomSize must be computed.
+   * @param rand the source of randomness for the compactions. If null, this sketch creates its own.
    */
-  public abstract boolean getHighRankAccuracy();
+  BaseReqSketch(final int k, final boolean hra, final long totalN, final List<C> compactors,
+      final Random rand) {
+    checkK(k);
+    this.k = k;
+    this.hra = hra;
+    this.totalN = totalN;
+    this.compactors = compactors;
+    this.rand = (rand != null) ? rand : new Random();
+    for (int i = 0; i < compactors.size(); i++) {
+      compactors.get(i).resetRandom(this.rand);
+    }
+  }
 
   /**
-   * Gets the largest value seen by this sketch
-   * @return the largest value seen by this sketch
+   * Returns a new compactor of this sketch.
+   * @param lgWeight the lgWeight of the compactor
+   * @return a new compactor of this sketch
    */
-  public abstract float getMaxValue();
+  abstract C newCompactor(byte lgWeight);
+
+  final void compress() {
+    if (reqDebug != null) { reqDebug.emitStartCompress(); }
+    for (int h = 0; h < compactors.size(); h++) {
+      final C c = compactors.get(h);
+      final int compRetItems = c.getCount();
+      final int compNomCap = c.getNomCapacity();
+
+      if (compRetItems >= compNomCap) {
+        if (h + 1 >= getNumLevels()) { //at the top?
+          if (reqDebug != null) { reqDebug.emitMustAddCompactor(); }
+          grow(); //add a level, increases maxNomSize
+        }
+        c.compact(compactors.get(h + 1), cReturn);
+        retItems += cReturn.deltaRetItems;
+        maxNomSize += cReturn.deltaNomSize;
+        //we specifically decided not to do lazy compression.
+      }
+    }
+    aux = null;
+    if (reqDebug != null) { reqDebug.emitCompressDone(); }
+  }
+
+  void grow() {
+    final byte lgWeight = (byte)getNumLevels();
+    compactors.add(newCompactor(lgWeight));
+    maxNomSize = computeMaxNomSize();
+  }
 
   /**
-   * Gets the smallest value seen by this sketch
-   * @return the smallest value seen by this sketch
+   * Checks that the other given sketch has the same HighRankAccuracy setting as this one.
+   * @param other the other given sketch
    */
-  public abstract float getMinValue();
+  final void checkHighRankAccuracy(final BaseReqSketch<C, A> other) {
+    if (other.hra != hra) {
+      throw new SketchesArgumentException(
+          "Both sketches must have the same HighRankAccuracy setting.");
+    }
+  }
 
   /**
-   * Returns an a priori estimate of relative standard error (RSE, expressed as a number in [0,1]).
-   * Derived from Lemma 12 in https://arxiv.org/abs/2004.01668v2, but the constant factors were
-   * modified based on empirical measurements.
-   *
-   * @param k the given value of k
-   * @param rank the given normalized rank, a number in [0,1].
-   * @param hra if true High Rank Accuracy mode is being selected, otherwise, Low Rank Accuracy.
-   * @param totalN an estimate of the total number of items submitted to the sketch.
-   * @return an a priori estimate of relative standard error (RSE, expressed as a number in [0,1]).
+   * Merges the compactors of the other given sketch into this one, which is then compressed if
+   * necessary. The subclass merges the minimum and maximum values.
+   * @param other the other given sketch, which must not be empty.
    */
-  public abstract double getRSE(int k, double rank, boolean hra, long totalN);
+  final void mergeCompactors(final BaseReqSketch<C, A> other) {
+    totalN += other.totalN;
+    //Grow until self has at least as many compactors as other
+    while (getNumLevels() < other.getNumLevels()) { grow(); }
+    //Merge the items in all height compactors
+    for (int i = 0; i < other.getNumLevels(); i++) {
+      compactors.get(i).merge(other.compactors.get(i));
+    }
+    maxNomSize = computeMaxNomSize();
+    retItems = computeTotalRetainedItems();
+    if (retItems >= maxNomSize) {
+      compress();
+    }
+    assert retItems < maxNomSize;
+    aux = null;
+  }
 
   /**
-   * Gets the total number of items offered to the sketch.
-   * @return the total number of items offered to the sketch.
+   * Removes all compactors and adds a new first one. The subclass resets the minimum and maximum
+   * values.
    */
-  public abstract long getN();
+  final void resetCompactors() {
+    totalN = 0;
+    retItems = 0;
+    maxNomSize = 0;
+    aux = null;
+    compactors = new ArrayList<>();
+    grow();
+  }
 
   /**
-   * Returns an approximation to the Probability Mass Function (PMF) of the input stream
-   * given a set of splitPoints (values).
-   *
-   * <p>The resulting approximations have a probabilistic guarantee that be obtained, a priori,
-   * from the <i>getRSE(int, double, boolean, long)</i> function.
-   *
-   * <p>If the sketch is empty this returns null.</p>
-   *
-   * @param splitPoints an array of <i>m</i> unique, monotonically increasing double values
-   * that divide the real number line into <i>m+1</i> consecutive disjoint intervals.
-   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
-   * exclusive of the right splitPoint, with the exception that the last interval will include
-   * the maximum value.
-   * It is not necessary to include either the min or max values in these splitpoints.
-   *
-   * @return an array of m+1 doubles each of which is an approximation
-   * to the fraction of the input stream values (the mass) that fall into one of those intervals.
-   * The definition of an "interval" is inclusive of the left splitPoint and exclusive of the right
-   * splitPoint, with the exception that the last interval will include maximum value.
+   * Converts the raw counts of getPMForCDF into a CDF.
+   * @param buckets the raw counts, the last of which is N
+   * @return the CDF
    */
-  public abstract double[] getPMF(final float[] splitPoints);
+  final double[] cdfFromCounts(final long[] buckets) {
+    final int numBkts = buckets.length;
+    final double[] outArr = new double[numBkts];
+    for (int j = 0; j < numBkts; j++) {
+      outArr[j] = (double)buckets[j] / getN();
+    }
+    return outArr;
+  }
 
   /**
-   * Gets the approximate quantile of the given normalized rank based on the lteq criterion.
-   * The normalized rank must be in the range [0.0, 1.0] (inclusive, inclusive).
-   * @param normRank the given normalized rank
-   * @return the approximate quantile given the normalized rank.
+   * Converts the raw counts of getPMForCDF into a PMF.
+   * @param buckets the raw counts, the last of which is N
+   * @return the PMF
    */
-  public abstract float getQuantile(final double normRank);
+  final double[] pmfFromCounts(final long[] buckets) {
+    final int numBkts = buckets.length;
+    final double[] outArr = new double[numBkts];
+    outArr[0] = (double)buckets[0] / getN();
+    for (int j = 1; j < numBkts; j++) {
+      outArr[j] = (double)(buckets[j] - buckets[j - 1]) / getN();
+    }
+    return outArr;
+  }
+
+  List<C> getCompactors() {
+    return compactors;
+  }
+
+  boolean getLtEq() {
+    return ltEq;
+  }
 
   /**
-   * Gets an array of quantiles that correspond to the given array of normalized ranks.
-   * @param normRanks the given array of normalized ranks.
-   * @return the array of quantiles that correspond to the given array of normalized ranks.
-   * See <i>getQuantile(double)</i>
+   * If true, the high ranks are prioritized for better accuracy. Otherwise
+   * the low ranks are prioritized for better accuracy.  This state is chosen during sketch
+   * construction.
+   * @return the high ranks accuracy state.
    */
-  public abstract float[] getQuantiles(final double[] normRanks);
+  public boolean getHighRankAccuracy() {
+    return hra;
+  }
+
+  int getK() {
+    return k;
+  }
+
+  int getMaxNomSize() {
+    return maxNomSize;
+  }
 
   /**
-   * Computes the normalized rank of the given value in the stream.
-   * The normalized rank is the fraction of values less than the given value;
-   * or if lteq is true, the fraction of values less than or equal to the given value.
-   * @param value the given value
-   * @return the normalized rank of the given value in the stream.
+   * Gets the total number of items offered to the sketch.
+   * @return the total number of items offered to the sketch.
    */
-  public abstract double getRank(final float value);
+  public long getN() {
+    return totalN;
+  }
+
+  /**
+   * Gets the number of levels of compactors in the sketch.
+   * @return the number of levels of compactors in the sketch.
+   */
+  int getNumLevels() {
+    return compactors.size();
+  }
+
+  private static double getRankLB(final int k, final int levels, final double rank,
+      final int numStdDev, final boolean hra, final long totalN) {
+    if (exactRank(k, levels, rank, hra, totalN)) { return rank; }
+    final double relative = relRseFactor / k * (hra ? 1.0 - rank : rank);
+    final double fixed = fixRseFactor / k;
+    final double lbRel = rank - numStdDev * relative;
+    final double lbFix = rank - numStdDev * fixed;
+    return Math.max(lbRel, lbFix);
+  }
 
   /**
    * returns an approximate lower bound rank of the given noramalized rank.
@@ -143,15 +263,27 @@ abstract class BaseReqSketch {
    * @param numStdDev the number of standard deviations. Must be 1, 2, or 3.
    * @return an approximate lower bound rank.
    */
-  public abstract double getRankLowerBound(double rank, int numStdDev);
+  public double getRankLowerBound(final double rank, final int numStdDev) {
+    return getRankLB(k, getNumLevels(), rank, numStdDev, hra, getN());
+  }
 
-  /**
-   * Gets an array of normalized ranks that correspond to the given array of values.
-   * @param values the given array of values.
-   * @return the  array of normalized ranks that correspond to the given array of values.
-   * See <i>getRank(float)</i>
-   */
-  public abstract double[] getRanks(final float[] values);
+  private static double getRankUB(final int k, final int levels, final double rank,
+      final int numStdDev, final boolean hra, final long totalN) {
+    if (exactRank(k, levels, rank, hra, totalN)) { return rank; }
+    final double relative = relRseFactor / k * (hra ? 1.0 - rank : rank);
+    final double fixed = fixRseFactor / k;
+    final double ubRel = rank + numStdDev * relative;
+    final double ubFix = rank + numStdDev * fixed;
+    return Math.min(ubRel, ubFix);
+  }
+
+  private static boolean exactRank(final int k, final int levels, final double rank,
+      final boolean hra, final long totalN) {
+    final int baseCap = k * INIT_NUMBER_OF_SECTIONS;
+    if (levels == 1 || totalN <= baseCap) { return true; }
+    final double exactRankThresh = (double)baseCap / totalN;
+    return hra && rank >= 1.0 - exactRankThresh || !hra && rank <= exactRankThresh;
+  }
 
   /**
    * Returns an approximate upper bound rank of the given rank.
@@ -159,13 +291,30 @@ abstract class BaseReqSketch {
    * @param numStdDev the number of standard deviations. Must be 1, 2, or 3.
    * @return an approximate upper bound rank.
    */
-  public abstract double getRankUpperBound(double rank, int numStdDev);
+  public double getRankUpperBound(final double rank, final int numStdDev) {
+    return getRankUB(k, getNumLevels(), rank, numStdDev, hra, getN());
+  }
 
   /**
    * Gets the number of retained items of this sketch
    * @return the number of retained entries of this sketch
    */
-  public abstract int getRetainedItems();
+  public int getRetainedItems() { return retItems; }
+
+  /**
+   * Returns an a priori estimate of relative standard error (RSE, expressed as a number in [0,1]).
+   * Derived from Lemma 12 in https://arxiv.org/abs/2004.01668v2, but the constant factors were
+   * modified based on empirical measurements.
+   *
+   * @param k the given value of k
+   * @param rank the given normalized rank, a number in [0,1].
+   * @param hra if true High Rank Accuracy mode is being selected, otherwise, Low Rank Accuracy.
+   * @param totalN an estimate of the total number of items submitted to the sketch.
+   * @return an a priori estimate of relative standard error (RSE, expressed as a number in [0,1]).
+   */
+  public double getRSE(final int k, final double rank, final boolean hra, final long totalN) {
+    return getRankUB(k, 2, rank, 1, hra, totalN); //more conservative to assume > 1 level
+  }
 
   /**
    * Gets the number of bytes when serialized.
@@ -177,52 +326,54 @@ abstract class BaseReqSketch {
    * Returns true if this sketch is empty.
    * @return empty flag
    */
-  public abstract boolean isEmpty();
+  public boolean isEmpty() {
+    return totalN == 0;
+  }
 
   /**
    * Returns true if this sketch is in estimation mode.
    * @return estimation mode flag
    */
-  public abstract boolean isEstimationMode();
+  public boolean isEstimationMode() {
+    return getNumLevels() > 1;
+  }
 
   /**
    * Returns the current comparison criterion. If true the value comparison criterion is
    * &le;, otherwise it will be the default, which is &lt;.
    * @return the current comparison criterion
    */
-  public abstract boolean isLessThanOrEqual();
+  public boolean isLessThanOrEqual() {
+    return ltEq;
+  }
 
   /**
-   * Returns an iterator for all the items in this sketch.
-   * @return an iterator for all the items in this sketch.
+   * Computes a new bound for determining when to compress the sketch.
    */
-  public abstract ReqIterator iterator();
+  int computeMaxNomSize() {
+    int cap = 0;
+    for (final C c : compactors) { cap += c.getNomCapacity(); }
+    return cap;
+  }
 
-  /**
-   * Merge other sketch into this one. The other sketch is not modified.
-   * @param other sketch to be merged into this one.
-   * @return this
-   */
-  public abstract ReqSketch merge(final ReqSketch other);
+  void setMaxNomSize(final int maxNomSize) {
+    this.maxNomSize = maxNomSize;
+  }
 
   /**
-   * Resets this sketch by removing all data and setting all data related variables to their
-   * virgin state.
-   * The parameters k, highRankAccuracy, reqDebug and LessThanOrEqual will not change.
-   * @return this
+   * Computes the retItems for the sketch.
    */
-  public abstract ReqSketch reset();
+  int computeTotalRetainedItems() {
+    int count = 0;
+    for (final C c : compactors) {
+      count += c.getCount();
+    }
+    return count;
+  }
 
-  /**
-   * Sets the chosen criterion for value comparison
-   *
-   * @param ltEq (Less-than-or Equals) If true, the sketch will use the &le; criterion for comparing
-   * values.  Otherwise, the criterion is strictly &lt;, the default.
-   * This can be set anytime prior to a <i>getRank(float)</i> or <i>getQuantile(double)</i> or
-   * equivalent query.
-   * @return this
-   */
-  public abstract ReqSketch setLessThanOrEqual(final boolean ltEq);
+  void setRetainedItems(final int retItems) {
+    this.retItems = retItems;
+  }
 
   /**
    * Returns a byte array representation of this sketch.
@@ -237,12 +388,6 @@ abstract class BaseReqSketch {
   @Override
   public abstract String toString();
 
-  /**
-   * Updates this sketch with the given item.
-   * @param item the given item
-   */
-  public abstract void update(final float item);
-
   /**
    * A detailed, human readable view of the sketch compactors and their data.
    * Each compactor string is prepended by the compactor lgWeight, the current number of retained
@@ -252,6 +397,31 @@ abstract class BaseReqSketch {
    * compactory level.  Otherwise, just a summary will be output.
    * @return a detailed view of the compactors and their data
    */
-  public abstract String viewCompactorDetail(String fmt, boolean allData);
+  public String viewCompactorDetail(final String fmt, final boolean allData) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("*********Relative Error Quantiles Compactor Detail*********").append(LS);
+    sb.append("Compactor Detail: Ret Items: ").append(getRetainedItems())
+      .append("  N: ").append(getN());
+    sb.append(LS);
+    for (int i = 0; i < getNumLevels(); i++) {
+      final C c = compactors.get(i);
+      sb.append(c.toListPrefix()).append(LS);
+      if (allData) { sb.append(c.toHorizList(fmt, 20)).append(LS); }
+    }
+    sb.append("************************End Detail*************************").append(LS);
+    return sb.toString();
+  }
+
+  static void checkK(final int k) {
+    if ((k & 1) > 0 || k < 4 || k > 1024) {
+      throw new SketchesArgumentException(
+          "<i>K</i> must be even and in the range [4, 1024], inclusive: " + k );
+    }
+  }
+
+  static class CompactorReturn {
+    int deltaRetItems;
+    int deltaNomSize;
+  }
 
 }
@@ -20,6 +20,7 @@
 package org.apache.datasketches.req;
 
 import java.util.Arrays;
+import java.util.List;
 
 import org.apache.datasketches.InequalitySearch;
 import org.apache.datasketches.SketchesArgumentException;
@@ -149,6 +150,23 @@ class FloatBuffer {
     return this;
   }
 
+  /**
+   * Appends the given range of items to the active array with one block copy and increases the
+   * active count by the given length. This will expand the array if necessary.
+   * @param items the given array of items
+   * @param offset the index of the first item to append
+   * @param length the number of items to append
+   * @return this
+   */
+  FloatBuffer append(final float[] items, final int offset, final int length) {
+    ensureSpace(length);
+    final int index = spaceAtBottom_ ? capacity_ - count_ - length : count_;
+    System.arraycopy(items, offset, arr_, index, length);
+    count_ += length;
+    sorted_ = false;
+    return this;
+  }
+
   /**
    * Ensures that the capacity of this FloatBuffer is at least newCapacity.
    * If newCapacity &lt; capacity(), no action is taken.
@@ -381,6 +399,76 @@ class FloatBuffer {
     return this;
   }
 
+  /**
+   * Merges all of the incoming sorted buffers into this sorted buffer at once. The active regions
+   * are gathered into one array and then merged pairwise as sorted runs, which takes
+   * O(m log(r)) comparisons for m items in r runs. The incoming buffers are not modified.
+   * @param bufsIn the sorted buffers in
+   * @return this
+   */
+  FloatBuffer mergeSortIn(final List<FloatBuffer> bufsIn) {
+    if (!sorted_) {
+      throw new SketchesArgumentException("All buffers must be sorted.");
+    }
+    int numRuns = 1;
+    int totLen = count_;
+    for (final FloatBuffer bufIn : bufsIn) {
+      if (!bufIn.isSorted()) {
+        throw new SketchesArgumentException("All buffers must be sorted.");
+      }
+      if (bufIn.count_ > 0) { numRuns++; totLen += bufIn.count_; }
+    }
+    if (numRuns == 1) { return this; }
+    float[] src = new float[totLen];
+    float[] dst = new float[totLen];
+    final int[] runStarts = new int[numRuns + 1];
+    System.arraycopy(arr_, spaceAtBottom_ ? capacity_ - count_ : 0, src, 0, count_);
+    int run = 1;
+    int pos = count_;
+    for (final FloatBuffer bufIn : bufsIn) {
+      if (bufIn.count_ == 0) { continue; }
+      runStarts[run++] = pos;
+      final int start = bufIn.spaceAtBottom_ ? bufIn.capacity_ - bufIn.count_ : 0;
+      System.arraycopy(bufIn.arr_, start, src, pos, bufIn.count_);
+      pos += bufIn.count_;
+    }
+    runStarts[numRuns] = totLen;
+    while (numRuns > 1) {
+      int outRuns = 0;
+      for (int r = 0; r < numRuns; r += 2) {
+        final int lo = runStarts[r];
+        final int mid = runStarts[Math.min(r + 1, numRuns)];
+        final int hi = runStarts[Math.min(r + 2, numRuns)];
+        mergeRuns(src, lo, mid, hi, dst);
+        runStarts[outRuns++] = lo;
+      }
+      runStarts[outRuns] = totLen;
+      numRuns = outRuns;
+      final float[] tmp = src;
+      src = dst;
+      dst = tmp;
+    }
+    count_ = 0; //the active region has been copied out
+    ensureSpace(totLen);
+    System.arraycopy(src, 0, arr_, spaceAtBottom_ ? capacity_ - totLen : 0, totLen);
+    count_ = totLen;
+    sorted_ = true;
+    return this;
+  }
+
+  //Merges the adjacent sorted runs src[lo, mid) and src[mid, hi) into dst[lo, hi).
+  private static void mergeRuns(final float[] src, final int lo, final int mid, final int hi,
+      final float[] dst) {
+    int i = lo;
+    int j = mid;
+    int k = lo;
+    while (i < mid && j < hi) {
+      dst[k++] = src[i] <= src[j] ? src[i++] : src[j++];
+    }
+    if (i < mid) { System.arraycopy(src, i, dst, k, mid - i); }
+    else if (j < hi) { System.arraycopy(src, j, dst, k, hi - j); }
+  }
+
   /**
    * Sorts the active region;
    * @return this
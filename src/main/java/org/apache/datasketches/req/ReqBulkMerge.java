@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.apache.datasketches.ForkJoinChunks.reduceChunks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Merging of many ReqSketches into one, as a fork-join tree.
+ *
+ * <p>The inputs are split into contiguous chunks. Each chunk is merged into a new sketch with a
+ * single call that merges the same-level compactors of all of its sketches at once before
+ * compressing, and the partial results are then merged pairwise up the tree.</p>
+ */
+final class ReqBulkMerge {
+
+  private ReqBulkMerge() {}
+
+  /**
+   * Returns a new sketch configured by the given builder that is the merge of the given sketches.
+   * @param sketches the given non-empty sketches
+   * @param bldr the builder of the result and of the partial results
+   * @param rand the source of the seeds of the generators of the partial results, or null if each
+   * partial result creates its own unseeded generator.
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new sketch that is the merge of the given sketches
+   */
+  static ReqSketch mergeAll(final List<? extends ReqSketch> sketches, final ReqSketchBuilder bldr,
+      final Random rand, final ForkJoinPool pool) {
+    final int n = sketches.size();
+    final boolean seeded = rand != null;
+    final long seed = seeded ? rand.nextLong() : 0;
+    if (n == 0) { return newSketch(bldr, seeded, seed, 0); }
+    return reduceChunks(n,
+        (lo, hi) -> newSketch(bldr, seeded, seed, lo).merge(sketches.subList(lo, hi)),
+        (left, right) -> left.merge(Collections.singletonList(right)), pool);
+  }
+
+  //A seeded chunk gets a generator of its own, so that the result does not depend on the order in
+  //which the worker threads run.
+  private static ReqSketch newSketch(final ReqSketchBuilder bldr, final boolean seeded,
+      final long seed, final int lo) {
+    final ReqSketch sk = new ReqSketch(bldr.getK(), bldr.getHighRankAccuracy(), null,
+        seeded ? new Random(seed + lo) : null);
+    sk.setLessThanOrEqual(bldr.getLessThanOrEqual());
+    return sk;
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.datasketches.InequalitySearch;
+
+/**
+ * Supports searches for quantiles of the ReqDoublesSketch
+ */
+class ReqDoublesAuxiliary {
+  private double[] items;
+  private long[] weights;
+  private final boolean hra; //used in merge
+  private final long N;
+
+  ReqDoublesAuxiliary(final ReqDoublesSketch sk) {
+    hra = sk.getHighRankAccuracy();
+    N = sk.getN();
+    buildAuxTable(sk);
+  }
+
+  private void buildAuxTable(final ReqDoublesSketch sk) {
+    final List<ReqDoublesCompactor> compactors = sk.getCompactors();
+    final int numComp = compactors.size();
+    final int totalItems = sk.getRetainedItems();
+    items = new double[totalItems];
+    weights = new long[totalItems];
+    int auxCount = 0;
+    for (int i = 0; i < numComp; i++) {
+      final ReqDoublesCompactor c = compactors.get(i);
+      final DoubleBuffer bufIn = c.getBuffer();
+      final long weight = 1 << c.getLgWeight();
+      final int bufInLen = bufIn.getCount();
+      mergeSortIn(bufIn, weight, auxCount);
+      auxCount += bufInLen;
+    }
+    createCumulativeWeights();
+    dedup();
+  }
+
+  private void createCumulativeWeights() {
+    final int len = items.length;
+    for (int i = 1; i < len; i++) {
+      weights[i] +=  weights[i - 1];
+    }
+    assert weights[len - 1] == N;
+  }
+
+  void dedup() {
+    final int itemsLen = items.length;
+    final double[] itemsB = new double[itemsLen];
+    final long[] wtsB = new long[itemsLen];
+    int bidx = 0;
+    int i = 0;
+    while (i < itemsLen) {
+      int j = i + 1;
+      int hidup = j;
+      while (j < itemsLen && items[i] == items[j]) {
+        hidup = j++;
+      }
+      if (j - i == 1) { //no dups
+        itemsB[bidx] = items[i];
+        wtsB[bidx++] = weights[i];
+        i++;
+        continue;
+      } else {
+        itemsB[bidx] = items[hidup]; //lgtm [java/index-out-of-bounds]
+        wtsB[bidx++] = weights[hidup];
+        i = j;
+        continue;
+      }
+    }
+    items = Arrays.copyOf(itemsB, bidx);
+    weights = Arrays.copyOf(wtsB, bidx);
+  }
+
+  //Specially modified version of DoubleBuffer.mergeSortIn(). Here spaceAtBottom is always false and
+  // the ultimate array size has already been set.  However, this must simultaneously deal with
+  // sorting the weights as well.
+  void mergeSortIn(final DoubleBuffer bufIn, final long weight, final int auxCount) {
+    if (!bufIn.isSorted()) { bufIn.sort(); }
+    final double[] arrIn = bufIn.getArray(); //may be larger than its item count.
+    final int bufInLen = bufIn.getCount();
+    final int totLen = auxCount + bufInLen;
+    int i = auxCount - 1;
+    int j = bufInLen - 1;
+    int h = hra ? bufIn.getCapacity() - 1 : bufInLen - 1;
+    for (int k = totLen; k-- > 0; ) {
+      if (i >= 0 && j >= 0) { //both valid
+        if (items[i] >= arrIn[h]) {
+          items[k] = items[i];
+          weights[k] = weights[i--];
+        } else {
+          items[k] = arrIn[h--]; j--;
+          weights[k] = weight;
+        }
+      } else if (i >= 0) { //i is valid
+        items[k] = items[i];
+        weights[k] = weights[i--];
+      } else if (j >= 0) { //j is valid
+        items[k] = arrIn[h--]; j--;
+        weights[k] = weight;
+      } else {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Gets the quantile based on the given normalized rank,
+   * which must be in the range [0.0, 1.0], inclusive.
+   * @param normRank the given normalized rank
+   * @param ltEq determines the search method used.
+   * @return the quantile based on given normalized rank and ltEq.
+   */
+  double getQuantile(final double normRank, final boolean ltEq) {
+    final int len = weights.length;
+    final long rank = (int)(normRank * N);
+    //Note that when ltEq=false, GT matches KLL & Quantiles behavior.
+    final InequalitySearch crit = ltEq ? InequalitySearch.GE : InequalitySearch.GT;
+    final int index = InequalitySearch.find(weights, 0, len - 1, rank, crit);
+    if (index == -1) {
+      return items[len - 1]; //resolves high end (GE & GT) -1 only!
+    }
+    return items[index];
+  }
+
+}
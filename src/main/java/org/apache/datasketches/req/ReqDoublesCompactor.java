@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import java.util.Random;
+
+/**
+ * The compactor class for the ReqDoublesSketch. It is the same as the ReqCompactor except that it
+ * retains double items.
+ */
+class ReqDoublesCompactor extends BaseReqCompactor<ReqDoublesCompactor> {
+  private DoubleBuffer buf;
+
+  /**
+   * Normal Constructor with a given source of randomness
+   * @param lgWeight the lgWeight of this compactor
+   * @param hra High Rank Accuracy
+   * @param sectionSize initially the value of k
+   * @param rand the source of randomness, which may be shared with the other compactors of a sketch
+   */
+  ReqDoublesCompactor(
+      final byte lgWeight,
+      final boolean hra,
+      final int sectionSize,
+      final Random rand) {
+    super(lgWeight, hra, sectionSize, rand);
+    final int nomCap = getNomCapacity();
+    buf = new DoubleBuffer(2 * nomCap, nomCap, hra);
+  }
+
+  /**
+   * Copy Constructor
+   * @param other the compactor to be copied into this one
+   */
+  ReqDoublesCompactor(final ReqDoublesCompactor other) {
+    super(other);
+    buf = new DoubleBuffer(other.buf);
+  }
+
+  /**
+   * Construct from elements. The buffer will need to be constructed first
+   */
+  ReqDoublesCompactor(
+      final byte lgWeight,
+      final boolean hra,
+      final long state,
+      final float sectionSizeFlt,
+      final byte numSections,
+      final DoubleBuffer buf) {
+    super(lgWeight, hra, state, sectionSizeFlt, numSections);
+    this.buf = buf;
+  }
+
+  /**
+   * Gets a reference to this compactor's internal DoubleBuffer
+   * @return a reference to this compactor's internal DoubleBuffer
+   */
+  DoubleBuffer getBuffer() { return buf; }
+
+  @Override
+  int getCount() {
+    return buf.getCount();
+  }
+
+  @Override
+  void ensureCapacity(final int newCapacity) {
+    buf.ensureCapacity(newCapacity);
+  }
+
+  @Override
+  int promote(final int startOffset, final int endOffset, final boolean odds,
+      final ReqDoublesCompactor next) {
+    final DoubleBuffer promote = buf.getEvensOrOdds(startOffset, endOffset, odds);
+    buf.trimCount(buf.getCount() - (endOffset - startOffset));
+    next.buf.mergeSortIn(promote);
+    return promote.getCount();
+  }
+
+  /**
+   * Serialize state(8) sectionSizeFlt(4), numSections(1), lgWeight(1), pad(2), count(4) + doubleArr
+   * @return required bytes to serialize.
+   */
+  int getSerializationBytes() {
+    final int count = buf.getCount();
+    return 8 + 4 + 1 + 1 + 2 + 4 + count * Double.BYTES; // 20 + array
+  }
+
+  @Override
+  void mergeBuffer(final ReqDoublesCompactor other) {
+    buf.sort();
+    final DoubleBuffer otherBuf = new DoubleBuffer(other.buf);
+    otherBuf.sort();
+    if (otherBuf.getCount() > buf.getCount()) {
+      otherBuf.mergeSortIn(buf);
+      buf = otherBuf;
+    } else {
+      buf.mergeSortIn(otherBuf);
+    }
+  }
+
+  @Override
+  byte[] itemsToBytes() {
+    return buf.doublesToBytes();
+  }
+
+  @Override
+  String toHorizList(final String fmt, final int width) {
+    return buf.toHorizList(fmt, width);
+  }
+
+}
@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.apache.datasketches.Util.checkBounds;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * This is the double-valued version of the Relative Error Quantiles Sketch. It uses the same
+ * compaction schedule, High Rank Accuracy and Low Rank Accuracy modes, comparison criteria and
+ * error guarantees as the {@link ReqSketch}, but it retains the items as doubles, so that values
+ * that are not representable as floats are neither rounded on input nor on output. Each retained
+ * item needs 8 bytes instead of 4.
+ *
+ * <p>The serialized image has the same layout as the image of a ReqSketch, with the items stored
+ * as doubles and a flag that marks the image as the image of a ReqDoublesSketch.
+ * Neither sketch will heapify the image of the other.</p>
+ *
+ * <p>Please refer to the documentation of the {@link ReqSketch} for the details of the
+ * algorithm.</p>
+ */
+public class ReqDoublesSketch extends BaseReqSketch<ReqDoublesCompactor, ReqDoublesAuxiliary> {
+  //state variables
+  private double minValue = Double.NaN;
+  private double maxValue = Double.NaN;
+
+  /**
+   * Normal Constructor used by ReqSketchBuilder.
+   * @param k Controls the size and error of the sketch. It must be even and in the range
+   * [4, 1024], inclusive.
+   * @param highRankAccuracy if true, the default, the high ranks are prioritized for better
+   * accuracy. Otherwise the low ranks are prioritized for better accuracy.
+   * @param rand the source of randomness for the compactions. If null, this sketch creates its own.
+   */
+  ReqDoublesSketch(final int k, final boolean highRankAccuracy, final Random rand) {
+    super(k, highRankAccuracy, rand != null ? rand : new Random());
+    grow();
+  }
+
+  /**
+   * Construct from elements. After sketch is constructed, retItems and maxNomSize must be computed.
+   * Used by ReqSerDe.
+   * @param rand the source of randomness for the compactions. If null, this sketch creates its own.
+   */
+  ReqDoublesSketch(final int k, final boolean hra, final long totalN, final double minValue,
+      final double maxValue, final List<ReqDoublesCompactor> compactors, final Random rand) {
+    super(k, hra, totalN, compactors, rand);
+    this.minValue = minValue;
+    this.maxValue = maxValue;
+  }
+
+  /**
+   * Returns an ReqDoublesSketch on the heap from a Memory image of the sketch.
+   * @param mem The Memory object holding a valid image of an ReqDoublesSketch
+   * @return an ReqDoublesSketch on the heap from a Memory image of the sketch.
+   */
+  public static ReqDoublesSketch heapify(final Memory mem) {
+    return ReqSerDe.heapifyDoubles(mem, null);
+  }
+
+  /**
+   * Returns an ReqDoublesSketch on the heap from a Memory image of the sketch, whose compactions
+   * use the given source of randomness. The source of randomness is not serialized, so this
+   * restores a seeded sketch as a seeded one.
+   * @param mem The Memory object holding a valid image of an ReqDoublesSketch
+   * @param rand the source of randomness of the sketch. If null, the sketch creates its own.
+   * @return an ReqDoublesSketch on the heap from a Memory image of the sketch.
+   */
+  public static ReqDoublesSketch heapify(final Memory mem, final Random rand) {
+    return ReqSerDe.heapifyDoubles(mem, rand);
+  }
+
+  /**
+   * Returns a new ReqSketchBuilder. Use {@link ReqSketchBuilder#buildDoubles()} to build a
+   * ReqDoublesSketch.
+   * @return a new ReqSketchBuilder
+   */
+  public static final ReqSketchBuilder builder() {
+    return new ReqSketchBuilder();
+  }
+
+  /**
+   * Returns an approximation to the Cumulative Distribution Function (CDF) of the input stream
+   * given a set of splitPoints (values). See {@link ReqSketch#getCDF(float[])}.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing double values
+   * that divide the real number line into <i>m+1</i> consecutive disjoint intervals.
+   * @return an array of m+1 double values, which are a consecutive approximation to the CDF
+   * of the input stream given the splitPoints.
+   */
+  public double[] getCDF(final double[] splitPoints) {
+    if (isEmpty()) { return null; }
+    return cdfFromCounts(getPMForCDF(splitPoints));
+  }
+
+  private long getCount(final double value) {
+    if (isEmpty()) { return 0; }
+    final int numComp = compactors.size();
+    long cumNnr = 0;
+    for (int i = 0; i < numComp; i++) { //cycle through compactors
+      final ReqDoublesCompactor c = compactors.get(i);
+      final long wt = 1L << c.getLgWeight();
+      final DoubleBuffer buf = c.getBuffer();
+      cumNnr += buf.getCountWithCriterion(value, ltEq) * wt;
+    }
+    return cumNnr;
+  }
+
+  private long[] getCounts(final double[] values) {
+    final int numValues = values.length;
+    final int numComp = compactors.size();
+    final long[] cumNnrArr = new long[numValues];
+    if (isEmpty()) { return cumNnrArr; }
+    for (int i = 0; i < numComp; i++) { //cycle through compactors
+      final ReqDoublesCompactor c = compactors.get(i);
+      final long wt = 1L << c.getLgWeight();
+      final DoubleBuffer buf = c.getBuffer();
+      for (int j = 0; j < numValues; j++) {
+        cumNnrArr[j] += buf.getCountWithCriterion(values[j], ltEq) * wt;
+      }
+    }
+    return cumNnrArr;
+  }
+
+  /**
+   * Gets the largest value seen by this sketch
+   * @return the largest value seen by this sketch
+   */
+  public double getMaxValue() {
+    return maxValue;
+  }
+
+  /**
+   * Gets the smallest value seen by this sketch
+   * @return the smallest value seen by this sketch
+   */
+  public double getMinValue() {
+    return minValue;
+  }
+
+  /**
+   * Returns an approximation to the Probability Mass Function (PMF) of the input stream
+   * given a set of splitPoints (values). See {@link ReqSketch#getPMF(float[])}.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing double values
+   * that divide the real number line into <i>m+1</i> consecutive disjoint intervals.
+   * @return an array of m+1 doubles each of which is an approximation
+   * to the fraction of the input stream values (the mass) that fall into one of those intervals.
+   */
+  public double[] getPMF(final double[] splitPoints) {
+    if (isEmpty()) { return null; }
+    return pmfFromCounts(getPMForCDF(splitPoints));
+  }
+
+  /**
+   * Gets a CDF in raw counts, which can be easily converted into a CDF or PMF.
+   * @param splits the splitPoints array
+   * @return a CDF in raw counts
+   */
+  private long[] getPMForCDF(final double[] splits) {
+    validateSplits(splits);
+    final int numSplits = splits.length;
+    final long[] splitCounts = getCounts(splits);
+    final int numBkts = numSplits + 1;
+    final long[] bkts = Arrays.copyOf(splitCounts, numBkts);
+    bkts[numBkts - 1] = getN();
+    return bkts;
+  }
+
+  /**
+   * Gets the approximate quantile of the given normalized rank based on the lteq criterion.
+   * The normalized rank must be in the range [0.0, 1.0] (inclusive, inclusive).
+   * @param normRank the given normalized rank
+   * @return the approximate quantile given the normalized rank.
+   */
+  public double getQuantile(final double normRank) {
+    if (isEmpty()) { return Double.NaN; }
+    if (normRank < 0 || normRank > 1.0) {
+      throw new SketchesArgumentException(
+        "Normalized rank must be in the range [0.0, 1.0]: " + normRank);
+    }
+    if (aux == null) {
+      aux = new ReqDoublesAuxiliary(this);
+    }
+    return aux.getQuantile(normRank, ltEq);
+  }
+
+  /**
+   * Gets an array of quantiles that correspond to the given array of normalized ranks.
+   * @param normRanks the given array of normalized ranks.
+   * @return the array of quantiles that correspond to the given array of normalized ranks.
+   * See <i>getQuantile(double)</i>
+   */
+  public double[] getQuantiles(final double[] normRanks) {
+    if (isEmpty()) { return null; }
+    final int len = normRanks.length;
+    final double[] qArr = new double[len];
+    for (int i = 0; i < len; i++) {
+      qArr[i] = getQuantile(normRanks[i]);
+    }
+    return qArr;
+  }
+
+  /**
+   * Computes the normalized rank of the given value in the stream.
+   * The normalized rank is the fraction of values less than the given value;
+   * or if lteq is true, the fraction of values less than or equal to the given value.
+   * @param value the given value
+   * @return the normalized rank of the given value in the stream.
+   */
+  public double getRank(final double value) {
+    if (isEmpty()) { return Double.NaN; }
+    final long nnCount = getCount(value);
+    return (double)nnCount / totalN;
+  }
+
+  /**
+   * Gets an array of normalized ranks that correspond to the given array of values.
+   * @param values the given array of values.
+   * @return the  array of normalized ranks that correspond to the given array of values.
+   * See <i>getRank(double)</i>
+   */
+  public double[] getRanks(final double[] values) {
+    if (isEmpty()) { return null; }
+    final long[] cumNnrArr = getCounts(values);
+    final int numValues = values.length;
+    final double[] rArr = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      rArr[i] = (double)cumNnrArr[i] / totalN;
+    }
+    return rArr;
+  }
+
+  /**
+   * Gets the number of bytes when serialized.
+   * @return the number of bytes when serialized.
+   */
+  @Override
+  public int getSerializationBytes() {
+    final ReqSerDe.SerDeFormat serDeFormat = ReqSerDe.getSerFormat(this);
+    return ReqSerDe.getSerBytes(this, serDeFormat);
+  }
+
+  @Override
+  ReqDoublesCompactor newCompactor(final byte lgWeight) {
+    return new ReqDoublesCompactor(lgWeight, hra, k, rand);
+  }
+
+  /**
+   * Returns an iterator for all the items in this sketch.
+   * @return an iterator for all the items in this sketch.
+   */
+  public ReqDoublesIterator iterator() {
+    return new ReqDoublesIterator(this);
+  }
+
+  /**
+   * Merge other sketch into this one. The other sketch is not modified.
+   * @param other sketch to be merged into this one.
+   * @return this
+   */
+  public ReqDoublesSketch merge(final ReqDoublesSketch other) {
+    if (other == null || other.isEmpty()) { return this; }
+    checkHighRankAccuracy(other);
+    //update min, max values
+    if (Double.isNaN(minValue) || other.minValue < minValue) { minValue = other.minValue; }
+    if (Double.isNaN(maxValue) || other.maxValue > maxValue) { maxValue = other.maxValue; }
+    mergeCompactors(other);
+    return this;
+  }
+
+  /**
+   * Resets this sketch by removing all data and setting all data related variables to their
+   * virgin state.
+   * The parameters k, highRankAccuracy and LessThanOrEqual will not change.
+   * @return this
+   */
+  public ReqDoublesSketch reset() {
+    minValue = Double.NaN;
+    maxValue = Double.NaN;
+    resetCompactors();
+    return this;
+  }
+
+  /**
+   * Sets the chosen criterion for value comparison
+   *
+   * @param ltEq (Less-than-or Equals) If true, the sketch will use the &le; criterion for comparing
+   * values.  Otherwise, the criterion is strictly &lt;, the default.
+   * This can be set anytime prior to a <i>getRank(double)</i> or <i>getQuantile(double)</i> or
+   * equivalent query.
+   * @return this
+   */
+  public ReqDoublesSketch setLessThanOrEqual(final boolean ltEq) {
+    this.ltEq = ltEq;
+    return this;
+  }
+
+  /**
+   * Returns a byte array representation of this sketch.
+   * @return a byte array representation of this sketch.
+   */
+  @Override
+  public byte[] toByteArray() {
+    return ReqSerDe.toByteArray(this);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("******Relative Error Quantiles Doubles Sketch Summary******").append(LS);
+    sb.append("  K               : " + k).append(LS);
+    sb.append("  N               : " + totalN).append(LS);
+    sb.append("  Retained Items  : " + retItems).append(LS);
+    sb.append("  Min Value       : " + minValue).append(LS);
+    sb.append("  Max Value       : " + maxValue).append(LS);
+    sb.append("  Estimation Mode : " + isEstimationMode()).append(LS);
+    sb.append("  LtEQ            : " + ltEq).append(LS);
+    sb.append("  High Rank Acc   : " + hra).append(LS);
+    sb.append("  Levels          : " + compactors.size()).append(LS);
+    sb.append("************************End Summary************************").append(LS);
+    return sb.toString();
+  }
+
+  /**
+   * Updates this sketch with the given item.
+   * @param item the given item
+   */
+  public void update(final double item) {
+    if (Double.isNaN(item)) { return; }
+    if (isEmpty()) {
+      minValue = item;
+      maxValue = item;
+    } else {
+      if (item < minValue) { minValue = item; }
+      if (item > maxValue) { maxValue = item; }
+    }
+    final DoubleBuffer buf = compactors.get(0).getBuffer();
+    buf.append(item);
+    retItems++;
+    totalN++;
+    if (retItems >= maxNomSize) {
+      buf.sort();
+      compress();
+    }
+    aux = null;
+  }
+
+  /**
+   * Updates this sketch with the given range of items. The result is equivalent to calling
+   * {@link #update(double)} for each item in turn: NaNs are ignored and the sketch is compressed at
+   * the same points. The items are copied into the level-zero buffer in blocks that fill it, so that
+   * it is sorted and compacted only once per fill.
+   * @param items the given array of items
+   * @param offset the index of the first item
+   * @param length the number of items
+   */
+  public void update(final double[] items, final int offset, final int length) {
+    Objects.requireNonNull(items, "Parameter 'items' must not be null");
+    checkBounds(offset, length, items.length);
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      if (Double.isNaN(items[i])) { i++; continue; }
+      //extend the run of non-NaN items, up to the point where the sketch must be compressed
+      final int lim = Math.min(end, i + Math.max(1, maxNomSize - retItems));
+      int j = i + 1;
+      while (j < lim && !Double.isNaN(items[j])) { j++; }
+      appendRun(items, i, j - i);
+      i = j;
+    }
+  }
+
+  /**
+   * Appends a run of non-NaN items to level zero and compresses the sketch if it has reached its
+   * nominal size. The run must not be longer than the space left before that point.
+   */
+  private void appendRun(final double[] items, final int offset, final int length) {
+    assert length <= maxNomSize - retItems;
+    double min = items[offset];
+    double max = min;
+    for (int i = offset + 1; i < offset + length; i++) {
+      final double item = items[i];
+      if (item < min) { min = item; }
+      if (item > max) { max = item; }
+    }
+    if (isEmpty()) {
+      minValue = min;
+      maxValue = max;
+    } else {
+      if (min < minValue) { minValue = min; }
+      if (max > maxValue) { maxValue = max; }
+    }
+    final DoubleBuffer buf = compactors.get(0).getBuffer();
+    buf.append(items, offset, length);
+    retItems += length;
+    totalN += length;
+    if (retItems >= maxNomSize) {
+      buf.sort();
+      compress();
+    }
+    aux = null;
+  }
+
+  /**
+   * This checks the given double array to make sure that it contains only finite values
+   * and is monotonically increasing in value.
+   * @param splits the given array
+   */
+  static void validateSplits(final double[] splits) {
+    final int len = splits.length;
+    for (int i = 0; i < len; i++) {
+      final double v = splits[i];
+      if (!Double.isFinite(v)) {
+        throw new SketchesArgumentException("Values must be finite");
+      }
+      if (i < len - 1 && v >= splits[i + 1]) {
+        throw new SketchesArgumentException(
+          "Values must be unique and monotonically increasing");
+      }
+    }
+  }
+
+}
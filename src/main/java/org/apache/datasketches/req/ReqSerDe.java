@@ -25,7 +25,9 @@ import static java.lang.Math.round;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
+import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Buffer;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableBuffer;
@@ -116,9 +118,12 @@ import org.apache.datasketches.memory.WritableMemory;
    * Bit 3 : HRA
    * Bit 4 : Raw Items
    * Bit 5 : L0 Sorted
-   * Bit 6 : reserved
+   * Bit 6 : Doubles, the items are doubles of a ReqDoublesSketch
    * Bit 7 : reserved
    * </pre>
+   *
+   * <p>The image of a ReqDoublesSketch has the same layout with the Doubles flag set, except that the
+   * MinValue, MaxValue and all items are 8-byte doubles.</p>
  *
  * @author Lee Rhodes
  */
@@ -127,8 +132,9 @@ class ReqSerDe {
 
   private static final byte SER_VER = 1;
   private static final byte FAMILY_ID = 17;
+  private static final int DOUBLES_FLAG_MASK = 64;
 
-  static ReqSketch heapify(final Memory mem) {
+  static ReqSketch heapify(final Memory mem, final Random rand) {
     final Buffer buff = mem.asBuffer();
     //Extract first 8 bytes
     final byte preInts = buff.getByte();
@@ -142,6 +148,10 @@ class ReqSerDe {
     final boolean hra = (flags & 8) > 0;
     final boolean rawItems = (flags & 16) > 0;
     final boolean lvl0Sorted = (flags & 32) > 0;
+    if ((flags & DOUBLES_FLAG_MASK) > 0) {
+      throw new SketchesArgumentException(
+          "Memory image is of a ReqDoublesSketch, use ReqDoublesSketch.heapify(Memory).");
+    }
     //  remainder fields
     final int k = buff.getShort() & 0xFFFF;
     final int numCompactors = buff.getByte() & 0xFF;
@@ -151,11 +161,11 @@ class ReqSerDe {
     switch (deserFormat) {
       case EMPTY: {
         assert preInts == 2;
-        return new ReqSketch(k, hra, null);
+        return new ReqSketch(k, hra, null, rand);
       }
       case RAWITEMS: {
         assert preInts == 2;
-        final ReqSketch sk = new ReqSketch(k, hra, null);
+        final ReqSketch sk = new ReqSketch(k, hra, null, rand);
         for (int i = 0; i < numRawItems; i++) { sk.update(buff.getFloat()); }
         return sk;
       }
@@ -168,7 +178,7 @@ class ReqSerDe {
         final float maxValue = compactor.maxVal;
         final List<ReqCompactor> compactors = new ArrayList<>();
         compactors.add(compactor.reqCompactor);
-        final ReqSketch sk = new ReqSketch(k, hra, totalN, minValue, maxValue, compactors);
+        final ReqSketch sk = new ReqSketch(k, hra, totalN, minValue, maxValue, compactors, rand);
         sk.setMaxNomSize(sk.computeMaxNomSize());
         sk.setRetainedItems(sk.computeTotalRetainedItems());
         return sk;
@@ -185,7 +195,7 @@ class ReqSerDe {
           final Compactor compactor = extractCompactor(buff, level0sorted, hra);
           compactors.add(compactor.reqCompactor);
         }
-        final ReqSketch sk = new ReqSketch(k, hra, totalN, minValue, maxValue, compactors);
+        final ReqSketch sk = new ReqSketch(k, hra, totalN, minValue, maxValue, compactors, rand);
         sk.setMaxNomSize(sk.computeMaxNomSize());
         sk.setRetainedItems(sk.computeTotalRetainedItems());
         return sk;
@@ -234,6 +244,118 @@ class ReqSerDe {
     }
   }
 
+  static ReqDoublesSketch heapifyDoubles(final Memory mem, final Random rand) {
+    final Buffer buff = mem.asBuffer();
+    //Extract first 8 bytes
+    final byte preInts = buff.getByte();
+    final byte serVer = buff.getByte();
+    assert serVer == (byte)1;
+    final byte familyId = buff.getByte();
+    assert familyId == 17;
+    //  Extract flags
+    final int flags = buff.getByte() & 0xFF;
+    final boolean empty = (flags & 4) > 0;
+    final boolean hra = (flags & 8) > 0;
+    final boolean rawItems = (flags & 16) > 0;
+    final boolean lvl0Sorted = (flags & 32) > 0;
+    if ((flags & DOUBLES_FLAG_MASK) == 0) {
+      throw new SketchesArgumentException(
+          "Memory image is not of a ReqDoublesSketch, use ReqSketch.heapify(Memory).");
+    }
+    //  remainder fields
+    final int k = buff.getShort() & 0xFFFF;
+    final int numCompactors = buff.getByte() & 0xFF;
+    final int numRawItems = buff.getByte() & 0xFF;
+    //  extract different serialization formats
+    final SerDeFormat deserFormat = getDeserFormat(empty, rawItems, numCompactors);
+    switch (deserFormat) {
+      case EMPTY: {
+        assert preInts == 2;
+        return new ReqDoublesSketch(k, hra, rand);
+      }
+      case RAWITEMS: {
+        assert preInts == 2;
+        final ReqDoublesSketch sk = new ReqDoublesSketch(k, hra, rand);
+        for (int i = 0; i < numRawItems; i++) { sk.update(buff.getDouble()); }
+        return sk;
+      }
+      case EXACT: {
+        assert preInts == 2;
+        final DoublesCompactor compactor = extractDoublesCompactor(buff, lvl0Sorted, hra);
+        //Construct sketch
+        final long totalN = compactor.count;
+        final double minValue = compactor.minVal;
+        final double maxValue = compactor.maxVal;
+        final List<ReqDoublesCompactor> compactors = new ArrayList<>();
+        compactors.add(compactor.reqCompactor);
+        final ReqDoublesSketch sk =
+            new ReqDoublesSketch(k, hra, totalN, minValue, maxValue, compactors, rand);
+        sk.setMaxNomSize(sk.computeMaxNomSize());
+        sk.setRetainedItems(sk.computeTotalRetainedItems());
+        return sk;
+      }
+      default: { //ESTIMATION
+        assert preInts == 4;
+        final long totalN = buff.getLong();
+        final double minValue = buff.getDouble();
+        final double maxValue = buff.getDouble();
+
+        final List<ReqDoublesCompactor> compactors = new ArrayList<>();
+        for (int i = 0; i < numCompactors; i++) {
+          final boolean level0sorted = i == 0 ? lvl0Sorted : true;
+          final DoublesCompactor compactor = extractDoublesCompactor(buff, level0sorted, hra);
+          compactors.add(compactor.reqCompactor);
+        }
+        final ReqDoublesSketch sk =
+            new ReqDoublesSketch(k, hra, totalN, minValue, maxValue, compactors, rand);
+        sk.setMaxNomSize(sk.computeMaxNomSize());
+        sk.setRetainedItems(sk.computeTotalRetainedItems());
+        return sk;
+      }
+    }
+  }
+
+  static final DoublesCompactor extractDoublesCompactor(final Buffer buff, final boolean lvl0Sorted,
+      final boolean hra) {
+    final long state = buff.getLong();
+    final float sectionSizeFlt = buff.getFloat();
+    final int sectionSize = round(sectionSizeFlt);
+    final byte lgWt = buff.getByte();
+    final byte numSections = buff.getByte();
+    buff.incrementPosition(2);
+    final int count = buff.getInt();
+    final double[] arr = new double[count];
+    buff.getDoubleArray(arr, 0, count);
+    double minValue = Double.MAX_VALUE;
+    double maxValue = -Double.MAX_VALUE;
+    for (int i = 0; i < count; i++) {
+      minValue = min(minValue, arr[i]);
+      maxValue = max(maxValue, arr[i]);
+    }
+    final int delta = 2 * sectionSize * numSections;
+    final int nomCap = 2 * delta;
+    final int cap = max(count, nomCap);
+    final DoubleBuffer dblBuf = DoubleBuffer.reconstruct(arr, count, cap, delta, lvl0Sorted, hra);
+    final ReqDoublesCompactor reqCompactor =
+        new ReqDoublesCompactor(lgWt, hra, state, sectionSizeFlt, numSections, dblBuf);
+    return new DoublesCompactor(reqCompactor, minValue, maxValue, count);
+  }
+
+  static class DoublesCompactor {
+    ReqDoublesCompactor reqCompactor;
+    double minVal;
+    double maxVal;
+    int count;
+
+    DoublesCompactor(final ReqDoublesCompactor reqCompactor, final double minValue,
+        final double maxValue, final int count) {
+      this.reqCompactor = reqCompactor;
+      minVal = minValue;
+      maxVal = maxValue;
+      this.count = count;
+    }
+  }
+
   private static byte getFlags(final ReqSketch sk) {
     final boolean rawItems = sk.getN() <= ReqSketch.MIN_K;
     final boolean level0Sorted = sk.getCompactors().get(0).getBuffer().isSorted();
@@ -244,7 +366,18 @@ class ReqSerDe {
     return (byte) flags;
   }
 
-  static SerDeFormat getSerFormat(final ReqSketch sk) {
+  private static byte getFlags(final ReqDoublesSketch sk) {
+    final boolean rawItems = sk.getN() <= ReqSketch.MIN_K;
+    final boolean level0Sorted = sk.getCompactors().get(0).getBuffer().isSorted();
+    final int flags = (sk.isEmpty() ? 4 : 0)
+        | (sk.getHighRankAccuracy() ? 8 : 0)
+        | (rawItems ? 16 : 0)
+        | (level0Sorted ? 32 : 0)
+        | DOUBLES_FLAG_MASK;
+    return (byte) flags;
+  }
+
+  static SerDeFormat getSerFormat(final BaseReqSketch<?, ?> sk) {
     if (sk.isEmpty()) { return SerDeFormat.EMPTY; }
     if (sk.getN() <= ReqSketch.MIN_K) { return SerDeFormat.RAWITEMS; }
     if (sk.getNumLevels() == 1) { return SerDeFormat.EXACT; }
@@ -331,4 +464,74 @@ class ReqSerDe {
     }
   }
 
+  static byte[] toByteArray(final ReqDoublesSketch sk) {
+    final SerDeFormat serDeFormat = getSerFormat(sk);
+    final int bytes = getSerBytes(sk, serDeFormat);
+    final byte[] arr = new byte[bytes];
+    final WritableBuffer wbuf = WritableMemory.writableWrap(arr).asWritableBuffer();
+    final byte preInts = (byte)(serDeFormat == SerDeFormat.ESTIMATION ? 4 : 2);
+    final byte flags = getFlags(sk);
+    final byte numCompactors = sk.isEmpty() ? 0 : (byte) sk.getNumLevels();
+    final byte numRawItems = sk.getN() <= 4 ? (byte) sk.getN() : 0;
+    wbuf.putByte(preInts);
+    wbuf.putByte(SER_VER);
+    wbuf.putByte(FAMILY_ID);
+    wbuf.putByte(flags);
+    wbuf.putShort((short)sk.getK());
+    wbuf.putByte(numCompactors);
+    wbuf.putByte(numRawItems);
+
+    switch (serDeFormat) {
+      case EMPTY: {
+        assert wbuf.getPosition() == bytes;
+        return arr;
+      }
+      case RAWITEMS: {
+        final ReqDoublesCompactor c0 = sk.getCompactors().get(0);
+        final DoubleBuffer dbuf = c0.getBuffer();
+        for (int i = 0; i < numRawItems; i++) { wbuf.putDouble(dbuf.getItem(i)); }
+        assert wbuf.getPosition() == bytes;
+        return arr;
+      }
+      case EXACT: {
+        final ReqDoublesCompactor c0 = sk.getCompactors().get(0);
+        wbuf.putByteArray(c0.toByteArray(), 0, c0.getSerializationBytes());
+        assert wbuf.getPosition() == bytes;
+        return arr;
+      }
+      default: { //Normal
+        wbuf.putLong(sk.getN());
+        wbuf.putDouble(sk.getMinValue());
+        wbuf.putDouble(sk.getMaxValue());
+        for (int i = 0; i < numCompactors; i++) {
+          final ReqDoublesCompactor c = sk.getCompactors().get(i);
+          wbuf.putByteArray(c.toByteArray(), 0, c.getSerializationBytes());
+        }
+        assert wbuf.getPosition() == bytes : wbuf.getPosition() + ", " + bytes;
+        return arr;
+      }
+    }
+  }
+
+  static int getSerBytes(final ReqDoublesSketch sk, final SerDeFormat serDeFormat) {
+    switch (serDeFormat) {
+      case EMPTY: {
+        return 8;
+      }
+      case RAWITEMS: {
+        return sk.getCompactors().get(0).getBuffer().getCount() * Double.BYTES + 8;
+      }
+      case EXACT: {
+        return sk.getCompactors().get(0).getSerializationBytes() + 8;
+      }
+      default: { //ESTIMATION
+        int cBytes = 0;
+        for (int i = 0; i < sk.getNumLevels(); i++) {
+          cBytes += sk.getCompactors().get(i).getSerializationBytes();
+        }
+        return cBytes + 32;
+      }
+    }
+  }
+
 }
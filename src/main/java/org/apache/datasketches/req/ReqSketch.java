@@ -19,9 +19,15 @@
 
 package org.apache.datasketches.req;
 
+import static org.apache.datasketches.Util.checkBounds;
+
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
@@ -68,31 +74,10 @@ import org.apache.datasketches.memory.Memory;
  * @author Pavel Vesely
  * @author Lee Rhodes
  */
-public class ReqSketch extends BaseReqSketch {
-  //static finals
-  private static final String LS = System.getProperty("line.separator");
-  static final byte INIT_NUMBER_OF_SECTIONS = 3;
-  static final byte MIN_K = 4;
-  static final byte NOM_CAP_MULT = 2;
-  //These two factors are used by upper and lower bounds
-  private static final double relRseFactor = Math.sqrt(0.0512 / INIT_NUMBER_OF_SECTIONS);
-  private static final double fixRseFactor = .084;
-  //finals
-  private final int k; //default is 12 (1% @ 95% Conf)
-  private final boolean hra; //default is true
+public class ReqSketch extends BaseReqSketch<ReqCompactor, ReqAuxiliary> {
   //state variables
-  private boolean ltEq = false; //default: LT, can be set after construction
-  private long totalN;
   private float minValue = Float.NaN;
   private float maxValue = Float.NaN;
-  //computed from compactors
-  private int retItems = 0; //number of retained items in the sketch
-  private int maxNomSize = 0; //sum of nominal capacities of all compactors
-  //Objects
-  private ReqAuxiliary aux = null;
-  private List<ReqCompactor> compactors = new ArrayList<>();
-  private ReqDebug reqDebug = null; //user config, default: null, can be set after construction.
-  private final CompactorReturn cReturn = new CompactorReturn(); //used in compress()
 
   /**
    * Normal Constructor used by ReqSketchBuilder.
@@ -104,12 +89,22 @@ public class ReqSketch extends BaseReqSketch {
    * @param reqDebug the debug handler. It may be null.
    */
   ReqSketch(final int k, final boolean highRankAccuracy, final ReqDebug reqDebug) {
-    checkK(k);
-    this.k = k;
-    hra = highRankAccuracy;
-    retItems = 0;
-    maxNomSize = 0;
-    totalN = 0;
+    this(k, highRankAccuracy, reqDebug, null);
+  }
+
+  /**
+   * Normal Constructor used by ReqSketchBuilder.
+   * @param k Controls the size and error of the sketch. It must be even and in the range
+   * [4, 1024], inclusive.
+   * @param highRankAccuracy if true, the default, the high ranks are prioritized for better
+   * accuracy. Otherwise the low ranks are prioritized for better accuracy.
+   * @param reqDebug the debug handler. It may be null.
+   * @param rand the source of randomness for the compactions. If null, this sketch creates its own,
+   * which is seeded if reqDebug is not null.
+   */
+  ReqSketch(final int k, final boolean highRankAccuracy, final ReqDebug reqDebug, final Random rand) {
+    super(k, highRankAccuracy,
+        rand != null ? rand : reqDebug != null ? new Random(1) : new Random());
     this.reqDebug = reqDebug;
     grow();
   }
@@ -119,9 +114,8 @@ public class ReqSketch extends BaseReqSketch {
    * @param other the other sketch to be deep copied into this one.
    */
   ReqSketch(final ReqSketch other) {
-    k = other.k;
-    hra = other.hra;
-
+    //its own source of randomness, so the copy does not draw from the generator of the other
+    super(other.k, other.hra, new Random());
     totalN = other.totalN;
     retItems = other.retItems;
     maxNomSize = other.maxNomSize;
@@ -132,7 +126,9 @@ public class ReqSketch extends BaseReqSketch {
     //aux does not need to be copied
 
     for (int i = 0; i < other.getNumLevels(); i++) {
-      compactors.add(new ReqCompactor(other.compactors.get(i)));
+      final ReqCompactor c = new ReqCompactor(other.compactors.get(i));
+      c.setRandom(rand);
+      compactors.add(c);
     }
     aux = null;
   }
@@ -140,16 +136,13 @@ public class ReqSketch extends BaseReqSketch {
   /**
    * Construct from elements. After sketch is constructed, retItems and maxNomSize must be computed.
    * Used by ReqSerDe.
+   * @param rand the source of randomness for the compactions. If null, this sketch creates its own.
    */
   ReqSketch(final int k, final boolean hra, final long totalN, final float minValue,
-      final float maxValue, final List<ReqCompactor> compactors) {
-    checkK(k);
-    this.k = k;
-    this.hra = hra;
-    this.totalN = totalN;
+      final float maxValue, final List<ReqCompactor> compactors, final Random rand) {
+    super(k, hra, totalN, compactors, rand);
     this.minValue = minValue;
     this.maxValue = maxValue;
-    this.compactors = compactors;
   }
 
   /**
@@ -158,7 +151,19 @@ public class ReqSketch extends BaseReqSketch {
    * @return an ReqSketch on the heap from a Memory image of the sketch.
    */
   public static ReqSketch heapify(final Memory mem) {
-    return ReqSerDe.heapify(mem);
+    return ReqSerDe.heapify(mem, null);
+  }
+
+  /**
+   * Returns an ReqSketch on the heap from a Memory image of the sketch, whose compactions use the
+   * given source of randomness. The source of randomness is not serialized, so this restores a
+   * seeded sketch as a seeded one.
+   * @param mem The Memory object holding a valid image of an ReqSketch
+   * @param rand the source of randomness of the sketch. If null, the sketch creates its own.
+   * @return an ReqSketch on the heap from a Memory image of the sketch.
+   */
+  public static ReqSketch heapify(final Memory mem, final Random rand) {
+    return ReqSerDe.heapify(mem, rand);
   }
 
   /**
@@ -169,47 +174,34 @@ public class ReqSketch extends BaseReqSketch {
     return new ReqSketchBuilder();
   }
 
-  private void compress() {
-    if (reqDebug != null) { reqDebug.emitStartCompress(); }
-    for (int h = 0; h < compactors.size(); h++) {
-      final ReqCompactor c = compactors.get(h);
-      final int compRetItems = c.getBuffer().getCount();
-      final int compNomCap = c.getNomCapacity();
-
-      if (compRetItems >= compNomCap) {
-        if (h + 1 >= getNumLevels()) { //at the top?
-          if (reqDebug != null) { reqDebug.emitMustAddCompactor(); }
-          grow(); //add a level, increases maxNomSize
-        }
-        final FloatBuffer promoted = c.compact(cReturn);
-        compactors.get(h + 1).getBuffer().mergeSortIn(promoted);
-        retItems += cReturn.deltaRetItems;
-        maxNomSize += cReturn.deltaNomSize;
-        //we specifically decided not to do lazy compression.
-      }
-    }
-    aux = null;
-    if (reqDebug != null) { reqDebug.emitCompressDone(); }
-  }
-
   ReqAuxiliary getAux() {
     return aux;
   }
 
-  @Override
+  /**
+   * Returns an approximation to the Cumulative Distribution Function (CDF), which is the
+   * cumulative analog of the PMF, of the input stream given a set of splitPoint (values).
+   *
+   * <p>The resulting approximations have a probabilistic guarantee that be obtained, a priori,
+   * from the <i>getRSE(int, double, boolean, long)</i> function.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing double values
+   * that divide the real number line into <i>m+1</i> consecutive disjoint intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
+   * exclusive of the right splitPoint, with the exception that the last interval will include
+   * the maximum value.
+   * It is not necessary to include either the min or max values in these split points.
+   *
+   * @return an array of m+1 double values, which are a consecutive approximation to the CDF
+   * of the input stream given the splitPoints. The value at array position j of the returned
+   * CDF array is the sum of the returned values in positions 0 through j of the returned PMF
+   * array.
+   */
   public double[] getCDF(final float[] splitPoints) {
     if (isEmpty()) { return null; }
-    final int numBkts = splitPoints.length + 1;
-    final double[] outArr = new double[numBkts];
-    final long[] buckets = getPMForCDF(splitPoints);
-    for (int j = 0; j < numBkts; j++) {
-      outArr[j] = (double)buckets[j] / getN();
-    }
-    return outArr;
-  }
-
-  List<ReqCompactor> getCompactors() {
-    return compactors;
+    return cdfFromCounts(getPMForCDF(splitPoints));
   }
 
   private long getCount(final float value) {
@@ -241,57 +233,46 @@ public class ReqSketch extends BaseReqSketch {
     return cumNnrArr;
   }
 
-  boolean getLtEq() {
-    return ltEq;
-  }
-
-  @Override
-  public boolean getHighRankAccuracy() {
-    return hra;
-  }
-
-  int getK() {
-    return k;
-  }
-
-  int getMaxNomSize() {
-    return maxNomSize;
-  }
-
-  @Override
+  /**
+   * Gets the largest value seen by this sketch
+   * @return the largest value seen by this sketch
+   */
   public float getMaxValue() {
     return maxValue;
   }
 
-  @Override
+  /**
+   * Gets the smallest value seen by this sketch
+   * @return the smallest value seen by this sketch
+   */
   public float getMinValue() {
     return minValue;
   }
 
-  @Override
-  public long getN() {
-    return totalN;
-  }
-
   /**
-   * Gets the number of levels of compactors in the sketch.
-   * @return the number of levels of compactors in the sketch.
+   * Returns an approximation to the Probability Mass Function (PMF) of the input stream
+   * given a set of splitPoints (values).
+   *
+   * <p>The resulting approximations have a probabilistic guarantee that be obtained, a priori,
+   * from the <i>getRSE(int, double, boolean, long)</i> function.
+   *
+   * <p>If the sketch is empty this returns null.</p>
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing double values
+   * that divide the real number line into <i>m+1</i> consecutive disjoint intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint (or minimum value) and
+   * exclusive of the right splitPoint, with the exception that the last interval will include
+   * the maximum value.
+   * It is not necessary to include either the min or max values in these splitpoints.
+   *
+   * @return an array of m+1 doubles each of which is an approximation
+   * to the fraction of the input stream values (the mass) that fall into one of those intervals.
+   * The definition of an "interval" is inclusive of the left splitPoint and exclusive of the right
+   * splitPoint, with the exception that the last interval will include maximum value.
    */
-  int getNumLevels() {
-    return compactors.size();
-  }
-
-  @Override
   public double[] getPMF(final float[] splitPoints) {
     if (isEmpty()) { return null; }
-    final int numBkts = splitPoints.length + 1;
-    final double[] outArr = new double[numBkts];
-    final long[] buckets = getPMForCDF(splitPoints);
-    outArr[0] = (double)buckets[0] / getN();
-    for (int j = 1; j < numBkts; j++) {
-      outArr[j] = (double)(buckets[j] - buckets[j - 1]) / getN();
-    }
-    return outArr;
+    return pmfFromCounts(getPMForCDF(splitPoints));
   }
 
   /**
@@ -309,7 +290,12 @@ public class ReqSketch extends BaseReqSketch {
     return bkts;
   }
 
-  @Override
+  /**
+   * Gets the approximate quantile of the given normalized rank based on the lteq criterion.
+   * The normalized rank must be in the range [0.0, 1.0] (inclusive, inclusive).
+   * @param normRank the given normalized rank
+   * @return the approximate quantile given the normalized rank.
+   */
   public float getQuantile(final double normRank) {
     if (isEmpty()) { return Float.NaN; }
     if (normRank < 0 || normRank > 1.0) {
@@ -322,7 +308,12 @@ public class ReqSketch extends BaseReqSketch {
     return aux.getQuantile(normRank, ltEq);
   }
 
-  @Override
+  /**
+   * Gets an array of quantiles that correspond to the given array of normalized ranks.
+   * @param normRanks the given array of normalized ranks.
+   * @return the array of quantiles that correspond to the given array of normalized ranks.
+   * See <i>getQuantile(double)</i>
+   */
   public float[] getQuantiles(final double[] normRanks) {
     if (isEmpty()) { return null; }
     final int len = normRanks.length;
@@ -333,14 +324,25 @@ public class ReqSketch extends BaseReqSketch {
     return qArr;
   }
 
-  @Override
+  /**
+   * Computes the normalized rank of the given value in the stream.
+   * The normalized rank is the fraction of values less than the given value;
+   * or if lteq is true, the fraction of values less than or equal to the given value.
+   * @param value the given value
+   * @return the normalized rank of the given value in the stream.
+   */
   public double getRank(final float value) {
     if (isEmpty()) { return Double.NaN; }
     final long nnCount = getCount(value);
     return (double)nnCount / totalN;
   }
 
-  @Override
+  /**
+   * Gets an array of normalized ranks that correspond to the given array of values.
+   * @param values the given array of values.
+   * @return the  array of normalized ranks that correspond to the given array of values.
+   * See <i>getRank(float)</i>
+   */
   public double[] getRanks(final float[] values) {
     if (isEmpty()) { return null; }
     final long[] cumNnrArr = getCounts(values);
@@ -352,102 +354,73 @@ public class ReqSketch extends BaseReqSketch {
     return rArr;
   }
 
-  private static double getRankLB(final int k, final int levels, final double rank,
-      final int numStdDev, final boolean hra, final long totalN) {
-    if (exactRank(k, levels, rank, hra, totalN)) { return rank; }
-    final double relative = relRseFactor / k * (hra ? 1.0 - rank : rank);
-    final double fixed = fixRseFactor / k;
-    final double lbRel = rank - numStdDev * relative;
-    final double lbFix = rank - numStdDev * fixed;
-    return Math.max(lbRel, lbFix);
-  }
-
-  @Override
-  public double getRankLowerBound(final double rank, final int numStdDev) {
-    return getRankLB(k, getNumLevels(), rank, numStdDev, hra, getN());
-  }
-
-  private static double getRankUB(final int k, final int levels, final double rank,
-      final int numStdDev, final boolean hra, final long totalN) {
-    if (exactRank(k, levels, rank, hra, totalN)) { return rank; }
-    final double relative = relRseFactor / k * (hra ? 1.0 - rank : rank);
-    final double fixed = fixRseFactor / k;
-    final double ubRel = rank + numStdDev * relative;
-    final double ubFix = rank + numStdDev * fixed;
-    return Math.min(ubRel, ubFix);
-  }
-
-  private static boolean exactRank(final int k, final int levels, final double rank,
-      final boolean hra, final long totalN) {
-    final int baseCap = k * INIT_NUMBER_OF_SECTIONS;
-    if (levels == 1 || totalN <= baseCap) { return true; }
-    final double exactRankThresh = (double)baseCap / totalN;
-    return hra && rank >= 1.0 - exactRankThresh || !hra && rank <= exactRankThresh;
-  }
-
-  @Override
-  public double getRankUpperBound(final double rank, final int numStdDev) {
-    return getRankUB(k, getNumLevels(), rank, numStdDev, hra, getN());
-  }
-
-  @Override
-  public int getRetainedItems() { return retItems; }
-
-  @Override
-  public double getRSE(final int k, final double rank, final boolean hra, final long totalN) {
-    return getRankUB(k, 2, rank, 1, hra, totalN); //more conservative to assume > 1 level
-  }
-
   @Override
   public int getSerializationBytes() {
     final ReqSerDe.SerDeFormat serDeFormat = ReqSerDe.getSerFormat(this);
     return ReqSerDe.getSerBytes(this, serDeFormat);
   }
 
-  private void grow() {
-    final byte lgWeight = (byte)getNumLevels();
-    if (lgWeight == 0 && reqDebug != null) { reqDebug.emitStart(this); }
-    compactors.add(new ReqCompactor(lgWeight, hra, k, reqDebug));
-    maxNomSize = computeMaxNomSize();
-    if (reqDebug != null) { reqDebug.emitNewCompactor(lgWeight); }
-  }
-
-  @Override
-  public boolean isEmpty() {
-    return totalN == 0;
-  }
-
   @Override
-  public boolean isEstimationMode() {
-    return getNumLevels() > 1;
+  ReqCompactor newCompactor(final byte lgWeight) {
+    return new ReqCompactor(lgWeight, hra, k, reqDebug, rand);
   }
 
   @Override
-  public boolean isLessThanOrEqual() {
-    return ltEq;
+  void grow() {
+    final byte lgWeight = (byte)getNumLevels();
+    if (lgWeight == 0 && reqDebug != null) { reqDebug.emitStart(this); }
+    super.grow();
+    if (reqDebug != null) { reqDebug.emitNewCompactor(lgWeight); }
   }
 
-  @Override
+  /**
+   * Returns an iterator for all the items in this sketch.
+   * @return an iterator for all the items in this sketch.
+   */
   public ReqIterator iterator() {
     return new ReqIterator(this);
   }
 
-  @Override
+  /**
+   * Merge other sketch into this one. The other sketch is not modified.
+   * @param other sketch to be merged into this one.
+   * @return this
+   */
   public ReqSketch merge(final ReqSketch other) {
     if (other == null || other.isEmpty()) { return this; }
-    if (other.hra != hra) {
-      throw new SketchesArgumentException(
-          "Both sketches must have the same HighRankAccuracy setting.");
-    }
-    totalN += other.totalN;
-    //update min, max values, n
+    checkHighRankAccuracy(other);
+    //update min, max values
     if (Float.isNaN(minValue) || other.minValue < minValue) { minValue = other.minValue; }
     if (Float.isNaN(maxValue) || other.maxValue > maxValue) { maxValue = other.maxValue; }
-    //Grow until self has at least as many compactors as other
-    while (getNumLevels() < other.getNumLevels()) { grow(); }
-    //Merge the items in all height compactors
-    for (int i = 0; i < other.getNumLevels(); i++) {
-      compactors.get(i).merge(other.compactors.get(i));
+    mergeCompactors(other);
+    return this;
+  }
+
+  /**
+   * Merges all of the other given sketches into this one. The compactors of each level are merged
+   * with one multi-way merge, and the sketch is then compressed once. The other sketches are not
+   * modified.
+   * @param others the other given sketches, which must have the same HighRankAccuracy setting
+   * @return this
+   */
+  ReqSketch merge(final List<? extends ReqSketch> others) {
+    int numLevels = getNumLevels();
+    for (final ReqSketch other : others) {
+      if (other.isEmpty()) { continue; }
+      checkHighRankAccuracy(other);
+      totalN += other.totalN;
+      if (Float.isNaN(minValue) || other.minValue < minValue) { minValue = other.minValue; }
+      if (Float.isNaN(maxValue) || other.maxValue > maxValue) { maxValue = other.maxValue; }
+      numLevels = Math.max(numLevels, other.getNumLevels());
+    }
+    while (getNumLevels() < numLevels) { grow(); }
+    final List<ReqCompactor> level = new ArrayList<>(others.size());
+    for (int i = 0; i < numLevels; i++) {
+      for (final ReqSketch other : others) {
+        if (!other.isEmpty() && i < other.getNumLevels()) { level.add(other.compactors.get(i)); }
+      }
+      if (!level.isEmpty()) { compactors.get(i).merge(level); }
+      level.clear();
     }
     maxNomSize = computeMaxNomSize();
     retItems = computeTotalRetainedItems();
@@ -459,20 +432,98 @@ public class ReqSketch extends BaseReqSketch {
     return this;
   }
 
-  @Override
+  /**
+   * Returns a new sketch that is the merge of all of the given sketches, using the common
+   * ForkJoinPool. See {@link #mergeAll(Collection, Random, ForkJoinPool)}.
+   * @param sketches the given sketches
+   * @return a new sketch that is the merge of all of the given sketches
+   */
+  public static ReqSketch mergeAll(final Collection<? extends ReqSketch> sketches) {
+    return mergeAll(sketches, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns a new sketch that is the merge of all of the given sketches. The compactions of the
+   * merge use their own unseeded generators. See {@link #mergeAll(Collection, Random, ForkJoinPool)}.
+   * @param sketches the given sketches
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new sketch that is the merge of all of the given sketches
+   */
+  public static ReqSketch mergeAll(final Collection<? extends ReqSketch> sketches,
+      final ForkJoinPool pool) {
+    return mergeAll(sketches, null, pool);
+  }
+
+  /**
+   * Returns a new sketch that is the merge of all of the given sketches. Rather than merging the
+   * sketches one at a time, the compactors of each level of a group of sketches are merged with one
+   * multi-way merge and the result is compacted once. The groups are merged in parallel by the given
+   * ForkJoinPool and the partial results are merged pairwise up a tree.
+   * The result has the same guarantees as merging the sketches one at a time with
+   * {@link #merge(ReqSketch)}. Its <i>k</i> is the largest <i>k</i> of the given sketches, or the
+   * builder default if there are none.
+   *
+   * <p>All of the given sketches must have the same HighRankAccuracy and LessThanOrEqual settings,
+   * which the result also has. They are not modified, and must not be modified while this method
+   * runs.</p>
+   *
+   * <p>The compactions of the merge draw from generators that are seeded by one value drawn from
+   * the given source of randomness, so seeded merges by pools of the same parallelism give the
+   * same result. The generators of the given sketches are not used.</p>
+   *
+   * @param sketches the given sketches
+   * @param rand the source of the seeds of the generators of the merge. If null, the merge uses
+   * unseeded generators.
+   * @param pool the ForkJoinPool that performs the merges
+   * @return a new sketch that is the merge of all of the given sketches
+   */
+  public static ReqSketch mergeAll(final Collection<? extends ReqSketch> sketches,
+      final Random rand, final ForkJoinPool pool) {
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final ReqSketchBuilder bldr = builder();
+    final List<ReqSketch> nonEmpty = new ArrayList<>(sketches.size());
+    int k = 0;
+    for (final ReqSketch sketch : sketches) {
+      if (k > 0 && sketch.hra != bldr.getHighRankAccuracy()) {
+        throw new SketchesArgumentException(
+            "All sketches must have the same HighRankAccuracy setting.");
+      }
+      if (k > 0 && sketch.ltEq != bldr.getLessThanOrEqual()) {
+        throw new SketchesArgumentException(
+            "All sketches must have the same LessThanOrEqual setting.");
+      }
+      bldr.setHighRankAccuracy(sketch.hra);
+      bldr.setLessThanOrEqual(sketch.ltEq);
+      k = Math.max(k, sketch.k);
+      if (!sketch.isEmpty()) { nonEmpty.add(sketch); }
+    }
+    if (k > 0) { bldr.setK(k); }
+    return ReqBulkMerge.mergeAll(nonEmpty, bldr, rand, pool);
+  }
+
+  /**
+   * Resets this sketch by removing all data and setting all data related variables to their
+   * virgin state.
+   * The parameters k, highRankAccuracy, reqDebug and LessThanOrEqual will not change.
+   * @return this
+   */
   public ReqSketch reset() {
-    totalN = 0;
-    retItems = 0;
-    maxNomSize = 0;
     minValue = Float.NaN;
     maxValue = Float.NaN;
-    aux = null;
-    compactors = new ArrayList<>();
-    grow();
+    resetCompactors();
     return this;
   }
 
-  @Override
+  /**
+   * Sets the chosen criterion for value comparison
+   *
+   * @param ltEq (Less-than-or Equals) If true, the sketch will use the &le; criterion for comparing
+   * values.  Otherwise, the criterion is strictly &lt;, the default.
+   * This can be set anytime prior to a <i>getRank(float)</i> or <i>getQuantile(double)</i> or
+   * equivalent query.
+   * @return this
+   */
   public ReqSketch setLessThanOrEqual(final boolean ltEq) {
     this.ltEq = ltEq;
     return this;
@@ -500,7 +551,10 @@ public class ReqSketch extends BaseReqSketch {
     return sb.toString();
   }
 
-  @Override
+  /**
+   * Updates this sketch with the given item.
+   * @param item the given item
+   */
   public void update(final float item) {
     if (Float.isNaN(item)) { return; }
     if (isEmpty()) {
@@ -522,31 +576,83 @@ public class ReqSketch extends BaseReqSketch {
   }
 
   /**
-   * Computes a new bound for determining when to compress the sketch.
+   * Updates this sketch with the given range of items. The result is equivalent to calling
+   * {@link #update(float)} for each item in turn: NaNs are ignored and the sketch is compressed at
+   * the same points. The items are copied into the level-zero buffer in blocks that fill it, so that
+   * it is sorted and compacted only once per fill.
+   * @param items the given array of items
+   * @param offset the index of the first item
+   * @param length the number of items
    */
-  int computeMaxNomSize() {
-    int cap = 0;
-    for (final ReqCompactor c : compactors) { cap += c.getNomCapacity(); }
-    return cap;
-  }
-
-  void setMaxNomSize(final int maxNomSize) {
-    this.maxNomSize = maxNomSize;
+  public void update(final float[] items, final int offset, final int length) {
+    Objects.requireNonNull(items, "Parameter 'items' must not be null");
+    checkBounds(offset, length, items.length);
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      if (Float.isNaN(items[i])) { i++; continue; }
+      //extend the run of non-NaN items, up to the point where the sketch must be compressed
+      final int lim = Math.min(end, i + Math.max(1, maxNomSize - retItems));
+      int j = i + 1;
+      while (j < lim && !Float.isNaN(items[j])) { j++; }
+      appendRun(items, i, j - i);
+      i = j;
+    }
   }
 
   /**
-   * Computes the retItems for the sketch.
+   * Updates this sketch with the given range of double items, each of which is first rounded to
+   * the nearest float. Otherwise this is the same as {@link #update(float[], int, int)}.
+   * @param items the given array of items
+   * @param offset the index of the first item
+   * @param length the number of items
    */
-  int computeTotalRetainedItems() {
-    int count = 0;
-    for (final ReqCompactor c : compactors) {
-      count += c.getBuffer().getCount();
+  public void update(final double[] items, final int offset, final int length) {
+    Objects.requireNonNull(items, "Parameter 'items' must not be null");
+    checkBounds(offset, length, items.length);
+    final int end = offset + length;
+    final float[] run = new float[Math.min(length, maxNomSize)];
+    int i = offset;
+    while (i < end) {
+      final int lim = Math.min(run.length, Math.max(1, maxNomSize - retItems));
+      int count = 0;
+      while (i < end && count < lim) {
+        final float item = (float) items[i++];
+        if (!Float.isNaN(item)) { run[count++] = item; }
+      }
+      if (count > 0) { appendRun(run, 0, count); }
     }
-    return count;
   }
 
-  void setRetainedItems(final int retItems) {
-    this.retItems = retItems;
+  /**
+   * Appends a run of non-NaN items to level zero and compresses the sketch if it has reached its
+   * nominal size. The run must not be longer than the space left before that point.
+   */
+  private void appendRun(final float[] items, final int offset, final int length) {
+    assert length <= maxNomSize - retItems;
+    float min = items[offset];
+    float max = min;
+    for (int i = offset + 1; i < offset + length; i++) {
+      final float item = items[i];
+      if (item < min) { min = item; }
+      if (item > max) { max = item; }
+    }
+    if (isEmpty()) {
+      minValue = min;
+      maxValue = max;
+    } else {
+      if (min < minValue) { minValue = min; }
+      if (max > maxValue) { maxValue = max; }
+    }
+    final FloatBuffer buf = compactors.get(0).getBuffer();
+    buf.append(items, offset, length);
+    retItems += length;
+    totalN += length;
+    if (retItems >= maxNomSize) {
+      buf.sort();
+      compress();
+    }
+    aux = null;
   }
 
   /**
@@ -568,32 +674,4 @@ public class ReqSketch extends BaseReqSketch {
     }
   }
 
-  @Override
-  public String viewCompactorDetail(final String fmt, final boolean allData) {
-    final StringBuilder sb = new StringBuilder();
-    sb.append("*********Relative Error Quantiles Compactor Detail*********").append(LS);
-    sb.append("Compactor Detail: Ret Items: ").append(getRetainedItems())
-      .append("  N: ").append(getN());
-    sb.append(LS);
-    for (int i = 0; i < getNumLevels(); i++) {
-      final ReqCompactor c = compactors.get(i);
-      sb.append(c.toListPrefix()).append(LS);
-      if (allData) { sb.append(c.getBuffer().toHorizList(fmt, 20)).append(LS); }
-    }
-    sb.append("************************End Detail*************************").append(LS);
-    return sb.toString();
-  }
-
-  static void checkK(final int k) {
-    if ((k & 1) > 0 || k < 4 || k > 1024) {
-      throw new SketchesArgumentException(
-          "<i>K</i> must be even and in the range [4, 1024], inclusive: " + k );
-    }
-  }
-
-  static class CompactorReturn {
-    int deltaRetItems;
-    int deltaNomSize;
-  }
-
 }
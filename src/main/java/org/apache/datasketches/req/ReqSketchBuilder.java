@@ -22,8 +22,10 @@ package org.apache.datasketches.req;
 import static org.apache.datasketches.Util.LS;
 import static org.apache.datasketches.Util.TAB;
 
+import java.util.Random;
+
 /**
- * For building a new ReqSketch
+ * For building a new ReqSketch or ReqDoublesSketch
  *
  * @author Lee Rhodes
  */
@@ -33,6 +35,7 @@ public class ReqSketchBuilder {
   private boolean bHRA;
   private boolean bLtEq;
   private ReqDebug bReqDebug;
+  private Random bRand;
 
   /**
    * Constructor for the ReqSketchBuilder.
@@ -42,6 +45,7 @@ public class ReqSketchBuilder {
     bHRA = true;
     bLtEq = false;
     bReqDebug = null;
+    bRand = null;
   }
 
   /**
@@ -49,7 +53,20 @@ public class ReqSketchBuilder {
    * @return a new ReqSketch
    */
   public ReqSketch build() {
-    final ReqSketch sk = new ReqSketch(bK, bHRA, bReqDebug);
+    final ReqSketch sk = new ReqSketch(bK, bHRA, bReqDebug,
+        (bRand != null) ? new Random(bRand.nextLong()) : null);
+    sk.setLessThanOrEqual(bLtEq);
+    return sk;
+  }
+
+  /**
+   * Returns a new ReqDoublesSketch with the current configuration of the builder.
+   * The ReqDebug of this builder, if any, is not used by the ReqDoublesSketch.
+   * @return a new ReqDoublesSketch
+   */
+  public ReqDoublesSketch buildDoubles() {
+    final ReqDoublesSketch sk = new ReqDoublesSketch(bK, bHRA,
+        (bRand != null) ? new Random(bRand.nextLong()) : null);
     sk.setLessThanOrEqual(bLtEq);
     return sk;
   }
@@ -86,6 +103,14 @@ public class ReqSketchBuilder {
     return bReqDebug;
   }
 
+  /**
+   * Gets the builder configured source of randomness
+   * @return the builder configured source of randomness, or null.
+   */
+  public Random getRandom() {
+    return bRand;
+  }
+
   /**
    * This sets the parameter highRankAccuracy.
    * @param hra See  <i>ReqSketch#ReqSketch(int, boolean, ReqDebug)</i>
@@ -127,6 +152,20 @@ public class ReqSketchBuilder {
     return this;
   }
 
+  /**
+   * This sets the source of the generators used by the compactions of the built sketches. Each
+   * sketch built gets its own generator, seeded by one value drawn from the given one, so sketches
+   * built by this builder can be updated concurrently. A seeded <i>Random</i> makes the results of
+   * the sketches deterministic if they are built and their input values are received in exactly
+   * the same order. The default, null, gives each sketch its own unseeded generator.
+   * @param rand the source of randomness for the sketch. It may be null.
+   * @return this
+   */
+  public ReqSketchBuilder setRandom(final Random rand) {
+    bRand = rand;
+    return this;
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder();
@@ -136,6 +175,8 @@ public class ReqSketchBuilder {
     sb.append("LtEq").append(TAB).append(bLtEq).append(LS);
     final String valid = bReqDebug != null ? "valid" : "invalid";
     sb.append("ReqDebug:").append(TAB).append(valid).append(LS);
+    final String rand = bRand != null ? "given" : "default";
+    sb.append("Random:").append(TAB).append(rand).append(LS);
     return sb.toString();
   }
 
@@ -79,6 +79,8 @@ public final class ReservoirItemsSketch<T> {
   private long itemsSeen_;               // number of items presented to sketch
   private final ResizeFactor rf_;        // resize factor
   private ArrayList<T> data_;            // stored sampled items
+  private double threshold_;             // acceptance threshold once the reservoir is full
+  private long nextAcceptN_;             // value of itemsSeen_ at the next accepted item, 0 if unset
 
   private ReservoirItemsSketch(final int k, final ResizeFactor rf) {
     // required due to a theorem about lightness during merging
@@ -321,12 +323,16 @@ public final class ReservoirItemsSketch<T> {
       data_.add(item);
       ++itemsSeen_;
     } else { // code for steady state where we sample randomly
+      // rather than flipping a coin per item, skip directly to the next accepted item
+      if (nextAcceptN_ <= itemsSeen_) {
+        threshold_ = SamplingUtil.reservoirThreshold(itemsSeen_, reservoirSize_);
+        scheduleNextAccept();
+      }
       ++itemsSeen_;
-      // prob(keep_item) < k / n = reservoirSize_ / itemsSeen_
-      // so multiply to get: keep if rand * itemsSeen_ < reservoirSize_
-      if ((SamplingUtil.rand().nextDouble() * itemsSeen_) < reservoirSize_) {
-        final int newSlot = SamplingUtil.rand().nextInt(reservoirSize_);
-        data_.set(newSlot, item);
+      if (itemsSeen_ == nextAcceptN_) {
+        data_.set(SamplingUtil.rand().nextInt(reservoirSize_), item);
+        threshold_ = SamplingUtil.nextReservoirThreshold(threshold_, reservoirSize_);
+        scheduleNextAccept();
       }
     }
   }
@@ -342,6 +348,7 @@ public final class ReservoirItemsSketch<T> {
     currItemsAlloc_ = SamplingUtil.getAdjustedSize(reservoirSize_, 1 << initialLgSize);
     data_ = new ArrayList<>(currItemsAlloc_);
     itemsSeen_ = 0;
+    nextAcceptN_ = 0;
   }
 
   /**
@@ -595,6 +602,7 @@ public final class ReservoirItemsSketch<T> {
    */
   void forceIncrementItemsSeen(final long inc) {
     itemsSeen_ += inc;
+    nextAcceptN_ = 0; // the skip was drawn for the old value of itemsSeen_
 
     if (itemsSeen_ > MAX_ITEMS_SEEN) {
       throw new SketchesStateException("Sketch has exceeded capacity for total items seen. "
@@ -623,7 +631,7 @@ public final class ReservoirItemsSketch<T> {
   //       temporary violation of maxK, we're avoiding violating it at all.
   ReservoirItemsSketch<T> downsampledCopy(final int maxK) {
     final ReservoirItemsSketch<T> ris = new ReservoirItemsSketch<>(maxK, rf_);
-    for (final T item : getSamples()) {
+    for (final T item : data_) { // getSamples() would be null for an empty sketch
       // Pretending old implicit weights are all 1. Not true in general, but they're all
       // equal so update should work properly as long as we update itemsSeen_ at the end.
       ris.update(item);
@@ -637,6 +645,11 @@ public final class ReservoirItemsSketch<T> {
     return ris;
   }
 
+  private void scheduleNextAccept() {
+    final long skip = SamplingUtil.reservoirSkip(threshold_);
+    nextAcceptN_ = (skip < MAX_ITEMS_SEEN) ? itemsSeen_ + skip + 1 : Long.MAX_VALUE;
+  }
+
   /**
    * Increases allocated sampling size by (adjusted) ResizeFactor and copies items from old
    * sampling.
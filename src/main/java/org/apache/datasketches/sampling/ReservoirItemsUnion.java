@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.sampling;
 
+import static org.apache.datasketches.ForkJoinChunks.reduceChunks;
 import static org.apache.datasketches.Util.LS;
 import static org.apache.datasketches.sampling.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.sampling.PreambleUtil.FAMILY_BYTE;
@@ -30,6 +31,9 @@ import static org.apache.datasketches.sampling.PreambleUtil.extractPreLongs;
 import static org.apache.datasketches.sampling.PreambleUtil.extractSerVer;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.ArrayOfItemsSerDe;
 import org.apache.datasketches.Family;
@@ -146,6 +150,16 @@ public final class ReservoirItemsUnion<T> {
    * @param sketchIn The incoming sketch.
    */
   public void update(final ReservoirItemsSketch<T> sketchIn) {
+    update(sketchIn, false);
+  }
+
+  /**
+   * Union the given sketch, which may become the gadget of this union if it is owned by the caller.
+   *
+   * @param sketchIn The incoming sketch, or null
+   * @param isOwned True if nothing else refers to sketchIn, so that it may be modified
+   */
+  private void update(final ReservoirItemsSketch<T> sketchIn, final boolean isOwned) {
     if (sketchIn == null) {
       return;
     }
@@ -153,8 +167,8 @@ public final class ReservoirItemsUnion<T> {
     final ReservoirItemsSketch<T> ris =
         (sketchIn.getK() <= maxK_ ? sketchIn : sketchIn.downsampledCopy(maxK_));
 
-    // can modify the sketch if we downsampled, otherwise may need to copy it
-    final boolean isModifiable = (sketchIn != ris);
+    // can modify the sketch if we own it or downsampled it, otherwise may need to copy it
+    final boolean isModifiable = isOwned || (sketchIn != ris);
     if (gadget_ == null) {
       createNewGadget(ris, isModifiable);
     } else {
@@ -162,6 +176,115 @@ public final class ReservoirItemsUnion<T> {
     }
   }
 
+  /**
+   * Returns the union of the given sketches, as computed by the common ForkJoinPool.
+   * See {@link #unionAll(List, int, ForkJoinPool)}.
+   *
+   * @param <T> The type of item the sketches contain
+   * @param sketches The sketches to be unioned. Null entries are interpreted as empty sketches.
+   * @param maxK The maximum allowed reservoir capacity of the result
+   * @return The union of the given sketches, or null if there is no non-null sketch
+   */
+  public static <T> ReservoirItemsSketch<T> unionAll(final List<ReservoirItemsSketch<T>> sketches,
+                                                     final int maxK) {
+    return unionAll(sketches, maxK, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the union of the given sketches, as computed by the given ForkJoinPool.
+   *
+   * <p>The list is split into contiguous chunks. Each task unions its chunk into a single union
+   * object in list order, and the partial results are then combined pairwise up a binary tree.
+   * Since each step is the pairwise union of this class, every item of the global input has a
+   * uniform probability of selection, just as with a sequence of calls to
+   * {@link #update(ReservoirItemsSketch)}. The partial results are private to the reduction, so
+   * they are reused as gadgets rather than copied. The given sketches are not modified.</p>
+   *
+   * @param <T> The type of item the sketches contain
+   * @param sketches The sketches to be unioned. Null entries are interpreted as empty sketches.
+   * @param maxK The maximum allowed reservoir capacity of the result
+   * @param pool The ForkJoinPool that performs the union
+   * @return The union of the given sketches, or null if there is no non-null sketch
+   */
+  public static <T> ReservoirItemsSketch<T> unionAll(final List<ReservoirItemsSketch<T>> sketches,
+                                                     final int maxK, final ForkJoinPool pool) {
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    return unionAll(sketches, null, null, maxK, pool);
+  }
+
+  /**
+   * Returns the union of the given Memory images of sketches, as computed by the common
+   * ForkJoinPool. See {@link #unionAll(List, ArrayOfItemsSerDe, int, ForkJoinPool)}.
+   *
+   * @param <T> The type of item the sketches contain
+   * @param images The Memory images of the sketches. Null entries are interpreted as empty sketches.
+   * @param serDe An instance of ArrayOfItemsSerDe
+   * @param maxK The maximum allowed reservoir capacity of the result
+   * @return The union of the given sketches, or null if there is no non-null image
+   */
+  public static <T> ReservoirItemsSketch<T> unionAll(final List<? extends Memory> images,
+                                                     final ArrayOfItemsSerDe<T> serDe,
+                                                     final int maxK) {
+    return unionAll(images, serDe, maxK, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the union of the given Memory images of sketches, as computed by the given
+   * ForkJoinPool. Each image is heapified by the task that unions it, and the reduction is the
+   * same as for {@link #unionAll(List, int, ForkJoinPool)}.
+   *
+   * @param <T> The type of item the sketches contain
+   * @param images The Memory images of the sketches. Null entries are interpreted as empty sketches.
+   * @param serDe An instance of ArrayOfItemsSerDe
+   * @param maxK The maximum allowed reservoir capacity of the result
+   * @param pool The ForkJoinPool that performs the union
+   * @return The union of the given sketches, or null if there is no non-null image
+   */
+  public static <T> ReservoirItemsSketch<T> unionAll(final List<? extends Memory> images,
+                                                     final ArrayOfItemsSerDe<T> serDe,
+                                                     final int maxK, final ForkJoinPool pool) {
+    Objects.requireNonNull(images, "Parameter 'images' must not be null");
+    Objects.requireNonNull(serDe, "Parameter 'serDe' must not be null");
+    return unionAll(null, images, serDe, maxK, pool);
+  }
+
+  private static <T> ReservoirItemsSketch<T> unionAll(final List<ReservoirItemsSketch<T>> sketches,
+                                                      final List<? extends Memory> images,
+                                                      final ArrayOfItemsSerDe<T> serDe,
+                                                      final int maxK, final ForkJoinPool pool) {
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final int n = (sketches != null ? sketches.size() : images.size());
+    if (n == 0) {
+      return null;
+    }
+    return reduceChunks(n, (lo, hi) -> unionChunk(sketches, images, serDe, maxK, lo, hi),
+        (left, right) -> combine(left, right, maxK), pool);
+  }
+
+  private static <T> ReservoirItemsSketch<T> unionChunk(final List<ReservoirItemsSketch<T>> sketches,
+                                                        final List<? extends Memory> images,
+                                                        final ArrayOfItemsSerDe<T> serDe,
+                                                        final int maxK, final int lo, final int hi) {
+    final ReservoirItemsUnion<T> union = new ReservoirItemsUnion<>(maxK);
+    for (int i = lo; i < hi; ++i) {
+      if (sketches != null) {
+        union.update(sketches.get(i));
+      } else {
+        union.update(images.get(i), serDe);
+      }
+    }
+    return union.gadget_;
+  }
+
+  private static <T> ReservoirItemsSketch<T> combine(final ReservoirItemsSketch<T> left,
+                                                     final ReservoirItemsSketch<T> right, final int maxK) {
+    // the partial results are private to the reduction, so they become gadgets without a copy
+    final ReservoirItemsUnion<T> union = new ReservoirItemsUnion<>(maxK);
+    union.update(left, true);
+    union.update(right, true);
+    return union.gadget_;
+  }
+
   /**
    * Union the given Memory image of the sketch.
    *
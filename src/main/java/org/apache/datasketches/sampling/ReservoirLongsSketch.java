@@ -34,6 +34,7 @@ import static org.apache.datasketches.sampling.SamplingUtil.pseudoHypergeometric
 import static org.apache.datasketches.sampling.SamplingUtil.pseudoHypergeometricUBonP;
 
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.function.Predicate;
 
 import org.apache.datasketches.Family;
@@ -74,6 +75,8 @@ public final class ReservoirLongsSketch {
   private long itemsSeen_;             // number of items presented to sketch
   private final ResizeFactor rf_;      // resize factor
   private long[] data_;                // stored sampling items
+  private double threshold_;           // acceptance threshold once the reservoir is full
+  private long nextAcceptN_;           // value of itemsSeen_ at the next accepted item, 0 if unset
 
   /**
    * The basic constructor for building an empty sketch.
@@ -320,16 +323,62 @@ public final class ReservoirLongsSketch {
       data_[(int) itemsSeen_] = item; // since less than reservoir size, cast is safe
       ++itemsSeen_;
     } else { // code for steady state where we sample randomly
+      // rather than flipping a coin per item, skip directly to the next accepted item
+      if (nextAcceptN_ <= itemsSeen_) {
+        startSkipping();
+      }
       ++itemsSeen_;
-      // prob(keep_item) < k / n = reservoirSize_ / itemsSeen_
-      // so multiply to get: keep if rand * itemsSeen_ < reservoirSize_
-      if ((SamplingUtil.rand().nextDouble() * itemsSeen_) < reservoirSize_) {
-        final int newSlot = SamplingUtil.rand().nextInt(reservoirSize_);
-        data_[newSlot] = item;
+      if (itemsSeen_ == nextAcceptN_) {
+        acceptItem(item);
       }
     }
   }
 
+  /**
+   * Presents the given range of items to the sketch, with the same result as presenting each of
+   * them in turn to {@link #update(long)}. Once the reservoir is full, this jumps directly from one
+   * accepted item to the next, so the number of random draws is proportional to the number of
+   * replacements, k log(n/k), rather than to the number of items.
+   *
+   * @param items the array of items
+   * @param offset the index of the first item to present
+   * @param length the number of items to present
+   */
+  public void update(final long[] items, final int offset, final int length) {
+    Objects.requireNonNull(items, "Parameter 'items' must not be null");
+    Util.checkBounds(offset, length, items.length);
+    if ((MAX_ITEMS_SEEN - itemsSeen_) < length) {
+      throw new SketchesStateException(
+          "Sketch has exceeded capacity for total items seen: " + MAX_ITEMS_SEEN);
+    }
+
+    int i = offset;
+    final int end = offset + length;
+    if (itemsSeen_ < reservoirSize_) { // initial phase, take the first reservoirSize_ items
+      final int numFill = (int) Math.min(reservoirSize_ - itemsSeen_, length);
+      while ((itemsSeen_ + numFill) > currItemsAlloc_) {
+        growReservoir();
+      }
+      System.arraycopy(items, i, data_, (int) itemsSeen_, numFill);
+      itemsSeen_ += numFill;
+      i += numFill;
+    }
+    if (i == end) {
+      return;
+    }
+
+    if (nextAcceptN_ <= itemsSeen_) {
+      startSkipping();
+    }
+    final long base = itemsSeen_ - i; // itemsSeen_ after presenting items[j] is base + j + 1
+    final long lastN = base + end;
+    while (nextAcceptN_ <= lastN) {
+      itemsSeen_ = nextAcceptN_;
+      acceptItem(items[(int) (itemsSeen_ - base - 1)]);
+    }
+    itemsSeen_ = lastN;
+  }
+
   /**
    * Resets this sketch to the empty state, but retains the original value of k.
    */
@@ -342,6 +391,7 @@ public final class ReservoirLongsSketch {
     currItemsAlloc_ = SamplingUtil.getAdjustedSize(reservoirSize_, 1 << initialLgSize);
     data_ = new long[currItemsAlloc_];
     itemsSeen_ = 0;
+    nextAcceptN_ = 0;
   }
 
   /**
@@ -522,6 +572,7 @@ public final class ReservoirLongsSketch {
    */
   void forceIncrementItemsSeen(final long inc) {
     itemsSeen_ += inc;
+    nextAcceptN_ = 0; // the skip was drawn for the old value of itemsSeen_
 
     if (itemsSeen_ > MAX_ITEMS_SEEN) {
       throw new SketchesStateException("Sketch has exceeded capacity for total items seen. "
@@ -543,10 +594,11 @@ public final class ReservoirLongsSketch {
   // temporary violation of maxK, we're avoiding violating it at all.
   ReservoirLongsSketch downsampledCopy(final int maxK) {
     final ReservoirLongsSketch rls = new ReservoirLongsSketch(maxK, rf_);
-    for (final long l: getSamples()) {
+    final int numSamples = getNumSamples(); // getSamples() would be null for an empty sketch
+    for (int i = 0; i < numSamples; ++i) {
       // Pretending old implicit weights are all 1. Not true in general, but they're all
       // equal so update should work properly as long as we update itemsSeen_ at the end.
-      rls.update(l);
+      rls.update(data_[i]);
     }
 
     // need to adjust number seen to get correct new implicit weights
@@ -557,6 +609,31 @@ public final class ReservoirLongsSketch {
     return rls;
   }
 
+  /**
+   * Draws the acceptance threshold for the current number of items seen, and the next accepted item.
+   */
+  private void startSkipping() {
+    threshold_ = SamplingUtil.reservoirThreshold(itemsSeen_, reservoirSize_);
+    scheduleNextAccept();
+  }
+
+  /**
+   * Replaces a random slot of the full reservoir with the given item, which has just been accepted,
+   * and draws the next accepted item.
+   *
+   * @param item the accepted item
+   */
+  private void acceptItem(final long item) {
+    data_[SamplingUtil.rand().nextInt(reservoirSize_)] = item;
+    threshold_ = SamplingUtil.nextReservoirThreshold(threshold_, reservoirSize_);
+    scheduleNextAccept();
+  }
+
+  private void scheduleNextAccept() {
+    final long skip = SamplingUtil.reservoirSkip(threshold_);
+    nextAcceptN_ = (skip < MAX_ITEMS_SEEN) ? itemsSeen_ + skip + 1 : Long.MAX_VALUE;
+  }
+
   /**
    * Increases allocated sampling size by (adjusted) ResizeFactor and copies items from old sampling.
    */
@@ -62,6 +62,55 @@ final class SamplingUtil {
     return r;
   }
 
+  /**
+   * Returns the acceptance threshold <i>W</i> of a reservoir of size k that has seen n &ge; k
+   * items, for skip-based reservoir sampling (Li's Algorithm L). <i>W</i> is the k-th smallest of n
+   * uniform random keys, so that each subsequent item is accepted with probability <i>W</i>.
+   * Since the acceptance decisions of reservoir sampling are independent of one another, a
+   * threshold drawn afresh from its distribution given only n yields the same sample
+   * distribution as one carried along from the start of the stream.
+   *
+   * @param n the number of items seen, which must be at least k
+   * @param k the reservoir size
+   * @return the acceptance threshold <i>W</i>
+   */
+  static double reservoirThreshold(final long n, final int k) {
+    if (n == k) {
+      return Math.exp(Math.log(nextDoubleExcludeZero()) / k);
+    }
+    // 1 - W is the product of the gaps above each of the k smallest keys, taken in turn
+    double logOneMinusW = 0.0;
+    for (int i = 0; i < k; ++i) {
+      logOneMinusW += Math.log(nextDoubleExcludeZero()) / (n - i);
+    }
+    return -Math.expm1(logOneMinusW);
+  }
+
+  /**
+   * Returns the acceptance threshold <i>W</i> after an item has been accepted into a reservoir of
+   * size k: the new key is uniform below the old threshold, so the new threshold is the maximum
+   * of k such keys.
+   *
+   * @param w the current acceptance threshold
+   * @param k the reservoir size
+   * @return the next acceptance threshold
+   */
+  static double nextReservoirThreshold(final double w, final int k) {
+    return w * Math.exp(Math.log(nextDoubleExcludeZero()) / k);
+  }
+
+  /**
+   * Returns the number of items to skip before the next accepted item, which is geometrically
+   * distributed with success probability <i>W</i>.
+   *
+   * @param w the current acceptance threshold
+   * @return the number of items to skip, saturating at Long.MAX_VALUE
+   */
+  static long reservoirSkip(final double w) {
+    final double skip = Math.floor(Math.log(nextDoubleExcludeZero()) / Math.log1p(-w));
+    return skip < Long.MAX_VALUE ? (long) skip : Long.MAX_VALUE;
+  }
+
   static int startingSubMultiple(final int lgTarget, final int lgRf, final int lgMin) {
     return (lgTarget <= lgMin)
             ? lgMin : (lgRf == 0) ? lgTarget
@@ -44,6 +44,7 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Predicate;
 
 import org.apache.datasketches.ArrayOfBooleansSerDe;
@@ -470,6 +471,46 @@ public final class VarOptItemsSketch<T> {
     update(item, weight, false);
   }
 
+  /**
+   * Presents the given range of items, with their weights, to the sketch. The result is
+   * equivalent to calling <tt>update(items[i], weights[i])</tt> for each index in the range, and
+   * null items are likewise ignored. All weights of non-null items are checked before the sketch
+   * is modified.
+   *
+   * <p>In estimation mode, runs of items that are light enough to go straight to the reservoir
+   * region are handled in a single pass: since tau is deterministic for such a run, each item is
+   * accepted independently, and the sketch draws one random number per accepted item rather than
+   * per item. Items that would enter or reshape the H region use the per-item path.</p>
+   *
+   * @param items an array of items of the set being sampled from
+   * @param weights the strictly positive weights associated with the items
+   * @param offset the index of the first item to present
+   * @param length the number of items to present
+   */
+  public void update(final T[] items, final double[] weights, final int offset, final int length) {
+    Objects.requireNonNull(items, "Parameter 'items' must not be null");
+    Objects.requireNonNull(weights, "Parameter 'weights' must not be null");
+    Util.checkBounds(offset, length, items.length);
+    Util.checkBounds(offset, length, weights.length);
+    final int end = offset + length;
+    for (int i = offset; i < end; ++i) {
+      if ((items[i] != null) && (weights[i] <= 0.0)) {
+        throw new SketchesArgumentException("Item weights must be strictly positive: "
+                + weights[i] + ", for item " + items[i].toString());
+      }
+    }
+
+    int i = offset;
+    while (i < end) {
+      if (r_ > 0) {
+        i = updateLightRun(items, weights, i, end);
+        if (i == end) { break; }
+      }
+      update(items[i], weights[i], false);
+      ++i;
+    }
+  }
+
   /**
    * Resets this sketch to the empty state, but retains the original value of k.
    */
@@ -936,6 +977,55 @@ public final class VarOptItemsSketch<T> {
     growCandidateSet(totalWtR_ + weight, r_ + 1);
   }
 
+  /**
+   * Processes items starting at index <tt>start</tt> for as long as each would take the light
+   * path without moving any item out of H. For such a run the reservoir size is fixed and the
+   * total reservoir weight only depends on the input weights, so item i is kept independently
+   * with probability r * w_i / W_i, where W_i is the reservoir weight including w_i. The next
+   * kept item is found by inverting the running product of the rejection probabilities.
+   *
+   * @return the index of the first item that needs the general update path, or <tt>end</tt>
+   */
+  private int updateLightRun(final T[] items, final double[] weights, final int start, final int end) {
+    assert r_ >= 1;
+    assert m_ == 0;
+    assert (r_ + h_) == k_;
+
+    final double minWtH = (h_ == 0) ? Double.POSITIVE_INFINITY : peekMin();
+    final int r = r_;
+    final int rOffset = h_ + 1; // R follows the gap
+    double wtR = totalWtR_;
+    double pNoneKept = 1.0;
+    double threshold = SamplingUtil.nextDoubleExcludeZero();
+    long numSeen = 0;
+
+    int i = start;
+    for (; i < end; ++i) {
+      final T item = items[i];
+      if (item == null) { continue; }
+      final double weight = weights[i];
+      final double wtCands = wtR + weight;
+
+      // same tests as update() and growCandidateSet(), with H's minimum weight held fixed
+      if ((weight > minWtH) || (weight >= (wtCands / r)) || ((minWtH * (r + 1)) < (wtCands + minWtH))) {
+        break;
+      }
+
+      ++numSeen;
+      wtR = wtCands;
+      pNoneKept *= 1.0 - ((r * weight) / wtCands);
+      if (pNoneKept < threshold) {
+        data_.set(r == 1 ? rOffset : rOffset + SamplingUtil.rand().nextInt(r), item);
+        pNoneKept = 1.0;
+        threshold = SamplingUtil.nextDoubleExcludeZero();
+      }
+    }
+
+    n_ += numSeen;
+    totalWtR_ = wtR;
+    return i;
+  }
+
   /* In the "heavy" case the new item has weight > old_tau, so would
      appear to the left of items in R in a hypothetical reverse-sorted list and
      might or might not be light enough be part of this round's downsampling.
@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.sampling;
 
+import static org.apache.datasketches.ForkJoinChunks.reduceChunks;
 import static org.apache.datasketches.Util.LS;
 import static org.apache.datasketches.sampling.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.sampling.PreambleUtil.FAMILY_BYTE;
@@ -34,6 +35,9 @@ import static org.apache.datasketches.sampling.VarOptItemsSketch.newInstanceFrom
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.ArrayOfItemsSerDe;
 import org.apache.datasketches.Family;
@@ -223,6 +227,113 @@ public final class VarOptItemsUnion<T> {
     }
   }
 
+  /**
+   * Returns the union of the given sketches, as computed by the common ForkJoinPool.
+   * See {@link #unionAll(List, int, ForkJoinPool)}.
+   *
+   * @param <T> The type of item the sketches contain
+   * @param sketches The sketches to be unioned. Null entries are interpreted as empty sketches.
+   * @param maxK The maximum allowed capacity of the unioned result
+   * @return A varopt sketch of the union of the given sketches
+   */
+  public static <T> VarOptItemsSketch<T> unionAll(final List<VarOptItemsSketch<T>> sketches,
+                                                  final int maxK) {
+    return unionAll(sketches, maxK, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the union of the given sketches, as computed by the given ForkJoinPool.
+   *
+   * <p>The list is split into contiguous chunks. Each task unions its chunk into a single union
+   * object in list order, and the varopt results of the chunks are then combined pairwise up a
+   * binary tree. Since each step is the union of this class applied to valid varopt sketches, the
+   * result is a varopt sketch of the concatenated input, just as with a sequence of calls to
+   * {@link #update(VarOptItemsSketch)}. The given sketches are not modified.</p>
+   *
+   * @param <T> The type of item the sketches contain
+   * @param sketches The sketches to be unioned. Null entries are interpreted as empty sketches.
+   * @param maxK The maximum allowed capacity of the unioned result
+   * @param pool The ForkJoinPool that performs the union
+   * @return A varopt sketch of the union of the given sketches
+   */
+  public static <T> VarOptItemsSketch<T> unionAll(final List<VarOptItemsSketch<T>> sketches,
+                                                  final int maxK, final ForkJoinPool pool) {
+    Objects.requireNonNull(sketches, "Parameter 'sketches' must not be null");
+    return unionAll(sketches, null, null, maxK, pool);
+  }
+
+  /**
+   * Returns the union of the given Memory images of sketches, as computed by the common
+   * ForkJoinPool. See {@link #unionAll(List, ArrayOfItemsSerDe, int, ForkJoinPool)}.
+   *
+   * @param <T> The type of item the sketches contain
+   * @param images The Memory images of the sketches. Null entries are interpreted as empty sketches.
+   * @param serDe An instance of ArrayOfItemsSerDe
+   * @param maxK The maximum allowed capacity of the unioned result
+   * @return A varopt sketch of the union of the given sketches
+   */
+  public static <T> VarOptItemsSketch<T> unionAll(final List<? extends Memory> images,
+                                                  final ArrayOfItemsSerDe<T> serDe,
+                                                  final int maxK) {
+    return unionAll(images, serDe, maxK, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Returns the union of the given Memory images of sketches, as computed by the given
+   * ForkJoinPool. Each image is heapified by the task that unions it, and the reduction is the
+   * same as for {@link #unionAll(List, int, ForkJoinPool)}.
+   *
+   * @param <T> The type of item the sketches contain
+   * @param images The Memory images of the sketches. Null entries are interpreted as empty sketches.
+   * @param serDe An instance of ArrayOfItemsSerDe
+   * @param maxK The maximum allowed capacity of the unioned result
+   * @param pool The ForkJoinPool that performs the union
+   * @return A varopt sketch of the union of the given sketches
+   */
+  public static <T> VarOptItemsSketch<T> unionAll(final List<? extends Memory> images,
+                                                  final ArrayOfItemsSerDe<T> serDe,
+                                                  final int maxK, final ForkJoinPool pool) {
+    Objects.requireNonNull(images, "Parameter 'images' must not be null");
+    Objects.requireNonNull(serDe, "Parameter 'serDe' must not be null");
+    return unionAll(null, images, serDe, maxK, pool);
+  }
+
+  private static <T> VarOptItemsSketch<T> unionAll(final List<VarOptItemsSketch<T>> sketches,
+                                                   final List<? extends Memory> images,
+                                                   final ArrayOfItemsSerDe<T> serDe,
+                                                   final int maxK, final ForkJoinPool pool) {
+    Objects.requireNonNull(pool, "Parameter 'pool' must not be null");
+    final int n = (sketches != null ? sketches.size() : images.size());
+    if (n == 0) {
+      return new VarOptItemsUnion<T>(maxK).getResult();
+    }
+    return reduceChunks(n, (lo, hi) -> unionChunk(sketches, images, serDe, maxK, lo, hi),
+        (left, right) -> combine(left, right, maxK), pool);
+  }
+
+  private static <T> VarOptItemsSketch<T> unionChunk(final List<VarOptItemsSketch<T>> sketches,
+                                                     final List<? extends Memory> images,
+                                                     final ArrayOfItemsSerDe<T> serDe,
+                                                     final int maxK, final int lo, final int hi) {
+    final VarOptItemsUnion<T> union = new VarOptItemsUnion<>(maxK);
+    for (int i = lo; i < hi; ++i) {
+      if (sketches != null) {
+        union.update(sketches.get(i));
+      } else {
+        union.update(images.get(i), serDe);
+      }
+    }
+    return union.getResult();
+  }
+
+  private static <T> VarOptItemsSketch<T> combine(final VarOptItemsSketch<T> left,
+                                                  final VarOptItemsSketch<T> right, final int maxK) {
+    final VarOptItemsUnion<T> union = new VarOptItemsUnion<>(maxK);
+    union.update(left);
+    union.update(right);
+    return union.getResult();
+  }
+
   /**
    * Union a reservoir sketch. The reservoir sample is treated as if all items were added with a
    * weight of 1.0.
@@ -624,5 +735,4 @@ public final class VarOptItemsUnion<T> {
 
     gcopy.stripMarks();
     return gcopy;
-  }
-}
+  }}
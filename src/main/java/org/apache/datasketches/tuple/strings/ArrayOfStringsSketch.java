@@ -21,6 +21,8 @@ package org.apache.datasketches.tuple.strings;
 
 import static org.apache.datasketches.tuple.Util.stringArrHash;
 
+import java.util.Objects;
+
 import org.apache.datasketches.ResizeFactor;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.tuple.UpdatableSketch;
@@ -60,6 +62,25 @@ public class ArrayOfStringsSketch extends UpdatableSketch<String[], ArrayOfStrin
     super(1 << lgK, rf.lg(), p, new ArrayOfStringsSummaryFactory());
   }
 
+  /**
+   * Constructs new sketch with given ResizeFactor, <i>p</i> and <i>lgK</i>, where the summaries
+   * hold the canonical strings of the given dictionary. This saves memory when the same strings
+   * occur in the summaries of many entries. Use {@link DictionarySerDe} for a serialized form that
+   * stores each distinct string once.
+   * @param lgK Log_base2 of <i>Nominal Entries</i>.
+   * <a href="{@docRoot}/resources/dictionary.html#nomEntries">See Nominal Entries</a>
+   * @param rf ResizeFactor
+   * <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
+   * @param p sampling probability
+   * <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability</a>
+   * @param dict the dictionary of strings, which may be shared with other sketches.
+   */
+  public ArrayOfStringsSketch(final int lgK, final ResizeFactor rf, final float p,
+      final StringDictionary dict) {
+    super(1 << lgK, rf.lg(), p, new ArrayOfStringsSummaryFactory(
+        Objects.requireNonNull(dict, "Parameter 'dict' must not be null")));
+  }
+
   /**
    * Constructs this sketch from a Memory image, which must be from an ArrayOfStringsSketch, and
    * usually with data.
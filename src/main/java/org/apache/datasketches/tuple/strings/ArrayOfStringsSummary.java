@@ -36,15 +36,28 @@ import org.apache.datasketches.tuple.UpdatableSummary;
 public class ArrayOfStringsSummary implements UpdatableSummary<String[]> {
 
   private String[] nodesArr = null;
+  private final StringDictionary dict_; //null if the strings are not shared
 
   ArrayOfStringsSummary() { //required for ArrayOfStringsSummaryFactory
+    this((StringDictionary) null);
+  }
+
+  //used by ArrayOfStringsSummaryFactory with a dictionary
+  ArrayOfStringsSummary(final StringDictionary dict) {
     nodesArr = null;
+    dict_ = dict;
   }
 
   //Used by copy() and in test
   ArrayOfStringsSummary(final String[] nodesArr) {
+    this(nodesArr, null);
+  }
+
+  //Used by copy() and DictionarySerDe
+  ArrayOfStringsSummary(final String[] nodesArr, final StringDictionary dict) {
     this.nodesArr = nodesArr.clone();
     checkNumNodes(nodesArr.length);
+    dict_ = dict;
   }
 
   //used by fromMemory and in test
@@ -62,11 +75,12 @@ public class ArrayOfStringsSummary implements UpdatableSummary<String[]> {
       nodesArr[i] = new String(byteArr, UTF_8);
     }
     this.nodesArr = nodesArr;
+    dict_ = null;
   }
 
   @Override
   public ArrayOfStringsSummary copy() {
-    final ArrayOfStringsSummary nodes = new ArrayOfStringsSummary(nodesArr);
+    final ArrayOfStringsSummary nodes = new ArrayOfStringsSummary(nodesArr, dict_);
     return nodes;
   }
 
@@ -92,7 +106,7 @@ public class ArrayOfStringsSummary implements UpdatableSummary<String[]> {
   @Override
   public ArrayOfStringsSummary update(final String[] value) {
     if (nodesArr == null) {
-      nodesArr = value.clone();
+      nodesArr = (dict_ == null) ? value.clone() : dict_.intern(value);
     }
     return this;
   }
@@ -121,6 +135,11 @@ public class ArrayOfStringsSummary implements UpdatableSummary<String[]> {
     return nodesArr.clone();
   }
 
+  //not a copy, used by DictionarySerDe
+  String[] getNodes() {
+    return nodesArr;
+  }
+
   //also used in test
   static void checkNumNodes(final int numNodes) {
     if (numNodes > 127)  {
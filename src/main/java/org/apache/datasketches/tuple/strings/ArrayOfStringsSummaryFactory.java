@@ -25,10 +25,26 @@ import org.apache.datasketches.tuple.SummaryFactory;
  * @author Lee Rhodes
  */
 public class ArrayOfStringsSummaryFactory implements SummaryFactory<ArrayOfStringsSummary> {
+  private final StringDictionary dict_;
+
+  /**
+   * Creates a factory of summaries that hold their own strings.
+   */
+  public ArrayOfStringsSummaryFactory() {
+    this(null);
+  }
+
+  /**
+   * Creates a factory of summaries that hold the canonical strings of the given dictionary.
+   * @param dict the given dictionary. If null, the summaries hold their own strings.
+   */
+  public ArrayOfStringsSummaryFactory(final StringDictionary dict) {
+    dict_ = dict;
+  }
 
   @Override
   public ArrayOfStringsSummary newSummary() {
-    return new ArrayOfStringsSummary();
+    return new ArrayOfStringsSummary(dict_);
   }
 
 }
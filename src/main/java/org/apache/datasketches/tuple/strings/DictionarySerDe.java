@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.Util.MIN_LG_NOM_LONGS;
+import static org.apache.datasketches.Util.computeSeedHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.datasketches.Family;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableBuffer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.tuple.CompactSketch;
+import org.apache.datasketches.tuple.DeserializeResult;
+import org.apache.datasketches.tuple.SerializerDeserializer;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.SketchIterator;
+import org.apache.datasketches.tuple.Sketches;
+import org.apache.datasketches.tuple.SummaryDeserializer;
+
+/**
+ * Serializes sketches of ArrayOfStringsSummary in a dictionary-encoded form, where each distinct
+ * string is stored once and each summary is stored as a sequence of integer codes. This form is
+ * much smaller than {@link CompactSketch#toByteArray()} when the same strings occur in the
+ * summaries of many entries, as the dimension values of a FdtSketch usually do.
+ *
+ * <p>The dictionary is built from the summaries of the given sketch when it is serialized, so any
+ * sketch of ArrayOfStringsSummary can be serialized, including the results of union, intersection
+ * and AnotB operations on sketches that were built with different dictionaries, or with none.
+ * The summaries of a heapified sketch hold the canonical strings of a {@link StringDictionary},
+ * which may be shared with other sketches. A heapified sketch of FDT entries can be given to a
+ * PostProcessor or a ParallelPostProcessor.</p>
+ *
+ * <p>Layout:</p>
+ * <pre>
+ * Byte 0:      serial version (1)
+ * Byte 1:      bytes per code: 1, 2 or 4
+ * Bytes 2-3:   unused
+ * Bytes 4-7:   number of distinct strings, D
+ * Bytes 8-:    D strings in code order, each an int of its UTF-8 length followed by its bytes
+ * Following:   the image of a CompactSketch, where each summary is one byte of the number of
+ *              nodes followed by the code of each node.
+ * </pre>
+ */
+public final class DictionarySerDe {
+  static final byte SER_VER = 1;
+  static final int HEADER_BYTES = 8;
+  private static final short SEED_HASH = computeSeedHash(DEFAULT_UPDATE_SEED);
+
+  // The serial version and flags of the CompactSketch layout, taken from the images of an empty
+  // and a non-empty CompactSketch so that they always follow CompactSketch.toByteArray().
+  private static final int SER_VER_BYTE = 1;
+  private static final int FLAGS_BYTE = 5;
+  private static final byte COMPACT_SER_VER;
+  private static final byte EMPTY_FLAGS;
+  private static final byte FLAGS;
+
+  static {
+    final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(MIN_LG_NOM_LONGS);
+    final byte[] emptyImage = sk.compact().toByteArray();
+    sk.update(new String[] {""}, new String[] {""});
+    final byte[] image = sk.compact().toByteArray();
+    COMPACT_SER_VER = emptyImage[SER_VER_BYTE];
+    EMPTY_FLAGS = emptyImage[FLAGS_BYTE];
+    FLAGS = image[FLAGS_BYTE];
+  }
+
+  private DictionarySerDe() {}
+
+  /**
+   * Serializes the given sketch in the dictionary-encoded form.
+   * @param sketch the given sketch
+   * @return the dictionary-encoded form of the given sketch
+   */
+  public static byte[] toByteArray(final Sketch<ArrayOfStringsSummary> sketch) {
+    Objects.requireNonNull(sketch, "Parameter 'sketch' must not be null");
+    final int count = sketch.getRetainedEntries();
+    final long[] hashes = new long[count];
+    final String[][] tuples = new String[count][];
+    final HashMap<String, Integer> codes = new HashMap<>();
+    final List<byte[]> dictBytes = new ArrayList<>();
+    int dictSizeBytes = 0;
+    int numNodes = 0;
+    final SketchIterator<ArrayOfStringsSummary> it = sketch.iterator();
+    int i = 0;
+    while (it.next()) {
+      hashes[i] = it.getHash();
+      final String[] nodes = it.getSummary().getNodes();
+      for (final String node : nodes) {
+        if (node == null) {
+          throw new SketchesArgumentException("Summaries with null strings cannot be serialized.");
+        }
+        if (!codes.containsKey(node)) {
+          codes.put(node, dictBytes.size());
+          final byte[] bytes = node.getBytes(UTF_8);
+          dictBytes.add(bytes);
+          dictSizeBytes += Integer.BYTES + bytes.length;
+        }
+      }
+      numNodes += nodes.length;
+      tuples[i++] = nodes;
+    }
+    final int codeBytes = codeBytes(dictBytes.size());
+
+    final boolean isSingleItem = (count == 1) && !sketch.isEstimationMode();
+    final int preambleLongs = (sketch.isEmpty() || isSingleItem) ? 1
+        : sketch.isEstimationMode() ? 3 : 2;
+    final long sizeBytes = HEADER_BYTES + (long) dictSizeBytes + (Long.BYTES * preambleLongs)
+        + ((long) (Long.BYTES + 1) * count) + ((long) codeBytes * numNodes);
+    if (sizeBytes > Integer.MAX_VALUE) {
+      throw new SketchesArgumentException("Sketch is too large to serialize: " + sizeBytes);
+    }
+    final byte[] out = new byte[(int) sizeBytes];
+    final WritableBuffer wbuf = WritableMemory.writableWrap(out).asWritableBuffer();
+    wbuf.putByte(SER_VER);
+    wbuf.putByte((byte) codeBytes);
+    wbuf.putShort((short) 0);
+    wbuf.putInt(dictBytes.size());
+    for (final byte[] bytes : dictBytes) {
+      wbuf.putInt(bytes.length);
+      wbuf.putByteArray(bytes, 0, bytes.length);
+    }
+
+    wbuf.putByte((byte) preambleLongs);
+    wbuf.putByte(COMPACT_SER_VER);
+    wbuf.putByte((byte) Family.TUPLE.getID());
+    wbuf.putByte((byte) SerializerDeserializer.SketchType.CompactSketch.ordinal());
+    wbuf.putByte((byte) 0);
+    wbuf.putByte(sketch.isEmpty() ? EMPTY_FLAGS : FLAGS);
+    wbuf.putShort(SEED_HASH);
+    if (preambleLongs > 1) {
+      wbuf.putInt(count);
+      wbuf.putInt(0);
+      if (preambleLongs > 2) { wbuf.putLong(sketch.getThetaLong()); }
+    }
+    for (i = 0; i < count; i++) {
+      wbuf.putLong(hashes[i]);
+      final String[] nodes = tuples[i];
+      wbuf.putByte((byte) nodes.length);
+      for (final String node : nodes) {
+        final int code = codes.get(node);
+        if (codeBytes == 1) { wbuf.putByte((byte) code); }
+        else if (codeBytes == 2) { wbuf.putShort((short) code); }
+        else { wbuf.putInt(code); }
+      }
+    }
+    assert wbuf.getPosition() == sizeBytes;
+    return out;
+  }
+
+  /**
+   * Heapifies a sketch from its dictionary-encoded form. The summaries hold the strings of a new
+   * dictionary.
+   * @param mem the dictionary-encoded form of a sketch
+   * @return the CompactSketch
+   */
+  public static CompactSketch<ArrayOfStringsSummary> heapify(final Memory mem) {
+    return heapify(mem, new StringDictionary());
+  }
+
+  /**
+   * Heapifies a sketch from its dictionary-encoded form. The summaries hold the canonical strings
+   * of the given dictionary, to which the strings of the serialized sketch are added.
+   * @param mem the dictionary-encoded form of a sketch
+   * @param dict the dictionary of strings, which may be shared with other sketches.
+   * @return the CompactSketch
+   */
+  public static CompactSketch<ArrayOfStringsSummary> heapify(final Memory mem,
+      final StringDictionary dict) {
+    Objects.requireNonNull(mem, "Parameter 'mem' must not be null");
+    Objects.requireNonNull(dict, "Parameter 'dict' must not be null");
+    if (mem.getCapacity() < HEADER_BYTES) {
+      throw new SketchesArgumentException("Memory too small: " + mem.getCapacity());
+    }
+    final byte serVer = mem.getByte(0);
+    if (serVer != SER_VER) {
+      throw new SketchesArgumentException("Unsupported serial version: " + serVer);
+    }
+    final int codeBytes = mem.getByte(1);
+    if ((codeBytes != 1) && (codeBytes != 2) && (codeBytes != 4)) {
+      throw new SketchesArgumentException("Invalid bytes per code: " + codeBytes);
+    }
+    final int dictSize = mem.getInt(4);
+    if (dictSize < 0) {
+      throw new SketchesArgumentException("Invalid dictionary size: " + dictSize);
+    }
+    final String[] strings = new String[dictSize];
+    long offset = HEADER_BYTES;
+    for (int i = 0; i < dictSize; i++) {
+      final int len = mem.getInt(offset);
+      offset += Integer.BYTES;
+      if ((len < 0) || ((offset + len) > mem.getCapacity())) {
+        throw new SketchesArgumentException("Corrupt dictionary at string " + i);
+      }
+      final byte[] bytes = new byte[len];
+      mem.getByteArray(offset, bytes, 0, len);
+      offset += len;
+      strings[i] = dict.intern(new String(bytes, UTF_8));
+    }
+    final Memory sketchMem = mem.region(offset, mem.getCapacity() - offset);
+    SerializerDeserializer.validateType(sketchMem.getByte(3),
+        SerializerDeserializer.SketchType.CompactSketch);
+    return (CompactSketch<ArrayOfStringsSummary>)
+        Sketches.heapifySketch(sketchMem, new CodedSummaryDeserializer(strings, dict, codeBytes));
+  }
+
+  static int codeBytes(final int dictSize) {
+    if (dictSize <= (1 << 8)) { return 1; }
+    if (dictSize <= (1 << 16)) { return 2; }
+    return 4;
+  }
+
+  private static final class CodedSummaryDeserializer
+      implements SummaryDeserializer<ArrayOfStringsSummary> {
+    private final String[] strings;
+    private final StringDictionary dict;
+    private final int codeBytes;
+
+    CodedSummaryDeserializer(final String[] strings, final StringDictionary dict,
+        final int codeBytes) {
+      this.strings = strings;
+      this.dict = dict;
+      this.codeBytes = codeBytes;
+    }
+
+    @Override
+    public DeserializeResult<ArrayOfStringsSummary> heapifySummary(final Memory mem) {
+      final int numNodes = mem.getByte(0);
+      ArrayOfStringsSummary.checkNumNodes(numNodes);
+      final int totBytes = 1 + (numNodes * codeBytes);
+      ArrayOfStringsSummary.checkInBytes(mem, totBytes);
+      final String[] nodes = new String[numNodes];
+      for (int i = 0; i < numNodes; i++) {
+        final long off = 1 + ((long) i * codeBytes);
+        final int code = (codeBytes == 1) ? mem.getByte(off) & 0XFF
+            : (codeBytes == 2) ? mem.getShort(off) & 0XFFFF
+            : mem.getInt(off);
+        if ((code < 0) || (code >= strings.length)) {
+          throw new SketchesArgumentException("Invalid string code: " + code);
+        }
+        nodes[i] = strings[code];
+      }
+      return new DeserializeResult<>(new ArrayOfStringsSummary(nodes, dict), totBytes);
+    }
+  }
+
+}
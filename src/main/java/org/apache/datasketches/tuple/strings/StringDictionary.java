@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dictionary of the distinct strings of the summaries of one or more ArrayOfStringsSketches.
+ * The summaries of a sketch that is constructed with a dictionary hold the canonical instance of
+ * each string, so a dimension value that repeats across many retained entries is stored only once.
+ * A reference to a canonical string costs the same as an integer code on a typical JVM, so the
+ * entries are not converted to codes in memory. The codes are assigned when a sketch is serialized
+ * with {@link DictionarySerDe}.
+ *
+ * <p>The dictionary only grows, and keeps the strings of entries that a sketch has since discarded.
+ * It is safe to share one dictionary among sketches that are updated by different threads.</p>
+ */
+public final class StringDictionary {
+  private final ConcurrentHashMap<String, String> map_ = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the canonical instance of the given string, which is added if not yet present.
+   * @param s the given string, which may be null.
+   * @return the canonical instance of the given string, or null if the given string is null.
+   */
+  public String intern(final String s) {
+    if (s == null) { return null; }
+    final String prev = map_.putIfAbsent(s, s);
+    return (prev == null) ? s : prev;
+  }
+
+  /**
+   * Returns a new array of the canonical instances of the strings of the given array.
+   * @param arr the given array
+   * @return a new array of the canonical instances of the strings of the given array.
+   */
+  public String[] intern(final String[] arr) {
+    final String[] out = new String[arr.length];
+    for (int i = 0; i < arr.length; i++) { out[i] = intern(arr[i]); }
+    return out;
+  }
+
+  /**
+   * Returns the number of distinct strings in this dictionary
+   * @return the number of distinct strings in this dictionary
+   */
+  public int size() {
+    return map_.size();
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+
+public class ForkJoinChunksTest {
+
+  @Test
+  public void checkChunkSize() {
+    assertEquals(ForkJoinChunks.chunkSize(1, 8), 1);
+    assertEquals(ForkJoinChunks.chunkSize(100, 0), 25);
+    assertEquals(ForkJoinChunks.chunkSize(100, 1), 25);
+    assertEquals(ForkJoinChunks.chunkSize(1000, 8), 32);
+  }
+
+  @Test
+  public void checkForEachChunk() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final int[] counts = new int[1000];
+      ForkJoinChunks.forEachChunk(counts.length, (lo, hi) -> {
+        for (int i = lo; i < hi; i++) { counts[i]++; }
+      }, pool);
+      for (int i = 0; i < counts.length; i++) { assertEquals(counts[i], 1); }
+      ForkJoinChunks.forEachChunk(0, (lo, hi) -> { throw new AssertionError(); }, pool);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkReduceChunksKeepsOrder() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final String result = ForkJoinChunks.reduceChunks(100, (lo, hi) -> {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = lo; i < hi; i++) { sb.append(i).append(','); }
+        return sb.toString();
+      }, String::concat, pool);
+      final StringBuilder expected = new StringBuilder();
+      for (int i = 0; i < 100; i++) { expected.append(i).append(','); }
+      assertEquals(result, expected.toString());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkReduceChunksEmpty() {
+    ForkJoinChunks.reduceChunks(0, (lo, hi) -> 0, Integer::sum, ForkJoinPool.commonPool());
+  }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.cpc;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.memory.Memory;
+
+public class CpcBulkCompressionTest {
+  private long vIn = 0;
+
+  //one sketch of each flavor, for two values of lgK, repeated so that chunks reuse scratch buffers
+  private List<CpcSketch> buildSketches() {
+    final List<CpcSketch> list = new ArrayList<>();
+    final int[] lgKs = {4, 10, 4};
+    for (int rep = 0; rep < 3; rep++) {
+      for (int lgK : lgKs) {
+        final int k = 1 << lgK;
+        final long[] ns = {0, 1, k / 16, k / 2, 2L * k, 20L * k};
+        for (long n : ns) {
+          final CpcSketch sk = new CpcSketch(lgK);
+          for (long i = 0; i < n; i++) { sk.update(vIn++); }
+          list.add(sk);
+        }
+      }
+    }
+    return list;
+  }
+
+  @Test
+  public void checkToByteArrays() {
+    final List<CpcSketch> sketches = buildSketches();
+    final ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      final byte[][] images = CpcBulkCompression.toByteArrays(sketches, pool);
+      assertEquals(images.length, sketches.size());
+      for (int i = 0; i < images.length; i++) {
+        assertEquals(images[i], sketches.get(i).toByteArray());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkHeapify() {
+    final List<CpcSketch> sketches = buildSketches();
+    final List<Memory> mems = new ArrayList<>();
+    for (CpcSketch sk : sketches) { mems.add(Memory.wrap(sk.toByteArray())); }
+    final CpcSketch[] out = CpcBulkCompression.heapify(mems);
+    assertEquals(out.length, sketches.size());
+    for (int i = 0; i < out.length; i++) {
+      assertTrue(TestUtil.specialEquals(sketches.get(i), out[i], false, false));
+      assertEquals(out[i].toByteArray(), sketches.get(i).toByteArray());
+    }
+  }
+
+  @Test
+  public void checkSequentialScratchReuse() {
+    final List<CpcSketch> sketches = buildSketches();
+    final CompressionScratch scratch = new CompressionScratch();
+    for (CpcSketch sk : sketches) {
+      final byte[] image = sk.toByteArray(scratch);
+      assertEquals(image, sk.toByteArray());
+      final CpcSketch sk2 = CpcSketch.heapify(Memory.wrap(image), DEFAULT_UPDATE_SEED, scratch);
+      assertTrue(TestUtil.specialEquals(sk, sk2, false, false));
+    }
+  }
+
+  @Test
+  public void checkEmptyList() {
+    assertEquals(CpcBulkCompression.toByteArrays(Collections.<CpcSketch>emptyList()).length, 0);
+    assertEquals(CpcBulkCompression.heapify(Collections.<Memory>emptyList(), DEFAULT_UPDATE_SEED).length, 0);
+  }
+
+}
@@ -28,6 +28,7 @@ import org.testng.annotations.Test;
 import org.apache.datasketches.Family;
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
 
 /**
  * @author Lee Rhodes
@@ -86,4 +87,51 @@ public class CpcUnionTest {
     union.update(sk4);
   }
 
+  @Test
+  public void checkUpdateFromMemoryMatchesHeapify() {
+    long vIn = 0;
+    final int[] unionLgKs = {8, 10, 12};
+    final int[] srcLgKs = {9, 10, 11};
+    for (int unionLgK : unionLgKs) {
+      for (int srcLgK : srcLgKs) {
+        final int k = 1 << srcLgK;
+        final long[] ns = {0, 1, k / 16, k / 4, k, 3L * k, 10L * k, 40L * k}; //all flavors
+        for (long n1 : ns) {
+          for (long n2 : ns) {
+            final CpcSketch sk1 = new CpcSketch(srcLgK);
+            for (long i = 0; i < n1; i++) { sk1.update(++vIn); }
+            final CpcSketch sk2 = new CpcSketch(srcLgK + 1);
+            for (long i = 0; i < n2; i++) { sk2.update(++vIn); }
+            final Memory mem1 = Memory.wrap(sk1.toByteArray());
+            final Memory mem2 = Memory.wrap(sk2.toByteArray());
+
+            final CpcUnion uHeap = new CpcUnion(unionLgK);
+            uHeap.update(CpcSketch.heapify(mem1));
+            uHeap.update(CpcSketch.heapify(mem2));
+            final CpcUnion uMem = new CpcUnion(unionLgK);
+            uMem.update(mem1);
+            uMem.update(mem2);
+
+            assertEquals(uMem.getLgK(), uHeap.getLgK());
+            assertEquals(CpcUnion.getBitMatrix(uMem), CpcUnion.getBitMatrix(uHeap));
+            assertEquals(uMem.getResult().toByteArray(), uHeap.getResult().toByteArray());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void checkUpdateFromMemoryExceptions() {
+    final CpcSketch sk = new CpcSketch(10, 1);
+    sk.update(1);
+    final CpcUnion union = new CpcUnion();
+    try {
+      union.update(Memory.wrap(sk.toByteArray()));
+      fail();
+    } catch (SketchesArgumentException e) {}
+    union.update((Memory) null);
+    assertEquals(union.getNumCoupons(), 0L);
+  }
+
 }
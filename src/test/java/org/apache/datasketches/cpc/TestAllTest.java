@@ -25,6 +25,7 @@ import static org.testng.Assert.assertEquals;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.Test;
 
@@ -79,6 +80,19 @@ public class TestAllTest {
     cc.start();
   }
 
+  @Test //scope = Test
+  public void bulkCompressionCharacterizationCheck() {
+    int lgMinK = 10;
+    int lgMaxK = 10;
+    int numSketches = 16;
+    int lgMulK = 2;
+    int trials = 2;
+
+    BulkCompressionCharacterization bcc = new BulkCompressionCharacterization(
+        lgMinK, lgMaxK, numSketches, lgMulK, trials, ForkJoinPool.commonPool(), ps, pw);
+    bcc.start();
+  }
+
   //@Test //used for troubleshooting a specific rowCol problems
   public void singleRowColCheck() {
     int lgK = 20;
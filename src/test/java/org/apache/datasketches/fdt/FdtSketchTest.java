@@ -27,8 +27,11 @@ import java.util.List;
 
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.tuple.CompactSketch;
 import org.apache.datasketches.tuple.SketchIterator;
 import org.apache.datasketches.tuple.strings.ArrayOfStringsSummary;
+import org.apache.datasketches.tuple.strings.DictionarySerDe;
+import org.apache.datasketches.tuple.strings.StringDictionary;
 import org.testng.annotations.Test;
 
 /**
@@ -150,6 +153,54 @@ public class FdtSketchTest {
     }
   }
 
+  @Test
+  public void checkDictionaryEncoded() {
+    final StringDictionary dict = new StringDictionary();
+    final FdtSketch sk = new FdtSketch(10, dict);
+    final FdtSketch plain = new FdtSketch(10);
+    for (int i = 0; i < 5000; i++) {
+      final String[] tuple = {"c" + (i % 3), "d" + (i % 4), "u" + i};
+      sk.update(tuple);
+      plain.update(tuple);
+    }
+    assertTrue(dict.size() >= (3 + 4 + sk.getRetainedEntries())); //includes evicted entries
+    final int[] priKeyIndices = {0, 1};
+    final CompactSketch<ArrayOfStringsSummary> csk =
+        DictionarySerDe.heapify(Memory.wrap(DictionarySerDe.toByteArray(sk)));
+    assertEquals(csk.getRetainedEntries(), plain.getRetainedEntries());
+    final List<Group> list = sk.getResult(priKeyIndices, 0, 2, sep);
+    final List<Group> plainList = plain.getResult(priKeyIndices, 0, 2, sep);
+    assertEquals(list.size(), 12);
+    assertEquals(list.size(), plainList.size());
+    for (int i = 0; i < list.size(); i++) {
+      assertEquals(list.get(i).getCount(), plainList.get(i).getCount());
+    }
+  }
+
+  @Test
+  public void checkDictionaryEncodedPostProcessor() {
+    final FdtSketch sk = new FdtSketch(10, new StringDictionary());
+    for (int i = 0; i < 5000; i++) {
+      sk.update(new String[] {"c" + (i % 3), "d" + (i % 4), "u" + i});
+    }
+    final CompactSketch<ArrayOfStringsSummary> sk2 =
+        DictionarySerDe.heapify(Memory.wrap(DictionarySerDe.toByteArray(sk)));
+    assertEquals(sk2.getRetainedEntries(), sk.getRetainedEntries());
+    assertEquals(sk2.getThetaLong(), sk.getThetaLong());
+    final int[] priKeyIndices = {0, 1};
+    final List<Group> list = sk.getPostProcessor().getGroupList(priKeyIndices, 2, 0);
+    final List<Group> list2 = new PostProcessor(sk2, new Group(), sep).getGroupList(priKeyIndices, 2, 0);
+    final List<Group> list3 = new ParallelPostProcessor(sk2, sep).getGroupList(priKeyIndices, 2, 0);
+    assertEquals(list3.size(), list.size());
+    assertEquals(list2.size(), 12);
+    assertEquals(list2.size(), list.size());
+    for (int i = 0; i < list.size(); i++) {
+      assertEquals(list2.get(i).getPrimaryKey(), list.get(i).getPrimaryKey());
+      assertEquals(list2.get(i).getCount(), list.get(i).getCount());
+      assertEquals(list2.get(i).getEstimate(), list.get(i).getEstimate());
+    }
+  }
+
   @Test
   public void checkCopyCtor() {
     final int lgK = 14;
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.fdt;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.testng.annotations.Test;
+
+public class ParallelPostProcessorTest {
+  private static final char sep = '|';
+  private final ForkJoinPool pool = new ForkJoinPool(3);
+
+  @Test
+  public void checkMatchesPostProcessor() {
+    final FdtSketch sk = new FdtSketch(12);
+    for (int i = 0; i < 20000; i++) {
+      final String[] tuple = {
+          "c" + (i % 7), "d" + (i % 3), "os" + ((i * 13) % 5), "u" + i, (i % 11 == 0) ? null : "x"};
+      sk.update(tuple);
+    }
+    assertTrue(sk.isEstimationMode());
+    final int[][] projections = {{0}, {0, 1}, {2, 0}, {1, 2, 4}, {3}};
+    final ParallelPostProcessor par = new ParallelPostProcessor(sk, sep, pool);
+    final List<List<Group>> lists = par.getGroupLists(projections, 2, 0);
+    assertEquals(lists.size(), projections.length);
+    for (int p = 0; p < projections.length; p++) {
+      final List<Group> expected = new PostProcessor(sk, new Group(), sep)
+          .getGroupList(projections[p], 2, 0);
+      checkSameGroups(lists.get(p), expected);
+      checkSameGroups(par.getGroupList(projections[p], 2, 0), expected);
+    }
+    assertEquals(par.getGroupList(projections[0], 1, 3).size(), 3);
+  }
+
+  @Test
+  public void checkCommonPoolAndEmpty() {
+    final FdtSketch sk = new FdtSketch(8);
+    final ParallelPostProcessor par = new ParallelPostProcessor(sk, sep);
+    assertEquals(par.getGroupList(new int[] {0}, 2, 0).size(), 0);
+    sk.update(new String[] {"a", "b"});
+    sk.update(new String[] {"a", "c"});
+    final List<Group> list = sk.getParallelPostProcessor(sep).getGroupList(new int[] {0}, 2, 0);
+    assertEquals(list.size(), 1);
+    assertEquals(list.get(0).getPrimaryKey(), "a");
+    assertEquals(list.get(0).getCount(), 2);
+  }
+
+  @Test
+  public void checkGroupOverloads() {
+    final FdtSketch sk = new FdtSketch(8);
+    sk.update(new String[] {"a", "b"});
+    sk.update(new String[] {"a", "c"});
+    sk.update(new String[] {"d", "c"});
+    final List<Group> expected = sk.getPostProcessor(new Group(), sep).getGroupList(new int[] {0}, 2, 0);
+    checkSameGroups(sk.getParallelPostProcessor(new Group(), sep).getGroupList(new int[] {0}, 2, 0), expected);
+    checkSameGroups(new ParallelPostProcessor(sk, new Group(), sep, pool)
+        .getGroupList(new int[] {0}, 2, 0), expected);
+  }
+
+  @Test
+  public void checkCollidingDimensions() {
+    //"Aa" and "BB" have the same String hash code
+    final FdtSketch sk = new FdtSketch(8);
+    sk.update(new String[] {"Aa", "1"});
+    sk.update(new String[] {"BB", "2"});
+    sk.update(new String[] {"BB", "3"});
+    final List<Group> list = new ParallelPostProcessor(sk, sep, pool)
+        .getGroupList(new int[] {0}, 2, 0);
+    assertEquals(list.size(), 2);
+    assertEquals(list.get(0).getPrimaryKey(), "BB");
+    assertEquals(list.get(0).getCount(), 2);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNegativeIndex() {
+    new ParallelPostProcessor(new FdtSketch(8), sep).getGroupList(new int[] {-1}, 2, 0);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void checkNullProjection() {
+    new ParallelPostProcessor(new FdtSketch(8), sep).getGroupLists(new int[][] {null}, 2, 0);
+  }
+
+  private static void checkSameGroups(final List<Group> actual, final List<Group> expected) {
+    assertEquals(actual.size(), expected.size());
+    final Map<String, Group> byKey = new HashMap<>();
+    for (Group g : expected) { byKey.put(g.getPrimaryKey(), g); }
+    int prevCount = Integer.MAX_VALUE;
+    for (Group g : actual) {
+      final Group e = byKey.get(g.getPrimaryKey());
+      assertEquals(g.getCount(), e.getCount());
+      assertEquals(g.getEstimate(), e.getEstimate());
+      assertEquals(g.getUpperBound(), e.getUpperBound());
+      assertEquals(g.getLowerBound(), e.getLowerBound());
+      assertEquals(g.getFraction(), e.getFraction());
+      assertEquals(g.getRse(), e.getRse());
+      assertTrue(g.getCount() <= prevCount);
+      prevCount = g.getCount();
+    }
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.frequencies.FingerprintItemsSketch.Row;
+
+public class FingerprintItemsSketchTest {
+
+  @Test
+  public void empty() {
+    FingerprintItemsSketch<String> sketch = FingerprintItemsSketch.forStrings(1 << LG_MIN_MAP_SIZE, true);
+    assertTrue(sketch.isEmpty());
+    assertTrue(sketch.isKeepingItems());
+    assertEquals(sketch.getNumActiveItems(), 0);
+    assertEquals(sketch.getStreamLength(), 0);
+    assertEquals(sketch.getLowerBound("a"), 0);
+    assertEquals(sketch.getUpperBound("a"), 0);
+    assertEquals(sketch.getFrequentItems(ErrorType.NO_FALSE_NEGATIVES).length, 0);
+  }
+
+  @Test
+  public void severalItems() {
+    FingerprintItemsSketch<String> sketch = FingerprintItemsSketch.forStrings(1 << LG_MIN_MAP_SIZE, true);
+    sketch.update("a");
+    sketch.update("b", 2);
+    sketch.update("c");
+    sketch.update("d");
+    sketch.update("b");
+    sketch.update(null);
+    sketch.update("e", 0);
+    assertEquals(sketch.getNumActiveItems(), 4);
+    assertEquals(sketch.getStreamLength(), 6);
+    assertEquals(sketch.getEstimate("a"), 1);
+    assertEquals(sketch.getEstimate("b"), 3);
+    assertEquals(sketch.getEstimate("e"), 0);
+    assertEquals(sketch.getEstimate(null), 0);
+    assertEquals(sketch.getLowerBound(null), 0);
+    assertEquals(sketch.getUpperBound(null), 0);
+
+    Row<String>[] items = sketch.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(items.length, 4);
+    assertEquals(items[0].getItem(), "b");
+    assertEquals(items[0].getFingerprint(), FingerprintItemsSketch.fingerprint("b"));
+    assertEquals(items[0].getEstimate(), 3);
+    assertEquals(items[0].getLowerBound(), 3);
+    assertEquals(items[0].getUpperBound(), 3);
+    assertTrue(items[0].toString().endsWith("b"));
+
+    items = sketch.getFrequentItems(2, ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(items.length, 1);
+    sketch.reset();
+    assertTrue(sketch.isEmpty());
+    assertEquals(sketch.getStreamLength(), 0);
+  }
+
+  @Test
+  public void estimationModeMatchesBounds() {
+    final int n = 200_000;
+    final Random rand = new Random(1);
+    final FingerprintItemsSketch<String> sketch = FingerprintItemsSketch.forStrings(64, true);
+    final Map<String, Long> counts = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      final String item = "item" + DistTest.randomGeometricDist(0.05);
+      final long count = 1 + rand.nextInt(3);
+      sketch.update(item, count);
+      counts.merge(item, count, Long::sum);
+    }
+    assertTrue(sketch.getMaximumError() > 0);
+    assertEquals(sketch.getEstimate(null), 0);
+    assertEquals(sketch.getLowerBound(null), 0);
+    assertEquals(sketch.getUpperBound(null), sketch.getMaximumError());
+    assertTrue(sketch.getNumActiveItems() <= sketch.getMaximumMapCapacity());
+    for (final Map.Entry<String, Long> e : counts.entrySet()) {
+      assertTrue(sketch.getLowerBound(e.getKey()) <= e.getValue());
+      assertTrue(sketch.getUpperBound(e.getKey()) >= e.getValue());
+    }
+    final Row<String>[] rows = sketch.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertTrue(rows.length > 0);
+    for (final Row<String> row : rows) {
+      assertEquals(row.getFingerprint(), FingerprintItemsSketch.fingerprint(row.getItem()));
+      assertTrue(row.getLowerBound() <= counts.get(row.getItem()));
+    }
+    assertEquals(rows[0].getItem(), "item1");
+  }
+
+  @Test
+  public void withoutItems() {
+    final FingerprintItemsSketch<Integer> sketch = new FingerprintItemsSketch<>(16, i -> i * 31L, false);
+    assertFalse(sketch.isKeepingItems());
+    for (int i = 0; i < 1000; i++) { sketch.update(i % 3 == 0 ? 7 : i); }
+    final Row<Integer>[] rows = sketch.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(rows[0].getFingerprint(), 7 * 31L);
+    assertNull(rows[0].getItem());
+    assertTrue(sketch.getLowerBound(7) > 0);
+  }
+
+  @Test
+  public void mergeKeepsItems() {
+    final FingerprintItemsSketch<String> sketch1 = FingerprintItemsSketch.forStrings(32, true);
+    final FingerprintItemsSketch<String> sketch2 = FingerprintItemsSketch.forStrings(64, true);
+    for (int i = 0; i < 10_000; i++) {
+      sketch1.update("x" + (i % 100), 1);
+      sketch2.update("y" + (i % 100), 1);
+      sketch2.update("hot", 1);
+    }
+    sketch1.merge(sketch2).merge(null);
+    assertEquals(sketch1.getStreamLength(), 30_000);
+    assertTrue(sketch1.getLowerBound("hot") <= 10_000);
+    assertTrue(sketch1.getUpperBound("hot") >= 10_000);
+    final Row<String>[] rows = sketch1.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(rows[0].getItem(), "hot");
+  }
+
+  @Test
+  public void checkArgs() {
+    final FingerprintItemsSketch<String> sketch = FingerprintItemsSketch.forStrings(8, false);
+    try {
+      sketch.update("a", -1);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      FingerprintItemsSketch.forStrings(7, true);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      new FingerprintItemsSketch<String>(8, null, true);
+      fail();
+    } catch (final NullPointerException e) { }
+  }
+
+  @Test
+  public void itemMapRetainsActive() {
+    final FingerprintItemMap<String> itemMap = new FingerprintItemMap<>(8);
+    final ReversePurgeLongHashMap counters = new ReversePurgeLongHashMap(32);
+    for (long i = 0; i < 20; i++) {
+      itemMap.putIfAbsent(i, "v" + i);
+      itemMap.putIfAbsent(i, "dup");
+      if ((i % 2) == 0) { counters.adjustOrPutValue(i, 1); }
+    }
+    assertEquals(itemMap.getNumActive(), 20);
+    assertEquals(itemMap.get(3), "v3");
+    itemMap.retainActive(counters);
+    assertEquals(itemMap.getNumActive(), 10);
+    assertEquals(itemMap.get(4), "v4");
+    assertNull(itemMap.get(3));
+  }
+
+}
@@ -30,6 +30,14 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -395,6 +403,60 @@ public class ItemsSketchTest {
     assertEquals(ItemsSketch.getAprioriError(1024, 10_000), eps * 10_000);
   }
 
+  @Test
+  public void checkMergeAll() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ArrayOfStringsSerDe serDe = new ArrayOfStringsSerDe();
+    Random rand = new Random(1);
+    List<ItemsSketch<String>> sketches = new ArrayList<>();
+    List<Memory> images = new ArrayList<>();
+    Map<String, Long> counts = new HashMap<>();
+    long streamLength = 0;
+    long sumOfErrors = 0;
+    for (int i = 0; i < 200; i++) {
+      ItemsSketch<String> sketch = new ItemsSketch<>((i % 2) == 0 ? 32 : 64);
+      for (int j = 0; j < 1000; j++) {
+        String item = Long.toString((rand.nextInt(4) == 0) ? (i * 1000L) + j : DistTest.randomGeometricDist(0.1));
+        long count = 1 + rand.nextInt(5);
+        sketch.update(item, count);
+        counts.merge(item, count, Long::sum);
+        streamLength += count;
+      }
+      sumOfErrors += sketch.getMaximumError();
+      sketches.add(sketch);
+      images.add(Memory.wrap(sketch.toByteArray(serDe)));
+    }
+    for (ItemsSketch<String> merged : Arrays.asList(
+        ItemsSketch.mergeAll(sketches, pool), ItemsSketch.mergeAllImages(images, serDe, pool))) {
+      assertEquals(merged.getStreamLength(), streamLength);
+      assertEquals(merged.getMaximumMapCapacity(), 48);
+      assertTrue(merged.getNumActiveItems() <= merged.getMaximumMapCapacity());
+      assertTrue(merged.getMaximumError() >= sumOfErrors);
+      for (Map.Entry<String, Long> e : counts.entrySet()) {
+        assertTrue(merged.getLowerBound(e.getKey()) <= e.getValue());
+        assertTrue(merged.getUpperBound(e.getKey()) >= e.getValue());
+      }
+      Row<String>[] rows = merged.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+      assertEquals(rows[0].getItem(), "1");
+    }
+    pool.shutdown();
+
+    List<ItemsSketch<String>> exact = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ItemsSketch<String> sketch = new ItemsSketch<>(1024);
+      for (int j = 0; j <= i; j++) { sketch.update(Integer.toString(j), 2); }
+      exact.add(sketch);
+    }
+    ItemsSketch<String> merged = ItemsSketch.mergeAll(exact);
+    assertEquals(merged.getMaximumError(), 0);
+    for (int j = 0; j < 20; j++) { assertEquals(merged.getEstimate(Integer.toString(j)), 2 * (20 - j)); }
+    assertTrue(ItemsSketch.mergeAllImages(new ArrayList<Memory>(), serDe).isEmpty());
+    try {
+      ItemsSketch.mergeAllImages(images, null);
+      fail();
+    } catch (NullPointerException e) { }
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: " + this.getClass().getName());
@@ -26,12 +26,21 @@ import static org.apache.datasketches.frequencies.PreambleUtil.FLAGS_BYTE;
 import static org.apache.datasketches.frequencies.PreambleUtil.PREAMBLE_LONGS_BYTE;
 import static org.apache.datasketches.frequencies.PreambleUtil.SER_VER_BYTE;
 import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
+import static org.apache.datasketches.frequencies.Util.lgAggregationHeadroom;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -459,6 +468,94 @@ public class LongsSketchTest {
     assertTrue(fle.isEmpty());
   }
 
+  @Test
+  public void checkMergeAll() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Random rand = new Random(1);
+    int numSketches = 500;
+    List<LongsSketch> sketches = new ArrayList<>();
+    List<Memory> images = new ArrayList<>();
+    Map<Long, Long> counts = new HashMap<>();
+    long streamLength = 0;
+    long sumOfErrors = 0;
+    for (int i = 0; i < numSketches; i++) {
+      LongsSketch sketch = new LongsSketch((i % 2) == 0 ? 32 : 64);
+      for (int j = 0; j < 1000; j++) {
+        long item = (rand.nextInt(4) == 0) ? (i * 1000L) + j : randomGeometricDist(0.1);
+        long count = 1 + rand.nextInt(5);
+        sketch.update(item, count);
+        counts.merge(item, count, Long::sum);
+        streamLength += count;
+      }
+      sumOfErrors += sketch.getMaximumError();
+      sketches.add(sketch);
+      images.add(Memory.wrap(sketch.toByteArray()));
+    }
+    sketches.add(new LongsSketch(16));
+
+    LongsSketch sequential = new LongsSketch(64);
+    for (LongsSketch sketch : sketches) { sequential.merge(sketch); }
+    for (LongsSketch merged : new LongsSketch[] {
+        LongsSketch.mergeAll(sketches, pool), LongsSketch.mergeAllImages(images, pool)}) {
+      assertEquals(merged.getStreamLength(), streamLength);
+      assertEquals(merged.getMaximumMapCapacity(), 48);
+      assertTrue(merged.getNumActiveItems() <= merged.getMaximumMapCapacity());
+      assertTrue(merged.getMaximumError() >= sumOfErrors);
+      assertTrue(merged.getMaximumError() <= (2 * sequential.getMaximumError()));
+      for (Map.Entry<Long, Long> e : counts.entrySet()) {
+        assertTrue(merged.getLowerBound(e.getKey()) <= e.getValue());
+        assertTrue(merged.getUpperBound(e.getKey()) >= e.getValue());
+      }
+      Row[] rows = merged.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+      assertEquals(rows[0].getItem(), 1L);
+      LongsSketch copy = LongsSketch.getInstance(Memory.wrap(merged.toByteArray()));
+      assertEquals(copy.getMaximumError(), merged.getMaximumError());
+      assertEquals(copy.getEstimate(1L), merged.getEstimate(1L));
+    }
+    pool.shutdown();
+  }
+
+  @Test
+  public void checkLgAggregationHeadroom() {
+    assertEquals(lgAggregationHeadroom(0), 3);
+    assertEquals(lgAggregationHeadroom(1), 3);
+    assertEquals(lgAggregationHeadroom(2), 2);
+    assertEquals(lgAggregationHeadroom(3), 1);
+    assertEquals(lgAggregationHeadroom(4), 1);
+    assertEquals(lgAggregationHeadroom(64), 1);
+  }
+
+  @Test
+  public void checkMergeAllExact() {
+    List<LongsSketch> sketches = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      LongsSketch sketch = new LongsSketch(1024);
+      for (int j = 0; j <= i; j++) { sketch.update(j, 2); }
+      sketches.add(sketch);
+    }
+    LongsSketch merged = LongsSketch.mergeAll(sketches);
+    assertEquals(merged.getMaximumError(), 0);
+    assertEquals(merged.getNumActiveItems(), 20);
+    assertEquals(merged.getCurrentMapCapacity(), 24);
+    for (int j = 0; j < 20; j++) { assertEquals(merged.getEstimate(j), 2 * (20 - j)); }
+    merged.update(99);
+    assertEquals(merged.getStreamLength(), 421);
+
+    assertTrue(LongsSketch.mergeAll(new ArrayList<LongsSketch>()).isEmpty());
+    LongsSketch empty = new LongsSketch(256);
+    LongsSketch merged2 = LongsSketch.mergeAllImages(Arrays.asList(Memory.wrap(empty.toByteArray())));
+    assertTrue(merged2.isEmpty());
+    assertEquals(merged2.getMaximumMapCapacity(), 192);
+    try {
+      LongsSketch.mergeAll(null);
+      fail();
+    } catch (NullPointerException e) { }
+    try {
+      LongsSketch.mergeAllImages(Arrays.asList(Memory.wrap(new byte[8])));
+      fail();
+    } catch (SketchesArgumentException e) { }
+  }
+
   @Test
   public void checkSortItems() {
     int numSketches = 1;
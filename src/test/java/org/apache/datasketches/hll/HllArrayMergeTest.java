@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hll;
+
+import static org.apache.datasketches.hll.TgtHllType.HLL_4;
+import static org.apache.datasketches.hll.TgtHllType.HLL_6;
+import static org.apache.datasketches.hll.TgtHllType.HLL_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.Random;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+public class HllArrayMergeTest {
+  private long v = 0;
+
+  @Test
+  public void checkUnpackRegisters() {
+    final Random rand = new Random(1);
+    for (int t = 0; t < 1000; t++) {
+      final int packed4 = rand.nextInt();
+      final long packed6 = rand.nextLong() & 0XFFFF_FFFF_FFFFL;
+      final long regs4 = HllArrayMerge.unpack4BitRegisters(packed4);
+      final long regs6 = HllArrayMerge.unpack6BitRegisters(packed6);
+      for (int k = 0; k < 8; k++) {
+        assertEquals((regs4 >>> (8 * k)) & 0XFF, (packed4 >>> (4 * k)) & 0XF);
+        assertEquals((regs6 >>> (8 * k)) & 0XFF, (packed6 >>> (6 * k)) & 0X3F);
+      }
+    }
+  }
+
+  @Test
+  public void checkMaxBytes() {
+    final Random rand = new Random(2);
+    for (int t = 0; t < 1000; t++) {
+      final long a = rand.nextLong() & 0X3F3F_3F3F_3F3F_3F3FL;
+      final long b = rand.nextLong() & 0X3F3F_3F3F_3F3F_3F3FL;
+      final long max = HllArrayMerge.maxBytes(a, b);
+      for (int shift = 0; shift < 64; shift += 8) {
+        assertEquals((max >>> shift) & 0XFF,
+            Math.max((a >>> shift) & 0XFF, (b >>> shift) & 0XFF));
+      }
+    }
+  }
+
+  @Test
+  public void checkMergeMatchesSlotwiseMaxAndRebuild() {
+    final TgtHllType[] types = {HLL_4, HLL_6, HLL_8};
+    for (TgtHllType type : types) {
+      for (int srcLgK = 4; srcLgK <= 10; srcLgK += 3) {
+        for (int tgtLgK = 4; tgtLgK <= srcLgK; tgtLgK += 3) {
+          for (int srcForm = 0; srcForm < 3; srcForm++) { //heap, direct compact, direct updatable
+            for (int tgtDirect = 0; tgtDirect < 2; tgtDirect++) {
+              checkMerge(type, srcLgK, tgtLgK, srcForm, tgtDirect == 1);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private void checkMerge(final TgtHllType type, final int srcLgK, final int tgtLgK,
+      final int srcForm, final boolean tgtDirect) {
+    //large n on small lgK forces HLL_4 exceptions into the aux array
+    HllSketch src = buildHll(srcLgK, type, 40 << srcLgK);
+    if (srcForm == 1) { src = HllSketch.wrap(Memory.wrap(src.toCompactByteArray())); }
+    if (srcForm == 2) { src = HllSketch.wrap(Memory.wrap(src.toUpdatableByteArray())); }
+    HllSketch tgt = buildHll(tgtLgK, HLL_8, 20 << tgtLgK);
+    if (tgtDirect) {
+      tgt = HllSketch.writableWrap(WritableMemory.writableWrap(tgt.toUpdatableByteArray()));
+    }
+
+    final AbstractHllArray srcArr = (AbstractHllArray) src.hllSketchImpl;
+    final AbstractHllArray tgtArr = (AbstractHllArray) tgt.hllSketchImpl;
+    final int tgtK = 1 << tgtLgK;
+    final int[] expected = new int[tgtK];
+    for (int j = 0; j < tgtK; j++) { expected[j] = tgtArr.getSlotValue(j); }
+    for (int i = 0; i < (1 << srcLgK); i++) {
+      final int j = i & (tgtK - 1);
+      expected[j] = Math.max(expected[j], srcArr.getSlotValue(i));
+    }
+
+    HllArrayMerge.merge(srcArr, tgtArr);
+    for (int j = 0; j < tgtK; j++) { assertEquals(tgtArr.getSlotValue(j), expected[j]); }
+    assertFalse(tgtArr.isRebuildCurMinNumKxQFlag());
+    final double kxq0 = tgtArr.getKxQ0();
+    final double kxq1 = tgtArr.getKxQ1();
+    final int curMin = tgtArr.getCurMin();
+    final int numAtCurMin = tgtArr.getNumAtCurMin();
+
+    tgtArr.putRebuildCurMinNumKxQFlag(true);
+    Union.checkRebuildCurMinNumKxQ(tgt);
+    assertEquals(kxq0, tgtArr.getKxQ0());
+    assertEquals(kxq1, tgtArr.getKxQ1());
+    assertEquals(curMin, tgtArr.getCurMin());
+    assertEquals(numAtCurMin, tgtArr.getNumAtCurMin());
+  }
+
+  private HllSketch buildHll(final int lgK, final TgtHllType type, final int n) {
+    final HllSketch sk = new HllSketch(lgK, type);
+    for (int i = 0; i < n; i++) { sk.update(v++); }
+    assertEquals(sk.getCurMode(), CurMode.HLL);
+    return sk;
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hll;
+
+import static org.apache.datasketches.hll.HllBulkEstimation.ESTIMATES;
+import static org.apache.datasketches.hll.HllBulkEstimation.LOWER_BOUNDS;
+import static org.apache.datasketches.hll.HllBulkEstimation.UPPER_BOUNDS;
+import static org.apache.datasketches.hll.TgtHllType.HLL_4;
+import static org.apache.datasketches.hll.TgtHllType.HLL_6;
+import static org.apache.datasketches.hll.TgtHllType.HLL_8;
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+public class HllBulkEstimationTest {
+  private final ForkJoinPool pool = new ForkJoinPool(3);
+  private long v = 0;
+
+  @Test
+  public void checkImagesMatchSketches() {
+    final List<Memory> images = new ArrayList<>();
+    final List<HllSketch> sketches = new ArrayList<>();
+    for (TgtHllType type : new TgtHllType[] {HLL_4, HLL_6, HLL_8}) {
+      for (int lgK = 4; lgK <= 13; lgK += 3) {
+        for (int n : new int[] {0, 3, 100, 1000, 1 << (lgK + 3)}) {
+          final HllSketch sk = new HllSketch(lgK, type);
+          for (int i = 0; i < n; i++) { sk.update(v++); }
+          images.add(Memory.wrap(sk.toCompactByteArray()));
+          images.add(Memory.wrap(sk.toUpdatableByteArray()));
+          sketches.add(sk);
+          sketches.add(sk);
+        }
+      }
+    }
+    //union images are out of order and may be serialized with the rebuild flag set
+    for (int lgK = 4; lgK <= 13; lgK += 3) {
+      final Union union = new Union(lgK);
+      for (int s = 0; s < 3; s++) {
+        final HllSketch sk = new HllSketch(lgK);
+        for (int i = 0; i < (10 << lgK); i++) { sk.update(v++); }
+        union.update(sk);
+      }
+      final WritableMemory wmem = WritableMemory.writableWrap(union.toUpdatableByteArray());
+      PreambleUtil.insertRebuildCurMinNumKxQFlag(wmem, true);
+      PreambleUtil.insertKxQ0(wmem, 0); //stale
+      images.add(wmem);
+      sketches.add(union.getResult(HLL_8));
+    }
+
+    for (int numStdDev = 1; numStdDev <= 3; numStdDev++) {
+      final double[][] fromImages = HllBulkEstimation.getEstimatesAndBounds(images, numStdDev, pool);
+      final double[][] fromSketches =
+          HllBulkEstimation.getSketchEstimatesAndBounds(sketches, numStdDev, pool);
+      for (int i = 0; i < images.size(); i++) {
+        final HllSketch sk = HllSketch.heapify(images.get(i));
+        assertEquals(fromImages[ESTIMATES][i], sk.getEstimate());
+        assertEquals(fromImages[LOWER_BOUNDS][i], sk.getLowerBound(numStdDev));
+        assertEquals(fromImages[UPPER_BOUNDS][i], sk.getUpperBound(numStdDev));
+        assertEquals(fromSketches[ESTIMATES][i], sketches.get(i).getEstimate());
+        assertEquals(fromSketches[LOWER_BOUNDS][i], sketches.get(i).getLowerBound(numStdDev));
+        assertEquals(fromSketches[UPPER_BOUNDS][i], sketches.get(i).getUpperBound(numStdDev));
+      }
+    }
+    final double[] est = HllBulkEstimation.getEstimates(images);
+    for (int i = 0; i < images.size(); i++) {
+      assertEquals(est[i], HllSketch.heapify(images.get(i)).getEstimate());
+    }
+  }
+
+  @Test
+  public void checkEmptyList() {
+    assertEquals(HllBulkEstimation.getEstimates(Collections.<Memory>emptyList()).length, 0);
+    final double[][] out =
+        HllBulkEstimation.getEstimatesAndBounds(Collections.<Memory>emptyList(), 2);
+    assertEquals(out.length, 3);
+    assertEquals(out[LOWER_BOUNDS].length, 0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBadNumStdDev() {
+    HllBulkEstimation.getEstimatesAndBounds(Collections.<Memory>emptyList(), 4);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void checkNullImages() {
+    HllBulkEstimation.getEstimates(null);
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void checkNullSketches() {
+    HllBulkEstimation.getSketchEstimatesAndBounds(null, 1, pool);
+  }
+
+}
@@ -312,33 +312,39 @@ public class UnionCaseTest {
     Union u = buildHeapUnion(12, 1 << 9);
     HllSketch sk = buildHeapSketch(12, HLL_8, 1 << 9);
 
-    u.update(sk);
-    assertTrue(u.isRebuildCurMinNumKxQFlag());
+    u.update(sk); //the merge rebuilds curMin, numAtCurMin and KxQ
+    assertFalse(u.isRebuildCurMinNumKxQFlag());
+    u.putRebuildCurMinNumKxQFlag(true); //as if deferred
     u.getCompositeEstimate();
     assertFalse(u.isRebuildCurMinNumKxQFlag());
 
-    u.update(sk);
-    assertTrue(u.isRebuildCurMinNumKxQFlag());
+    u.update(sk); //the merge rebuilds curMin, numAtCurMin and KxQ
+    assertFalse(u.isRebuildCurMinNumKxQFlag());
+    u.putRebuildCurMinNumKxQFlag(true); //as if deferred
     u.getLowerBound(2);
     assertFalse(u.isRebuildCurMinNumKxQFlag());
 
-    u.update(sk);
-    assertTrue(u.isRebuildCurMinNumKxQFlag());
+    u.update(sk); //the merge rebuilds curMin, numAtCurMin and KxQ
+    assertFalse(u.isRebuildCurMinNumKxQFlag());
+    u.putRebuildCurMinNumKxQFlag(true); //as if deferred
     u.getUpperBound(2);
     assertFalse(u.isRebuildCurMinNumKxQFlag());
 
-    u.update(sk);
-    assertTrue(u.isRebuildCurMinNumKxQFlag());
+    u.update(sk); //the merge rebuilds curMin, numAtCurMin and KxQ
+    assertFalse(u.isRebuildCurMinNumKxQFlag());
+    u.putRebuildCurMinNumKxQFlag(true); //as if deferred
     u.getResult();
     assertFalse(u.isRebuildCurMinNumKxQFlag());
 
-    u.update(sk);
-    assertTrue(u.isRebuildCurMinNumKxQFlag());
+    u.update(sk); //the merge rebuilds curMin, numAtCurMin and KxQ
+    assertFalse(u.isRebuildCurMinNumKxQFlag());
+    u.putRebuildCurMinNumKxQFlag(true); //as if deferred
     byte[] ba = u.toCompactByteArray();
     assertFalse(u.isRebuildCurMinNumKxQFlag());
 
-    u.update(sk);
-    assertTrue(u.isRebuildCurMinNumKxQFlag());
+    u.update(sk); //the merge rebuilds curMin, numAtCurMin and KxQ
+    assertFalse(u.isRebuildCurMinNumKxQFlag());
+    u.putRebuildCurMinNumKxQFlag(true); //as if deferred
     ba = u.toUpdatableByteArray();
     assertFalse(u.isRebuildCurMinNumKxQFlag());
 
@@ -448,10 +448,11 @@ public class UnionTest {
     WritableMemory wmem = WritableMemory.allocate(bytes);
     Union union1 = new Union(lgK, wmem); //Create original union off-heap
     union1.update(sk1);
-    union1.update(sk2); //oooFlag = Rebuild_KxQ = TRUE
+    union1.update(sk2); //oooFlag = TRUE, the merge rebuilds KxQ
     boolean rebuild = PreambleUtil.extractRebuildCurMinNumKxQFlag(wmem);
     double hipAccum = PreambleUtil.extractHipAccum(wmem);
-    assertTrue(rebuild);
+    assertFalse(rebuild);
+    PreambleUtil.insertRebuildCurMinNumKxQFlag(wmem, true); //as if the rebuild were deferred
     assertTrue(hipAccum == 0.0);
     //Heapify byteArr as if it were a sketch, but it is actually a union!
     HllSketch sk3 = HllSketch.heapify(wmem); //rebuilds sk3
@@ -474,7 +475,8 @@ public class UnionTest {
    }
    boolean rebuild = PreambleUtil.extractRebuildCurMinNumKxQFlag(wmem);
    double hipAccum = PreambleUtil.extractHipAccum(wmem);
-   assertTrue(rebuild);
+   assertFalse(rebuild); //the merge rebuilds KxQ
+   PreambleUtil.insertRebuildCurMinNumKxQFlag(wmem, true); //as if the rebuild were deferred
    assertTrue(hipAccum == 0.0);
    HllSketch result = Union.writableWrap(wmem).getResult(); //rebuilds result
    rebuild = result.hllSketchImpl.isRebuildCurMinNumKxQFlag();
@@ -486,6 +488,55 @@ public class UnionTest {
    assertTrue(err < rse3);
   }
 
+  @Test
+  public void checkUpdateFromMemoryMatchesHeapify() {
+    final TgtHllType[] types = {HLL_4, HLL_6, HLL_8};
+    final int[] lgKs = {4, 7, 10};
+    final int[] ns = {0, 5, 300, 100000};
+    final int lgMaxK = 10;
+    long v = 0;
+    for (TgtHllType type : types) {
+      for (int srcLgK : lgKs) {
+        for (int n : ns) {
+          final HllSketch src = new HllSketch(srcLgK, type);
+          for (int i = 0; i < n; i++) { src.update(v++); }
+          for (int compact = 0; compact < 2; compact++) {
+            final byte[] image = (compact == 1)
+                ? src.toCompactByteArray() : src.toUpdatableByteArray();
+            for (int gdtLgK : lgKs) {
+              for (int gdtN : new int[] {0, 50, 20000}) {
+                final HllSketch seed = new HllSketch(gdtLgK, HLL_8);
+                for (int i = 0; i < gdtN; i++) { seed.update(v++); }
+                for (int direct = 0; direct < 2; direct++) {
+                  final Union expected = newSeededUnion(lgMaxK, direct == 1, seed);
+                  final Union actual = newSeededUnion(lgMaxK, direct == 1, seed);
+                  expected.update(HllSketch.heapify(Memory.wrap(image)));
+                  actual.update(Memory.wrap(image));
+                  assertEquals(actual.toCompactByteArray(), expected.toCompactByteArray());
+                  assertEquals(actual.getResult(HLL_4).toCompactByteArray(),
+                      expected.getResult(HLL_4).toCompactByteArray());
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void checkUpdateFromNullMemory() {
+    newUnion(10).update((Memory) null);
+  }
+
+  private static Union newSeededUnion(int lgMaxK, boolean direct, HllSketch seed) {
+    final Union union = (direct)
+        ? new Union(lgMaxK, WritableMemory.allocate(Union.getMaxSerializationBytes(lgMaxK)))
+        : new Union(lgMaxK);
+    union.update(seed);
+    return union;
+  }
+
   private static HllSketch buildSketch(final int start, final int count) {
    HllSketch sketch = new HllSketch(10);
    for (int i = start; i < (start + count); i++) {
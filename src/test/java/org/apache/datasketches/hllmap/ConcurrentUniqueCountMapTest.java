@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hllmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
+import org.apache.datasketches.Util;
+
+public class ConcurrentUniqueCountMapTest {
+  private static final int NUM_KEYS = 3000;
+  private static final int NUM_THREADS = 4;
+
+  @Test
+  public void concurrentIngestMatchesSingleMap() throws Exception {
+    final ConcurrentUniqueCountMap cmap = new ConcurrentUniqueCountMap(16, 1000, 4);
+    final UniqueCountMap map = new UniqueCountMap(1000, 4);
+    final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < NUM_THREADS; t++) {
+        final int thread = t;
+        //the identifiers of each key arrive in the same order as for the single map
+        futures.add(executor.submit(() -> {
+          for (int k = thread; k < NUM_KEYS; k += NUM_THREADS) { update(cmap, null, k); }
+        }));
+      }
+      for (int k = 0; k < NUM_KEYS; k++) { update(null, map, k); }
+      for (Future<?> f : futures) { f.get(); }
+    } finally {
+      executor.shutdown();
+    }
+
+    final byte[] key = new byte[4];
+    for (int k = 0; k < NUM_KEYS; k++) {
+      Util.intToBytes(k, key);
+      Assert.assertEquals(cmap.getEstimate(key), map.getEstimate(key));
+      Assert.assertEquals(cmap.getUpperBound(key), map.getUpperBound(key));
+      Assert.assertEquals(cmap.getLowerBound(key), map.getLowerBound(key));
+    }
+    Assert.assertEquals(cmap.getActiveEntries(), map.getActiveEntries());
+    Assert.assertEquals(cmap.getKeyMemoryUsageBytes(), map.getKeyMemoryUsageBytes());
+    Assert.assertTrue(cmap.getMemoryUsageBytes() > cmap.getKeyMemoryUsageBytes());
+    Assert.assertTrue(cmap.getAverageSketchMemoryPerKey() > 0);
+    println(cmap.toString());
+  }
+
+  @Test
+  public void stripesArePopulatedEvenly() {
+    final ConcurrentUniqueCountMap cmap = new ConcurrentUniqueCountMap(8, 1000, 4);
+    final int[] counts = new int[cmap.getNumStripes()];
+    final byte[] key = new byte[4];
+    for (int k = 0; k < 8000; k++) {
+      counts[cmap.getStripeIndex(Util.intToBytes(k, key))]++;
+    }
+    for (int count : counts) { Assert.assertEquals(count, 1000, 150); }
+  }
+
+  @Test
+  public void nullKeyAndDefaults() {
+    final ConcurrentUniqueCountMap cmap = new ConcurrentUniqueCountMap(4);
+    Assert.assertTrue(cmap.getNumStripes() >= 4);
+    Assert.assertEquals(Integer.bitCount(cmap.getNumStripes()), 1);
+    Assert.assertTrue(Double.isNaN(cmap.update(null, null)));
+    Assert.assertTrue(Double.isNaN(cmap.getEstimate(null)));
+    Assert.assertTrue(Double.isNaN(cmap.getUpperBound(null)));
+    Assert.assertTrue(Double.isNaN(cmap.getLowerBound(null)));
+    Assert.assertEquals(cmap.getEstimate(new byte[4]), 0.0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void numStripesNotPowerOf2() {
+    new ConcurrentUniqueCountMap(12, 1000, 4);
+  }
+
+  @Test(expectedExceptions = SketchesStateException.class)
+  public void updateAfterClose() {
+    final ConcurrentUniqueCountMap cmap = new ConcurrentUniqueCountMap(2, 1000, 4);
+    cmap.close();
+    cmap.update(new byte[4], new byte[4]);
+  }
+
+  private static void update(final ConcurrentUniqueCountMap cmap, final UniqueCountMap map,
+      final int k) {
+    final byte[] key = Util.intToBytes(k, new byte[4]);
+    final byte[] id = new byte[8];
+    final int numIds = ((k % 97) == 0) ? 500 : k % 30;
+    for (int v = 0; v < numIds; v++) {
+      Util.longToBytes(((long) k << 32) + v, id);
+      if (cmap != null) { cmap.update(key, id); }
+      else { map.update(key, id); }
+    }
+  }
+
+  @Test
+  public void printlnTest() {
+    println("PRINTING: " + this.getClass().getName());
+  }
+
+  /**
+   * @param s value to print
+   */
+  static void println(String s) {
+    //System.out.println(s); //disable here
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.hllmap;
+
+import static org.apache.datasketches.hllmap.MapStorage.BYTES;
+import static org.apache.datasketches.hllmap.MapStorage.DOUBLES;
+import static org.apache.datasketches.hllmap.MapStorage.FLOATS;
+import static org.apache.datasketches.hllmap.MapStorage.LONGS;
+import static org.apache.datasketches.hllmap.MapStorage.SHORTS;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+public class MapStorageTest {
+  private static final int[] TYPES = {BYTES, SHORTS, FLOATS, DOUBLES, LONGS};
+  private static final long[] LENGTHS = {5, 3, 2, 2, 3};
+
+  @Test
+  public void heapAndDirectWriteTheSameSegment() {
+    MapStorage heap = new HeapMapStorage(TYPES, LENGTHS);
+    long segmentBytes = MapStorage.segmentBytes(TYPES, LENGTHS);
+    Assert.assertEquals(segmentBytes, 5 + 6 + 8 + 16 + 24);
+    MapStorage direct = new DirectMapStorage(TYPES, LENGTHS,
+        WritableMemory.allocate((int) segmentBytes), null);
+    for (MapStorage storage : new MapStorage[] {heap, direct}) {
+      fill(storage);
+      check(storage);
+    }
+    byte[] heapBytes = new byte[(int) segmentBytes];
+    byte[] directBytes = new byte[(int) segmentBytes];
+    heap.writeTo(WritableMemory.writableWrap(heapBytes), 0);
+    direct.writeTo(WritableMemory.writableWrap(directBytes), 0);
+    Assert.assertEquals(heapBytes, directBytes);
+
+    MapStorage restored = MapStorage.restore(TYPES, LENGTHS, Memory.wrap(heapBytes), null, 0, null);
+    Assert.assertTrue(restored instanceof HeapMapStorage);
+    check(restored);
+  }
+
+  @Test
+  public void copyBetweenHeapAndDirect() {
+    long segmentBytes = MapStorage.segmentBytes(TYPES, LENGTHS);
+    MapStorage[] sources = {new HeapMapStorage(TYPES, LENGTHS),
+        new DirectMapStorage(TYPES, LENGTHS, WritableMemory.allocate((int) segmentBytes), null)};
+    for (MapStorage src : sources) {
+      fill(src);
+      MapStorage[] targets = {new HeapMapStorage(TYPES, LENGTHS),
+          new DirectMapStorage(TYPES, LENGTHS, WritableMemory.allocate((int) segmentBytes), null)};
+      for (MapStorage dst : targets) {
+        for (int arr = 0; arr < TYPES.length; arr++) {
+          src.copyTo(arr, 0, dst, 0, LENGTHS[arr]);
+        }
+        check(dst);
+        dst.clear(SHORTS, 1, 2);
+        Assert.assertEquals(dst.getShort(SHORTS, 0), 1);
+        Assert.assertEquals(dst.getShort(SHORTS, 1), 0);
+        Assert.assertEquals(dst.getShort(SHORTS, 2), 0);
+      }
+    }
+  }
+
+  private static void fill(MapStorage storage) {
+    storage.putBytes(BYTES, 1, new byte[] {7, 8});
+    storage.setBit(BYTES, 33);
+    for (int i = 0; i < 3; i++) {
+      storage.putShort(SHORTS, i, (short) (i + 1));
+      storage.putLong(LONGS, i, -1L - i);
+    }
+    for (int i = 0; i < 2; i++) {
+      storage.putFloat(FLOATS, i, i + 0.5f);
+      storage.putDouble(DOUBLES, i, i + 0.25);
+    }
+  }
+
+  private static void check(MapStorage storage) {
+    Assert.assertTrue(storage.keyEquals(BYTES, 1, new byte[] {7, 8}));
+    Assert.assertFalse(storage.keyEquals(BYTES, 0, new byte[] {7, 8}));
+    byte[] key = new byte[2];
+    storage.getBytes(BYTES, 1, key);
+    Assert.assertEquals(key, new byte[] {7, 8});
+    Assert.assertTrue(storage.isBitSet(BYTES, 33));
+    Assert.assertTrue(storage.isBitClear(BYTES, 34));
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(storage.getShort(SHORTS, i), i + 1);
+      Assert.assertEquals(storage.getLong(LONGS, i), -1L - i);
+    }
+    for (int i = 0; i < 2; i++) {
+      Assert.assertEquals(storage.getFloat(FLOATS, i), i + 0.5f);
+      Assert.assertEquals(storage.getDouble(DOUBLES, i), i + 0.25);
+    }
+  }
+
+}
@@ -22,11 +22,21 @@ package org.apache.datasketches.hllmap;
 import static org.apache.datasketches.hash.MurmurHash3.hash;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.File;
+import java.nio.ByteOrder;
+import java.util.IdentityHashMap;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesStateException;
 import org.apache.datasketches.Util;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableHandle;
+import org.apache.datasketches.memory.WritableMapHandle;
+import org.apache.datasketches.memory.WritableMemory;
 
 public class UniqueCountMapTest {
   private final static int INIT_ENTRIES = 211;
@@ -182,6 +192,247 @@ public class UniqueCountMapTest {
   }
 
 
+  @Test
+  public void snapshotHeapifyAndWrap() {
+    UniqueCountMap map = buildAllLevels(4, 1, 400);
+    Assert.assertEquals(map.getActiveMaps(), 10);
+    byte[] bytes = map.toByteArray();
+    Assert.assertEquals(bytes.length, map.getSerializationBytes());
+
+    UniqueCountMap heapMap = UniqueCountMap.heapify(Memory.wrap(bytes));
+    UniqueCountMap wrapMap = UniqueCountMap.writableWrap(WritableMemory.writableWrap(bytes.clone()));
+    for (UniqueCountMap restored : new UniqueCountMap[] {heapMap, wrapMap}) {
+      Assert.assertEquals(restored.getActiveEntries(), map.getActiveEntries());
+      Assert.assertEquals(restored.getMemoryUsageBytes(), map.getMemoryUsageBytes());
+      assertSameEstimates(restored, map, 1, 400);
+      Assert.assertEquals(restored.toByteArray(), bytes);
+    }
+
+    //the restored maps keep working through resizes of every level
+    addKeys(map, 401, 2000);
+    addKeys(heapMap, 401, 2000);
+    addKeys(wrapMap, 401, 2000);
+    assertSameEstimates(heapMap, map, 1, 2000);
+    assertSameEstimates(wrapMap, map, 1, 2000);
+    Assert.assertEquals(wrapMap.toByteArray(), map.toByteArray());
+  }
+
+  @Test
+  public void snapshotOnlyBaseLevel() {
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, 8);
+    UniqueCountMap restored = UniqueCountMap.heapify(Memory.wrap(map.toByteArray()));
+    Assert.assertEquals(restored.getActiveMaps(), 1);
+    Assert.assertEquals(restored.getEstimate(new byte[8]), 0.0);
+  }
+
+  @Test
+  public void snapshotMemoryMappedFile() throws Exception {
+    UniqueCountMap map = buildAllLevels(8, 1, 300);
+    File file = File.createTempFile("uniqueCountMap", ".bin");
+    file.deleteOnExit();
+    long bytes = map.getSerializationBytes();
+    try (WritableMapHandle handle =
+        WritableMemory.writableMap(file, 0, bytes, ByteOrder.nativeOrder())) {
+      map.writeTo(handle.getWritable());
+    }
+    try (WritableMapHandle handle = WritableMemory.writableMap(file)) {
+      UniqueCountMap restored = UniqueCountMap.writableWrap(handle.getWritable());
+      assertSameEstimates(restored, map, 1, 300);
+      addKeys(map, 301, 600);
+      addKeys(restored, 301, 600);
+      assertSameEstimates(restored, map, 1, 600);
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void snapshotWrongSerVer() {
+    byte[] bytes = new UniqueCountMap(INIT_ENTRIES, 4).toByteArray();
+    bytes[0] = 9;
+    UniqueCountMap.heapify(Memory.wrap(bytes));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void snapshotTruncated() {
+    byte[] bytes = new UniqueCountMap(INIT_ENTRIES, 4).toByteArray();
+    byte[] truncated = new byte[bytes.length - 8];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+    UniqueCountMap.heapify(Memory.wrap(truncated));
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void snapshotDestinationTooSmall() {
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, 4);
+    map.writeTo(WritableMemory.allocate(16));
+  }
+
+  @Test
+  public void offHeapMatchesHeap() {
+    DirectMemoryRequestServer server = new DirectMemoryRequestServer();
+    UniqueCountMap heapMap = buildAllLevels(4, 1, 2000);
+    UniqueCountMap directMap = new UniqueCountMap(INIT_ENTRIES, 4, server);
+    addKeys(directMap, 1, 2000);
+    assertSameEstimates(directMap, heapMap, 1, 2000);
+    Assert.assertEquals(directMap.getMemoryUsageBytes(), heapMap.getMemoryUsageBytes());
+    Assert.assertEquals(directMap.toByteArray(), heapMap.toByteArray());
+    //replaced segments have been returned, one segment per level remains
+    Assert.assertEquals(server.handles.size(), directMap.getActiveMaps());
+    Assert.assertTrue(server.numRequests > server.handles.size());
+
+    directMap.close();
+    Assert.assertTrue(directMap.isClosed());
+    Assert.assertEquals(server.handles.size(), 0);
+    directMap.close(); //no effect
+  }
+
+  @Test
+  public void offHeapHeapify() {
+    DirectMemoryRequestServer server = new DirectMemoryRequestServer();
+    UniqueCountMap heapMap = buildAllLevels(4, 1, 400);
+    UniqueCountMap directMap = UniqueCountMap.heapify(Memory.wrap(heapMap.toByteArray()), server);
+    Assert.assertEquals(server.handles.size(), 10);
+    addKeys(heapMap, 401, 1000);
+    addKeys(directMap, 401, 1000);
+    assertSameEstimates(directMap, heapMap, 1, 1000);
+    directMap.close();
+    Assert.assertEquals(server.handles.size(), 0);
+  }
+
+  @Test
+  public void batchUpdateAndLookup() {
+    final int numPairs = 60000;
+    final int idSize = 12;
+    byte[] keys = new byte[numPairs * 4];
+    byte[] ids = new byte[numPairs * idSize];
+    byte[] key = new byte[4];
+    byte[] id = new byte[idSize];
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, 4);
+    for (int i = 0; i < numPairs; i++) {
+      //skewed keys: key k gets roughly 1/k of the pairs
+      int k = (int) (1000.0 / (1 + (i % 1000))) + (i % 300);
+      writeKey(k, key);
+      for (int b = 0; b < idSize; b++) { id[b] = (byte) ((i * 31) >>> ((b & 3) << 3)); }
+      System.arraycopy(key, 0, keys, i * 4, 4);
+      System.arraycopy(id, 0, ids, i * idSize, idSize);
+      map.update(key, id);
+    }
+    UniqueCountMap batchMap = new UniqueCountMap(INIT_ENTRIES, 4);
+    int done = 0;
+    while (done < numPairs) { //in blocks, as for log replay
+      int count = Math.min(7000, numPairs - done);
+      byte[] keyBlock = new byte[count * 4];
+      byte[] idBlock = new byte[(count * idSize) + 5]; //longer than required
+      System.arraycopy(keys, done * 4, keyBlock, 0, keyBlock.length);
+      System.arraycopy(ids, done * idSize, idBlock, 0, count * idSize);
+      batchMap.update(keyBlock, idBlock, idSize, count);
+      done += count;
+    }
+    Assert.assertTrue(batchMap.getActiveMaps() > 5);
+    Assert.assertEquals(batchMap.toByteArray(), map.toByteArray());
+
+    int numLookups = 1300; //includes keys not present
+    byte[] lookupKeys = new byte[numLookups * 4];
+    for (int k = 0; k < numLookups; k++) {
+      writeKey(k, key);
+      System.arraycopy(key, 0, lookupKeys, k * 4, 4);
+    }
+    double[] out = new double[numLookups];
+    batchMap.getEstimates(lookupKeys, out);
+    for (int k = 0; k < numLookups; k++) {
+      writeKey(k, key);
+      Assert.assertEquals(out[k], map.getEstimate(key));
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void batchUpdateShortIdentifiers() {
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, 4);
+    map.update(new byte[8], new byte[15], 8, 2);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void batchLookupPartialKey() {
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, 4);
+    map.getEstimates(new byte[10], new double[3]);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void batchLookupShortOut() {
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, 4);
+    map.getEstimates(new byte[12], new double[2]);
+  }
+
+  @Test(expectedExceptions = SketchesStateException.class)
+  public void updateAfterClose() {
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, 4);
+    map.close();
+    map.update(new byte[4], new byte[4]);
+  }
+
+  /**
+   * Allocates off-heap and keeps the handles so that every returned segment can be closed.
+   */
+  private static class DirectMemoryRequestServer implements MemoryRequestServer {
+    final IdentityHashMap<WritableMemory, WritableHandle> handles = new IdentityHashMap<>();
+    int numRequests = 0;
+
+    @Override
+    public WritableMemory request(WritableMemory currentWmem, long capacityBytes) {
+      WritableHandle handle =
+          WritableMemory.allocateDirect(capacityBytes, ByteOrder.nativeOrder(), this);
+      handles.put(handle.getWritable(), handle);
+      numRequests++;
+      return handle.getWritable();
+    }
+
+    @Override
+    public void requestClose(WritableMemory memToClose, WritableMemory newWmem) {
+      WritableHandle handle = handles.remove(memToClose);
+      Assert.assertNotNull(handle);
+      try {
+        handle.close();
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  //key k gets a number of identifiers that puts it at a level between 0 and the top HLL level
+  private static UniqueCountMap buildAllLevels(int keySizeBytes, int from, int to) {
+    UniqueCountMap map = new UniqueCountMap(INIT_ENTRIES, keySizeBytes);
+    addKeys(map, from, to);
+    return map;
+  }
+
+  private static void addKeys(UniqueCountMap map, int from, int to) {
+    byte[] key = new byte[keySize(map)];
+    byte[] id = new byte[8];
+    for (int k = from; k <= to; k++) {
+      writeKey(k, key);
+      int numIds = ((k % 20) == 0) ? 400 + k : (k % 40) * (k % 7);
+      for (int v = 0; v < numIds; v++) {
+        map.update(key, Util.longToBytes(((long) k << 32) + v, id));
+      }
+    }
+  }
+
+  private static void assertSameEstimates(UniqueCountMap actual, UniqueCountMap expected,
+      int from, int to) {
+    byte[] key = new byte[keySize(expected)];
+    for (int k = from; k <= to; k++) {
+      writeKey(k, key);
+      Assert.assertEquals(actual.getEstimate(key), expected.getEstimate(key));
+      Assert.assertEquals(actual.getUpperBound(key), expected.getUpperBound(key));
+      Assert.assertEquals(actual.getLowerBound(key), expected.getLowerBound(key));
+    }
+  }
+
+  private static int keySize(UniqueCountMap map) {
+    return map.getBaseMap().getKeySizeBytes();
+  }
+
+  private static void writeKey(int k, byte[] key) {
+    for (int i = 0; i < key.length; i++) { key[i] = (byte) (k >>> ((i & 3) << 3)); }
+  }
 
   @Test
   public void printlnTest() {
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.DefaultMemoryRequestServer;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+public class KllDirectLongsSketchTest {
+  private static final double PMF_EPS_FOR_K_256 = 0.013; // PMF rank error (epsilon) for k=256
+  private static final long BIG = 1L << 60;
+  private static final DefaultMemoryRequestServer memReqSvr = new DefaultMemoryRequestServer();
+
+  @Test
+  public void empty() {
+    final KllLongsSketch sketch = getDLSketch(200, 0);
+    assertTrue(sketch.isEmpty());
+    assertTrue(sketch.isMemoryUpdatableFormat());
+    assertEquals(sketch.getN(), 0);
+    assertEquals(sketch.getNumRetained(), 0);
+    assertTrue(Double.isNaN(sketch.getRank(0)));
+    assertNotNull(sketch.toString(true, true));
+    try { sketch.getMinValue(); fail(); } catch (SketchesArgumentException e) { }
+    try { sketch.getQuantile(0.5); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void newDirectInstanceGrowsMemory() {
+    final int k = 20;
+    final WritableMemory dstMem = WritableMemory.allocate(
+        KllSketch.getCurrentSerializedSizeBytes(1, k, KllSketch.SketchType.LONGS_SKETCH, true));
+    final KllLongsSketch sketch = KllLongsSketch.newDirectInstance(k, dstMem, memReqSvr);
+    final KllLongsSketch heap = KllLongsSketch.newHeapInstance(k);
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      sketch.update(BIG + i);
+      heap.update(BIG + i);
+    }
+    assertEquals(sketch.getN(), n);
+    assertFalse(sketch.isSameResource(dstMem)); //had to grow
+    assertEquals(sketch.getMinValue(), BIG);
+    assertEquals(sketch.getMaxValue(), BIG + n - 1);
+    assertEquals(sketch.getNumRetained(), heap.getNumRetained());
+    assertEquals(sketch.getQuantile(0.5) - BIG, n / 2, n * 0.1);
+    final KllLongsSketchIterator it = sketch.iterator();
+    long totalWeight = 0;
+    while (it.next()) {
+      assertTrue(it.getValue() >= BIG && it.getValue() < BIG + n);
+      totalWeight += it.getWeight();
+    }
+    assertEquals(totalWeight, n);
+  }
+
+  @Test
+  public void mergeIntoDirect() {
+    final KllLongsSketch sketch1 = getDLSketch(200, 0);
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance();
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(i);
+      sketch2.update((2 * n) - i - 1);
+    }
+    sketch1.merge(sketch2);
+    assertEquals(sketch1.getN(), 2L * n);
+    assertEquals(sketch1.getMinValue(), 0);
+    assertEquals(sketch1.getMaxValue(), (2 * n) - 1);
+    assertEquals(sketch1.getQuantile(0.5), n, n * PMF_EPS_FOR_K_256);
+  }
+
+  @Test
+  public void mergeCompactWrappedIntoHeap() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 1000; i++) { sk.update(-i); }
+    final KllLongsSketch compact = KllLongsSketch.wrap(Memory.wrap(sk.toByteArray()));
+    assertTrue(compact.isReadOnly());
+    final KllLongsSketch target = KllLongsSketch.newHeapInstance(20);
+    target.merge(compact);
+    assertEquals(target.getN(), 1000);
+    assertEquals(target.getMinValue(), -1000);
+    assertEquals(target.getMaxValue(), -1);
+    final KllLongsSketch single = KllLongsSketch.newHeapInstance(20);
+    single.update(BIG);
+    target.merge(KllLongsSketch.wrap(Memory.wrap(single.toByteArray())));
+    assertEquals(target.getMaxValue(), BIG);
+  }
+
+  @Test
+  public void serializeDeserializeViaUpdatableWritableWrap() {
+    final KllLongsSketch sketch1 = getDLSketch(200, 1000);
+    final byte[] bytes = KllHelper.toUpdatableByteArrayImpl(sketch1);
+    assertEquals(bytes.length, sketch1.getCurrentUpdatableSerializedSizeBytes());
+    final KllLongsSketch sketch2 =
+        KllLongsSketch.writableWrap(WritableMemory.writableWrap(bytes), memReqSvr);
+    assertEquals(sketch2.getN(), sketch1.getN());
+    assertEquals(sketch2.getMinValue(), 1);
+    assertEquals(sketch2.getMaxValue(), 1000);
+    assertEquals(sketch2.getQuantiles(11), sketch1.getQuantiles(11));
+    sketch2.update(BIG);
+    assertEquals(sketch2.getMaxValue(), BIG);
+    final KllLongsSketch sketch3 = KllLongsSketch.heapify(Memory.wrap(sketch2.toByteArray()));
+    assertEquals(sketch3.getMaxValue(), BIG);
+    assertEquals(sketch3.getN(), 1001);
+  }
+
+  @Test
+  public void emptyUpdatableImageKeepsSentinels() {
+    final KllLongsSketch sketch1 = getDLSketch(200, 0);
+    final byte[] bytes = KllHelper.toUpdatableByteArrayImpl(sketch1);
+    final KllLongsSketch sketch2 =
+        KllLongsSketch.writableWrap(WritableMemory.writableWrap(bytes), memReqSvr);
+    assertTrue(sketch2.isEmpty());
+    sketch2.update(5);
+    assertEquals(sketch2.getMinValue(), 5);
+    assertEquals(sketch2.getMaxValue(), 5);
+  }
+
+  @Test
+  public void reset() {
+    final KllLongsSketch sketch = getDLSketch(20, 1000);
+    sketch.reset();
+    assertTrue(sketch.isEmpty());
+    sketch.update(-3);
+    assertEquals(sketch.getMinValue(), -3);
+    assertEquals(sketch.getMaxValue(), -3);
+  }
+
+  @Test
+  public void checkReadOnlyUpdate() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    sk.update(1);
+    sk.update(2);
+    final KllLongsSketch compact = KllLongsSketch.wrap(Memory.wrap(sk.toByteArray()));
+    try { compact.update(3); fail(); } catch (SketchesArgumentException e) { }
+    try { compact.merge(sk); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkInheritanceArtifacts() {
+    final KllLongsSketch sk = getDLSketch(20, 10);
+    try { sk.getDoubleItemsArray();         fail(); } catch (SketchesArgumentException e) { }
+    try { sk.getFloatItemsArray();          fail(); } catch (SketchesArgumentException e) { }
+    try { sk.getMaxDoubleValue();           fail(); } catch (SketchesArgumentException e) { }
+    try { sk.getMinFloatValue();            fail(); } catch (SketchesArgumentException e) { }
+    try { sk.getDoubleSingleItem();         fail(); } catch (SketchesArgumentException e) { }
+    try { sk.setDoubleItemsArrayAt(0, 1.0); fail(); } catch (SketchesArgumentException e) { }
+    final KllDoublesSketch dsk = KllDoublesSketch.newHeapInstance(20);
+    try { dsk.getLongItemsArray();          fail(); } catch (SketchesArgumentException e) { }
+    try { dsk.getLongSingleItem();          fail(); } catch (SketchesArgumentException e) { }
+    try { dsk.setMaxLongValue(1);           fail(); } catch (SketchesArgumentException e) { }
+    final KllFloatsSketch fsk = KllFloatsSketch.newHeapInstance(20);
+    try { fsk.getMinLongValue();            fail(); } catch (SketchesArgumentException e) { }
+    try { fsk.setLongItemsArrayAt(0, 1);    fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  private static KllLongsSketch getDLSketch(final int k, final int n) {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(k);
+    for (int i = 1; i <= n; i++) { sk.update(i); }
+    final byte[] byteArr = KllHelper.toUpdatableByteArrayImpl(sk);
+    final WritableMemory wmem = WritableMemory.writableWrap(byteArr);
+    return KllLongsSketch.writableWrap(wmem, memReqSvr);
+  }
+
+}
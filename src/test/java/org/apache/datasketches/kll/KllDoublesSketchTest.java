@@ -26,6 +26,11 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.Memory;
@@ -448,4 +453,217 @@ public class KllDoublesSketchTest {
     assertTrue(compactSize < updateSize);
   }
 
+  @Test
+  public void bulkUpdate() {
+    final int n = 10_000;
+    final double[] values = new double[n + 2];
+    for (int i = 0; i < n; i++) { values[i + 1] = (i * 7919) % n; }
+    final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance();
+    sketch.update(values, 1, n);
+    assertEquals(sketch.getN(), n);
+    assertEquals(sketch.getMinValue(), 0.0);
+    assertEquals(sketch.getMaxValue(), n - 1.0);
+    assertTrue(sketch.getNumRetained() < n);
+    for (int i = 0; i < n; i += 500) {
+      assertEquals(sketch.getRank(i), i / (double) n, PMF_EPS_FOR_K_256);
+    }
+  }
+
+  @Test
+  public void bulkUpdateIgnoresNaN() {
+    final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance();
+    sketch.update(new double[] {Double.NaN, 3, Double.NaN, 1, 2}, 0, 5);
+    assertEquals(sketch.getN(), 3);
+    assertEquals(sketch.getMinValue(), 1.0);
+    assertEquals(sketch.getMaxValue(), 3.0);
+    sketch.update(new double[] {Double.NaN}, 0, 1);
+    assertEquals(sketch.getN(), 3);
+    sketch.update(new double[0], 0, 0);
+    assertEquals(sketch.getN(), 3);
+  }
+
+  @Test
+  public void bulkUpdateMatchesSingleUpdates() {
+    final int n = 3_000;
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) { values[i] = i; }
+    final KllDoublesSketch sk1 = KllDoublesSketch.newHeapInstance(20);
+    final KllDoublesSketch sk2 = KllDoublesSketch.newHeapInstance(20);
+    sk1.update(values, 0, n);
+    for (int i = 0; i < n; i++) { sk2.update(values[i]); }
+    assertEquals(sk1.getN(), sk2.getN());
+    assertEquals(sk1.getNumRetained(), sk2.getNumRetained());
+    assertEquals(sk1.getMinValue(), sk2.getMinValue());
+    assertEquals(sk1.getMaxValue(), sk2.getMaxValue());
+  }
+
+  @Test
+  public void updateSorted() {
+    final int n = 10_000;
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) { values[i] = i; }
+    final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance();
+    sketch.updateSorted(values, 0, sketch.getK());
+    assertTrue(sketch.isLevelZeroSorted());
+    sketch.updateSorted(values, sketch.getK(), n - sketch.getK());
+    assertEquals(sketch.getN(), n);
+    assertEquals(sketch.getMinValue(), 0.0);
+    assertEquals(sketch.getMaxValue(), n - 1.0);
+    for (int i = 0; i < n; i += 500) {
+      assertEquals(sketch.getRank(i), i / (double) n, PMF_EPS_FOR_K_256);
+    }
+    sketch.update(-1);
+    assertFalse(sketch.isLevelZeroSorted());
+    assertEquals(sketch.getMinValue(), -1.0);
+  }
+
+  @Test
+  public void updateSortedUnsortedInput() {
+    final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance();
+    try { sketch.updateSorted(new double[] {1, 3, 2}, 0, 3); fail(); }
+    catch (SketchesArgumentException e) { }
+    assertTrue(sketch.isEmpty());
+  }
+
+  @Test
+  public void bulkUpdateInvalidArgs() {
+    final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance();
+    try { sketch.update(null, 0, 0); fail(); } catch (NullPointerException e) { }
+    try { sketch.update(new double[4], 2, 3); fail(); } catch (SketchesArgumentException e) { }
+    try { sketch.updateSorted(new double[4], -1, 2); fail(); } catch (SketchesArgumentException e) { }
+    final KllDoublesSketch compact = KllDoublesSketch.wrap(Memory.wrap(sketch.toByteArray()));
+    try { compact.update(new double[1], 0, 1); fail(); } catch (SketchesArgumentException e) { }
+    try { compact.updateSorted(new double[1], 0, 1); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void bulkUpdateDirect() {
+    final int n = 10_000;
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) { values[i] = i; }
+    final WritableMemory wmem = WritableMemory.allocate(3000);
+    final KllDoublesSketch direct = KllDoublesSketch.newDirectInstance(wmem, memReqSvr);
+    final KllDoublesSketch heap = KllDoublesSketch.newHeapInstance();
+    direct.updateSorted(values, 0, n);
+    heap.updateSorted(values, 0, n);
+    assertEquals(direct.getN(), n);
+    assertEquals(direct.getNumRetained(), heap.getNumRetained());
+    assertEquals(direct.getMinValue(), 0.0);
+    assertEquals(direct.getMaxValue(), n - 1.0);
+    for (int i = 0; i < n; i += 500) {
+      assertEquals(direct.getRank(i), i / (double) n, PMF_EPS_FOR_K_256);
+    }
+    final KllDoublesSketch copy = KllDoublesSketch.heapify(Memory.wrap(direct.toByteArray()));
+    assertEquals(copy.getN(), n);
+    assertEquals(copy.getNumRetained(), direct.getNumRetained());
+  }
+
+  @Test
+  public void mergeAll() {
+    final int numSketches = 300;
+    final int n = 1000;
+    final List<KllDoublesSketch> sketches = new ArrayList<>();
+    for (int i = 0; i < numSketches; i++) {
+      final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance((i % 3) == 0 ? 400 : 200);
+      for (int j = 0; j < n; j++) { sketch.update((i * n) + j); }
+      sketches.add(sketch);
+    }
+    sketches.add(KllDoublesSketch.newHeapInstance());
+    final KllDoublesSketch single = KllDoublesSketch.newHeapInstance();
+    single.update(-1);
+    sketches.add(single);
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final KllDoublesSketch result = KllDoublesSketch.mergeAll(sketches, pool);
+      final long totalN = ((long) numSketches * n) + 1;
+      assertEquals(result.getN(), totalN);
+      assertEquals(result.getK(), 400);
+      assertEquals(result.getMinValue(), -1.0);
+      assertEquals(result.getMaxValue(), (double) ((numSketches * n) - 1));
+      assertEquals(result.getNormalizedRankError(false), single.getNormalizedRankError(false));
+      final double eps = result.getNormalizedRankError(false);
+      for (final double rank : new double[] {0.1, 0.5, 0.9}) {
+        assertEquals(result.getQuantile(rank), rank * totalN, 2 * eps * totalN);
+      }
+      assertTrue(result.getNumRetained() < (3 * 400 * 10));
+
+      final KllDoublesSketch commonPool = KllDoublesSketch.mergeAll(sketches);
+      assertEquals(commonPool.getN(), totalN);
+      assertTrue(KllDoublesSketch.mergeAll(new ArrayList<>(), pool).isEmpty());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void mergeAllMemory() {
+    final int k = 200;
+    final List<Memory> mems = new ArrayList<>();
+    long totalN = 0;
+    for (int i = 0; i < 50; i++) {
+      final int n = (i == 0) ? 1 : 500 * i;
+      if ((i % 2) == 0) { // compact image
+        final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance(k);
+        for (int j = 1; j <= n; j++) { sketch.update(totalN + j); }
+        mems.add(Memory.wrap(sketch.toByteArray()));
+      } else { // updatable image
+        final WritableMemory wmem = WritableMemory.allocate(KllDoublesSketch.getMaxSerializedSizeBytes(k, n, true));
+        final KllDoublesSketch sketch = KllDoublesSketch.newDirectInstance(k, wmem, new DefaultMemoryRequestServer());
+        for (int j = 1; j <= n; j++) { sketch.update(totalN + j); }
+        mems.add(wmem);
+      }
+      totalN += n;
+    }
+
+    final KllDoublesSketch result = KllDoublesSketch.mergeAllImages(mems);
+    assertEquals(result.getN(), totalN);
+    assertEquals(result.getMinValue(), 1.0);
+    assertEquals(result.getMaxValue(), (double) totalN);
+    final double eps = result.getNormalizedRankError(false);
+    assertEquals(result.getRank(totalN / 2.0), 0.5, 2 * eps);
+
+    final KllDoublesSketch empty = KllDoublesSketch.mergeAllImages(new ArrayList<>());
+    assertTrue(empty.isEmpty());
+    assertEquals(empty.getK(), KllSketch.DEFAULT_K);
+
+    final KllLongsSketch longs = KllLongsSketch.newHeapInstance(k);
+    for (int j = 1; j <= 1000; j++) { longs.update(j); }
+    mems.add(Memory.wrap(longs.toByteArray()));
+    try {
+      KllDoublesSketch.mergeAllImages(mems);
+      fail();
+    } catch (final SketchesArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void mergeAllWrongType() {
+    final List<KllSketch> sketches = new ArrayList<>();
+    sketches.add(KllDoublesSketch.newHeapInstance());
+    sketches.add(KllFloatsSketch.newHeapInstance());
+    KllDoublesSketch.mergeAll(sketches);
+  }
+
+  @Test
+  public void seededRandomIsDeterministic() {
+    final KllDoublesSketch sk1 = KllDoublesSketch.newHeapInstance(20);
+    final KllDoublesSketch sk2 = KllDoublesSketch.newHeapInstance(20);
+    sk1.setRandom(new Random(7));
+    sk2.setRandom(new Random(7));
+    final KllDoublesSketch other = KllDoublesSketch.newHeapInstance(20);
+    other.setRandom(new Random(11));
+    for (int i = 0; i < 10_000; i++) {
+      sk1.update(i);
+      sk2.update(i);
+      other.update(-i);
+    }
+    sk1.merge(other);
+    sk2.merge(other);
+    assertEquals(sk1.toByteArray(), sk2.toByteArray());
+    sk1.setRandom(null);
+    sk1.update(1);
+    assertEquals(sk1.getN(), sk2.getN() + 1);
+  }
 }
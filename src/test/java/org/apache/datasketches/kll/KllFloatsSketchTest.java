@@ -27,6 +27,9 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.Memory;
@@ -448,6 +451,49 @@ public class KllFloatsSketchTest {
     assertTrue(compactSize < updateSize);
   }
 
+  @Test
+  public void mergeAll() {
+    final int n = 1000;
+    final List<KllFloatsSketch> sketches = new ArrayList<>();
+    final List<Memory> mems = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final KllFloatsSketch sketch = KllFloatsSketch.newHeapInstance();
+      for (int j = 0; j < n; j++) { sketch.update((i * n) + j); }
+      sketches.add(sketch);
+      mems.add(Memory.wrap(sketch.toByteArray()));
+    }
+
+    final KllFloatsSketch result = KllFloatsSketch.mergeAll(sketches);
+    final KllFloatsSketch fromMems = KllFloatsSketch.mergeAllImages(mems);
+    final long totalN = 100L * n;
+    assertEquals(result.getN(), totalN);
+    assertEquals(fromMems.getN(), totalN);
+    assertEquals(result.getMinValue(), 0f);
+    assertEquals(fromMems.getMaxValue(), (float) (totalN - 1));
+    final double eps = result.getNormalizedRankError(false);
+    assertEquals(result.getQuantile(0.5), totalN / 2.0, 2 * eps * totalN);
+    assertEquals(fromMems.getQuantile(0.5), totalN / 2.0, 2 * eps * totalN);
+
+    final List<KllSketch> mixed = new ArrayList<>(sketches);
+    mixed.add(KllDoublesSketch.newHeapInstance());
+    try {
+      KllFloatsSketch.mergeAll(mixed);
+      fail();
+    } catch (final SketchesArgumentException e) {
+      // expected
+    }
+
+    final KllLongsSketch longs = KllLongsSketch.newHeapInstance();
+    for (int j = 0; j < n; j++) { longs.update(j); }
+    mems.add(Memory.wrap(longs.toByteArray()));
+    try {
+      KllFloatsSketch.mergeAllImages(mems);
+      fail();
+    } catch (final SketchesArgumentException e) {
+      // expected
+    }
+  }
+
   @SuppressWarnings("deprecation")
   @Test
   public void checkDeprecatedMethods() { //Floats requires this for historical reasons
@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import org.apache.datasketches.ArrayOfStringsSerDe;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+public class KllItemsSketchTest {
+  private static final double PMF_EPS_FOR_K_8 = 0.35; // PMF rank error (epsilon) for k=8
+  private static final double PMF_EPS_FOR_K_256 = 0.013; // PMF rank error (epsilon) for k=256
+  private static final Comparator<String> COMP = Comparator.naturalOrder();
+  private static final ArrayOfStringsSerDe SERDE = new ArrayOfStringsSerDe();
+
+  @Test
+  public void empty() {
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    assertTrue(sketch.isEmpty());
+    assertFalse(sketch.isEstimationMode());
+    assertEquals(sketch.getN(), 0);
+    assertEquals(sketch.getNumRetained(), 0);
+    assertNull(sketch.getMinValue());
+    assertNull(sketch.getMaxValue());
+    assertNull(sketch.getQuantile(0.5));
+    assertNull(sketch.getQuantiles(new double[] {0}));
+    assertNull(sketch.getQuantiles(3));
+    assertNull(sketch.getPMF(new String[] {"a"}));
+    assertNull(sketch.getCDF(new String[] {"a"}));
+    assertTrue(Double.isNaN(sketch.getRank("a")));
+    assertNotNull(sketch.toString(true, true));
+    assertNotNull(sketch.toString());
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void getQuantileInvalidArg() {
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    sketch.update("a");
+    sketch.getQuantile(1.1);
+  }
+
+  @Test
+  public void getPmfInvalidSplitPoints() {
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    sketch.update("a");
+    try { sketch.getPMF(new String[] {"b", "a"}); fail(); } catch (SketchesArgumentException e) { }
+    try { sketch.getCDF(new String[] {"a", "a"}); fail(); } catch (SketchesArgumentException e) { }
+    try { sketch.getCDF(new String[] {null}); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void invalidK() {
+    KllItemsSketch.newHeapInstance(KllSketch.DEFAULT_M - 1, COMP);
+  }
+
+  @Test
+  public void oneItem() {
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    sketch.update(null); //ignored
+    sketch.update("a");
+    assertEquals(sketch.getN(), 1);
+    assertEquals(sketch.getNumRetained(), 1);
+    assertEquals(sketch.getRank("a"), 0.0);
+    assertEquals(sketch.getRank("b"), 1.0);
+    assertEquals(sketch.getMinValue(), "a");
+    assertEquals(sketch.getMaxValue(), "a");
+    assertEquals(sketch.getQuantile(0.5), "a");
+  }
+
+  @Test
+  public void manyItemsExactMode() {
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    final int n = 100;
+    for (int i = 1; i <= n; i++) {
+      sketch.update(pad(i));
+    }
+    assertEquals(sketch.getN(), n);
+    assertFalse(sketch.isEstimationMode());
+    assertEquals(sketch.getMinValue(), pad(1));
+    assertEquals(sketch.getQuantile(0), pad(1));
+    assertEquals(sketch.getMaxValue(), pad(n));
+    assertEquals(sketch.getQuantile(1), pad(n));
+    assertEquals(sketch.getQuantile(0.5), pad(51));
+    final String[] q = sketch.getQuantiles(3);
+    assertEquals(q, new String[] {pad(1), pad(51), pad(n)});
+    for (int i = 1; i <= n; i++) {
+      assertEquals(sketch.getRank(pad(i)), (i - 1) / (double) n);
+    }
+    final double[] pmf = sketch.getPMF(new String[] {pad(n / 2 + 1)});
+    assertEquals(pmf.length, 2);
+    assertEquals(pmf[0], 0.5, PMF_EPS_FOR_K_256);
+    assertEquals(pmf[1], 0.5, PMF_EPS_FOR_K_256);
+    final double[] cdf = sketch.getCDF(new String[] {pad(n / 2 + 1)});
+    assertEquals(cdf[0], 0.5);
+    assertEquals(cdf[1], 1.0);
+  }
+
+  @Test
+  public void estimationModeMatchesDoublesStructure() {
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    final KllDoublesSketch dsk = KllDoublesSketch.newHeapInstance();
+    final int n = 1_000_000;
+    for (int i = 0; i < n; i++) {
+      sketch.update(pad(i));
+      dsk.update(i);
+    }
+    assertTrue(sketch.isEstimationMode());
+    assertEquals(sketch.getNumRetained(), dsk.getNumRetained());
+    assertEquals(sketch.getNumLevels(), dsk.getNumLevels());
+    assertEquals(sketch.getMinValue(), pad(0));
+    assertEquals(sketch.getMaxValue(), pad(n - 1));
+    for (int i = 0; i < n; i += n / 10) {
+      assertEquals(sketch.getRank(pad(i)), i / (double) n, PMF_EPS_FOR_K_256);
+      assertEquals(Integer.parseInt(sketch.getQuantile(i / (double) n)), i, n * PMF_EPS_FOR_K_256);
+    }
+    final KllItemsSketchIterator<String> it = sketch.iterator();
+    long totalWeight = 0;
+    while (it.next()) { totalWeight += it.getWeight(); }
+    assertEquals(totalWeight, n);
+    assertNotNull(sketch.toString(true, true));
+  }
+
+  @Test
+  public void sortedViewIsRebuiltAfterUpdate() {
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    sketch.update("b");
+    assertEquals(sketch.getRank("c"), 1.0);
+    sketch.update("d");
+    sketch.update("e");
+    sketch.update("f");
+    assertEquals(sketch.getRank("c"), 0.25);
+    assertEquals(sketch.getQuantile(0.9), "f");
+    final KllItemsSketch<String> other = KllItemsSketch.newHeapInstance(COMP);
+    other.update("a");
+    sketch.merge(other);
+    assertEquals(sketch.getRank("c"), 0.4);
+    sketch.reset();
+    assertTrue(Double.isNaN(sketch.getRank("c")));
+  }
+
+  @Test
+  public void mergeLowerK() {
+    final KllItemsSketch<String> sketch1 = KllItemsSketch.newHeapInstance(256, COMP);
+    final KllItemsSketch<String> sketch2 = KllItemsSketch.newHeapInstance(128, COMP);
+    final int n = 10000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(pad(i));
+      sketch2.update(pad((2 * n) - i - 1));
+    }
+    assertEquals(sketch1.getNormalizedRankError(false), KllItemsSketch.getNormalizedRankError(256, false));
+    sketch1.merge(sketch2);
+    assertFalse(sketch1.isEmpty());
+    assertEquals(sketch1.getN(), 2L * n);
+    assertEquals(sketch1.getMinK(), 128);
+    assertEquals(sketch1.getMinValue(), pad(0));
+    assertEquals(sketch1.getMaxValue(), pad((2 * n) - 1));
+    assertEquals(Integer.parseInt(sketch1.getQuantile(0.5)), n, n * PMF_EPS_FOR_K_8);
+    assertEquals(sketch1.getRank(pad(n)), 0.5, PMF_EPS_FOR_K_8);
+  }
+
+  @Test
+  public void mergeIntoEmptyAndWithEmpty() {
+    final KllItemsSketch<String> sketch1 = KllItemsSketch.newHeapInstance(COMP);
+    final KllItemsSketch<String> sketch2 = KllItemsSketch.newHeapInstance(COMP);
+    final int n = 10000;
+    for (int i = 0; i < n; i++) {
+      sketch2.update(pad(i));
+    }
+    sketch2.merge(sketch1); //empty
+    assertEquals(sketch2.getN(), n);
+    sketch1.merge(sketch2);
+    assertEquals(sketch1.getN(), n);
+    assertEquals(sketch1.getMinValue(), pad(0));
+    assertEquals(sketch1.getMaxValue(), pad(n - 1));
+    assertEquals(sketch1.getNumRetained(), sketch2.getNumRetained());
+    assertEquals(Integer.parseInt(sketch1.getQuantile(0.5)), n / 2, n * PMF_EPS_FOR_K_256);
+  }
+
+  @Test
+  public void serializeDeserializeEmpty() {
+    final KllItemsSketch<String> sketch1 = KllItemsSketch.newHeapInstance(COMP);
+    final byte[] bytes = sketch1.toByteArray(SERDE);
+    assertEquals(bytes.length, KllPreambleUtil.N_LONG_ADR);
+    final KllItemsSketch<String> sketch2 = KllItemsSketch.heapify(Memory.wrap(bytes), COMP, SERDE);
+    assertTrue(sketch2.isEmpty());
+    assertEquals(sketch2.getK(), sketch1.getK());
+  }
+
+  @Test
+  public void serializeDeserializeOneItem() {
+    final KllItemsSketch<String> sketch1 = KllItemsSketch.newHeapInstance(COMP);
+    sketch1.update("abc");
+    final byte[] bytes = sketch1.toByteArray(SERDE);
+    final KllItemsSketch<String> sketch2 = KllItemsSketch.heapify(Memory.wrap(bytes), COMP, SERDE);
+    assertEquals(sketch2.getN(), 1);
+    assertEquals(sketch2.getMinValue(), "abc");
+    assertEquals(sketch2.getMaxValue(), "abc");
+    assertEquals(sketch2.toByteArray(SERDE), bytes);
+  }
+
+  @Test
+  public void serializeDeserialize() {
+    final KllItemsSketch<String> sketch1 = KllItemsSketch.newHeapInstance(COMP);
+    final int n = 1000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(pad(i));
+    }
+    final byte[] bytes = sketch1.toByteArray(SERDE);
+    final KllItemsSketch<String> sketch2 = KllItemsSketch.heapify(Memory.wrap(bytes), COMP, SERDE);
+    assertEquals(sketch2.toByteArray(SERDE), bytes);
+    assertEquals(sketch2.getN(), sketch1.getN());
+    assertEquals(sketch2.getMinK(), sketch1.getMinK());
+    assertEquals(sketch2.getNumRetained(), sketch1.getNumRetained());
+    assertEquals(sketch2.getMinValue(), sketch1.getMinValue());
+    assertEquals(sketch2.getMaxValue(), sketch1.getMaxValue());
+    assertEquals(sketch2.getQuantiles(11), sketch1.getQuantiles(11));
+    sketch2.update(pad(n));
+    assertEquals(sketch2.getMaxValue(), pad(n));
+  }
+
+  @Test
+  public void checkWrongSketchType() {
+    final KllDoublesSketch dsk = KllDoublesSketch.newHeapInstance();
+    dsk.update(1);
+    try {
+      KllItemsSketch.heapify(Memory.wrap(dsk.toByteArray()), COMP, SERDE);
+      fail();
+    } catch (SketchesArgumentException e) { }
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(COMP);
+    for (int i = 0; i < 100; i++) { sketch.update(pad(i)); }
+    final Memory mem = Memory.wrap(sketch.toByteArray(SERDE));
+    try { KllFloatsSketch.heapify(mem); fail(); } catch (SketchesArgumentException e) { }
+    try { KllFloatsSketch.wrap(mem); fail(); } catch (SketchesArgumentException e) { }
+    try { KllDoublesSketch.heapify(mem); fail(); } catch (SketchesArgumentException e) { }
+    try { KllLongsSketch.heapify(mem); fail(); } catch (SketchesArgumentException e) { }
+    assertNotNull(KllPreambleUtil.toString(mem, true));
+  }
+
+  private static String pad(final int i) {
+    return String.format("%08d", i);
+  }
+
+  @Test
+  public void seededRandomIsDeterministic() {
+    final KllItemsSketch<String> sk1 = KllItemsSketch.newHeapInstance(20, Comparator.naturalOrder());
+    final KllItemsSketch<String> sk2 = KllItemsSketch.newHeapInstance(20, Comparator.naturalOrder());
+    sk1.setRandom(new Random(7));
+    sk2.setRandom(new Random(7));
+    for (int i = 0; i < 10_000; i++) {
+      sk1.update(pad(i));
+      sk2.update(pad(i));
+    }
+    final ArrayOfStringsSerDe serDe = new ArrayOfStringsSerDe();
+    assertEquals(sk1.toByteArray(serDe), sk2.toByteArray(serDe));
+  }
+}
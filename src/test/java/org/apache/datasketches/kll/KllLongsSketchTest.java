@@ -0,0 +1,389 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+public class KllLongsSketchTest {
+  private static final double PMF_EPS_FOR_K_8 = 0.35; // PMF rank error (epsilon) for k=8
+  private static final double PMF_EPS_FOR_K_256 = 0.013; // PMF rank error (epsilon) for k=256
+  private static final long BIG = 1L << 60; // far above 2^53, where doubles lose integer precision
+
+  @Test
+  public void empty() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    assertTrue(sketch.isEmpty());
+    assertEquals(sketch.getN(), 0);
+    assertEquals(sketch.getNumRetained(), 0);
+    assertTrue(Double.isNaN(sketch.getRank(0)));
+    assertNull(sketch.getQuantiles(new double[] {0}));
+    assertNull(sketch.getQuantiles(3));
+    assertNull(sketch.getPMF(new long[] {0}));
+    assertNull(sketch.getCDF(new long[] {0}));
+    assertNotNull(sketch.toString(true, true));
+    assertNotNull(sketch.toString());
+    try { sketch.getMinValue(); fail(); } catch (SketchesArgumentException e) { }
+    try { sketch.getMaxValue(); fail(); } catch (SketchesArgumentException e) { }
+    try { sketch.getQuantile(0.5); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void getQuantileInvalidArg() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    sketch.update(1);
+    sketch.getQuantile(-1.0);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void getPmfInvalidSplitPoints() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    sketch.update(1);
+    sketch.getPMF(new long[] {2, 2});
+  }
+
+  @Test
+  public void oneItem() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    sketch.update(Long.MIN_VALUE);
+    assertFalse(sketch.isEmpty());
+    assertEquals(sketch.getN(), 1);
+    assertEquals(sketch.getNumRetained(), 1);
+    assertEquals(sketch.getRank(Long.MIN_VALUE), 0.0);
+    assertEquals(sketch.getRank(0), 1.0);
+    assertEquals(sketch.getMinValue(), Long.MIN_VALUE);
+    assertEquals(sketch.getMaxValue(), Long.MIN_VALUE);
+    assertEquals(sketch.getQuantile(0.5), Long.MIN_VALUE);
+  }
+
+  @Test
+  public void extremeValues() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    sketch.update(Long.MAX_VALUE);
+    assertEquals(sketch.getMinValue(), Long.MAX_VALUE);
+    assertEquals(sketch.getMaxValue(), Long.MAX_VALUE);
+    sketch.update(Long.MIN_VALUE);
+    assertEquals(sketch.getMinValue(), Long.MIN_VALUE);
+    assertEquals(sketch.getMaxValue(), Long.MAX_VALUE);
+  }
+
+  @Test
+  public void manyItemsEstimationMode() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    final int n = 1_000_000;
+    for (int i = 0; i < n; i++) {
+      sketch.update(i);
+    }
+    assertEquals(sketch.getN(), n);
+    assertTrue(sketch.isEstimationMode());
+
+    for (int i = 0; i < n; i += 1000) {
+      assertEquals(sketch.getRank(i), (double) i / n, PMF_EPS_FOR_K_256, "for value " + i);
+    }
+    final double[] pmf = sketch.getPMF(new long[] {n / 2}); // split at median
+    assertEquals(pmf.length, 2);
+    assertEquals(pmf[0], 0.5, PMF_EPS_FOR_K_256);
+    assertEquals(pmf[1], 0.5, PMF_EPS_FOR_K_256);
+
+    assertEquals(sketch.getMinValue(), 0); // min value is exact
+    assertEquals(sketch.getQuantile(0), 0);
+    assertEquals(sketch.getMaxValue(), n - 1); // max value is exact
+    assertEquals(sketch.getQuantile(1), n - 1);
+
+    final double[] fractions = new double[1001];
+    final double[] reverseFractions = new double[1001]; // check that ordering doesn't matter
+    for (int i = 0; i <= 1000; i++) {
+      fractions[i] = (double) i / 1000;
+      reverseFractions[1000 - i] = fractions[i];
+    }
+    final long[] quantiles = sketch.getQuantiles(fractions);
+    final long[] reverseQuantiles = sketch.getQuantiles(reverseFractions);
+    long previousQuantile = 0;
+    for (int i = 0; i <= 1000; i++) {
+      final long quantile = sketch.getQuantile(fractions[i]);
+      assertEquals(quantile, quantiles[i]);
+      assertEquals(quantile, reverseQuantiles[1000 - i]);
+      assertTrue(previousQuantile <= quantile);
+      previousQuantile = quantile;
+    }
+  }
+
+  @Test
+  public void quantilesAreExactStreamValuesAboveTwoToThe53() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance(50);
+    final HashSet<Long> values = new HashSet<>();
+    for (int i = 0; i < 100_000; i++) {
+      final long v = BIG + i; // adjacent values that a double cannot distinguish
+      values.add(v);
+      sketch.update(v);
+    }
+    assertEquals(sketch.getMinValue(), BIG);
+    assertEquals(sketch.getMaxValue(), BIG + 99_999);
+    for (final long q : sketch.getQuantiles(101)) {
+      assertTrue(values.contains(q), "not a stream value: " + q);
+    }
+    final KllLongsSketchIterator it = sketch.iterator();
+    long totalWeight = 0;
+    while (it.next()) {
+      assertTrue(values.contains(it.getValue()));
+      totalWeight += it.getWeight();
+    }
+    assertEquals(totalWeight, sketch.getN());
+    assertEquals(sketch.getQuantile(0.5) - BIG, 50_000, 100_000 * PMF_EPS_FOR_K_8);
+    assertEquals(sketch.getRank(BIG + 50_000), 0.5, PMF_EPS_FOR_K_8);
+  }
+
+  @Test
+  public void getRankGetCdfGetPmfConsistency() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    final int n = 1000;
+    final long[] values = new long[n];
+    for (int i = 0; i < n; i++) {
+      sketch.update(i);
+      values[i] = i;
+    }
+    final double[] ranks = sketch.getCDF(values);
+    final double[] pmf = sketch.getPMF(values);
+    double sumPmf = 0;
+    for (int i = 0; i < n; i++) {
+      assertEquals(ranks[i], sketch.getRank(values[i]), 1E-6);
+      sumPmf += pmf[i];
+      assertEquals(ranks[i], sumPmf, 1E-6);
+    }
+    sumPmf += pmf[n];
+    assertEquals(sumPmf, 1.0, 1E-6);
+    assertEquals(ranks[n], 1.0, 1E-6);
+  }
+
+  @Test
+  public void merge() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance();
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance();
+    final int n = 10000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(BIG + i);
+      sketch2.update(BIG + (2 * n) - i - 1);
+    }
+    assertEquals(sketch1.getMinValue(), BIG);
+    assertEquals(sketch1.getMaxValue(), BIG + n - 1);
+    assertEquals(sketch2.getMinValue(), BIG + n);
+    assertEquals(sketch2.getMaxValue(), BIG + (2 * n) - 1);
+
+    sketch1.merge(sketch2);
+
+    assertFalse(sketch1.isEmpty());
+    assertEquals(sketch1.getN(), 2L * n);
+    assertEquals(sketch1.getMinValue(), BIG);
+    assertEquals(sketch1.getMaxValue(), BIG + (2 * n) - 1);
+    assertEquals(sketch1.getQuantile(0.5) - BIG, n, n * PMF_EPS_FOR_K_256);
+  }
+
+  @Test
+  public void mergeLowerK() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance(256);
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance(128);
+    final int n = 10000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(i);
+      sketch2.update((2 * n) - i - 1);
+    }
+    assertTrue(sketch1.getNormalizedRankError(false) < sketch2.getNormalizedRankError(false));
+    sketch1.merge(sketch2);
+    // sketch1 must get "contaminated" by the lower K in sketch2
+    assertEquals(sketch1.getNormalizedRankError(false), sketch2.getNormalizedRankError(false));
+    assertEquals(sketch1.getN(), 2 * n);
+    assertEquals(sketch1.getMinValue(), 0);
+    assertEquals(sketch1.getMaxValue(), (2 * n) - 1);
+  }
+
+  @Test
+  public void mergeEmpty() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance();
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance();
+    sketch1.merge(sketch2);
+    assertTrue(sketch1.isEmpty());
+    sketch2.update(-5);
+    sketch2.update(7);
+    sketch1.merge(sketch2);
+    assertEquals(sketch1.getN(), 2);
+    assertEquals(sketch1.getMinValue(), -5);
+    assertEquals(sketch1.getMaxValue(), 7);
+    sketch2.merge(KllLongsSketch.newHeapInstance());
+    assertEquals(sketch2.getN(), 2);
+  }
+
+  @Test
+  public void mergeWrongType() {
+    final KllLongsSketch lsk = KllLongsSketch.newHeapInstance(20);
+    final KllDoublesSketch dsk = KllDoublesSketch.newHeapInstance(20);
+    final KllFloatsSketch fsk = KllFloatsSketch.newHeapInstance(20);
+    try { lsk.merge(dsk); fail(); } catch (SketchesArgumentException e) { }
+    try { lsk.merge(fsk); fail(); } catch (SketchesArgumentException e) { }
+    try { dsk.merge(lsk); fail(); } catch (SketchesArgumentException e) { }
+    try { fsk.merge(lsk); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void wrapWrongType() {
+    final KllLongsSketch lsk = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 1000; i++) { lsk.update(i); }
+    for (final byte[] bytes : new byte[][] {lsk.toByteArray(), KllHelper.toUpdatableByteArrayImpl(lsk)}) {
+      try { KllDoublesSketch.wrap(Memory.wrap(bytes)); fail(); } catch (SketchesArgumentException e) { }
+      try { KllDoublesSketch.writableWrap(WritableMemory.writableWrap(bytes), null); fail(); }
+      catch (SketchesArgumentException e) { }
+      try { KllFloatsSketch.wrap(Memory.wrap(bytes)); fail(); } catch (SketchesArgumentException e) { }
+      try { KllFloatsSketch.writableWrap(WritableMemory.writableWrap(bytes), null); fail(); }
+      catch (SketchesArgumentException e) { }
+    }
+  }
+
+  @Test
+  public void reset() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 1000; i++) { sketch.update(i); }
+    sketch.reset();
+    assertTrue(sketch.isEmpty());
+    assertEquals(sketch.getNumRetained(), 0);
+    sketch.update(3);
+    assertEquals(sketch.getMinValue(), 3);
+    assertEquals(sketch.getMaxValue(), 3);
+  }
+
+  @Test
+  public void serializeDeserializeEmpty() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance();
+    final byte[] bytes = sketch1.toByteArray();
+    assertEquals(bytes.length, sketch1.getCurrentCompactSerializedSizeBytes());
+    final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(bytes));
+    assertTrue(sketch2.isEmpty());
+    assertEquals(sketch2.getNumRetained(), 0);
+    sketch2.update(1);
+    assertEquals(sketch2.getMinValue(), 1);
+    assertTrue(KllLongsSketch.wrap(Memory.wrap(bytes)).isEmpty());
+  }
+
+  @Test
+  public void serializeDeserializeOneItem() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance();
+    sketch1.update(BIG + 1);
+    final byte[] bytes = sketch1.toByteArray();
+    assertEquals(bytes.length, sketch1.getCurrentCompactSerializedSizeBytes());
+    assertEquals(bytes.length, 8 + Long.BYTES);
+    final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(bytes));
+    assertEquals(sketch2.getN(), 1);
+    assertEquals(sketch2.getMinValue(), BIG + 1);
+    assertEquals(sketch2.getMaxValue(), BIG + 1);
+    final KllLongsSketch sketch3 = KllLongsSketch.wrap(Memory.wrap(bytes));
+    assertEquals(sketch3.getQuantile(0.5), BIG + 1);
+    assertEquals(sketch3.toByteArray(), bytes);
+  }
+
+  @Test
+  public void serializeDeserialize() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance();
+    final int n = 1000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(BIG + i);
+    }
+    final byte[] bytes = sketch1.toByteArray();
+    assertEquals(bytes.length, sketch1.getCurrentCompactSerializedSizeBytes());
+    final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(bytes));
+    assertEquals(sketch2.toByteArray(), bytes);
+    final KllLongsSketch sketch3 = KllLongsSketch.wrap(Memory.wrap(bytes));
+    for (final KllLongsSketch sk : new KllLongsSketch[] {sketch2, sketch3}) {
+      assertEquals(sk.getNumRetained(), sketch1.getNumRetained());
+      assertEquals(sk.getN(), sketch1.getN());
+      assertEquals(sk.getMinValue(), sketch1.getMinValue());
+      assertEquals(sk.getMaxValue(), sketch1.getMaxValue());
+      assertEquals(sk.getQuantiles(11), sketch1.getQuantiles(11));
+      assertEquals(sk.getCurrentCompactSerializedSizeBytes(), sketch1.getCurrentCompactSerializedSizeBytes());
+    }
+  }
+
+  @Test
+  public void serializedSizeMatchesDoubles() {
+    final KllLongsSketch lsk = KllLongsSketch.newHeapInstance(20);
+    final KllDoublesSketch dsk = KllDoublesSketch.newHeapInstance(20);
+    for (int i = 1; i <= 1000; i++) { lsk.update(i); dsk.update(i); }
+    assertEquals(lsk.getCurrentCompactSerializedSizeBytes(), dsk.getCurrentCompactSerializedSizeBytes());
+    assertEquals(lsk.getCurrentUpdatableSerializedSizeBytes(), dsk.getCurrentUpdatableSerializedSizeBytes());
+    assertEquals(KllLongsSketch.getMaxSerializedSizeBytes(200, 1L << 30, false),
+        KllDoublesSketch.getMaxSerializedSizeBytes(200, 1L << 30, false));
+  }
+
+  @Test
+  public void checkTypeFlags() {
+    final KllLongsSketch lsk = KllLongsSketch.newHeapInstance(20);
+    final KllDoublesSketch dsk = KllDoublesSketch.newHeapInstance(20);
+    final KllFloatsSketch fsk = KllFloatsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 100; i++) { lsk.update(i); dsk.update(i); fsk.update(i); }
+    final Memory lmem = Memory.wrap(lsk.toByteArray());
+    assertTrue(KllPreambleUtil.getMemoryLongSketchFlag(lmem));
+    assertFalse(KllPreambleUtil.getMemoryDoubleSketchFlag(lmem));
+    try { KllDoublesSketch.heapify(lmem); fail(); } catch (SketchesArgumentException e) { }
+    try { KllFloatsSketch.heapify(lmem); fail(); } catch (SketchesArgumentException e) { }
+    try { KllLongsSketch.heapify(Memory.wrap(dsk.toByteArray())); fail(); } catch (SketchesArgumentException e) { }
+    try { KllLongsSketch.heapify(Memory.wrap(fsk.toByteArray())); fail(); } catch (SketchesArgumentException e) { }
+    try { KllLongsSketch.wrap(Memory.wrap(dsk.toByteArray())); fail(); } catch (SketchesArgumentException e) { }
+    final String s = KllPreambleUtil.toString(lsk.toByteArray(), true);
+    assertTrue(s.contains("LONGS_SKETCH       : true"));
+  }
+
+  @Test
+  public void checkBothTypeFlagsInvalid() {
+    final KllLongsSketch lsk = KllLongsSketch.newHeapInstance(20);
+    lsk.update(1);
+    final byte[] bytes = lsk.toByteArray();
+    bytes[KllPreambleUtil.FLAGS_BYTE_ADR] |= KllPreambleUtil.DOUBLES_SKETCH_BIT_MASK;
+    try { KllLongsSketch.heapify(Memory.wrap(bytes)); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkSimpleMergeRandom() {
+    final Random rand = new Random(1);
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance(20);
+    final long[] values = new long[5000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = rand.nextLong();
+      final KllLongsSketch single = KllLongsSketch.newHeapInstance(20);
+      single.update(values[i]);
+      sketch.merge(single);
+    }
+    Arrays.sort(values);
+    assertEquals(sketch.getN(), values.length);
+    assertEquals(sketch.getMinValue(), values[0]);
+    assertEquals(sketch.getMaxValue(), values[values.length - 1]);
+    assertTrue(Arrays.binarySearch(values, sketch.getQuantile(0.5)) >= 0);
+  }
+
+}
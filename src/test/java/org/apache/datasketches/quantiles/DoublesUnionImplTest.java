@@ -27,12 +27,16 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableMemory;
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.SketchesReadOnlyException;
 
 public class DoublesUnionImplTest {
 
@@ -717,6 +721,75 @@ public class DoublesUnionImplTest {
     Assert.assertTrue(union2.isEmpty());
   }
 
+  @Test
+  public void bulkUpdateMemoryImages() {
+    final int k = 128;
+    final List<Memory> mems = new ArrayList<>();
+    long totalN = 0;
+    int startV = 0;
+    for (int i = 0; i < 40; i++) {
+      final int n = (i % 5) == 0 ? 100 : 1000 + (37 * i);
+      final int skK = (i % 7) == 0 ? 2 * k : k;
+      final UpdateDoublesSketch sk = buildAndLoadQS(skK, n, startV);
+      mems.add(Memory.wrap((i % 2) == 0 ? sk.toByteArray(true) : sk.toByteArray()));
+      startV += n;
+      totalN += n;
+    }
+    mems.add(Memory.wrap(DoublesSketch.builder().setK(k).build().toByteArray()));
+    mems.add(null);
+
+    final DoublesUnion bulk = DoublesUnion.builder().setMaxK(k).build();
+    bulk.update(mems);
+    final DoublesUnion seq = DoublesUnion.builder().setMaxK(k).build();
+    for (final Memory mem : mems) {
+      if (mem != null) { seq.update(mem); }
+    }
+
+    final DoublesSketch result = bulk.getResult();
+    assertEquals(result.getN(), totalN);
+    assertEquals(result.getK(), k);
+    assertEquals(result.getRetainedItems(), seq.getResult().getRetainedItems());
+    assertEquals(result.getMinValue(), 1.0);
+    assertEquals(result.getMaxValue(), (double) totalN);
+    final double eps = result.getNormalizedRankError(false);
+    assertEquals(result.getQuantile(0.5), totalN / 2.0, 3 * eps * totalN);
+
+    // direct union, with room for the result
+    final int bytes = DoublesSketch.getUpdatableStorageBytes(k, totalN);
+    final DoublesUnion direct = DoublesUnion.builder().setMaxK(k).build(WritableMemory.allocate(bytes));
+    direct.update(mems.subList(0, 20));
+    direct.update(mems.subList(20, mems.size()));
+    assertTrue(direct.isDirect());
+    assertEquals(direct.getResult().getN(), totalN);
+    assertEquals(direct.getResult().getMaxValue(), (double) totalN);
+  }
+
+  @Test
+  public void bulkUpdateReducesEffectiveK() {
+    final DoublesUnion union = DoublesUnion.builder().setMaxK(256).build();
+    union.update(buildAndLoadQS(256, 5000));
+    final List<Memory> mems = new ArrayList<>();
+    mems.add(Memory.wrap(buildAndLoadQS(64, 100, 5000).toByteArray())); // exact, k kept
+    mems.add(Memory.wrap(buildAndLoadQS(128, 1000, 5100).toByteArray(true)));
+    mems.add(Memory.wrap(buildAndLoadQS(128, 1000, 6100).toByteArray()));
+    union.update(mems);
+    assertEquals(union.getEffectiveK(), 128);
+    assertEquals(union.getResult().getN(), 7100);
+    assertEquals(union.getResult().getMaxValue(), 7100.0);
+
+    final DoublesUnion empty = DoublesUnion.builder().setMaxK(128).build();
+    empty.update(new ArrayList<Memory>());
+    assertTrue(empty.isEmpty());
+  }
+
+  @Test(expectedExceptions = SketchesReadOnlyException.class)
+  public void bulkUpdateReadOnlyUnion() {
+    final DoublesUnion union = DoublesUnion.builder().setMaxK(128).build();
+    union.update(buildAndLoadQS(128, 1000));
+    final DoublesUnion roUnion = DoublesUnion.wrap(Memory.wrap(union.toByteArray()));
+    roUnion.update(new ArrayList<Memory>());
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: " + this.getClass().getName());
@@ -23,6 +23,7 @@ import static org.testng.Assert.assertEquals;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Random;
 import java.util.function.Function;
 
 import org.apache.datasketches.ArrayOfDoublesSerDe;
@@ -555,4 +556,35 @@ public class ItemsSketchTest {
     //System.out.println(s); //disable here
   }
 
+  @Test
+  public void seededRandomPerSketchIsDeterministic() {
+    final ItemsSketch<Integer> sk1 = ItemsSketch.getInstance(16, Comparator.naturalOrder());
+    final ItemsSketch<Integer> sk2 = ItemsSketch.getInstance(16, Comparator.naturalOrder());
+    sk1.setRandom(new Random(7));
+    sk2.setRandom(new Random(7));
+    for (int i = 0; i < 10_000; i++) {
+      sk1.update(i);
+      sk2.update(i);
+      ItemsSketch.rand.nextInt(); // the shared generator must not be used
+    }
+    assertEquals(sk1.getQuantiles(11), sk2.getQuantiles(11));
+    sk1.setRandom(null);
+    sk1.update(1);
+    assertEquals(sk1.getN(), 10_001);
+  }
+
+  @Test
+  public void defaultRandomIsPerSketch() {
+    final String[] results = new String[2];
+    for (int r = 0; r < 2; r++) {
+      ItemsSketch.rand.setSeed(11);
+      final ItemsSketch<Integer> sk = ItemsSketch.getInstance(16, Comparator.naturalOrder());
+      for (int i = 0; i < 10_000; i++) {
+        sk.update(i);
+        if (r == 1) { ItemsSketch.rand.nextInt(); } //the shared generator is only used at creation
+      }
+      results[r] = Arrays.toString(sk.getQuantiles(11));
+    }
+    assertEquals(results[0], results[1]);
+  }
 }
@@ -23,6 +23,10 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.datasketches.SketchesArgumentException;
 import org.apache.datasketches.memory.WritableMemory;
 import org.testng.annotations.Test;
@@ -209,6 +213,37 @@ public class FloatBufferTest {
     //println("");
   }
 
+  @Test
+  public void checkMergeSortInList() {
+    checkMergeSortInListImpl(true);
+    checkMergeSortInListImpl(false);
+  }
+
+  private static void checkMergeSortInListImpl(final boolean spaceAtBottom) {
+    final FloatBuffer buf = new FloatBuffer(4, 2, spaceAtBottom);
+    buf.append(4).append(1).sort();
+    final List<FloatBuffer> bufsIn = new ArrayList<>();
+    for (int b = 0; b < 5; b++) {
+      final FloatBuffer bufIn = new FloatBuffer(2, 0, !spaceAtBottom);
+      for (int i = 0; i < b; i++) { bufIn.append(2 + b * 10 + i); }
+      bufsIn.add(bufIn.sort());
+    }
+    buf.mergeSortIn(bufsIn);
+    assertTrue(buf.isSorted());
+    assertEquals(buf.getCount(), 12);
+    assertTrue(buf.getCapacity() >= 12);
+    for (int i = 1; i < buf.getCount(); i++) {
+      assertTrue(buf.getItem(i - 1) <= buf.getItem(i));
+    }
+    assertEquals(buf.getItem(0), 1f);
+    assertEquals(buf.getItem(11), 45f);
+    assertEquals(bufsIn.get(4).getCount(), 4); //inputs are not modified
+    try {
+      buf.mergeSortIn(Collections.singletonList(new FloatBuffer(4, 0, spaceAtBottom).append(1)));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
   @Test
   private static void checkMergeSortInNotSorted() {
     final float[] arr1 = {6,5,2,1};
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Random;
+
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+public class ReqDoublesSketchTest {
+
+  @Test
+  public void checkEmpty() {
+    final ReqDoublesSketch sk = ReqSketch.builder().buildDoubles();
+    assertTrue(sk.isEmpty());
+    assertEquals(sk.getK(), 12);
+    assertTrue(Double.isNaN(sk.getQuantile(0.5)));
+    assertTrue(Double.isNaN(sk.getRank(1.0)));
+    assertNull(sk.getCDF(new double[] {1.0}));
+    assertNull(sk.getPMF(new double[] {1.0}));
+    sk.update(Double.NaN);
+    assertTrue(sk.isEmpty());
+  }
+
+  @Test
+  public void checkMatchesFloatSketch() {
+    final int n = 100_000;
+    final double[] splits = new double[99];
+    final float[] fSplits = new float[99];
+    for (int i = 0; i < splits.length; i++) { splits[i] = fSplits[i] = (i + 1) * 1000; }
+    final double[] ranks = {0.0, 0.01, 0.1, 0.5, 0.9, 0.99, 1.0};
+
+    for (final boolean hra : new boolean[] {true, false}) {
+      final ReqSketch fSk = ReqSketch.builder().setHighRankAccuracy(hra).setRandom(new Random(7)).build();
+      final ReqDoublesSketch dSk =
+          ReqSketch.builder().setHighRankAccuracy(hra).setRandom(new Random(7)).buildDoubles();
+      final Random rand = new Random(1);
+      for (int i = 0; i < n; i++) {
+        final int v = rand.nextInt(100_000); //exactly representable as a float
+        fSk.update(v);
+        dSk.update(v);
+      }
+      assertEquals(dSk.getN(), fSk.getN());
+      assertEquals(dSk.getRetainedItems(), fSk.getRetainedItems());
+      assertEquals(dSk.getNumLevels(), fSk.getNumLevels());
+      assertEquals(dSk.getMinValue(), (double) fSk.getMinValue());
+      assertEquals(dSk.getMaxValue(), (double) fSk.getMaxValue());
+      assertEquals(dSk.getRanks(splits), fSk.getRanks(fSplits));
+      assertEquals(dSk.getCDF(splits), fSk.getCDF(fSplits));
+      assertEquals(dSk.getPMF(splits), fSk.getPMF(fSplits));
+      final float[] fQuantiles = fSk.getQuantiles(ranks);
+      final double[] dQuantiles = dSk.getQuantiles(ranks);
+      for (int i = 0; i < ranks.length; i++) { assertEquals(dQuantiles[i], (double) fQuantiles[i]); }
+      assertEquals(dSk.getRankLowerBound(0.5, 2), fSk.getRankLowerBound(0.5, 2));
+      assertEquals(dSk.getRankUpperBound(0.5, 2), fSk.getRankUpperBound(0.5, 2));
+    }
+  }
+
+  @Test
+  public void checkDoublePrecision() {
+    final ReqDoublesSketch sk = ReqSketch.builder().setLessThanOrEqual(true).buildDoubles();
+    final int n = 20;
+    for (int i = 0; i < n; i++) { sk.update(1.0 + i * 1e-12); } //all equal as floats
+    assertFalse(sk.isEstimationMode());
+    assertEquals(sk.getMinValue(), 1.0);
+    assertEquals(sk.getMaxValue(), 1.0 + 19 * 1e-12);
+    assertEquals(sk.getRank(1.0 + 9.5e-12), 0.5);
+    assertEquals(sk.getQuantile(0.5), 1.0 + 9 * 1e-12);
+  }
+
+  @Test
+  public void checkBatchUpdateMatchesSingleUpdates() {
+    final int n = 50_000;
+    final double[] items = new double[n];
+    final Random rand = new Random(1);
+    for (int i = 0; i < n; i++) {
+      items[i] = ((i % 1000) == 7) ? Double.NaN : rand.nextDouble();
+    }
+    final double[] splits = new double[99];
+    for (int i = 0; i < splits.length; i++) { splits[i] = (i + 1) / 100.0; }
+    for (final boolean hra : new boolean[] {true, false}) {
+      final ReqDoublesSketch single =
+          ReqSketch.builder().setHighRankAccuracy(hra).setRandom(new Random(7)).buildDoubles();
+      final ReqDoublesSketch batch =
+          ReqSketch.builder().setHighRankAccuracy(hra).setRandom(new Random(7)).buildDoubles();
+      for (int i = 0; i < n; i++) { single.update(items[i]); }
+      for (int off = 0; off < n; off += 3001) { batch.update(items, off, Math.min(3001, n - off)); }
+      //level zero may hold the same items in a different order, so the images are not compared
+      assertEquals(batch.getN(), single.getN());
+      assertEquals(batch.getRetainedItems(), single.getRetainedItems());
+      assertEquals(batch.getNumLevels(), single.getNumLevels());
+      assertEquals(batch.getMinValue(), single.getMinValue());
+      assertEquals(batch.getMaxValue(), single.getMaxValue());
+      assertEquals(batch.getRanks(splits), single.getRanks(splits));
+    }
+  }
+
+  @Test
+  public void checkMerge() {
+    for (final boolean hra : new boolean[] {true, false}) {
+      final ReqDoublesSketch sk1 = ReqSketch.builder().setHighRankAccuracy(hra).buildDoubles();
+      final ReqDoublesSketch sk2 = ReqSketch.builder().setHighRankAccuracy(hra).buildDoubles();
+      for (int i = 0; i < 10_000; i++) { sk1.update(i); }
+      for (int i = 10_000; i < 30_000; i++) { sk2.update(i); }
+      sk1.merge(sk2);
+      assertEquals(sk1.getN(), 30_000);
+      assertEquals(sk1.getMinValue(), 0.0);
+      assertEquals(sk1.getMaxValue(), 29_999.0);
+      assertEquals(sk1.getRank(15_000), 0.5, 0.02);
+      long weight = 0;
+      final ReqDoublesIterator itr = sk1.iterator();
+      while (itr.next()) { weight += itr.getWeight(); }
+      assertEquals(weight, 30_000);
+      assertEquals(itr.getCount(), sk1.getRetainedItems());
+    }
+    final ReqDoublesSketch hraSk = ReqSketch.builder().setHighRankAccuracy(true).buildDoubles();
+    final ReqDoublesSketch lraSk = ReqSketch.builder().setHighRankAccuracy(false).buildDoubles();
+    lraSk.update(1.0);
+    try {
+      hraSk.merge(lraSk);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkSerDe() {
+    for (final int n : new int[] {0, 3, 50, 10_000}) {
+      final ReqDoublesSketch sk = ReqSketch.builder().setHighRankAccuracy(n % 2 == 0).buildDoubles();
+      for (int i = 0; i < n; i++) { sk.update(i + 0.1); }
+      final byte[] bytes = sk.toByteArray();
+      assertEquals(bytes.length, sk.getSerializationBytes());
+      final ReqDoublesSketch sk2 = ReqDoublesSketch.heapify(Memory.wrap(bytes));
+      assertEquals(sk2.getN(), sk.getN());
+      assertEquals(sk2.getRetainedItems(), sk.getRetainedItems());
+      assertEquals(sk2.getHighRankAccuracy(), sk.getHighRankAccuracy());
+      assertEquals(sk2.getMinValue(), sk.getMinValue());
+      assertEquals(sk2.getMaxValue(), sk.getMaxValue());
+      assertEquals(sk2.toByteArray(), bytes);
+      if (n > 0) { assertEquals(sk2.getQuantile(0.5), sk.getQuantile(0.5)); }
+    }
+  }
+
+  @Test
+  public void checkSeededHeapifyIsDeterministic() {
+    final ReqDoublesSketch sk = ReqSketch.builder().setRandom(new Random(7)).buildDoubles();
+    for (int i = 0; i < 10_000; i++) { sk.update(i); }
+    final ReqDoublesSketch heap1 = ReqDoublesSketch.heapify(Memory.wrap(sk.toByteArray()), new Random(3));
+    final ReqDoublesSketch heap2 = ReqDoublesSketch.heapify(Memory.wrap(sk.toByteArray()), new Random(3));
+    for (int i = 0; i < 10_000; i++) {
+      heap1.update(i);
+      heap2.update(i);
+    }
+    assertEquals(heap1.toByteArray(), heap2.toByteArray());
+  }
+
+  @Test
+  public void checkSerDeRejectsOtherFamilyMember() {
+    final ReqDoublesSketch dSk = ReqSketch.builder().buildDoubles();
+    final ReqSketch fSk = ReqSketch.builder().build();
+    for (int i = 0; i < 100; i++) { dSk.update(i); fSk.update(i); }
+    try {
+      ReqSketch.heapify(Memory.wrap(dSk.toByteArray()));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      ReqDoublesSketch.heapify(Memory.wrap(fSk.toByteArray()));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkReset() {
+    final ReqDoublesSketch sk = ReqSketch.builder().buildDoubles();
+    for (int i = 0; i < 1000; i++) { sk.update(i); }
+    sk.reset();
+    assertTrue(sk.isEmpty());
+    assertEquals(sk.getRetainedItems(), 0);
+    assertEquals(sk.getNumLevels(), 1);
+    sk.update(2.5);
+    assertEquals(sk.getQuantile(1.0), 2.5);
+  }
+
+}
@@ -22,6 +22,8 @@ package org.apache.datasketches.req;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Random;
+
 import org.testng.annotations.Test;
 
 /**
@@ -41,6 +43,12 @@ public class ReqSketchBuilderTest {
     println(bldr.toString());
     bldr.setReqDebug(null);
     println(bldr.toString());
+    final Random rand = new Random(1);
+    bldr.setRandom(rand);
+    assertTrue(bldr.getRandom() == rand);
+    println(bldr.toString());
+    bldr.setRandom(null);
+    assertTrue(bldr.getRandom() == null);
   }
 
   /**
@@ -24,13 +24,22 @@ import static org.apache.datasketches.InequalitySearch.GT;
 import static org.apache.datasketches.InequalitySearch.LE;
 import static org.apache.datasketches.InequalitySearch.LT;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.datasketches.InequalitySearch;
 import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
 import org.testng.annotations.Test;
 
 /**
@@ -60,6 +69,98 @@ public class ReqSketchOtherTest {
     final ReqSketch sk2 = new ReqSketch(sk);
     assertEquals(sk2.getMinValue(), min);
     assertEquals(sk2.getMaxValue(), max);
+    for (int i = 0; i < 1000; i++) { sk2.update(i); } //the copy must be able to compact
+    assertEquals(sk2.getN(), n + 1000);
+  }
+
+  @Test
+  public void checkSeededRandomIsDeterministic() {
+    final ReqSketch sk1 = ReqSketch.builder().setK(12).setRandom(new Random(7)).build();
+    final ReqSketch sk2 = ReqSketch.builder().setK(12).setRandom(new Random(7)).build();
+    for (int i = 0; i < 10_000; i++) {
+      sk1.update(i);
+      sk2.update(i);
+    }
+    assertEquals(sk1.toByteArray(), sk2.toByteArray());
+    final ReqSketch sk3 = ReqSketch.heapify(Memory.wrap(sk1.toByteArray()));
+    for (int i = 0; i < 1000; i++) { sk3.update(i); }
+    assertEquals(sk3.getN(), 11_000);
+
+    //sketches heapified with seeded generators stay deterministic
+    final ReqSketch heap1 = ReqSketch.heapify(Memory.wrap(sk1.toByteArray()), new Random(3));
+    final ReqSketch heap2 = ReqSketch.heapify(Memory.wrap(sk1.toByteArray()), new Random(3));
+    for (int i = 0; i < 10_000; i++) {
+      heap1.update(i);
+      heap2.update(i);
+    }
+    assertEquals(heap1.toByteArray(), heap2.toByteArray());
+  }
+
+  @Test
+  public void checkBuilderGivesEachSketchItsOwnRandom() {
+    final ReqSketchBuilder bldr1 = ReqSketch.builder().setK(12).setRandom(new Random(7));
+    final ReqSketchBuilder bldr2 = ReqSketch.builder().setK(12).setRandom(new Random(7));
+    final ReqSketch a1 = bldr1.build();
+    final ReqSketch b1 = bldr1.build();
+    final ReqSketch a2 = bldr2.build();
+    final ReqSketch b2 = bldr2.build();
+    for (int i = 0; i < 10_000; i++) { //interleaved differently, which a shared generator would see
+      a1.update(i);
+      b1.update(i);
+    }
+    for (int i = 0; i < 10_000; i++) { a2.update(i); }
+    for (int i = 0; i < 10_000; i++) { b2.update(i); }
+    assertEquals(a1.toByteArray(), a2.toByteArray());
+    assertEquals(b1.toByteArray(), b2.toByteArray());
+  }
+
+  @Test
+  public void checkBatchUpdateMatchesSingleUpdates() {
+    final int n = 50_000;
+    final float[] fItems = new float[n];
+    final double[] dItems = new double[n];
+    final Random rand = new Random(1);
+    for (int i = 0; i < n; i++) {
+      fItems[i] = ((i % 1000) == 7) ? Float.NaN : rand.nextInt(100_000);
+      dItems[i] = fItems[i];
+    }
+    final float[] splits = new float[99];
+    for (int i = 0; i < splits.length; i++) { splits[i] = (i + 1) * 1000; }
+
+    for (final boolean hra : new boolean[] {true, false}) {
+      final ReqSketch single = ReqSketch.builder().setK(12).setHighRankAccuracy(hra).setRandom(new Random(7)).build();
+      final ReqSketch fBatch = ReqSketch.builder().setK(12).setHighRankAccuracy(hra).setRandom(new Random(7)).build();
+      final ReqSketch dBatch = ReqSketch.builder().setK(12).setHighRankAccuracy(hra).setRandom(new Random(7)).build();
+      for (int i = 0; i < n; i++) { single.update(fItems[i]); }
+      for (int off = 0; off < n; off += 3001) {
+        fBatch.update(fItems, off, Math.min(3001, n - off));
+        dBatch.update(dItems, off, Math.min(3001, n - off));
+      }
+      for (final ReqSketch batch : new ReqSketch[] {fBatch, dBatch}) {
+        assertEquals(batch.getN(), single.getN());
+        assertEquals(batch.getRetainedItems(), single.getRetainedItems());
+        assertEquals(batch.getNumLevels(), single.getNumLevels());
+        assertEquals(batch.getMinValue(), single.getMinValue());
+        assertEquals(batch.getMaxValue(), single.getMaxValue());
+        assertEquals(batch.getRanks(splits), single.getRanks(splits));
+      }
+    }
+  }
+
+  @Test
+  public void checkBatchUpdateArgs() {
+    final ReqSketch sk = ReqSketch.builder().build();
+    sk.update(new float[] {Float.NaN, Float.NaN}, 0, 2);
+    assertTrue(sk.isEmpty());
+    sk.update(new double[] {1, 2, 3}, 1, 2);
+    assertEquals(sk.getN(), 2);
+    assertEquals(sk.getMinValue(), 2f);
+    try {
+      sk.update(new float[2], 1, 2);
+      fail();
+    } catch (final SketchesArgumentException e) {
+      // expected
+    }
   }
 
   @Test
@@ -211,6 +312,113 @@ public class ReqSketchOtherTest {
     final double[] ranks = sk.getRanks(new float[] {5f, 100f});
   }
 
+  @Test
+  public void checkMergeAll() {
+    final int numSketches = 500;
+    final int itemsPerSketch = 1000;
+    final int n = numSketches * itemsPerSketch;
+    final float[] splits = new float[99];
+    for (int i = 0; i < splits.length; i++) { splits[i] = (i + 1) * (n / 100); }
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (final boolean hra : new boolean[] {true, false}) {
+        final List<ReqSketch> sketches = new ArrayList<>();
+        final ReqSketch sequential = ReqSketch.builder().setHighRankAccuracy(hra).setRandom(new Random(1)).build();
+        for (int s = 0; s < numSketches; s++) {
+          final ReqSketch sk = ReqSketch.builder().setK(s % 2 == 0 ? 12 : 8).setHighRankAccuracy(hra)
+              .setRandom(new Random(s)).build();
+          for (int i = 0; i < itemsPerSketch; i++) { sk.update(i * numSketches + s); }
+          sketches.add(sk);
+          sequential.merge(sk);
+        }
+        sketches.add(ReqSketch.builder().setHighRankAccuracy(hra).build()); //empty
+        final int retained = sketches.get(0).getRetainedItems();
+        for (final ReqSketch merged : new ReqSketch[] {ReqSketch.mergeAll(sketches, pool),
+            ReqSketch.mergeAll(sketches)}) {
+          assertEquals(merged.getN(), n);
+          assertEquals(merged.getK(), 12);
+          assertEquals(merged.getHighRankAccuracy(), hra);
+          assertEquals(merged.getMinValue(), 0f);
+          assertEquals(merged.getMaxValue(), (float) (n - 1));
+          assertTrue(merged.getRetainedItems() < merged.getMaxNomSize());
+          //each sketch is checked against the true ranks within the error of the smallest input k
+          for (final ReqSketch sk : new ReqSketch[] {merged, sequential}) {
+            final double[] ranks = sk.getRanks(splits);
+            for (int i = 0; i < splits.length; i++) {
+              final double trueRank = (double) splits[i] / n;
+              assertEquals(ranks[i], trueRank, 3 * sk.getRSE(8, trueRank, hra, n));
+            }
+          }
+          assertEquals(merged.getQuantile(hra ? 1.0 : 0.0), hra ? n - 1 : 0f);
+        }
+        assertEquals(sketches.get(0).getRetainedItems(), retained); //inputs are not modified
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkMergeAllSeededIsDeterministic() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final List<ReqSketch> sketches = new ArrayList<>();
+      for (int s = 0; s < 100; s++) {
+        final ReqSketch sk = ReqSketch.builder().setRandom(new Random(s)).build();
+        for (int i = 0; i < 1000; i++) { sk.update(i * 100 + s); }
+        sketches.add(sk);
+      }
+      final byte[] result1 = ReqSketch.mergeAll(sketches, new Random(5), pool).toByteArray();
+      final byte[] result2 = ReqSketch.mergeAll(sketches, new Random(5), pool).toByteArray();
+      assertEquals(result1, result2);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkMergeAllLessThanOrEqual() {
+    final List<ReqSketch> sketches = new ArrayList<>();
+    final ReqSketch sequential = ReqSketch.builder().setLessThanOrEqual(true).build();
+    for (int s = 0; s < 3; s++) { //exact mode
+      final ReqSketch sk = ReqSketch.builder().setLessThanOrEqual(true).build();
+      for (int i = 0; i < 10; i++) { sk.update(i * 3 + s); }
+      sketches.add(sk);
+      sequential.merge(sk);
+    }
+    final ReqSketch merged = ReqSketch.mergeAll(sketches);
+    assertTrue(merged.isLessThanOrEqual());
+    final float[] values = {0f, 5f, 15f, 29f};
+    assertEquals(merged.getRanks(values), sequential.getRanks(values));
+    assertEquals(merged.getRank(29f), 1.0);
+    assertEquals(merged.getQuantile(0.5), sequential.getQuantile(0.5));
+
+    sketches.add(ReqSketch.builder().setLessThanOrEqual(false).build());
+    try {
+      ReqSketch.mergeAll(sketches);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkMergeAllArgs() {
+    final ReqSketch empty = ReqSketch.mergeAll(new ArrayList<ReqSketch>());
+    assertTrue(empty.isEmpty());
+    assertEquals(empty.getK(), 12);
+    final ReqSketch hraSk = ReqSketch.builder().setHighRankAccuracy(true).build();
+    final ReqSketch lraSk = ReqSketch.builder().setHighRankAccuracy(false).build();
+    final ReqSketch lraMerged = ReqSketch.mergeAll(Collections.singletonList(lraSk));
+    assertFalse(lraMerged.getHighRankAccuracy());
+    try {
+      ReqSketch.mergeAll(Arrays.asList(hraSk, lraSk));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      ReqSketch.mergeAll(null);
+      fail();
+    } catch (final NullPointerException e) { }
+  }
+
   private static void myAssertEquals(final double v1, final double v2) {
     if (Double.isNaN(v1) && Double.isNaN(v2)) { assert true; }
     else if (v1 == v2) { assert true; }
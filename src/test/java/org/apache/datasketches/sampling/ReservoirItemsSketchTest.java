@@ -586,6 +586,45 @@ public class ReservoirItemsSketchTest {
     assertEquals(ss.getTotalSketchWeight(), itemCount);
   }
 
+  @Test
+  public void checkSkippingSampleDistribution() {
+    // every item must be sampled with probability k/n, including after a union has changed n
+    final int k = 4;
+    final int n = 40;
+    final int numTrials = 20_000;
+
+    final int[] counts = new int[n];
+    final int[] forcedCounts = new int[n];
+    for (int t = 0; t < numTrials; ++t) {
+      final ReservoirItemsSketch<Integer> ris = ReservoirItemsSketch.newInstance(k);
+      for (int i = 0; i < n; ++i) {
+        ris.update(i);
+      }
+      for (final Integer sample : ris.getSamples()) { ++counts[sample]; }
+
+      // items presented after forcing n to 2k are sampled with probability k/i, as for the first 2k
+      final ReservoirItemsSketch<Integer> forced = ReservoirItemsSketch.newInstance(k);
+      for (int i = 0; i < k; ++i) {
+        forced.update(i);
+      }
+      forced.forceIncrementItemsSeen(k);
+      for (int i = 2 * k; i < n; ++i) {
+        forced.update(i);
+      }
+      for (final Integer sample : forced.getSamples()) { ++forcedCounts[sample]; }
+    }
+
+    final double expected = (numTrials * (double) k) / n;
+    final double tolerance = 5 * Math.sqrt(expected * (1 - ((double) k / n)));
+    for (int i = 0; i < n; ++i) {
+      assertEquals(counts[i], expected, tolerance);
+      if ((i < k) || (i >= (2 * k))) {
+        final double forcedExpected = i < k ? 2 * expected : expected; // first k stand for 2k
+        assertEquals(forcedCounts[i], forcedExpected, 2 * tolerance);
+      }
+    }
+  }
+
   private static WritableMemory getBasicSerializedLongsRIS() {
     final int k = 10;
     final int n = 20;
@@ -31,6 +31,8 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.testng.annotations.Test;
 
@@ -474,6 +476,91 @@ public class ReservoirItemsUnionTest {
     fail();
   }
 
+  @Test
+  public void checkUnionAll() {
+    final int k = 32;
+    final int numSketches = 100;
+    final List<ReservoirItemsSketch<Long>> sketches = new ArrayList<>();
+    final List<Memory> images = new ArrayList<>();
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    long totalN = 0;
+    for (int i = 0; i < numSketches; ++i) {
+      final ReservoirItemsSketch<Long> sk = ReservoirItemsSketch.newInstance(k);
+      for (long j = 0; j < i; ++j) { // includes empty and exact mode sketches
+        sk.update((1000L * i) + j);
+      }
+      totalN += i;
+      sketches.add(sk);
+      images.add(Memory.wrap(sk.toByteArray(serDe)));
+    }
+    sketches.add(null);
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final ReservoirItemsSketch<Long> result = ReservoirItemsUnion.unionAll(sketches, k, pool);
+      assertEquals(result.getN(), totalN);
+      assertEquals(result.getK(), k);
+      assertEquals(result.getNumSamples(), k);
+      for (final Long item : result.getSamples()) {
+        assertTrue((item % 1000) < (item / 1000)); // j < i
+      }
+      // the inputs are not modified
+      assertEquals(sketches.get(numSketches - 1).getN(), numSketches - 1);
+
+      final ReservoirItemsSketch<Long> fromImages =
+          ReservoirItemsUnion.unionAll(images, serDe, k / 2, pool);
+      assertEquals(fromImages.getN(), totalN);
+      assertEquals(fromImages.getK(), k / 2);
+
+      assertNull(ReservoirItemsUnion.unionAll(new ArrayList<ReservoirItemsSketch<Long>>(), k, pool));
+    } finally {
+      pool.shutdown();
+    }
+
+    try {
+      ReservoirItemsUnion.unionAll(sketches, k, null);
+      fail();
+    } catch (final NullPointerException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void checkUnionAllSampleDistribution() {
+    // every item of the global input must be sampled with probability k/n by the tree reduction
+    final int k = 4;
+    final int numSketches = 8;
+    final int itemsPerSketch = 10;
+    final int n = numSketches * itemsPerSketch;
+    final int numTrials = 5_000;
+    final int[] counts = new int[n];
+
+    final ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      for (int t = 0; t < numTrials; ++t) {
+        final List<ReservoirItemsSketch<Long>> sketches = new ArrayList<>();
+        for (int i = 0; i < numSketches; ++i) {
+          final ReservoirItemsSketch<Long> sk = ReservoirItemsSketch.newInstance(k);
+          for (long j = 0; j < itemsPerSketch; ++j) {
+            sk.update((i * (long) itemsPerSketch) + j);
+          }
+          sketches.add(sk);
+        }
+        for (final Long item : ReservoirItemsUnion.unionAll(sketches, k, pool).getSamples()) {
+          ++counts[item.intValue()];
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    final double expected = (numTrials * (double) k) / n;
+    final double tolerance = 5 * Math.sqrt(expected * (1 - ((double) k / n)));
+    for (int i = 0; i < n; ++i) {
+      assertEquals(counts[i], expected, tolerance);
+    }
+  }
+
   private static ReservoirItemsSketch<Long> getBasicSketch(final int n, final int k) {
     final ReservoirItemsSketch<Long> rls = ReservoirItemsSketch.newInstance(k);
 
@@ -483,6 +483,94 @@ public class ReservoirLongsSketchTest {
     assertEquals(ss.getTotalSketchWeight(), itemCount);
   }
 
+  @Test
+  public void checkBulkUpdate() {
+    final int k = 16;
+    final long[] items = new long[100];
+    for (int i = 0; i < items.length; ++i) {
+      items[i] = i;
+    }
+
+    final ReservoirLongsSketch rls = ReservoirLongsSketch.newInstance(k, ResizeFactor.X2);
+    rls.update(items, 0, 10); // exact mode, with growth of the array
+    assertEquals(rls.getN(), 10);
+    assertEquals(rls.getSamples(), java.util.Arrays.copyOfRange(items, 0, 10));
+
+    rls.update(items, 10, 90); // fills the reservoir and then samples
+    assertEquals(rls.getN(), 100);
+    assertEquals(rls.getNumSamples(), k);
+    for (final long sample : rls.getSamples()) {
+      assertTrue((sample >= 0) && (sample < 100));
+    }
+
+    rls.update(items, 0, 0);
+    assertEquals(rls.getN(), 100);
+
+    try {
+      rls.update(items, 95, 10);
+      fail();
+    } catch (final SketchesArgumentException e) {
+      // expected
+    }
+    try {
+      rls.update(null, 0, 0);
+      fail();
+    } catch (final NullPointerException e) {
+      // expected
+    }
+
+    rls.forceIncrementItemsSeen((1L << 48) - 1 - rls.getN());
+    try {
+      rls.update(items, 0, 2);
+      fail();
+    } catch (final SketchesStateException e) {
+      assertTrue(e.getMessage().contains("Sketch has exceeded capacity for total items seen"));
+    }
+  }
+
+  @Test
+  public void checkSkippingSampleDistribution() {
+    // every item must be sampled with probability k/n, whether presented one at a time, in bulk,
+    // or after the sketch has been rebuilt from its serialized image
+    final int k = 4;
+    final int n = 40;
+    final int numTrials = 20_000;
+    final long[] items = new long[n];
+    for (int i = 0; i < n; ++i) {
+      items[i] = i;
+    }
+
+    final int[] singleCounts = new int[n];
+    final int[] bulkCounts = new int[n];
+    final int[] heapifyCounts = new int[n];
+    for (int t = 0; t < numTrials; ++t) {
+      final ReservoirLongsSketch single = ReservoirLongsSketch.newInstance(k);
+      for (final long item : items) {
+        single.update(item);
+      }
+      for (final long sample : single.getSamples()) { ++singleCounts[(int) sample]; }
+
+      final ReservoirLongsSketch bulk = ReservoirLongsSketch.newInstance(k);
+      bulk.update(items, 0, 7);
+      bulk.update(items, 7, n - 7);
+      for (final long sample : bulk.getSamples()) { ++bulkCounts[(int) sample]; }
+
+      final ReservoirLongsSketch first = ReservoirLongsSketch.newInstance(k);
+      first.update(items, 0, n / 2);
+      final ReservoirLongsSketch second = ReservoirLongsSketch.heapify(Memory.wrap(first.toByteArray()));
+      second.update(items, n / 2, n / 2);
+      for (final long sample : second.getSamples()) { ++heapifyCounts[(int) sample]; }
+    }
+
+    final double expected = (numTrials * (double) k) / n;
+    final double tolerance = 5 * Math.sqrt(expected * (1 - ((double) k / n)));
+    for (int i = 0; i < n; ++i) {
+      assertEquals(singleCounts[i], expected, tolerance);
+      assertEquals(bulkCounts[i], expected, tolerance);
+      assertEquals(heapifyCounts[i], expected, tolerance);
+    }
+  }
+
   private static WritableMemory getBasicSerializedRLS() {
     final int k = 10;
     final int n = 20;
@@ -119,6 +119,15 @@ public class ReservoirLongsUnionTest {
     assertNotNull(rlu.getResult());
   }
 
+  @Test
+  public void checkDownsampledEmptyUpdate() {
+    final ReservoirLongsUnion rlu = ReservoirLongsUnion.newInstance(16);
+    rlu.update(ReservoirLongsSketch.newInstance(64)); // k > maxK, so the empty sketch is downsampled
+    final ReservoirLongsSketch result = rlu.getResult();
+    assertEquals(result.getN(), 0);
+    assertEquals(result.getK(), 16);
+  }
+
   @Test
   public void checkSerialization() {
     final int n = 100;
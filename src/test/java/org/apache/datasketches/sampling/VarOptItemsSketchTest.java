@@ -597,6 +597,96 @@ public class VarOptItemsSketchTest {
   }
 
 
+  @Test
+  public void checkBatchUpdate() {
+    final int k = 32;
+    final int n = 10000;
+    final Long[] items = new Long[n];
+    final double[] weights = new double[n];
+    double totalWeight = 0.0;
+    long numItems = 0;
+    for (int i = 0; i < n; ++i) {
+      if ((i % 101) == 50) { continue; } // leave some nulls
+      items[i] = (long) i;
+      weights[i] = (i % 97) == 0 ? 1000.0 : 1.0 + (i % 3);
+      totalWeight += weights[i];
+      ++numItems;
+    }
+
+    final VarOptItemsSketch<Long> batch = VarOptItemsSketch.newInstance(k);
+    final VarOptItemsSketch<Long> single = VarOptItemsSketch.newInstance(k);
+    for (int off = 0; off < n; off += 777) {
+      batch.update(items, weights, off, Math.min(777, n - off));
+    }
+    for (int i = 0; i < n; ++i) {
+      single.update(items[i], weights[i]);
+    }
+
+    assertEquals(batch.getN(), numItems);
+    assertEquals(batch.getN(), single.getN());
+    assertEquals(batch.getNumSamples(), single.getNumSamples());
+    final SampleSubsetSummary ss = batch.estimateSubsetSum(item -> true);
+    assertEquals(ss.getEstimate(), totalWeight, totalWeight * EPS);
+    assertEquals(ss.getTotalSketchWeight(), totalWeight, totalWeight * EPS);
+  }
+
+  @Test
+  public void checkBatchUpdateSubsetEstimate() {
+    final int k = 20;
+    final int n = 200;
+    final int numTrials = 2000;
+    final Integer[] items = new Integer[n];
+    final double[] weights = new double[n];
+    double subsetWeight = 0.0;
+    for (int i = 0; i < n; ++i) {
+      items[i] = i;
+      weights[i] = 1.0 + (i % 10);
+      if ((i % 2) == 0) { subsetWeight += weights[i]; }
+    }
+
+    double sumEstimates = 0.0;
+    for (int t = 0; t < numTrials; ++t) {
+      final VarOptItemsSketch<Integer> sketch = VarOptItemsSketch.newInstance(k);
+      sketch.update(items, weights, 0, n);
+      sumEstimates += sketch.estimateSubsetSum(item -> (item % 2) == 0).getEstimate();
+    }
+
+    // each trial is unbiased, so the mean should be well within 3%
+    assertEquals(sumEstimates / numTrials, subsetWeight, 0.03 * subsetWeight);
+  }
+
+  @Test
+  public void checkBatchUpdateInvalidArgs() {
+    final VarOptItemsSketch<Long> sketch = VarOptItemsSketch.newInstance(8);
+    final Long[] items = {1L, 2L, 3L};
+    final double[] weights = {1.0, -1.0, 1.0};
+
+    try {
+      sketch.update(items, weights, 0, 3);
+      fail();
+    } catch (final SketchesArgumentException e) {
+      assertEquals(sketch.getN(), 0); // nothing applied
+    }
+
+    try {
+      sketch.update(items, new double[2], 0, 3);
+      fail();
+    } catch (final SketchesArgumentException e) {
+      // expected
+    }
+
+    try {
+      sketch.update(null, weights, 0, 0);
+      fail();
+    } catch (final NullPointerException e) {
+      // expected
+    }
+
+    items[1] = null; // weight of a null item is not checked
+    sketch.update(items, weights, 0, 3);
+    assertEquals(sketch.getN(), 2);
+  }
+
   /* Returns a sketch of size k that has been presented with n items. Use n = k+1 to obtain a
      sketch that has just reached the sampling phase, so that the next update() is handled by
      one of the non-warmup routes.
@@ -27,6 +27,10 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
 import org.apache.datasketches.memory.Memory;
@@ -403,6 +407,53 @@ public class VarOptItemsUnionTest {
     assertEquals(rebuilt.toString(), union.toString());
   }
 
+  @Test
+  public void checkUnionAll() {
+    final int k = 32;
+    final int numSketches = 100;
+    final List<VarOptItemsSketch<Long>> sketches = new ArrayList<>();
+    final List<Memory> images = new ArrayList<>();
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    final VarOptItemsUnion<Long> sequential = VarOptItemsUnion.newInstance(k);
+    long totalN = 0;
+    double totalWeight = 0.0;
+    for (int i = 0; i < numSketches; ++i) {
+      final VarOptItemsSketch<Long> sk = VarOptItemsSketch.newInstance(k);
+      for (long j = 0; j < i; ++j) {
+        final double weight = (j == 0) ? 1000.0 : 1.0 + (j % 7);
+        sk.update((1000L * i) + j, weight);
+        totalWeight += weight;
+      }
+      totalN += i;
+      sketches.add(sk);
+      images.add(Memory.wrap(sk.toByteArray(serDe)));
+      sequential.update(sk);
+    }
+    sketches.add(null);
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final VarOptItemsSketch<Long> result = VarOptItemsUnion.unionAll(sketches, k, pool);
+      final VarOptItemsSketch<Long> expected = sequential.getResult();
+      assertEquals(result.getN(), totalN);
+      assertEquals(result.getK(), expected.getK());
+      assertEquals(result.getNumSamples(), expected.getNumSamples());
+      assertEquals(result.estimateSubsetSum(item -> true).getEstimate(), totalWeight,
+          totalWeight * EPS);
+
+      final VarOptItemsSketch<Long> fromImages = VarOptItemsUnion.unionAll(images, serDe, k, pool);
+      assertEquals(fromImages.getN(), totalN);
+      assertEquals(fromImages.estimateSubsetSum(item -> true).getEstimate(), totalWeight,
+          totalWeight * EPS);
+
+      final VarOptItemsSketch<Long> empty =
+          VarOptItemsUnion.unionAll(new ArrayList<VarOptItemsSketch<Long>>(), k, pool);
+      assertEquals(empty.getN(), 0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   private static <T> void compareUnionsExact(final VarOptItemsUnion<T> u1,
                                              final VarOptItemsUnion<T> u2) {
     assertEquals(u1.getOuterTau(), u2.getOuterTau());
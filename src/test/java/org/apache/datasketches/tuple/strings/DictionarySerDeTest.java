@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import static org.apache.datasketches.Util.DEFAULT_UPDATE_SEED;
+import static org.apache.datasketches.Util.computeSeedHash;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.datasketches.ResizeFactor;
+import org.apache.datasketches.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.tuple.CompactSketch;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.SketchIterator;
+import org.apache.datasketches.tuple.Union;
+import org.testng.annotations.Test;
+
+public class DictionarySerDeTest {
+
+  @Test
+  public void checkDictionarySharesStrings() {
+    final StringDictionary dict = new StringDictionary();
+    final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(10, ResizeFactor.X8, 1.0F, dict);
+    for (int i = 0; i < 1000; i++) {
+      //new String instances on every update
+      final String[] tuple = {new String("US"), "dev" + (i % 3), Integer.toString(i)};
+      sk.update(tuple, tuple);
+    }
+    assertEquals(dict.size(), 1 + 3 + 1000);
+    String us = null;
+    final SketchIterator<ArrayOfStringsSummary> it = sk.iterator();
+    while (it.next()) {
+      final String node = it.getSummary().getNodes()[0];
+      if (us == null) { us = node; }
+      assertSame(node, us);
+    }
+    final SketchIterator<ArrayOfStringsSummary> it2 = sk.compact().iterator();
+    while (it2.next()) { assertSame(it2.getSummary().getNodes()[0], us); }
+  }
+
+  @Test
+  public void checkRoundTrip() {
+    for (int n : new int[] {0, 1, 2, 200, 20000}) {
+      for (int card : new int[] {3, 300, 70000}) {
+        final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(12);
+        for (int i = 0; i < n; i++) {
+          final String[] tuple = {"c" + (i % 5), "v" + ((i * 7) % card), "é" + (i % 2)};
+          sk.update(tuple, tuple);
+        }
+        checkRoundTrip(sk);
+        checkRoundTrip(sk.compact());
+      }
+    }
+  }
+
+  @Test
+  public void checkSmallerThanCompactImage() {
+    final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(12);
+    final String[] countries = {"United States", "Germany", "Japan", "Brazil"};
+    final String[] devices = {"desktop", "mobile", "tablet"};
+    for (int i = 0; i < 10000; i++) {
+      final String[] key = {countries[i % 4], devices[i % 3], "os-" + (i % 6), "user" + i};
+      sk.update(key, new String[] {key[0], key[1], key[2]});
+    }
+    final byte[] plain = sk.compact().toByteArray();
+    final byte[] coded = DictionarySerDe.toByteArray(sk);
+    assertTrue((coded.length * 3) < plain.length);
+  }
+
+  @Test
+  public void checkUnionOfDifferentDictionaries() {
+    final ArrayOfStringsSketch sk1 =
+        new ArrayOfStringsSketch(10, ResizeFactor.X8, 1.0F, new StringDictionary());
+    final ArrayOfStringsSketch sk2 =
+        new ArrayOfStringsSketch(10, ResizeFactor.X8, 1.0F, new StringDictionary());
+    final ArrayOfStringsSketch sk3 = new ArrayOfStringsSketch(10);
+    for (int i = 0; i < 3000; i++) {
+      final String[] tuple = {"a" + (i % 4), "b" + i};
+      sk1.update(tuple, tuple);
+      if ((i % 2) == 0) { sk2.update(tuple, tuple); }
+      if ((i % 3) == 0) { sk3.update(tuple, tuple); }
+    }
+    final Union<ArrayOfStringsSummary> union =
+        new Union<>(1 << 10, new ArrayOfStringsSummarySetOperations());
+    union.union(sk1);
+    union.union(sk2);
+    union.union(sk3);
+    checkRoundTrip(union.getResult());
+  }
+
+  @Test
+  public void checkHeapifyKeepsDictionary() {
+    final StringDictionary dict = new StringDictionary();
+    final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(10, ResizeFactor.X8, 1.0F, dict);
+    for (int i = 0; i < 5000; i++) {
+      final String[] tuple = {"a" + (i % 4), "b" + i};
+      sk.update(tuple, tuple);
+    }
+    final Memory mem = Memory.wrap(DictionarySerDe.toByteArray(sk));
+    final CompactSketch<ArrayOfStringsSummary> csk = DictionarySerDe.heapify(mem, dict);
+    final String a0 = dict.intern("a0");
+    final SketchIterator<ArrayOfStringsSummary> it = csk.iterator();
+    while (it.next()) {
+      final String node = it.getSummary().getNodes()[0];
+      if (node.equals("a0")) { assertSame(node, a0); }
+    }
+
+    //a union of heapified sketches keeps the canonical strings
+    final Union<ArrayOfStringsSummary> union =
+        new Union<>(1 << 10, new ArrayOfStringsSummarySetOperations());
+    union.union(csk);
+    union.union(DictionarySerDe.heapify(mem, dict));
+    final SketchIterator<ArrayOfStringsSummary> it2 = union.getResult().iterator();
+    while (it2.next()) {
+      final String node = it2.getSummary().getNodes()[0];
+      assertSame(node, dict.intern(node));
+    }
+
+    final Memory emptyMem =
+        Memory.wrap(DictionarySerDe.toByteArray(new ArrayOfStringsSketch(10).compact()));
+    //the seed hash of the CompactSketch image follows the empty dictionary
+    assertEquals(emptyMem.getShort(DictionarySerDe.HEADER_BYTES + 6),
+        computeSeedHash(DEFAULT_UPDATE_SEED));
+    assertTrue(DictionarySerDe.heapify(emptyMem).isEmpty());
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkNullString() {
+    final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(10);
+    sk.update(new String[] {"a"}, new String[] {"a", null});
+    DictionarySerDe.toByteArray(sk);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkWrongSerVer() {
+    final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(10);
+    sk.update(new String[] {"a"}, new String[] {"a"});
+    final WritableMemory wmem = WritableMemory.writableWrap(DictionarySerDe.toByteArray(sk));
+    wmem.putByte(0, (byte) 2);
+    DictionarySerDe.heapify(wmem);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkBadCode() {
+    final ArrayOfStringsSketch sk = new ArrayOfStringsSketch(10);
+    sk.update(new String[] {"a"}, new String[] {"a"});
+    final byte[] bytes = DictionarySerDe.toByteArray(sk);
+    bytes[bytes.length - 1] = 5; //the only code
+    DictionarySerDe.heapify(Memory.wrap(bytes));
+  }
+
+  @Test
+  public void checkCodeBytes() {
+    assertEquals(DictionarySerDe.codeBytes(0), 1);
+    assertEquals(DictionarySerDe.codeBytes(256), 1);
+    assertEquals(DictionarySerDe.codeBytes(257), 2);
+    assertEquals(DictionarySerDe.codeBytes(65536), 2);
+    assertEquals(DictionarySerDe.codeBytes(65537), 4);
+  }
+
+  private static void checkRoundTrip(final Sketch<ArrayOfStringsSummary> sk) {
+    final byte[] bytes = DictionarySerDe.toByteArray(sk);
+    final CompactSketch<ArrayOfStringsSummary> csk = DictionarySerDe.heapify(Memory.wrap(bytes));
+    assertEquals(csk.getRetainedEntries(), sk.getRetainedEntries());
+    assertEquals(csk.getThetaLong(), sk.getThetaLong());
+    assertEquals(csk.isEmpty(), sk.isEmpty());
+    assertEquals(csk.getEstimate(), sk.getEstimate());
+    final Map<Long, String[]> expected = new HashMap<>();
+    final SketchIterator<ArrayOfStringsSummary> it = sk.iterator();
+    while (it.next()) { expected.put(it.getHash(), it.getSummary().getValue()); }
+    final SketchIterator<ArrayOfStringsSummary> it2 = csk.iterator();
+    while (it2.next()) { assertEquals(it2.getSummary().getValue(), expected.get(it2.getHash())); }
+  }
+
+}